@@ -2,16 +2,26 @@ grammar LogicMini;
 
 // --- PARSER RULES (The Structure) ---
 
-// The root node: A program is a list of clauses followed by a query
-program : clause* query EOF ;
+// The root node: A program is a list of clauses and directives, optionally followed by a query.
+// A knowledge base has no query; a query on its own is a program without clauses.
+program : (clause | directive)* query? EOF ;
+
+// A directive such as ':- table path/2.' declares properties of predicates.
+directive : COLON_DASH ATOM indicator (COMMA indicator)* DOT ;
+indicator : ATOM SLASH INTEGER ;
 
 // A clause is either a Fact (head.) or a Rule (head :- body.)
 clause  : structure DOT                                # FactRule
-        | structure COLON_DASH term_list DOT           # RuleRule
+        | structure COLON_DASH body DOT                # RuleRule
         ;
 
 // A query starts with ?-
-query   : Q_MARK_DASH term_list DOT ;
+query   : Q_MARK_DASH body DOT ;
+
+// A body is a list of goals. ';' binds loosest, then '->', then ','.
+// So (C -> T ; E) reads as ;(->(C, T), E), as in standard Prolog.
+body    : if_then (SEMICOLON body)? ;
+if_then : term_list (ARROW term_list)? ;
 
 // A list of terms separated by commas (used in args or rule bodies)
 term_list : term (COMMA term)* ;
@@ -20,6 +30,8 @@ term_list : term (COMMA term)* ;
 term    : ATOM LPAREN term_list RPAREN   # StructureTerm
         | ATOM                           # AtomTerm
         | VARIABLE                       # VariableTerm
+        | CUT                            # CutTerm
+        | LPAREN body RPAREN             # ParenTerm
         ;
 
 // To support "cat" as a structure with 0 args, we map it internally later.
@@ -33,6 +45,10 @@ COLON_DASH : ':-' ;
 Q_MARK_DASH : '?-' ;
 DOT        : '.' ;
 COMMA      : ',' ;
+SEMICOLON  : ';' ;
+ARROW      : '->' ;
+CUT        : '!' ;
+SLASH      : '/' ;
 LPAREN     : '(' ;
 RPAREN     : ')' ;
 
@@ -42,5 +58,8 @@ VARIABLE   : [A-Z][a-zA-Z0-9_]* ;
 // Atoms/Functors must start with lowercase
 ATOM       : [a-z][a-zA-Z0-9_]* ;
 
+// Arities in predicate indicators
+INTEGER    : [0-9]+ ;
+
 // Skip whitespace
 WS         : [ \t\r\n]+ -> skip ;
\ No newline at end of file
@@ -0,0 +1,130 @@
+import ast.FactTable;
+import ast.Program;
+import ast.SymbolTable;
+import ast.Term;
+import compiler.ASTGenerator;
+import generated.LogicMiniLexer;
+import generated.LogicMiniParser;
+import optimizer.ClauseOptimizer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import wam.Compiler;
+import wam.CompilerResult;
+import wam.LinkedProgram;
+import wam.Linker;
+import wam.MachinePool;
+import wam.WamMachine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput benchmark of a {@link MachinePool}: many small queries, the triangles through each
+ * node of a random graph, answered by 1, 2, 4, ... threads that lease machines from one pool.
+ * <p>
+ * Usage: {@code MachinePoolBenchmark [nodes] [edges] [max threads] [runs]}. The graph is the
+ * same for the same sizes (fixed seed). Each configuration reports its best time over 'runs'
+ * runs, its queries per second, its speedup over one thread and its total number of solutions,
+ * which must not change. The pool's code array, shared by all threads, is printed first.
+ */
+public class MachinePoolBenchmark {
+
+    private static final String PROGRAM = "triangle(A, B, C) :- e(A, B), e(B, C), e(A, C).";
+
+    public static void main(String[] args) throws Exception {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int edges = args.length > 1 ? Integer.parseInt(args[1]) : 12000;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        // The knowledge base: e(X, Y) for random X < Y, stored as a fact table.
+        SymbolTable symbols = SymbolTable.GLOBAL;
+        FactTable e = new FactTable(symbols.functor("e", 2));
+        Random random = new Random(42);
+        boolean[][] seen = new boolean[nodes][nodes];
+        for (int i = 0; i < edges; i++) {
+            int x = random.nextInt(nodes), y = random.nextInt(nodes);
+            if (x == y || seen[Math.min(x, y)][Math.max(x, y)]) {
+                i--;
+                continue;
+            }
+            seen[Math.min(x, y)][Math.max(x, y)] = true;
+            e.add(new int[]{symbols.atom("n" + Math.min(x, y)), symbols.atom("n" + Math.max(x, y))});
+        }
+        Program parsed = parse(PROGRAM);
+        Program kb = new Program(parsed.getClauses(), null, parsed.getTabled(), Map.of(e.getFunctorId(), e));
+        LinkedProgram program = new Linker().link(new Compiler().compile(new ClauseOptimizer().optimize(kb)));
+
+        // One query per node, compiled once up front: only running them is measured.
+        List<CompilerResult> queries = new ArrayList<>();
+        for (int n = 0; n < nodes; n++) {
+            queries.add(new Compiler().compileQuery(parse("?- triangle(n" + n + ", B, C).").getQuery()));
+        }
+
+        MachinePool pool = new MachinePool(program, maxThreads);
+        System.out.println("Triangles of a random graph: " + nodes + " nodes, " + edges + " edges, "
+                + nodes + " queries, " + Runtime.getRuntime().availableProcessors() + " CPUs");
+        System.out.println("Shared code: " + pool.program().code.length + " ints (program: " + program.code.length
+                + ", query regions: " + pool.size() + ")");
+        System.out.printf("%-12s %10s %12s %8s %10s%n", "threads", "best ms", "queries/s", "speedup", "solutions");
+
+        // 1, 2, 4, ... threads, and finally the maximum.
+        long single = 0;
+        for (int threads = 1; threads <= maxThreads;
+             threads = threads == maxThreads ? threads + 1 : Math.min(threads * 2, maxThreads)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            long best = Long.MAX_VALUE, solutions = 0;
+            for (int r = 0; r <= runs; r++) { // The first run warms up the JIT compiler.
+                long start = System.nanoTime();
+                solutions = runAll(pool, queries, executor, threads);
+                if (r > 0) best = Math.min(best, System.nanoTime() - start);
+            }
+            executor.shutdown();
+            if (threads == 1) single = best;
+            System.out.printf("%-12d %10d %12.0f %7.2fx %10d%n", threads, best / 1_000_000,
+                    queries.size() * 1e9 / best, (double) single / best, solutions);
+        }
+    }
+
+    /** Runs every query once, on 'threads' tasks that take the next query until none is left. */
+    private static long runAll(MachinePool pool, List<CompilerResult> queries, ExecutorService executor, int threads)
+            throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        List<Future<Long>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tasks.add(executor.submit(() -> {
+                long count = 0;
+                for (int q = next.getAndIncrement(); q < queries.size(); q = next.getAndIncrement()) {
+                    WamMachine vm = pool.acquire();
+                    try {
+                        vm.loadQuery(queries.get(q));
+                        for (vm.run(); !vm.fail; vm.run()) {
+                            count++;
+                            vm.fail = true;
+                            vm.backtrack();
+                        }
+                    } finally {
+                        pool.release(vm);
+                    }
+                }
+                return count;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> task : tasks) {
+            total += task.get();
+        }
+        return total;
+    }
+
+    private static Program parse(String source) {
+        LogicMiniParser parser = new LogicMiniParser(new CommonTokenStream(new LogicMiniLexer(CharStreams.fromString(source))));
+        return (Program) new ASTGenerator().visit(parser.program());
+    }
+}
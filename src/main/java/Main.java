@@ -1,8 +1,19 @@
+import ast.FactTable;
 import ast.Program;
+import ast.Term;
 import compiler.ASTGenerator;
 import compiler.ASTGenerator; // CHECK: Ensure this matches your file name (AstBuilder.java)
+import compiler.FactLoader;
+import logic.AnswerCache;
 import wam.Compiler;
 import wam.CompilerResult;
+import wam.FactSegment;
+import wam.KbImage;
+import wam.LinkedProgram;
+import wam.Linker;
+import wam.OrParallel;
+import wam.Solution;
+import wam.Solutions;
 import wam.WamMachine;
 import generated.LogicMiniLexer;
 import generated.LogicMiniParser;
@@ -10,35 +21,112 @@ import optimizer.ClauseOptimizer;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 public class Main {
+    /** Solutions of earlier queries, reused while the knowledge base stays the same. */
+    private static final AnswerCache cache = new AnswerCache();
+
+    /** Store fact tables sorted (--sort-facts): faster first-argument lookups, answers in sorted order. */
+    private static boolean sortFacts = false;
+
+    /** Run independent goals of rule bodies at the same time (--and-parallel). */
+    private static boolean andParallel = false;
+
+    /** Workers of the OR-parallel mode (--workers n); created by the first 'parallel' query. */
+    private static int workers = Runtime.getRuntime().availableProcessors();
+    private static OrParallel orParallel;
+
+    /**
+     * Usage:
+     * <pre>
+     *   Main                                  type the knowledge base, then query it
+     *   Main kb.pl                            load the knowledge base from a file
+     *   Main --build-image kb.img kb.pl       compile kb.pl (and any --facts / --segments) into a binary image and exit
+     *   Main --image kb.img [kb.pl]           load a prebuilt image (checked against kb.pl if given)
+     *   Main [kb.pl] --facts f.pl edge.tsv    also bulk-load ground facts from .pl or .tsv files
+     *   Main [kb.pl] --segments edge.seg      also serve predicates from memory-mapped fact segments
+     *   Main --build-segment edge.seg edge.tsv  write the facts of one predicate as a segment and exit
+     *   --sort-facts                          (anywhere) sort fact tables and new segments by their atoms
+     *   --workers n                           (anywhere) workers of 'parallel' queries; default: one per CPU
+     *   --and-parallel                        (anywhere) run independent goals of rule bodies at the same time
+     * </pre>
+     * A query typed as {@code parallel goals.} is run in OR-parallel mode: every solution is
+     * searched for on all workers at once and printed as soon as it is found.
+     */
     public static void main(String[] args) {
         System.out.println("=== Mini-Prolog Compiler [Phase 6 Final] ===");
-        System.out.println("STEP 1: Load Knowledge Base.");
-        System.out.println("   Type your facts/rules. Type 'done.' on a new line to finish.");
-
         Scanner scanner = new Scanner(System.in);
-        StringBuilder kbBuffer = new StringBuilder();
 
-        // --- 1. READ KNOWLEDGE BASE ---
-        while (true) {
-            System.out.print("KB> ");
-            String line = scanner.nextLine().trim();
-            if (line.equals("done.")) break;
-            if (!line.isEmpty()) {
-                kbBuffer.append(line).append("\n");
+        // The knowledge base is parsed, optimized, compiled and linked once. Each query is then
+        // compiled on its own and linked against it.
+        WamMachine vm = new WamMachine();
+        try {
+            List<String> options = new ArrayList<>(List.of(args));
+            sortFacts = options.remove("--sort-facts");
+            andParallel = options.remove("--and-parallel");
+            for (String n : listOption(options, "--workers")) {
+                workers = Integer.parseInt(n);
             }
-        }
 
-        String knowledgeBase = kbBuffer.toString();
+            // Fact files for the streaming loader.
+            FactLoader facts = new FactLoader();
+            List<Path> factFiles = new ArrayList<>();
+            for (String file : listOption(options, "--facts")) {
+                factFiles.add(Path.of(file));
+                long count = facts.load(Path.of(file));
+                System.out.println("Loaded " + count + " facts from " + file + ".");
+            }
+            List<FactSegment> segments = new ArrayList<>();
+            for (String file : listOption(options, "--segments")) {
+                segments.add(FactSegment.open(Path.of(file)));
+            }
+            args = options.toArray(new String[0]);
+
+            if (args.length == 3 && args[0].equals("--build-segment")) {
+                FactLoader loader = new FactLoader();
+                long count = loader.load(Path.of(args[2]));
+                if (loader.getTables().size() != 1) {
+                    throw new IllegalArgumentException("A segment holds one predicate; " + args[2] + " has "
+                            + loader.getTables().size());
+                }
+                FactSegment.write(loader.getTables().values().iterator().next(), sortFacts, Path.of(args[1]));
+                System.out.println("Segment written to " + args[1] + " (" + count + " facts).");
+                return;
+            } else if (args.length == 3 && args[0].equals("--build-image")) {
+                byte[] source = Files.readAllBytes(Path.of(args[2]));
+                // Bulk-loaded facts go into the image with the rules; segments are stored by path.
+                KbImage.write(compileKnowledgeBase(new String(source, StandardCharsets.UTF_8), facts.getTables(), segments),
+                        source, factFiles, Path.of(args[1]));
+                System.out.println("Image written to " + args[1] + ".");
+                return;
+            } else if (args.length >= 2 && args[0].equals("--image")) {
+                if (!facts.getTables().isEmpty() || !segments.isEmpty()) {
+                    throw new IllegalArgumentException("An image already holds its facts; give --facts and --segments to --build-image");
+                }
+                // Fails with a clear message if the image is stale relative to the source or its fact files.
+                byte[] source = args.length > 2 ? Files.readAllBytes(Path.of(args[2])) : null;
+                vm.load(KbImage.load(Path.of(args[1]), source));
+            } else if (args.length == 1) {
+                vm.load(compileKnowledgeBase(Files.readString(Path.of(args[0])), facts.getTables(), segments));
+            } else {
+                vm.load(compileKnowledgeBase(readKnowledgeBase(scanner), facts.getTables(), segments));
+            }
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+            return;
+        }
         System.out.println("Knowledge Base Loaded.\n");
 
         // --- 2. QUERY LOOP ---
         System.out.println("STEP 2: Query Mode.");
-        System.out.println("   Type queries (e.g., 'animal(X).'). Type 'exit.' to quit.");
-
-        WamMachine vm = new WamMachine();
+        System.out.println("   Type queries (e.g., 'animal(X).'). Type 'cache.' for cache statistics, 'exit.' to quit.");
 
         while (true) {
             System.out.print("?- ");
@@ -46,16 +134,21 @@ public class Main {
 
             if (queryLine.equals("exit.")) break;
             if (queryLine.isEmpty()) continue;
+            if (queryLine.equals("cache.")) {
+                System.out.println("Answer cache: " + cache);
+                continue;
+            }
+
+            // Opt-in OR-parallel mode for this query
+            boolean parallel = queryLine.startsWith("parallel ");
+            if (parallel) queryLine = queryLine.substring("parallel ".length()).trim();
 
             // Normalize input (ensure it starts with '?-')
             if (!queryLine.startsWith("?-")) queryLine = "?- " + queryLine;
 
             try {
-                // Combine the static KB with the dynamic Query
-                String fullSource = knowledgeBase + "\n" + queryLine;
-
-                // Run the full pipeline
-                runPipeline(fullSource, vm, scanner, queryLine);
+                // Run the query against the loaded knowledge base
+                runQuery(vm, scanner, queryLine, parallel);
 
             } catch (Exception e) {
                 System.out.println("Error: " + e.getMessage());
@@ -66,14 +159,52 @@ public class Main {
         System.out.println("Bye!");
     }
 
-    private static void runPipeline(String source, WamMachine vm, Scanner scanner, String queryLine) {
+    /** Removes an option and the arguments after it, up to the next option, and returns those arguments. */
+    private static List<String> listOption(List<String> args, String name) {
+        List<String> values = new ArrayList<>();
+        int at = args.indexOf(name);
+        if (at < 0) return values;
+        args.remove(at);
+        while (at < args.size() && !args.get(at).startsWith("--")) {
+            values.add(args.remove(at));
+        }
+        return values;
+    }
+
+    /** Reads facts and rules typed at the KB> prompt, up to 'done.'. */
+    private static String readKnowledgeBase(Scanner scanner) {
+        System.out.println("STEP 1: Load Knowledge Base.");
+        System.out.println("   Type your facts/rules. Type 'done.' on a new line to finish.");
+
+        StringBuilder kbBuffer = new StringBuilder();
+
+        // --- 1. READ KNOWLEDGE BASE ---
+        while (true) {
+            System.out.print("KB> ");
+            String line = scanner.nextLine().trim();
+            if (line.equals("done.")) break;
+            if (!line.isEmpty()) {
+                kbBuffer.append(line).append("\n");
+            }
+        }
+        return kbBuffer.toString();
+    }
+
+    /**
+     * Runs the front end and back end over the knowledge base: parse, optimize, compile and link.
+     * @param facts Bulk-loaded facts, compiled along with the parsed clauses.
+     * @param segments Predicates served from memory-mapped fact segments.
+     */
+    private static LinkedProgram compileKnowledgeBase(String source, Map<Integer, FactTable> facts,
+                                                      List<FactSegment> segments) {
         // A. PARSE
         LogicMiniLexer lexer = new LogicMiniLexer(CharStreams.fromString(source));
         LogicMiniParser parser = new LogicMiniParser(new CommonTokenStream(lexer));
 
         // CHECK: Verify if your class is named 'AstBuilder' or 'ASTGenerator'
         ASTGenerator astBuilder = new ASTGenerator();
-        Program prog = (Program) astBuilder.visit(parser.program());
+        Program parsed = (Program) astBuilder.visit(parser.program());
+        Program prog = new Program(parsed.getClauses(), parsed.getQuery(), parsed.getTabled(), facts);
 
         // B. OPTIMIZE
         ClauseOptimizer opt = new ClauseOptimizer();
@@ -81,71 +212,108 @@ public class Main {
 
         // C. COMPILE
         Compiler compiler = new Compiler();
+        compiler.sortFacts = sortFacts;
+        compiler.andParallel = andParallel;
+        segments.forEach(compiler::useSegment);
         CompilerResult res = compiler.compile(optimized);
 
-        // D. EXECUTE
-        vm.loadCode(res.code(), res.labels());
-        vm.run();
+        // D. LINK
+        return new Linker().link(res);
+    }
+
+    private static void runQuery(WamMachine vm, Scanner scanner, String queryLine, boolean parallel) {
+        // A. PARSE the query alone. Syntax errors have already been reported by ANTLR.
+        LogicMiniParser parser = new LogicMiniParser(new CommonTokenStream(new LogicMiniLexer(CharStreams.fromString(queryLine))));
+        LogicMiniParser.ProgramContext tree = parser.program();
+        if (parser.getNumberOfSyntaxErrors() > 0) return;
+        List<Term> goals = ((Program) new ASTGenerator().visit(tree)).getQuery();
+
+        if (parallel) {
+            runParallel(vm, new Compiler().compileQuery(goals));
+            return;
+        }
+
+        // B. CACHE: A variant of an earlier query has the same solutions; skip compiling and running.
+        // They are printed under this query's variable names.
+        String key = AnswerCache.normalize(goals);
+        List<String> names = AnswerCache.variables(goals);
+        AnswerCache.Entry cached = cache.get(vm.program.version, key);
+        if (cached != null) {
+            replayResults(cached, cached.names(names), scanner);
+            return;
+        }
 
-        // E. PRINT RESULTS & HANDLE BACKTRACKING
-        processResults(vm, scanner, queryLine);
+        // C. COMPILE only the query, and LINK it against the loaded knowledge base
+        CompilerResult query = new Compiler().compileQuery(goals);
+        Solutions answers = vm.solve(query);
+
+        // D. EXECUTE one solution at a time, PRINT RESULTS & HANDLE BACKTRACKING
+        int[] slots = new int[names.size()];
+        for (int n = 0; n < slots.length; n++) {
+            slots[n] = query.variables().indexOf(names.get(n));
+        }
+        AnswerCache.Entry solutions = printSolutions(answers, scanner, slots, query.variables().size());
+        if (solutions != null) {
+            cache.put(vm.program.version, key, solutions);
+        }
     }
 
-    private static void processResults(WamMachine vm, Scanner scanner, String queryLine) {
-        // Detect if this is a Ground Query (Yes/No) or a Variable Query (Find X)
-        // Heuristic: If the query line has NO uppercase letters, it's Yes/No.
-        boolean isGroundQuery = !queryLine.matches(".*[A-Z].*");
+    /** Runs a query on every worker and prints all of its solutions as they are found. */
+    private static void runParallel(WamMachine vm, CompilerResult query) {
+        if (orParallel == null) orParallel = new OrParallel(workers);
+        vm.loadQuery(query);
+        long start = System.nanoTime();
+        long count = orParallel.solve(vm, answer -> System.out.println(Solution.format(answer, query.variables()) + ";"));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(count == 0 ? "false." : count + (count == 1 ? " solution (" : " solutions (") + millis + " ms, "
+                + orParallel.workers() + (orParallel.workers() == 1 ? " worker)." : " workers)."));
+    }
 
-        while (true) {
-            if (vm.fail) {
-                System.out.println("false.");
-                return;
-            } else {
-                // --- SUCCESS CASE ---
-
-                if (isGroundQuery) {
-                    // Case 1: Yes/No Question (e.g. sibling(luke, leia))
-                    System.out.println("true.");
-                } else {
-                    // Case 2: Search Question (e.g. sibling(luke, X))
-                    String val = null;
-
-                    // Check Register 1 (A1) for the answer
-                    if (vm.regs[1] != null && vm.regs[1].tag != null) {
-                        int addr = vm.deref(vm.regs[1].pointer);
-
-                        // Safety Check: Ensure address is within heap bounds
-                        if (addr >= 0 && addr < vm.heap.length && vm.heap[addr] != null) {
-                            // Only print if it's not an unbound variable pointing to itself
-                            if (vm.heap[addr].tag != wam.WamTag.REF || vm.heap[addr].pointer != addr) {
-                                val = vm.heap[addr].value;
-                            }
-                        }
-                    }
-
-                    if (val != null) {
-                        System.out.println("X = " + val);
-                    } else {
-                        // Fallback: If we couldn't find a value in Reg 1, just say true.
-                        System.out.println("true.");
-                    }
-                }
+    /** Prints cached solutions as printSolutions printed them the first time, under the given names. */
+    private static void replayResults(AnswerCache.Entry solutions, List<String> names, Scanner scanner) {
+        List<long[]> answers = solutions.answers();
+        if (answers.isEmpty()) {
+            System.out.println("false.");
+            return;
+        }
+        for (int i = 0; i < answers.size(); i++) {
+            System.out.println(show(answers.get(i), names));
+            if (i == answers.size() - 1 && !solutions.askedAfterLast()) return;
+            System.out.print("   Next solution? (y/n) > ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("y")) return;
+        }
+        System.out.println("false.");
+    }
 
-                // --- BACKTRACKING CHECK ---
-                if (vm.hasChoices()) {
-                    System.out.print("   Next solution? (y/n) > ");
-                    String input = scanner.nextLine().trim();
-                    if (input.equalsIgnoreCase("y")) {
-                        vm.fail = true; // Trigger failure
-                        vm.backtrack(); // Restore state
-                        vm.run();       // Resume
-                    } else {
-                        return;
-                    }
-                } else {
-                    return;
-                }
+    /**
+     * Prints the solutions one by one, asking before each next one.
+     * @param slots For each variable of the query, its answer slot (see {@link AnswerCache.Entry}).
+     * @param width The number of values at the start of each answer.
+     * @return What was printed, if the user saw every answer; null if they stopped early,
+     *         since such a list must not be cached.
+     */
+    private static AnswerCache.Entry printSolutions(Solutions solutions, Scanner scanner, int[] slots, int width) {
+        // Closing the solutions discards the choice points the user did not ask to explore.
+        try (solutions) {
+            List<long[]> printed = new ArrayList<>();
+            while (solutions.hasNext()) {
+                Solution solution = solutions.next();
+                System.out.println(show(solution.answer(), solution.variables()));
+                printed.add(solution.answer());
+
+                // Only ask if another solution is possible at all.
+                if (!solutions.mayHaveMore()) return new AnswerCache.Entry(slots, width, printed, false);
+                System.out.print("   Next solution? (y/n) > ");
+                if (!scanner.nextLine().trim().equalsIgnoreCase("y")) return null;
             }
+            System.out.println("false.");
+            return new AnswerCache.Entry(slots, width, printed, !printed.isEmpty());
         }
     }
-}
\ No newline at end of file
+
+    /** Formats an answer for the REPL: its bindings, or "true." if the query binds no variable. */
+    private static String show(long[] answer, List<String> variables) {
+        String solution = Solution.format(answer, variables);
+        return solution.equals("true") ? "true." : solution;
+    }
+}
@@ -0,0 +1,103 @@
+import ast.FactTable;
+import ast.Program;
+import ast.SymbolTable;
+import ast.Term;
+import compiler.ASTGenerator;
+import generated.LogicMiniLexer;
+import generated.LogicMiniParser;
+import optimizer.ClauseOptimizer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import wam.Compiler;
+import wam.Linker;
+import wam.OrParallel;
+import wam.WamMachine;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Scaling benchmark of the OR-parallel mode: an exhaustive search for the 4-cliques of a random
+ * graph, run sequentially and then on 1, 2, 4, ... workers.
+ * <p>
+ * Usage: {@code OrParallelBenchmark [nodes] [edges] [max workers] [runs]}. The graph is the same
+ * for the same sizes (fixed seed). Each configuration reports its best time over 'runs' runs,
+ * its speedup over the sequential machine and its number of solutions, which must not change.
+ */
+public class OrParallelBenchmark {
+
+    private static final String PROGRAM =
+            "clique(A, B, C, D) :- e(A, B), e(B, C), e(A, C), e(C, D), e(A, D), e(B, D).";
+
+    private static final String QUERY = "?- clique(A, B, C, D).";
+
+    public static void main(String[] args) {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int edges = args.length > 1 ? Integer.parseInt(args[1]) : 12000;
+        int maxWorkers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        // The knowledge base: e(X, Y) for random X < Y, stored as a fact table.
+        SymbolTable symbols = SymbolTable.GLOBAL;
+        FactTable e = new FactTable(symbols.functor("e", 2));
+        Random random = new Random(42);
+        boolean[][] seen = new boolean[nodes][nodes];
+        for (int i = 0; i < edges; i++) {
+            int x = random.nextInt(nodes), y = random.nextInt(nodes);
+            if (x == y || seen[Math.min(x, y)][Math.max(x, y)]) {
+                i--;
+                continue;
+            }
+            seen[Math.min(x, y)][Math.max(x, y)] = true;
+            e.add(new int[]{symbols.atom("n" + Math.min(x, y)), symbols.atom("n" + Math.max(x, y))});
+        }
+        Program parsed = parse(PROGRAM);
+        Program kb = new Program(parsed.getClauses(), null, parsed.getTabled(), Map.of(e.getFunctorId(), e));
+        WamMachine vm = new WamMachine();
+        vm.load(new Linker().link(new Compiler().compile(new ClauseOptimizer().optimize(kb))));
+        List<Term> query = parse(QUERY).getQuery();
+        vm.loadQuery(new Compiler().compileQuery(query));
+
+        System.out.println("4-cliques of a random graph: " + nodes + " nodes, " + edges + " edges, "
+                + Runtime.getRuntime().availableProcessors() + " CPUs");
+        System.out.printf("%-12s %10s %8s %10s%n", "workers", "best ms", "speedup", "solutions");
+
+        // Baseline: the sequential machine, backtracking into each next solution.
+        long sequential = Long.MAX_VALUE, solutions = 0;
+        for (int r = 0; r <= runs; r++) { // The first run warms up the JIT compiler.
+            long start = System.nanoTime();
+            solutions = 0;
+            vm.loadQuery(new Compiler().compileQuery(query));
+            for (vm.run(); !vm.fail; vm.run()) {
+                solutions++;
+                vm.fail = true;
+                vm.backtrack();
+            }
+            if (r > 0) sequential = Math.min(sequential, System.nanoTime() - start);
+        }
+        report("sequential", sequential, sequential, solutions);
+
+        // 1, 2, 4, ... workers, and finally the maximum.
+        for (int workers = 1; workers <= maxWorkers;
+             workers = workers == maxWorkers ? workers + 1 : Math.min(workers * 2, maxWorkers)) {
+            OrParallel parallel = new OrParallel(workers);
+            long best = Long.MAX_VALUE, count = 0;
+            for (int r = 0; r <= runs; r++) {
+                long start = System.nanoTime();
+                count = parallel.solve(vm, answer -> { });
+                if (r > 0) best = Math.min(best, System.nanoTime() - start);
+            }
+            report(String.valueOf(workers), best, sequential, count);
+        }
+    }
+
+    private static void report(String label, long nanos, long sequential, long solutions) {
+        System.out.printf("%-12s %10d %7.2fx %10d%n", label, nanos / 1_000_000, (double) sequential / nanos, solutions);
+    }
+
+    private static Program parse(String source) {
+        LogicMiniParser parser = new LogicMiniParser(new CommonTokenStream(new LogicMiniLexer(CharStreams.fromString(source))));
+        return (Program) new ASTGenerator().visit(parser.program());
+    }
+}
@@ -1,8 +1,14 @@
 package ast;
 public class Atom extends Term {
     private String name;
-    public Atom(String name) { this.name = name; }
+    private int id; // The atom's id in the global SymbolTable
+    public Atom(String name) { this(name, SymbolTable.GLOBAL.atom(name)); }
+    public Atom(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
     public String getName() { return name; }
+    public int getId() { return id; }
 
     @Override
     public String toString() { return name; }
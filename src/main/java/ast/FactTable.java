@@ -0,0 +1,81 @@
+package ast;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ground facts of one predicate, stored as rows of symbol ids instead of clause ASTs.
+ * <p>
+ * A fact {@code edge(a, b)} costs two ints here, whereas as a {@link Clause} it costs a Clause,
+ * a Structure, an argument list and two Atoms. Bulk loaders (see {@code compiler.FactLoader})
+ * append rows directly, so large fact files never exist as a parse tree or an AST.
+ * <p>
+ * Rows are kept in fixed-size blocks rather than one array that doubles: growing never copies
+ * what is already stored, so loading N facts needs N rows of memory plus at most one block.
+ */
+public class FactTable {
+
+    /** Rows per block. */
+    private static final int BLOCK_ROWS = 1 << 14;
+
+    private final int functorId;
+    private final int arity;
+    private final List<int[]> blocks = new ArrayList<>();
+    private int size = 0;
+
+    public FactTable(int functorId) {
+        this.functorId = functorId;
+        this.arity = SymbolTable.GLOBAL.arity(functorId);
+    }
+
+    public int getFunctorId() { return functorId; }
+    public int getArity() { return arity; }
+
+    /** The number of facts. */
+    public int size() { return size; }
+
+    /**
+     * Appends a fact.
+     * @param row The atom ids of its arguments; only the first 'arity' entries are read.
+     */
+    public void add(int[] row) {
+        int index = size % BLOCK_ROWS;
+        if (index == 0) {
+            blocks.add(new int[BLOCK_ROWS * arity]);
+        }
+        System.arraycopy(row, 0, blocks.get(blocks.size() - 1), index * arity, arity);
+        size++;
+    }
+
+    /** The atom id of argument 'column' (0-based) of fact 'row'. */
+    public int get(int row, int column) {
+        return blocks.get(row / BLOCK_ROWS)[(row % BLOCK_ROWS) * arity + column];
+    }
+
+    /**
+     * The facts as clauses, for the compiler. Each clause is created when it is asked for and
+     * not kept, so the table is never materialized as an AST as a whole.
+     */
+    public List<Clause> asClauses() {
+        SymbolTable symbols = SymbolTable.GLOBAL;
+        String name = symbols.name(functorId);
+        return new AbstractList<>() {
+            @Override
+            public Clause get(int row) {
+                Term[] args = new Term[arity];
+                for (int k = 0; k < arity; k++) {
+                    int id = FactTable.this.get(row, k);
+                    args[k] = new Atom(symbols.name(id), id);
+                }
+                return new Clause(new Structure(name, Arrays.asList(args), functorId), List.of());
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -1,15 +1,31 @@
 package ast;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class Program {
     private List<Clause> clauses;
     private List<Term> query; // Queries are list of goals
+    private Set<Integer> tabled; // Functor ids of the predicates declared with ':- table p/n.'
+    private Map<Integer, FactTable> facts; // Bulk-loaded ground facts by functor id, compiled after 'clauses'
 
     public Program(List<Clause> clauses, List<Term> query) {
+        this(clauses, query, Set.of());
+    }
+
+    public Program(List<Clause> clauses, List<Term> query, Set<Integer> tabled) {
+        this(clauses, query, tabled, Map.of());
+    }
+
+    public Program(List<Clause> clauses, List<Term> query, Set<Integer> tabled, Map<Integer, FactTable> facts) {
         this.clauses = clauses;
         this.query = query;
+        this.tabled = tabled;
+        this.facts = facts;
     }
 
     public List<Clause> getClauses() { return clauses; }
     public List<Term> getQuery() { return query; }
-}
\ No newline at end of file
+    public Set<Integer> getTabled() { return tabled; }
+    public Map<Integer, FactTable> getFacts() { return facts; }
+}
@@ -5,13 +5,20 @@ import java.util.stream.Collectors;
 public class Structure extends Term {
     private String functor;
     private List<Term> args;
+    private int functorId; // The id of functor/arity in the global SymbolTable
 
     public Structure(String functor, List<Term> args) {
+        this(functor, args, SymbolTable.GLOBAL.functor(functor, args.size()));
+    }
+
+    public Structure(String functor, List<Term> args, int functorId) {
         this.functor = functor;
         this.args = args;
+        this.functorId = functorId;
     }
 
     public String getFunctor() { return functor; }
+    public int getFunctorId() { return functorId; }
     public List<Term> getArgs() { return args; }
     public int getArity() { return args.size(); }
 
@@ -0,0 +1,114 @@
+package ast;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The global interning table for atoms and functors.
+ * <p>
+ * Every atom (e.g., "tom") and every functor/arity pair (e.g., "parent/2") is mapped to a
+ * dense integer id the first time it is seen. The parser stores these ids in the AST, the
+ * compiler copies them into instructions, and the WAM keeps them in CON and FUN words, so
+ * matching two constants at runtime is a single int comparison.
+ * <p>
+ * An atom is simply a functor of arity 0, so {@code atom("tom") == functor("tom", 0)}.
+ * <p>
+ * Lookups of known symbols are lock-free. Only the first sighting of a symbol takes a lock,
+ * which keeps ids dense and lets the reverse arrays grow safely while other threads read.
+ */
+public final class SymbolTable {
+
+    /** The single table shared by the parser, the compiler and every WAM instance. */
+    public static final SymbolTable GLOBAL = new SymbolTable();
+
+    /** Maps a symbol key ("tom/0" or "parent/2", see {@link #key}) to its id. */
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // The reverse mapping, indexed by id. Both arrays are replaced (never resized in place)
+    // so readers always see a fully initialised snapshot.
+    private volatile String[] names = new String[1024];
+    private volatile int[] arities = new int[1024];
+
+    /** The number of symbols assigned so far. Only written while holding the lock. */
+    private int size = 0;
+
+    /**
+     * Returns the id of an atom, assigning a fresh one the first time it is seen.
+     * @param name The atom name, e.g. "tom".
+     */
+    public int atom(String name) {
+        return functor(name, 0);
+    }
+
+    /**
+     * Returns the id of a functor/arity pair, assigning a fresh one the first time it is seen.
+     * @param name The functor name, e.g. "parent".
+     * @param arity The number of arguments, e.g. 2.
+     */
+    public int functor(String name, int arity) {
+        String key = key(name, arity);
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        return assign(key, name, arity);
+    }
+
+    /**
+     * Returns the id of a symbol without assigning one.
+     * @return The id, or -1 if the symbol has never been interned.
+     */
+    public int lookup(String name, int arity) {
+        Integer id = ids.get(key(name, arity));
+        return id == null ? -1 : id;
+    }
+
+    /** The name of a symbol, e.g. "parent" for the id of parent/2. */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /** The arity of a symbol (0 for atoms). */
+    public int arity(int id) {
+        return arities[id];
+    }
+
+    /** The printable signature of a symbol: "tom" for atoms, "parent/2" for functors. */
+    public String signature(int id) {
+        return arities[id] == 0 ? names[id] : names[id] + "/" + arities[id];
+    }
+
+    /** The number of distinct symbols interned so far. */
+    public int size() {
+        return ids.size();
+    }
+
+    private static String key(String name, int arity) {
+        // Atoms keep their arity too: an atom read from a data file may contain '/', and an
+        // atom named "p/1" must not get the id of the functor p/1. The digits after the last
+        // '/' are always the arity, so two different symbols never share a key.
+        return name + "/" + arity;
+    }
+
+    private synchronized int assign(String key, String name, int arity) {
+        // Another thread may have won the race while we waited for the lock.
+        Integer existing = ids.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        int id = size;
+        if (id == names.length) {
+            // Publish larger copies; readers holding the old arrays still see valid data.
+            arities = Arrays.copyOf(arities, id * 2);
+            names = Arrays.copyOf(names, id * 2);
+        }
+        arities[id] = arity;
+        names[id] = name;
+        size++;
+
+        // Publishing the id last guarantees that anyone who can see it can also see its name.
+        ids.put(key, id);
+        return id;
+    }
+}
@@ -6,14 +6,20 @@ import generated.LogicMiniParser;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * This visitor class walks the parse tree generated by ANTLR
  * and builds our custom Abstract Syntax Tree (AST).
+ * Every atom and functor is interned in the global {@link SymbolTable} as it is read,
+ * so the AST (and everything compiled from it) refers to symbols by id.
  */
 public class ASTGenerator extends LogicMiniBaseVisitor<Object> {
+    private final SymbolTable symbols = SymbolTable.GLOBAL;
+
     @Override
     public Program visitProgram(LogicMiniParser.ProgramContext ctx) {
         List<Clause> clauses = new ArrayList<>();
@@ -22,14 +28,35 @@ public class ASTGenerator extends LogicMiniBaseVisitor<Object> {
             clauses.add((Clause) visit(c));
         }
 
-        // 2. Visit query if it exists
+        // 2. Collect the predicates named by ':- table' directives
+        Set<Integer> tabled = new LinkedHashSet<>();
+        for (LogicMiniParser.DirectiveContext d : ctx.directive()) {
+            tabled.addAll(visitDirective(d));
+        }
+
+        // 3. Visit query if it exists
         List<Term> queryGoals = new ArrayList<>();
         if (ctx.query() != null) {
-            // query -> Q_MARK_DASH term_list DOT
-            queryGoals = (List<Term>) visit(ctx.query().term_list());
+            // query -> Q_MARK_DASH body DOT
+            queryGoals = goals((Term) visit(ctx.query().body()));
         }
 
-        return new Program(clauses, queryGoals);
+        return new Program(clauses, queryGoals, tabled);
+    }
+
+    /** Returns the functor ids of the predicates a directive names. Only 'table' is known. */
+    @Override
+    public List<Integer> visitDirective(LogicMiniParser.DirectiveContext ctx) {
+        String name = ctx.ATOM().getText();
+        if (!name.equals("table")) {
+            throw new IllegalArgumentException("Unknown directive: " + name);
+        }
+        List<Integer> functors = new ArrayList<>();
+        for (LogicMiniParser.IndicatorContext indicator : ctx.indicator()) {
+            // indicator -> ATOM '/' INTEGER, e.g. path/2
+            functors.add(symbols.functor(indicator.ATOM().getText(), Integer.parseInt(indicator.INTEGER().getText())));
+        }
+        return functors;
     }
 
     @Override
@@ -43,10 +70,65 @@ public class ASTGenerator extends LogicMiniBaseVisitor<Object> {
     public Clause visitRuleRule(LogicMiniParser.RuleRuleContext ctx) {
         // Rule: A :- B, C.
         Structure head = (Structure) visit(ctx.structure());
-        List<Term> body = (List<Term>) visit(ctx.term_list());
+        List<Term> body = goals((Term) visit(ctx.body()));
         return new Clause(head, body);
     }
 
+    // --- CONTROL CONSTRUCTS ---
+    // Bodies are built as ordinary terms with the standard functors: ','/2 for conjunction,
+    // ';'/2 for disjunction, '->'/2 for if-then, and the atom '!' for cut. The compiler
+    // recognises these functors when it meets them as goals.
+
+    @Override
+    public Term visitBody(LogicMiniParser.BodyContext ctx) {
+        // body -> if_then (';' body)?
+        Term left = (Term) visit(ctx.if_then());
+        if (ctx.body() == null) return left;
+        return control(";", left, (Term) visit(ctx.body()));
+    }
+
+    @Override
+    public Term visitIf_then(LogicMiniParser.If_thenContext ctx) {
+        // if_then -> term_list ('->' term_list)?
+        Term condition = conjunction((List<Term>) visit(ctx.term_list(0)));
+        if (ctx.term_list().size() == 1) return condition;
+        return control("->", condition, conjunction((List<Term>) visit(ctx.term_list(1))));
+    }
+
+    @Override
+    public Term visitParenTerm(LogicMiniParser.ParenTermContext ctx) {
+        return (Term) visit(ctx.body());
+    }
+
+    @Override
+    public Atom visitCutTerm(LogicMiniParser.CutTermContext ctx) {
+        return new Atom("!", symbols.atom("!"));
+    }
+
+    /** Folds a list of goals into a right-nested ','/2 term: (a, (b, c)). */
+    private Term conjunction(List<Term> goals) {
+        Term result = goals.get(goals.size() - 1);
+        for (int i = goals.size() - 2; i >= 0; i--) {
+            result = control(",", goals.get(i), result);
+        }
+        return result;
+    }
+
+    /** Flattens a top-level conjunction back into the list of goals a Clause body holds. */
+    private List<Term> goals(Term body) {
+        List<Term> goals = new ArrayList<>();
+        while (body instanceof Structure s && s.getFunctor().equals(",") && s.getArity() == 2) {
+            goals.add(s.getArgs().get(0));
+            body = s.getArgs().get(1);
+        }
+        goals.add(body);
+        return goals;
+    }
+
+    private Structure control(String functor, Term left, Term right) {
+        return new Structure(functor, List.of(left, right), symbols.functor(functor, 2));
+    }
+
     @Override
     public List<Term> visitTerm_list(LogicMiniParser.Term_listContext ctx) {
         List<Term> terms = new ArrayList<>();
@@ -60,7 +142,7 @@ public class ASTGenerator extends LogicMiniBaseVisitor<Object> {
     public Structure visitStructureTerm(LogicMiniParser.StructureTermContext ctx) {
         String functor = ctx.ATOM().getText();
         List<Term> args = (List<Term>) visit(ctx.term_list());
-        return new Structure(functor, args);
+        return new Structure(functor, args, symbols.functor(functor, args.size()));
     }
 
     // Explicit visit for the 'structure' parser rule (used in Heads)
@@ -71,14 +153,15 @@ public class ASTGenerator extends LogicMiniBaseVisitor<Object> {
         if (ctx.term_list() != null) {
             args = (List<Term>) visit(ctx.term_list());
         }
-        return new Structure(functor, args);
+        return new Structure(functor, args, symbols.functor(functor, args.size()));
     }
 
     @Override
     public Atom visitAtomTerm(LogicMiniParser.AtomTermContext ctx) {
         // In this simple AST, we can treat Atoms as Structures with 0 arguments
         // OR return a specific Atom object. Let's stick to strict types:
-        return new Atom(ctx.getText());
+        String name = ctx.getText();
+        return new Atom(name, symbols.atom(name));
     }
 
     @Override
@@ -88,8 +171,8 @@ public class ASTGenerator extends LogicMiniBaseVisitor<Object> {
 
     @Override
     public Object visitQuery(LogicMiniParser.QueryContext ctx) {
-        // A query is just a term_list, so we visit it and return the resulting list.
-        return visit(ctx.term_list());
+        // A query is just a body, so we visit it and return the resulting list of goals.
+        return goals((Term) visit(ctx.body()));
     }
 
 }
\ No newline at end of file
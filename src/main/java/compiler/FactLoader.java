@@ -0,0 +1,245 @@
+package compiler;
+
+import ast.FactTable;
+import ast.SymbolTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A streaming loader for files of ground facts, for knowledge bases too large for the ANTLR
+ * front end (which builds the whole parse tree, then the whole AST, before compiling anything).
+ * <p>
+ * Two formats are understood:
+ * <ul>
+ *   <li><b>.pl</b>: facts in the usual syntax, {@code edge(a, b).}, one or more per line.
+ *       Every argument must be an atom; rules, variables and nested terms belong in a
+ *       knowledge base loaded through the parser. {@code %} starts a comment.</li>
+ *   <li><b>.tsv</b>: one fact per line, arguments separated by tabs. The predicate is named
+ *       after the file ({@code edge.tsv} holds {@code edge/n}) and every line must have the
+ *       same number of fields. Fields are taken verbatim as atom names.</li>
+ * </ul>
+ * The file is read through a fixed buffer; each atom is interned in the {@link SymbolTable}
+ * as soon as it is read and each fact is appended to the {@link FactTable} of its predicate.
+ * Apart from the tables themselves, memory stays constant however large the file is.
+ */
+public class FactLoader {
+
+    /** Bytes read from the file at a time. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final SymbolTable symbols = SymbolTable.GLOBAL;
+
+    /** The loaded facts by functor id. Shared by every file this loader reads. */
+    private final Map<Integer, FactTable> tables = new LinkedHashMap<>();
+
+    // --- Reader State (for the file being loaded) ---
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private FileChannel channel;
+    private Path path;
+    private int line;
+
+    /** The bytes of the current token. Grows to the longest token, never more. */
+    private byte[] token = new byte[64];
+    private int tokenLength;
+
+    /** The argument ids of the current fact. Grows to the largest arity, never more. */
+    private int[] row = new int[8];
+
+    /** The facts loaded so far, by functor id, ready for {@link ast.Program}. */
+    public Map<Integer, FactTable> getTables() {
+        return tables;
+    }
+
+    /**
+     * Loads a fact file, choosing the format by its extension.
+     * @return The number of facts read from it.
+     * @throws IllegalArgumentException On a syntax error, with the file and line.
+     */
+    public long load(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".tsv")) {
+            return loadTsv(file, name.substring(0, name.length() - ".tsv".length()));
+        }
+        return loadFacts(file);
+    }
+
+    /** Loads facts in Prolog syntax. */
+    public long loadFacts(Path file) throws IOException {
+        open(file);
+        try {
+            long count = 0;
+            while (true) {
+                int c = skipBlanks();
+                if (c < 0) return count;
+
+                // name(arg, ..., arg). or name.
+                String name = readAtom(c, "a fact");
+                int arity = 0;
+                c = skipBlanks();
+                if (c == '(') {
+                    do {
+                        if (arity == row.length) row = Arrays.copyOf(row, arity * 2);
+                        row[arity++] = symbols.atom(readAtom(skipBlanks(), "an atom"));
+                        c = skipBlanks();
+                    } while (c == ',');
+                    expect(c, ')');
+                    c = skipBlanks();
+                }
+                expect(c, '.');
+                table(symbols.functor(name, arity)).add(row);
+                count++;
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /** Loads tab-separated facts of one predicate. */
+    public long loadTsv(Path file, String predicate) throws IOException {
+        open(file);
+        try {
+            long count = 0;
+            FactTable table = null;
+            int c = read();
+            while (c >= 0) {
+                // One line: fields up to the newline.
+                int fields = 0;
+                boolean blank = true;
+                while (true) {
+                    tokenLength = 0;
+                    while (c >= 0 && c != '\t' && c != '\n') {
+                        if (c != '\r') append(c);
+                        c = read();
+                    }
+                    blank &= tokenLength == 0 && c != '\t';
+                    if (!blank) {
+                        if (fields == row.length) row = Arrays.copyOf(row, fields * 2);
+                        row[fields++] = symbols.atom(tokenString());
+                    }
+                    if (c != '\t') break;
+                    c = read();
+                }
+
+                if (!blank) {
+                    if (table == null) {
+                        table = table(symbols.functor(predicate, fields));
+                    } else if (fields != table.getArity()) {
+                        throw error("expected " + table.getArity() + " fields but found " + fields);
+                    }
+                    table.add(row);
+                    count++;
+                }
+                if (c == '\n') {
+                    line++;
+                    c = read();
+                }
+            }
+            return count;
+        } finally {
+            close();
+        }
+    }
+
+    private FactTable table(int functorId) {
+        return tables.computeIfAbsent(functorId, FactTable::new);
+    }
+
+    // --- TOKENS ---
+
+    /** Skips whitespace and comments and returns the next byte, or -1 at the end of the file. */
+    private int skipBlanks() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == '%') {
+                while (c >= 0 && c != '\n') c = read();
+            }
+            if (c == '\n') {
+                line++;
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                return c;
+            }
+        }
+    }
+
+    /** Reads an atom ([a-z][a-zA-Z0-9_]*) whose first byte is 'c'. The byte after it is pushed back. */
+    private String readAtom(int c, String what) throws IOException {
+        if (c >= 'A' && c <= 'Z' || c == '_') {
+            throw error("variables are not allowed in bulk-loaded facts; load rules through the parser");
+        }
+        if (c < 'a' || c > 'z') {
+            throw error("expected " + what + " but found " + describe(c));
+        }
+        tokenLength = 0;
+        while (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_') {
+            append(c);
+            c = read();
+        }
+        if (c >= 0) buffer.position(buffer.position() - 1);
+        return tokenString();
+    }
+
+    private void expect(int c, char expected) {
+        if (c != expected) {
+            if (expected == ')' && c == '(') {
+                throw error("nested terms are not allowed in bulk-loaded facts; load them through the parser");
+            }
+            throw error("expected '" + expected + "' but found " + describe(c));
+        }
+    }
+
+    private void append(int c) {
+        if (tokenLength == token.length) token = Arrays.copyOf(token, tokenLength * 2);
+        token[tokenLength++] = (byte) c;
+    }
+
+    private String tokenString() {
+        return new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+    }
+
+    private static String describe(int c) {
+        return c < 0 ? "the end of the file" : "'" + (char) c + "'";
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(path + ":" + line + ": " + message);
+    }
+
+    // --- BUFFERED INPUT ---
+
+    private void open(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        path = file;
+        line = 1;
+        buffer.clear().flip(); // Empty: the first read() fills it
+    }
+
+    private void close() throws IOException {
+        channel.close();
+        channel = null;
+    }
+
+    /** The next byte of the file, or -1 at its end. */
+    private int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            // Keep the last byte, so readAtom can always push one back.
+            int keep = buffer.limit() > 0 ? 1 : 0;
+            if (keep == 1) buffer.put(0, buffer.get(buffer.limit() - 1));
+            buffer.limit(buffer.capacity()).position(keep);
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n == 0);
+            buffer.flip().position(keep);
+            if (n < 0) return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+}
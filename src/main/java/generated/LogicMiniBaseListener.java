@@ -23,6 +23,30 @@ public class LogicMiniBaseListener implements LogicMiniListener {
 	 * <p>The default implementation does nothing.</p>
 	 */
 	@Override public void exitProgram(LogicMiniParser.ProgramContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void enterDirective(LogicMiniParser.DirectiveContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void exitDirective(LogicMiniParser.DirectiveContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void enterIndicator(LogicMiniParser.IndicatorContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void exitIndicator(LogicMiniParser.IndicatorContext ctx) { }
 	/**
 	 * {@inheritDoc}
 	 *
@@ -59,6 +83,30 @@ public class LogicMiniBaseListener implements LogicMiniListener {
 	 * <p>The default implementation does nothing.</p>
 	 */
 	@Override public void exitQuery(LogicMiniParser.QueryContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void enterBody(LogicMiniParser.BodyContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void exitBody(LogicMiniParser.BodyContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void enterIf_then(LogicMiniParser.If_thenContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void exitIf_then(LogicMiniParser.If_thenContext ctx) { }
 	/**
 	 * {@inheritDoc}
 	 *
@@ -107,6 +155,30 @@ public class LogicMiniBaseListener implements LogicMiniListener {
 	 * <p>The default implementation does nothing.</p>
 	 */
 	@Override public void exitVariableTerm(LogicMiniParser.VariableTermContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void enterCutTerm(LogicMiniParser.CutTermContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void exitCutTerm(LogicMiniParser.CutTermContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void enterParenTerm(LogicMiniParser.ParenTermContext ctx) { }
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The default implementation does nothing.</p>
+	 */
+	@Override public void exitParenTerm(LogicMiniParser.ParenTermContext ctx) { }
 	/**
 	 * {@inheritDoc}
 	 *
@@ -1,9 +1,12 @@
 package generated;// Generated from C:/Users/25192/Desktop/LogicCompiler/src/main/antlr4/LogicMini.g4 by ANTLR 4.13.2
 import org.antlr.v4.runtime.Lexer;
 import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.*;
 import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.*;
 
 @SuppressWarnings({"all", "warnings", "unchecked", "unused", "cast", "CheckReturnValue", "this-escape"})
 public class LogicMiniLexer extends Lexer {
@@ -13,8 +16,8 @@ public class LogicMiniLexer extends Lexer {
 	protected static final PredictionContextCache _sharedContextCache =
 		new PredictionContextCache();
 	public static final int
-		COLON_DASH=1, Q_MARK_DASH=2, DOT=3, COMMA=4, LPAREN=5, RPAREN=6, VARIABLE=7, 
-		ATOM=8, WS=9;
+		COLON_DASH=1, Q_MARK_DASH=2, DOT=3, COMMA=4, SEMICOLON=5, ARROW=6, CUT=7, 
+		SLASH=8, LPAREN=9, RPAREN=10, VARIABLE=11, ATOM=12, INTEGER=13, WS=14;
 	public static String[] channelNames = {
 		"DEFAULT_TOKEN_CHANNEL", "HIDDEN"
 	};
@@ -25,22 +28,23 @@ public class LogicMiniLexer extends Lexer {
 
 	private static String[] makeRuleNames() {
 		return new String[] {
-			"COLON_DASH", "Q_MARK_DASH", "DOT", "COMMA", "LPAREN", "RPAREN", "VARIABLE", 
-			"ATOM", "WS"
+			"COLON_DASH", "Q_MARK_DASH", "DOT", "COMMA", "SEMICOLON", "ARROW", "CUT", 
+			"SLASH", "LPAREN", "RPAREN", "VARIABLE", "ATOM", "INTEGER", "WS"
 		};
 	}
 	public static final String[] ruleNames = makeRuleNames();
 
 	private static String[] makeLiteralNames() {
 		return new String[] {
-			null, "':-'", "'?-'", "'.'", "','", "'('", "')'"
+			null, "':-'", "'?-'", "'.'", "','", "';'", "'->'", "'!'", "'/'", "'('", 
+			"')'"
 		};
 	}
 	private static final String[] _LITERAL_NAMES = makeLiteralNames();
 	private static String[] makeSymbolicNames() {
 		return new String[] {
-			null, "COLON_DASH", "Q_MARK_DASH", "DOT", "COMMA", "LPAREN", "RPAREN", 
-			"VARIABLE", "ATOM", "WS"
+			null, "COLON_DASH", "Q_MARK_DASH", "DOT", "COMMA", "SEMICOLON", "ARROW", 
+			"CUT", "SLASH", "LPAREN", "RPAREN", "VARIABLE", "ATOM", "INTEGER", "WS"
 		};
 	}
 	private static final String[] _SYMBOLIC_NAMES = makeSymbolicNames();
@@ -102,42 +106,54 @@ public class LogicMiniLexer extends Lexer {
 	public ATN getATN() { return _ATN; }
 
 	public static final String _serializedATN =
-		"\u0004\u0000\t6\u0006\uffff\uffff\u0002\u0000\u0007\u0000\u0002\u0001"+
+		"\u0004\u0000\u000eN\u0006\uffff\uffff\u0002\u0000\u0007\u0000\u0002\u0001"+
 		"\u0007\u0001\u0002\u0002\u0007\u0002\u0002\u0003\u0007\u0003\u0002\u0004"+
 		"\u0007\u0004\u0002\u0005\u0007\u0005\u0002\u0006\u0007\u0006\u0002\u0007"+
-		"\u0007\u0007\u0002\b\u0007\b\u0001\u0000\u0001\u0000\u0001\u0000\u0001"+
-		"\u0001\u0001\u0001\u0001\u0001\u0001\u0002\u0001\u0002\u0001\u0003\u0001"+
-		"\u0003\u0001\u0004\u0001\u0004\u0001\u0005\u0001\u0005\u0001\u0006\u0001"+
-		"\u0006\u0005\u0006$\b\u0006\n\u0006\f\u0006\'\t\u0006\u0001\u0007\u0001"+
-		"\u0007\u0005\u0007+\b\u0007\n\u0007\f\u0007.\t\u0007\u0001\b\u0004\b1"+
-		"\b\b\u000b\b\f\b2\u0001\b\u0001\b\u0000\u0000\t\u0001\u0001\u0003\u0002"+
-		"\u0005\u0003\u0007\u0004\t\u0005\u000b\u0006\r\u0007\u000f\b\u0011\t\u0001"+
-		"\u0000\u0004\u0001\u0000AZ\u0004\u000009AZ__az\u0001\u0000az\u0003\u0000"+
-		"\t\n\r\r  8\u0000\u0001\u0001\u0000\u0000\u0000\u0000\u0003\u0001\u0000"+
-		"\u0000\u0000\u0000\u0005\u0001\u0000\u0000\u0000\u0000\u0007\u0001\u0000"+
-		"\u0000\u0000\u0000\t\u0001\u0000\u0000\u0000\u0000\u000b\u0001\u0000\u0000"+
-		"\u0000\u0000\r\u0001\u0000\u0000\u0000\u0000\u000f\u0001\u0000\u0000\u0000"+
-		"\u0000\u0011\u0001\u0000\u0000\u0000\u0001\u0013\u0001\u0000\u0000\u0000"+
-		"\u0003\u0016\u0001\u0000\u0000\u0000\u0005\u0019\u0001\u0000\u0000\u0000"+
-		"\u0007\u001b\u0001\u0000\u0000\u0000\t\u001d\u0001\u0000\u0000\u0000\u000b"+
-		"\u001f\u0001\u0000\u0000\u0000\r!\u0001\u0000\u0000\u0000\u000f(\u0001"+
-		"\u0000\u0000\u0000\u00110\u0001\u0000\u0000\u0000\u0013\u0014\u0005:\u0000"+
-		"\u0000\u0014\u0015\u0005-\u0000\u0000\u0015\u0002\u0001\u0000\u0000\u0000"+
-		"\u0016\u0017\u0005?\u0000\u0000\u0017\u0018\u0005-\u0000\u0000\u0018\u0004"+
-		"\u0001\u0000\u0000\u0000\u0019\u001a\u0005.\u0000\u0000\u001a\u0006\u0001"+
-		"\u0000\u0000\u0000\u001b\u001c\u0005,\u0000\u0000\u001c\b\u0001\u0000"+
-		"\u0000\u0000\u001d\u001e\u0005(\u0000\u0000\u001e\n\u0001\u0000\u0000"+
-		"\u0000\u001f \u0005)\u0000\u0000 \f\u0001\u0000\u0000\u0000!%\u0007\u0000"+
-		"\u0000\u0000\"$\u0007\u0001\u0000\u0000#\"\u0001\u0000\u0000\u0000$\'"+
-		"\u0001\u0000\u0000\u0000%#\u0001\u0000\u0000\u0000%&\u0001\u0000\u0000"+
-		"\u0000&\u000e\u0001\u0000\u0000\u0000\'%\u0001\u0000\u0000\u0000(,\u0007"+
-		"\u0002\u0000\u0000)+\u0007\u0001\u0000\u0000*)\u0001\u0000\u0000\u0000"+
-		"+.\u0001\u0000\u0000\u0000,*\u0001\u0000\u0000\u0000,-\u0001\u0000\u0000"+
-		"\u0000-\u0010\u0001\u0000\u0000\u0000.,\u0001\u0000\u0000\u0000/1\u0007"+
-		"\u0003\u0000\u00000/\u0001\u0000\u0000\u000012\u0001\u0000\u0000\u0000"+
-		"20\u0001\u0000\u0000\u000023\u0001\u0000\u0000\u000034\u0001\u0000\u0000"+
-		"\u000045\u0006\b\u0000\u00005\u0012\u0001\u0000\u0000\u0000\u0004\u0000"+
-		"%,2\u0001\u0006\u0000\u0000";
+		"\u0007\u0007\u0002\b\u0007\b\u0002\t\u0007\t\u0002\n\u0007\n\u0002\u000b"+
+		"\u0007\u000b\u0002\f\u0007\f\u0002\r\u0007\r\u0001\u0000\u0001\u0000\u0001"+
+		"\u0000\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0002\u0001\u0002\u0001"+
+		"\u0003\u0001\u0003\u0001\u0004\u0001\u0004\u0001\u0005\u0001\u0005\u0001"+
+		"\u0005\u0001\u0006\u0001\u0006\u0001\u0007\u0001\u0007\u0001\b\u0001\b"+
+		"\u0001\t\u0001\t\u0001\n\u0001\n\u0005\n7\b\n\n\n\f\n:\t\n\u0001\u000b"+
+		"\u0001\u000b\u0005\u000b>\b\u000b\n\u000b\f\u000bA\t\u000b\u0001\f\u0004"+
+		"\fD\b\f\u000b\f\f\fE\u0001\r\u0004\rI\b\r\u000b\r\f\rJ\u0001\r\u0001\r"+
+		"\u0000\u0000\u000e\u0001\u0001\u0003\u0002\u0005\u0003\u0007\u0004\t\u0005"+
+		"\u000b\u0006\r\u0007\u000f\b\u0011\t\u0013\n\u0015\u000b\u0017\f\u0019"+
+		"\r\u001b\u000e\u0001\u0000\u0005\u0001\u0000AZ\u0004\u000009AZ__az\u0001"+
+		"\u0000az\u0001\u000009\u0003\u0000\t\n\r\r  Q\u0000\u0001\u0001\u0000"+
+		"\u0000\u0000\u0000\u0003\u0001\u0000\u0000\u0000\u0000\u0005\u0001\u0000"+
+		"\u0000\u0000\u0000\u0007\u0001\u0000\u0000\u0000\u0000\t\u0001\u0000\u0000"+
+		"\u0000\u0000\u000b\u0001\u0000\u0000\u0000\u0000\r\u0001\u0000\u0000\u0000"+
+		"\u0000\u000f\u0001\u0000\u0000\u0000\u0000\u0011\u0001\u0000\u0000\u0000"+
+		"\u0000\u0013\u0001\u0000\u0000\u0000\u0000\u0015\u0001\u0000\u0000\u0000"+
+		"\u0000\u0017\u0001\u0000\u0000\u0000\u0000\u0019\u0001\u0000\u0000\u0000"+
+		"\u0000\u001b\u0001\u0000\u0000\u0000\u0001\u001d\u0001\u0000\u0000\u0000"+
+		"\u0003 \u0001\u0000\u0000\u0000\u0005#\u0001\u0000\u0000\u0000\u0007%"+
+		"\u0001\u0000\u0000\u0000\t\'\u0001\u0000\u0000\u0000\u000b)\u0001\u0000"+
+		"\u0000\u0000\r,\u0001\u0000\u0000\u0000\u000f.\u0001\u0000\u0000\u0000"+
+		"\u00110\u0001\u0000\u0000\u0000\u00132\u0001\u0000\u0000\u0000\u00154"+
+		"\u0001\u0000\u0000\u0000\u0017;\u0001\u0000\u0000\u0000\u0019C\u0001\u0000"+
+		"\u0000\u0000\u001bH\u0001\u0000\u0000\u0000\u001d\u001e\u0005:\u0000\u0000"+
+		"\u001e\u001f\u0005-\u0000\u0000\u001f\u0002\u0001\u0000\u0000\u0000 !"+
+		"\u0005?\u0000\u0000!\"\u0005-\u0000\u0000\"\u0004\u0001\u0000\u0000\u0000"+
+		"#$\u0005.\u0000\u0000$\u0006\u0001\u0000\u0000\u0000%&\u0005,\u0000\u0000"+
+		"&\b\u0001\u0000\u0000\u0000\'(\u0005;\u0000\u0000(\n\u0001\u0000\u0000"+
+		"\u0000)*\u0005-\u0000\u0000*+\u0005>\u0000\u0000+\f\u0001\u0000\u0000"+
+		"\u0000,-\u0005!\u0000\u0000-\u000e\u0001\u0000\u0000\u0000./\u0005/\u0000"+
+		"\u0000/\u0010\u0001\u0000\u0000\u000001\u0005(\u0000\u00001\u0012\u0001"+
+		"\u0000\u0000\u000023\u0005)\u0000\u00003\u0014\u0001\u0000\u0000\u0000"+
+		"48\u0007\u0000\u0000\u000057\u0007\u0001\u0000\u000065\u0001\u0000\u0000"+
+		"\u00007:\u0001\u0000\u0000\u000086\u0001\u0000\u0000\u000089\u0001\u0000"+
+		"\u0000\u00009\u0016\u0001\u0000\u0000\u0000:8\u0001\u0000\u0000\u0000"+
+		";?\u0007\u0002\u0000\u0000<>\u0007\u0001\u0000\u0000=<\u0001\u0000\u0000"+
+		"\u0000>A\u0001\u0000\u0000\u0000?=\u0001\u0000\u0000\u0000?@\u0001\u0000"+
+		"\u0000\u0000@\u0018\u0001\u0000\u0000\u0000A?\u0001\u0000\u0000\u0000"+
+		"BD\u0007\u0003\u0000\u0000CB\u0001\u0000\u0000\u0000DE\u0001\u0000\u0000"+
+		"\u0000EC\u0001\u0000\u0000\u0000EF\u0001\u0000\u0000\u0000F\u001a\u0001"+
+		"\u0000\u0000\u0000GI\u0007\u0004\u0000\u0000HG\u0001\u0000\u0000\u0000"+
+		"IJ\u0001\u0000\u0000\u0000JH\u0001\u0000\u0000\u0000JK\u0001\u0000\u0000"+
+		"\u0000KL\u0001\u0000\u0000\u0000LM\u0006\r\u0000\u0000M\u001c\u0001\u0000"+
+		"\u0000\u0000\u0005\u00008?EJ\u0001\u0006\u0000\u0000";
 	public static final ATN _ATN =
 		new ATNDeserializer().deserialize(_serializedATN.toCharArray());
 	static {
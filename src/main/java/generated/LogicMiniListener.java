@@ -16,6 +16,26 @@ public interface LogicMiniListener extends ParseTreeListener {
 	 * @param ctx the parse tree
 	 */
 	void exitProgram(LogicMiniParser.ProgramContext ctx);
+	/**
+	 * Enter a parse tree produced by {@link LogicMiniParser#directive}.
+	 * @param ctx the parse tree
+	 */
+	void enterDirective(LogicMiniParser.DirectiveContext ctx);
+	/**
+	 * Exit a parse tree produced by {@link LogicMiniParser#directive}.
+	 * @param ctx the parse tree
+	 */
+	void exitDirective(LogicMiniParser.DirectiveContext ctx);
+	/**
+	 * Enter a parse tree produced by {@link LogicMiniParser#indicator}.
+	 * @param ctx the parse tree
+	 */
+	void enterIndicator(LogicMiniParser.IndicatorContext ctx);
+	/**
+	 * Exit a parse tree produced by {@link LogicMiniParser#indicator}.
+	 * @param ctx the parse tree
+	 */
+	void exitIndicator(LogicMiniParser.IndicatorContext ctx);
 	/**
 	 * Enter a parse tree produced by the {@code FactRule}
 	 * labeled alternative in {@link LogicMiniParser#clause}.
@@ -50,6 +70,26 @@ public interface LogicMiniListener extends ParseTreeListener {
 	 * @param ctx the parse tree
 	 */
 	void exitQuery(LogicMiniParser.QueryContext ctx);
+	/**
+	 * Enter a parse tree produced by {@link LogicMiniParser#body}.
+	 * @param ctx the parse tree
+	 */
+	void enterBody(LogicMiniParser.BodyContext ctx);
+	/**
+	 * Exit a parse tree produced by {@link LogicMiniParser#body}.
+	 * @param ctx the parse tree
+	 */
+	void exitBody(LogicMiniParser.BodyContext ctx);
+	/**
+	 * Enter a parse tree produced by {@link LogicMiniParser#if_then}.
+	 * @param ctx the parse tree
+	 */
+	void enterIf_then(LogicMiniParser.If_thenContext ctx);
+	/**
+	 * Exit a parse tree produced by {@link LogicMiniParser#if_then}.
+	 * @param ctx the parse tree
+	 */
+	void exitIf_then(LogicMiniParser.If_thenContext ctx);
 	/**
 	 * Enter a parse tree produced by {@link LogicMiniParser#term_list}.
 	 * @param ctx the parse tree
@@ -96,6 +136,30 @@ public interface LogicMiniListener extends ParseTreeListener {
 	 * @param ctx the parse tree
 	 */
 	void exitVariableTerm(LogicMiniParser.VariableTermContext ctx);
+	/**
+	 * Enter a parse tree produced by the {@code CutTerm}
+	 * labeled alternative in {@link LogicMiniParser#term}.
+	 * @param ctx the parse tree
+	 */
+	void enterCutTerm(LogicMiniParser.CutTermContext ctx);
+	/**
+	 * Exit a parse tree produced by the {@code CutTerm}
+	 * labeled alternative in {@link LogicMiniParser#term}.
+	 * @param ctx the parse tree
+	 */
+	void exitCutTerm(LogicMiniParser.CutTermContext ctx);
+	/**
+	 * Enter a parse tree produced by the {@code ParenTerm}
+	 * labeled alternative in {@link LogicMiniParser#term}.
+	 * @param ctx the parse tree
+	 */
+	void enterParenTerm(LogicMiniParser.ParenTermContext ctx);
+	/**
+	 * Exit a parse tree produced by the {@code ParenTerm}
+	 * labeled alternative in {@link LogicMiniParser#term}.
+	 * @param ctx the parse tree
+	 */
+	void exitParenTerm(LogicMiniParser.ParenTermContext ctx);
 	/**
 	 * Enter a parse tree produced by {@link LogicMiniParser#structure}.
 	 * @param ctx the parse tree
@@ -2,8 +2,11 @@ package generated;// Generated from C:/Users/25192/Desktop/LogicCompiler/src/mai
 import org.antlr.v4.runtime.atn.*;
 import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
 import org.antlr.v4.runtime.tree.*;
 import java.util.List;
+import java.util.Iterator;
+import java.util.ArrayList;
 
 @SuppressWarnings({"all", "warnings", "unchecked", "unused", "cast", "CheckReturnValue", "this-escape"})
 public class LogicMiniParser extends Parser {
@@ -13,28 +16,31 @@ public class LogicMiniParser extends Parser {
 	protected static final PredictionContextCache _sharedContextCache =
 		new PredictionContextCache();
 	public static final int
-		COLON_DASH=1, Q_MARK_DASH=2, DOT=3, COMMA=4, LPAREN=5, RPAREN=6, VARIABLE=7, 
-		ATOM=8, WS=9;
+		COLON_DASH=1, Q_MARK_DASH=2, DOT=3, COMMA=4, SEMICOLON=5, ARROW=6, CUT=7, 
+		SLASH=8, LPAREN=9, RPAREN=10, VARIABLE=11, ATOM=12, INTEGER=13, WS=14;
 	public static final int
-		RULE_program = 0, RULE_clause = 1, RULE_query = 2, RULE_term_list = 3, 
-		RULE_term = 4, RULE_structure = 5;
+		RULE_program = 0, RULE_directive = 1, RULE_indicator = 2, RULE_clause = 3, 
+		RULE_query = 4, RULE_body = 5, RULE_if_then = 6, RULE_term_list = 7, RULE_term = 8, 
+		RULE_structure = 9;
 	private static String[] makeRuleNames() {
 		return new String[] {
-			"program", "clause", "query", "term_list", "term", "structure"
+			"program", "directive", "indicator", "clause", "query", "body", "if_then", 
+			"term_list", "term", "structure"
 		};
 	}
 	public static final String[] ruleNames = makeRuleNames();
 
 	private static String[] makeLiteralNames() {
 		return new String[] {
-			null, "':-'", "'?-'", "'.'", "','", "'('", "')'"
+			null, "':-'", "'?-'", "'.'", "','", "';'", "'->'", "'!'", "'/'", "'('", 
+			"')'"
 		};
 	}
 	private static final String[] _LITERAL_NAMES = makeLiteralNames();
 	private static String[] makeSymbolicNames() {
 		return new String[] {
-			null, "COLON_DASH", "Q_MARK_DASH", "DOT", "COMMA", "LPAREN", "RPAREN", 
-			"VARIABLE", "ATOM", "WS"
+			null, "COLON_DASH", "Q_MARK_DASH", "DOT", "COMMA", "SEMICOLON", "ARROW", 
+			"CUT", "SLASH", "LPAREN", "RPAREN", "VARIABLE", "ATOM", "INTEGER", "WS"
 		};
 	}
 	private static final String[] _SYMBOLIC_NAMES = makeSymbolicNames();
@@ -90,9 +96,6 @@ public class LogicMiniParser extends Parser {
 
 	@SuppressWarnings("CheckReturnValue")
 	public static class ProgramContext extends ParserRuleContext {
-		public QueryContext query() {
-			return getRuleContext(QueryContext.class,0);
-		}
 		public TerminalNode EOF() { return getToken(LogicMiniParser.EOF, 0); }
 		public List<ClauseContext> clause() {
 			return getRuleContexts(ClauseContext.class);
@@ -100,6 +103,15 @@ public class LogicMiniParser extends Parser {
 		public ClauseContext clause(int i) {
 			return getRuleContext(ClauseContext.class,i);
 		}
+		public List<DirectiveContext> directive() {
+			return getRuleContexts(DirectiveContext.class);
+		}
+		public DirectiveContext directive(int i) {
+			return getRuleContext(DirectiveContext.class,i);
+		}
+		public QueryContext query() {
+			return getRuleContext(QueryContext.class,0);
+		}
 		public ProgramContext(ParserRuleContext parent, int invokingState) {
 			super(parent, invokingState);
 		}
@@ -126,23 +138,45 @@ public class LogicMiniParser extends Parser {
 		try {
 			enterOuterAlt(_localctx, 1);
 			{
-			setState(15);
+			setState(24);
 			_errHandler.sync(this);
 			_la = _input.LA(1);
-			while (_la==ATOM) {
+			while (_la==COLON_DASH || _la==ATOM) {
 				{
-				{
-				setState(12);
-				clause();
+				setState(22);
+				_errHandler.sync(this);
+				switch (_input.LA(1)) {
+				case ATOM:
+					{
+					setState(20);
+					clause();
+					}
+					break;
+				case COLON_DASH:
+					{
+					setState(21);
+					directive();
+					}
+					break;
+				default:
+					throw new NoViableAltException(this);
 				}
 				}
-				setState(17);
+				setState(26);
 				_errHandler.sync(this);
 				_la = _input.LA(1);
 			}
-			setState(18);
-			query();
-			setState(19);
+			setState(28);
+			_errHandler.sync(this);
+			_la = _input.LA(1);
+			if (_la==Q_MARK_DASH) {
+				{
+				setState(27);
+				query();
+				}
+			}
+
+			setState(30);
 			match(EOF);
 			}
 		}
@@ -157,6 +191,133 @@ public class LogicMiniParser extends Parser {
 		return _localctx;
 	}
 
+	@SuppressWarnings("CheckReturnValue")
+	public static class DirectiveContext extends ParserRuleContext {
+		public TerminalNode COLON_DASH() { return getToken(LogicMiniParser.COLON_DASH, 0); }
+		public TerminalNode ATOM() { return getToken(LogicMiniParser.ATOM, 0); }
+		public List<IndicatorContext> indicator() {
+			return getRuleContexts(IndicatorContext.class);
+		}
+		public IndicatorContext indicator(int i) {
+			return getRuleContext(IndicatorContext.class,i);
+		}
+		public TerminalNode DOT() { return getToken(LogicMiniParser.DOT, 0); }
+		public List<TerminalNode> COMMA() { return getTokens(LogicMiniParser.COMMA); }
+		public TerminalNode COMMA(int i) {
+			return getToken(LogicMiniParser.COMMA, i);
+		}
+		public DirectiveContext(ParserRuleContext parent, int invokingState) {
+			super(parent, invokingState);
+		}
+		@Override public int getRuleIndex() { return RULE_directive; }
+		@Override
+		public void enterRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).enterDirective(this);
+		}
+		@Override
+		public void exitRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).exitDirective(this);
+		}
+		@Override
+		public <T> T accept(ParseTreeVisitor<? extends T> visitor) {
+			if ( visitor instanceof LogicMiniVisitor ) return ((LogicMiniVisitor<? extends T>)visitor).visitDirective(this);
+			else return visitor.visitChildren(this);
+		}
+	}
+
+	public final DirectiveContext directive() throws RecognitionException {
+		DirectiveContext _localctx = new DirectiveContext(_ctx, getState());
+		enterRule(_localctx, 2, RULE_directive);
+		int _la;
+		try {
+			enterOuterAlt(_localctx, 1);
+			{
+			setState(32);
+			match(COLON_DASH);
+			setState(33);
+			match(ATOM);
+			setState(34);
+			indicator();
+			setState(39);
+			_errHandler.sync(this);
+			_la = _input.LA(1);
+			while (_la==COMMA) {
+				{
+				{
+				setState(35);
+				match(COMMA);
+				setState(36);
+				indicator();
+				}
+				}
+				setState(41);
+				_errHandler.sync(this);
+				_la = _input.LA(1);
+			}
+			setState(42);
+			match(DOT);
+			}
+		}
+		catch (RecognitionException re) {
+			_localctx.exception = re;
+			_errHandler.reportError(this, re);
+			_errHandler.recover(this, re);
+		}
+		finally {
+			exitRule();
+		}
+		return _localctx;
+	}
+
+	@SuppressWarnings("CheckReturnValue")
+	public static class IndicatorContext extends ParserRuleContext {
+		public TerminalNode ATOM() { return getToken(LogicMiniParser.ATOM, 0); }
+		public TerminalNode SLASH() { return getToken(LogicMiniParser.SLASH, 0); }
+		public TerminalNode INTEGER() { return getToken(LogicMiniParser.INTEGER, 0); }
+		public IndicatorContext(ParserRuleContext parent, int invokingState) {
+			super(parent, invokingState);
+		}
+		@Override public int getRuleIndex() { return RULE_indicator; }
+		@Override
+		public void enterRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).enterIndicator(this);
+		}
+		@Override
+		public void exitRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).exitIndicator(this);
+		}
+		@Override
+		public <T> T accept(ParseTreeVisitor<? extends T> visitor) {
+			if ( visitor instanceof LogicMiniVisitor ) return ((LogicMiniVisitor<? extends T>)visitor).visitIndicator(this);
+			else return visitor.visitChildren(this);
+		}
+	}
+
+	public final IndicatorContext indicator() throws RecognitionException {
+		IndicatorContext _localctx = new IndicatorContext(_ctx, getState());
+		enterRule(_localctx, 4, RULE_indicator);
+		try {
+			enterOuterAlt(_localctx, 1);
+			{
+			setState(44);
+			match(ATOM);
+			setState(45);
+			match(SLASH);
+			setState(46);
+			match(INTEGER);
+			}
+		}
+		catch (RecognitionException re) {
+			_localctx.exception = re;
+			_errHandler.reportError(this, re);
+			_errHandler.recover(this, re);
+		}
+		finally {
+			exitRule();
+		}
+		return _localctx;
+	}
+
 	@SuppressWarnings("CheckReturnValue")
 	public static class ClauseContext extends ParserRuleContext {
 		public ClauseContext(ParserRuleContext parent, int invokingState) {
@@ -196,8 +357,8 @@ public class LogicMiniParser extends Parser {
 			return getRuleContext(StructureContext.class,0);
 		}
 		public TerminalNode COLON_DASH() { return getToken(LogicMiniParser.COLON_DASH, 0); }
-		public Term_listContext term_list() {
-			return getRuleContext(Term_listContext.class,0);
+		public BodyContext body() {
+			return getRuleContext(BodyContext.class,0);
 		}
 		public TerminalNode DOT() { return getToken(LogicMiniParser.DOT, 0); }
 		public RuleRuleContext(ClauseContext ctx) { copyFrom(ctx); }
@@ -218,18 +379,18 @@ public class LogicMiniParser extends Parser {
 
 	public final ClauseContext clause() throws RecognitionException {
 		ClauseContext _localctx = new ClauseContext(_ctx, getState());
-		enterRule(_localctx, 2, RULE_clause);
+		enterRule(_localctx, 6, RULE_clause);
 		try {
-			setState(29);
+			setState(56);
 			_errHandler.sync(this);
-			switch ( getInterpreter().adaptivePredict(_input,1,_ctx) ) {
+			switch ( getInterpreter().adaptivePredict(_input,4,_ctx) ) {
 			case 1:
 				_localctx = new FactRuleContext(_localctx);
 				enterOuterAlt(_localctx, 1);
 				{
-				setState(21);
+				setState(48);
 				structure();
-				setState(22);
+				setState(49);
 				match(DOT);
 				}
 				break;
@@ -237,13 +398,13 @@ public class LogicMiniParser extends Parser {
 				_localctx = new RuleRuleContext(_localctx);
 				enterOuterAlt(_localctx, 2);
 				{
-				setState(24);
+				setState(51);
 				structure();
-				setState(25);
+				setState(52);
 				match(COLON_DASH);
-				setState(26);
-				term_list();
-				setState(27);
+				setState(53);
+				body();
+				setState(54);
 				match(DOT);
 				}
 				break;
@@ -263,8 +424,8 @@ public class LogicMiniParser extends Parser {
 	@SuppressWarnings("CheckReturnValue")
 	public static class QueryContext extends ParserRuleContext {
 		public TerminalNode Q_MARK_DASH() { return getToken(LogicMiniParser.Q_MARK_DASH, 0); }
-		public Term_listContext term_list() {
-			return getRuleContext(Term_listContext.class,0);
+		public BodyContext body() {
+			return getRuleContext(BodyContext.class,0);
 		}
 		public TerminalNode DOT() { return getToken(LogicMiniParser.DOT, 0); }
 		public QueryContext(ParserRuleContext parent, int invokingState) {
@@ -288,15 +449,15 @@ public class LogicMiniParser extends Parser {
 
 	public final QueryContext query() throws RecognitionException {
 		QueryContext _localctx = new QueryContext(_ctx, getState());
-		enterRule(_localctx, 4, RULE_query);
+		enterRule(_localctx, 8, RULE_query);
 		try {
 			enterOuterAlt(_localctx, 1);
 			{
-			setState(31);
+			setState(58);
 			match(Q_MARK_DASH);
-			setState(32);
-			term_list();
-			setState(33);
+			setState(59);
+			body();
+			setState(60);
 			match(DOT);
 			}
 		}
@@ -311,6 +472,130 @@ public class LogicMiniParser extends Parser {
 		return _localctx;
 	}
 
+	@SuppressWarnings("CheckReturnValue")
+	public static class BodyContext extends ParserRuleContext {
+		public If_thenContext if_then() {
+			return getRuleContext(If_thenContext.class,0);
+		}
+		public TerminalNode SEMICOLON() { return getToken(LogicMiniParser.SEMICOLON, 0); }
+		public BodyContext body() {
+			return getRuleContext(BodyContext.class,0);
+		}
+		public BodyContext(ParserRuleContext parent, int invokingState) {
+			super(parent, invokingState);
+		}
+		@Override public int getRuleIndex() { return RULE_body; }
+		@Override
+		public void enterRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).enterBody(this);
+		}
+		@Override
+		public void exitRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).exitBody(this);
+		}
+		@Override
+		public <T> T accept(ParseTreeVisitor<? extends T> visitor) {
+			if ( visitor instanceof LogicMiniVisitor ) return ((LogicMiniVisitor<? extends T>)visitor).visitBody(this);
+			else return visitor.visitChildren(this);
+		}
+	}
+
+	public final BodyContext body() throws RecognitionException {
+		BodyContext _localctx = new BodyContext(_ctx, getState());
+		enterRule(_localctx, 10, RULE_body);
+		int _la;
+		try {
+			enterOuterAlt(_localctx, 1);
+			{
+			setState(62);
+			if_then();
+			setState(65);
+			_errHandler.sync(this);
+			_la = _input.LA(1);
+			if (_la==SEMICOLON) {
+				{
+				setState(63);
+				match(SEMICOLON);
+				setState(64);
+				body();
+				}
+			}
+
+			}
+		}
+		catch (RecognitionException re) {
+			_localctx.exception = re;
+			_errHandler.reportError(this, re);
+			_errHandler.recover(this, re);
+		}
+		finally {
+			exitRule();
+		}
+		return _localctx;
+	}
+
+	@SuppressWarnings("CheckReturnValue")
+	public static class If_thenContext extends ParserRuleContext {
+		public List<Term_listContext> term_list() {
+			return getRuleContexts(Term_listContext.class);
+		}
+		public Term_listContext term_list(int i) {
+			return getRuleContext(Term_listContext.class,i);
+		}
+		public TerminalNode ARROW() { return getToken(LogicMiniParser.ARROW, 0); }
+		public If_thenContext(ParserRuleContext parent, int invokingState) {
+			super(parent, invokingState);
+		}
+		@Override public int getRuleIndex() { return RULE_if_then; }
+		@Override
+		public void enterRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).enterIf_then(this);
+		}
+		@Override
+		public void exitRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).exitIf_then(this);
+		}
+		@Override
+		public <T> T accept(ParseTreeVisitor<? extends T> visitor) {
+			if ( visitor instanceof LogicMiniVisitor ) return ((LogicMiniVisitor<? extends T>)visitor).visitIf_then(this);
+			else return visitor.visitChildren(this);
+		}
+	}
+
+	public final If_thenContext if_then() throws RecognitionException {
+		If_thenContext _localctx = new If_thenContext(_ctx, getState());
+		enterRule(_localctx, 12, RULE_if_then);
+		int _la;
+		try {
+			enterOuterAlt(_localctx, 1);
+			{
+			setState(67);
+			term_list();
+			setState(70);
+			_errHandler.sync(this);
+			_la = _input.LA(1);
+			if (_la==ARROW) {
+				{
+				setState(68);
+				match(ARROW);
+				setState(69);
+				term_list();
+				}
+			}
+
+			}
+		}
+		catch (RecognitionException re) {
+			_localctx.exception = re;
+			_errHandler.reportError(this, re);
+			_errHandler.recover(this, re);
+		}
+		finally {
+			exitRule();
+		}
+		return _localctx;
+	}
+
 	@SuppressWarnings("CheckReturnValue")
 	public static class Term_listContext extends ParserRuleContext {
 		public List<TermContext> term() {
@@ -344,26 +629,26 @@ public class LogicMiniParser extends Parser {
 
 	public final Term_listContext term_list() throws RecognitionException {
 		Term_listContext _localctx = new Term_listContext(_ctx, getState());
-		enterRule(_localctx, 6, RULE_term_list);
+		enterRule(_localctx, 14, RULE_term_list);
 		int _la;
 		try {
 			enterOuterAlt(_localctx, 1);
 			{
-			setState(35);
+			setState(72);
 			term();
-			setState(40);
+			setState(77);
 			_errHandler.sync(this);
 			_la = _input.LA(1);
 			while (_la==COMMA) {
 				{
 				{
-				setState(36);
+				setState(73);
 				match(COMMA);
-				setState(37);
+				setState(74);
 				term();
 				}
 				}
-				setState(42);
+				setState(79);
 				_errHandler.sync(this);
 				_la = _input.LA(1);
 			}
@@ -434,6 +719,46 @@ public class LogicMiniParser extends Parser {
 		}
 	}
 	@SuppressWarnings("CheckReturnValue")
+	public static class CutTermContext extends TermContext {
+		public TerminalNode CUT() { return getToken(LogicMiniParser.CUT, 0); }
+		public CutTermContext(TermContext ctx) { copyFrom(ctx); }
+		@Override
+		public void enterRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).enterCutTerm(this);
+		}
+		@Override
+		public void exitRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).exitCutTerm(this);
+		}
+		@Override
+		public <T> T accept(ParseTreeVisitor<? extends T> visitor) {
+			if ( visitor instanceof LogicMiniVisitor ) return ((LogicMiniVisitor<? extends T>)visitor).visitCutTerm(this);
+			else return visitor.visitChildren(this);
+		}
+	}
+	@SuppressWarnings("CheckReturnValue")
+	public static class ParenTermContext extends TermContext {
+		public TerminalNode LPAREN() { return getToken(LogicMiniParser.LPAREN, 0); }
+		public BodyContext body() {
+			return getRuleContext(BodyContext.class,0);
+		}
+		public TerminalNode RPAREN() { return getToken(LogicMiniParser.RPAREN, 0); }
+		public ParenTermContext(TermContext ctx) { copyFrom(ctx); }
+		@Override
+		public void enterRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).enterParenTerm(this);
+		}
+		@Override
+		public void exitRule(ParseTreeListener listener) {
+			if ( listener instanceof LogicMiniListener ) ((LogicMiniListener)listener).exitParenTerm(this);
+		}
+		@Override
+		public <T> T accept(ParseTreeVisitor<? extends T> visitor) {
+			if ( visitor instanceof LogicMiniVisitor ) return ((LogicMiniVisitor<? extends T>)visitor).visitParenTerm(this);
+			else return visitor.visitChildren(this);
+		}
+	}
+	@SuppressWarnings("CheckReturnValue")
 	public static class AtomTermContext extends TermContext {
 		public TerminalNode ATOM() { return getToken(LogicMiniParser.ATOM, 0); }
 		public AtomTermContext(TermContext ctx) { copyFrom(ctx); }
@@ -454,22 +779,22 @@ public class LogicMiniParser extends Parser {
 
 	public final TermContext term() throws RecognitionException {
 		TermContext _localctx = new TermContext(_ctx, getState());
-		enterRule(_localctx, 8, RULE_term);
+		enterRule(_localctx, 16, RULE_term);
 		try {
-			setState(50);
+			setState(92);
 			_errHandler.sync(this);
-			switch ( getInterpreter().adaptivePredict(_input,3,_ctx) ) {
+			switch ( getInterpreter().adaptivePredict(_input,8,_ctx) ) {
 			case 1:
 				_localctx = new StructureTermContext(_localctx);
 				enterOuterAlt(_localctx, 1);
 				{
-				setState(43);
+				setState(80);
 				match(ATOM);
-				setState(44);
+				setState(81);
 				match(LPAREN);
-				setState(45);
+				setState(82);
 				term_list();
-				setState(46);
+				setState(83);
 				match(RPAREN);
 				}
 				break;
@@ -477,7 +802,7 @@ public class LogicMiniParser extends Parser {
 				_localctx = new AtomTermContext(_localctx);
 				enterOuterAlt(_localctx, 2);
 				{
-				setState(48);
+				setState(85);
 				match(ATOM);
 				}
 				break;
@@ -485,10 +810,30 @@ public class LogicMiniParser extends Parser {
 				_localctx = new VariableTermContext(_localctx);
 				enterOuterAlt(_localctx, 3);
 				{
-				setState(49);
+				setState(86);
 				match(VARIABLE);
 				}
 				break;
+			case 4:
+				_localctx = new CutTermContext(_localctx);
+				enterOuterAlt(_localctx, 4);
+				{
+				setState(87);
+				match(CUT);
+				}
+				break;
+			case 5:
+				_localctx = new ParenTermContext(_localctx);
+				enterOuterAlt(_localctx, 5);
+				{
+				setState(88);
+				match(LPAREN);
+				setState(89);
+				body();
+				setState(90);
+				match(RPAREN);
+				}
+				break;
 			}
 		}
 		catch (RecognitionException re) {
@@ -531,28 +876,28 @@ public class LogicMiniParser extends Parser {
 
 	public final StructureContext structure() throws RecognitionException {
 		StructureContext _localctx = new StructureContext(_ctx, getState());
-		enterRule(_localctx, 10, RULE_structure);
+		enterRule(_localctx, 18, RULE_structure);
 		try {
-			setState(58);
+			setState(100);
 			_errHandler.sync(this);
-			switch ( getInterpreter().adaptivePredict(_input,4,_ctx) ) {
+			switch ( getInterpreter().adaptivePredict(_input,9,_ctx) ) {
 			case 1:
 				enterOuterAlt(_localctx, 1);
 				{
-				setState(52);
+				setState(94);
 				match(ATOM);
-				setState(53);
+				setState(95);
 				match(LPAREN);
-				setState(54);
+				setState(96);
 				term_list();
-				setState(55);
+				setState(97);
 				match(RPAREN);
 				}
 				break;
 			case 2:
 				enterOuterAlt(_localctx, 2);
 				{
-				setState(57);
+				setState(99);
 				match(ATOM);
 				}
 				break;
@@ -570,43 +915,64 @@ public class LogicMiniParser extends Parser {
 	}
 
 	public static final String _serializedATN =
-		"\u0004\u0001\t=\u0002\u0000\u0007\u0000\u0002\u0001\u0007\u0001\u0002"+
+		"\u0004\u0001\u000eg\u0002\u0000\u0007\u0000\u0002\u0001\u0007\u0001\u0002"+
 		"\u0002\u0007\u0002\u0002\u0003\u0007\u0003\u0002\u0004\u0007\u0004\u0002"+
-		"\u0005\u0007\u0005\u0001\u0000\u0005\u0000\u000e\b\u0000\n\u0000\f\u0000"+
-		"\u0011\t\u0000\u0001\u0000\u0001\u0000\u0001\u0000\u0001\u0001\u0001\u0001"+
-		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
-		"\u0003\u0001\u001e\b\u0001\u0001\u0002\u0001\u0002\u0001\u0002\u0001\u0002"+
-		"\u0001\u0003\u0001\u0003\u0001\u0003\u0005\u0003\'\b\u0003\n\u0003\f\u0003"+
-		"*\t\u0003\u0001\u0004\u0001\u0004\u0001\u0004\u0001\u0004\u0001\u0004"+
-		"\u0001\u0004\u0001\u0004\u0003\u00043\b\u0004\u0001\u0005\u0001\u0005"+
-		"\u0001\u0005\u0001\u0005\u0001\u0005\u0001\u0005\u0003\u0005;\b\u0005"+
-		"\u0001\u0005\u0000\u0000\u0006\u0000\u0002\u0004\u0006\b\n\u0000\u0000"+
-		"<\u0000\u000f\u0001\u0000\u0000\u0000\u0002\u001d\u0001\u0000\u0000\u0000"+
-		"\u0004\u001f\u0001\u0000\u0000\u0000\u0006#\u0001\u0000\u0000\u0000\b"+
-		"2\u0001\u0000\u0000\u0000\n:\u0001\u0000\u0000\u0000\f\u000e\u0003\u0002"+
-		"\u0001\u0000\r\f\u0001\u0000\u0000\u0000\u000e\u0011\u0001\u0000\u0000"+
-		"\u0000\u000f\r\u0001\u0000\u0000\u0000\u000f\u0010\u0001\u0000\u0000\u0000"+
-		"\u0010\u0012\u0001\u0000\u0000\u0000\u0011\u000f\u0001\u0000\u0000\u0000"+
-		"\u0012\u0013\u0003\u0004\u0002\u0000\u0013\u0014\u0005\u0000\u0000\u0001"+
-		"\u0014\u0001\u0001\u0000\u0000\u0000\u0015\u0016\u0003\n\u0005\u0000\u0016"+
-		"\u0017\u0005\u0003\u0000\u0000\u0017\u001e\u0001\u0000\u0000\u0000\u0018"+
-		"\u0019\u0003\n\u0005\u0000\u0019\u001a\u0005\u0001\u0000\u0000\u001a\u001b"+
-		"\u0003\u0006\u0003\u0000\u001b\u001c\u0005\u0003\u0000\u0000\u001c\u001e"+
-		"\u0001\u0000\u0000\u0000\u001d\u0015\u0001\u0000\u0000\u0000\u001d\u0018"+
-		"\u0001\u0000\u0000\u0000\u001e\u0003\u0001\u0000\u0000\u0000\u001f \u0005"+
-		"\u0002\u0000\u0000 !\u0003\u0006\u0003\u0000!\"\u0005\u0003\u0000\u0000"+
-		"\"\u0005\u0001\u0000\u0000\u0000#(\u0003\b\u0004\u0000$%\u0005\u0004\u0000"+
-		"\u0000%\'\u0003\b\u0004\u0000&$\u0001\u0000\u0000\u0000\'*\u0001\u0000"+
-		"\u0000\u0000(&\u0001\u0000\u0000\u0000()\u0001\u0000\u0000\u0000)\u0007"+
-		"\u0001\u0000\u0000\u0000*(\u0001\u0000\u0000\u0000+,\u0005\b\u0000\u0000"+
-		",-\u0005\u0005\u0000\u0000-.\u0003\u0006\u0003\u0000./\u0005\u0006\u0000"+
-		"\u0000/3\u0001\u0000\u0000\u000003\u0005\b\u0000\u000013\u0005\u0007\u0000"+
-		"\u00002+\u0001\u0000\u0000\u000020\u0001\u0000\u0000\u000021\u0001\u0000"+
-		"\u0000\u00003\t\u0001\u0000\u0000\u000045\u0005\b\u0000\u000056\u0005"+
-		"\u0005\u0000\u000067\u0003\u0006\u0003\u000078\u0005\u0006\u0000\u0000"+
-		"8;\u0001\u0000\u0000\u00009;\u0005\b\u0000\u0000:4\u0001\u0000\u0000\u0000"+
-		":9\u0001\u0000\u0000\u0000;\u000b\u0001\u0000\u0000\u0000\u0005\u000f"+
-		"\u001d(2:";
+		"\u0005\u0007\u0005\u0002\u0006\u0007\u0006\u0002\u0007\u0007\u0007\u0002"+
+		"\b\u0007\b\u0002\t\u0007\t\u0001\u0000\u0001\u0000\u0005\u0000\u0017\b"+
+		"\u0000\n\u0000\f\u0000\u001a\t\u0000\u0001\u0000\u0003\u0000\u001d\b\u0000"+
+		"\u0001\u0000\u0001\u0000\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
+		"\u0001\u0001\u0005\u0001&\b\u0001\n\u0001\f\u0001)\t\u0001\u0001\u0001"+
+		"\u0001\u0001\u0001\u0002\u0001\u0002\u0001\u0002\u0001\u0002\u0001\u0003"+
+		"\u0001\u0003\u0001\u0003\u0001\u0003\u0001\u0003\u0001\u0003\u0001\u0003"+
+		"\u0001\u0003\u0003\u00039\b\u0003\u0001\u0004\u0001\u0004\u0001\u0004"+
+		"\u0001\u0004\u0001\u0005\u0001\u0005\u0001\u0005\u0003\u0005B\b\u0005"+
+		"\u0001\u0006\u0001\u0006\u0001\u0006\u0003\u0006G\b\u0006\u0001\u0007"+
+		"\u0001\u0007\u0001\u0007\u0005\u0007L\b\u0007\n\u0007\f\u0007O\t\u0007"+
+		"\u0001\b\u0001\b\u0001\b\u0001\b\u0001\b\u0001\b\u0001\b\u0001\b\u0001"+
+		"\b\u0001\b\u0001\b\u0001\b\u0003\b]\b\b\u0001\t\u0001\t\u0001\t\u0001"+
+		"\t\u0001\t\u0001\t\u0003\te\b\t\u0001\t\u0000\u0000\n\u0000\u0002\u0004"+
+		"\u0006\b\n\f\u000e\u0010\u0012\u0000\u0000i\u0000\u0018\u0001\u0000\u0000"+
+		"\u0000\u0002 \u0001\u0000\u0000\u0000\u0004,\u0001\u0000\u0000\u0000\u0006"+
+		"8\u0001\u0000\u0000\u0000\b:\u0001\u0000\u0000\u0000\n>\u0001\u0000\u0000"+
+		"\u0000\fC\u0001\u0000\u0000\u0000\u000eH\u0001\u0000\u0000\u0000\u0010"+
+		"\\\u0001\u0000\u0000\u0000\u0012d\u0001\u0000\u0000\u0000\u0014\u0017"+
+		"\u0003\u0006\u0003\u0000\u0015\u0017\u0003\u0002\u0001\u0000\u0016\u0014"+
+		"\u0001\u0000\u0000\u0000\u0016\u0015\u0001\u0000\u0000\u0000\u0017\u001a"+
+		"\u0001\u0000\u0000\u0000\u0018\u0016\u0001\u0000\u0000\u0000\u0018\u0019"+
+		"\u0001\u0000\u0000\u0000\u0019\u001c\u0001\u0000\u0000\u0000\u001a\u0018"+
+		"\u0001\u0000\u0000\u0000\u001b\u001d\u0003\b\u0004\u0000\u001c\u001b\u0001"+
+		"\u0000\u0000\u0000\u001c\u001d\u0001\u0000\u0000\u0000\u001d\u001e\u0001"+
+		"\u0000\u0000\u0000\u001e\u001f\u0005\u0000\u0000\u0001\u001f\u0001\u0001"+
+		"\u0000\u0000\u0000 !\u0005\u0001\u0000\u0000!\"\u0005\f\u0000\u0000\""+
+		"\'\u0003\u0004\u0002\u0000#$\u0005\u0004\u0000\u0000$&\u0003\u0004\u0002"+
+		"\u0000%#\u0001\u0000\u0000\u0000&)\u0001\u0000\u0000\u0000\'%\u0001\u0000"+
+		"\u0000\u0000\'(\u0001\u0000\u0000\u0000(*\u0001\u0000\u0000\u0000)\'\u0001"+
+		"\u0000\u0000\u0000*+\u0005\u0003\u0000\u0000+\u0003\u0001\u0000\u0000"+
+		"\u0000,-\u0005\f\u0000\u0000-.\u0005\b\u0000\u0000./\u0005\r\u0000\u0000"+
+		"/\u0005\u0001\u0000\u0000\u000001\u0003\u0012\t\u000012\u0005\u0003\u0000"+
+		"\u000029\u0001\u0000\u0000\u000034\u0003\u0012\t\u000045\u0005\u0001\u0000"+
+		"\u000056\u0003\n\u0005\u000067\u0005\u0003\u0000\u000079\u0001\u0000\u0000"+
+		"\u000080\u0001\u0000\u0000\u000083\u0001\u0000\u0000\u00009\u0007\u0001"+
+		"\u0000\u0000\u0000:;\u0005\u0002\u0000\u0000;<\u0003\n\u0005\u0000<=\u0005"+
+		"\u0003\u0000\u0000=\t\u0001\u0000\u0000\u0000>A\u0003\f\u0006\u0000?@"+
+		"\u0005\u0005\u0000\u0000@B\u0003\n\u0005\u0000A?\u0001\u0000\u0000\u0000"+
+		"AB\u0001\u0000\u0000\u0000B\u000b\u0001\u0000\u0000\u0000CF\u0003\u000e"+
+		"\u0007\u0000DE\u0005\u0006\u0000\u0000EG\u0003\u000e\u0007\u0000FD\u0001"+
+		"\u0000\u0000\u0000FG\u0001\u0000\u0000\u0000G\r\u0001\u0000\u0000\u0000"+
+		"HM\u0003\u0010\b\u0000IJ\u0005\u0004\u0000\u0000JL\u0003\u0010\b\u0000"+
+		"KI\u0001\u0000\u0000\u0000LO\u0001\u0000\u0000\u0000MK\u0001\u0000\u0000"+
+		"\u0000MN\u0001\u0000\u0000\u0000N\u000f\u0001\u0000\u0000\u0000OM\u0001"+
+		"\u0000\u0000\u0000PQ\u0005\f\u0000\u0000QR\u0005\t\u0000\u0000RS\u0003"+
+		"\u000e\u0007\u0000ST\u0005\n\u0000\u0000T]\u0001\u0000\u0000\u0000U]\u0005"+
+		"\f\u0000\u0000V]\u0005\u000b\u0000\u0000W]\u0005\u0007\u0000\u0000XY\u0005"+
+		"\t\u0000\u0000YZ\u0003\n\u0005\u0000Z[\u0005\n\u0000\u0000[]\u0001\u0000"+
+		"\u0000\u0000\\P\u0001\u0000\u0000\u0000\\U\u0001\u0000\u0000\u0000\\V"+
+		"\u0001\u0000\u0000\u0000\\W\u0001\u0000\u0000\u0000\\X\u0001\u0000\u0000"+
+		"\u0000]\u0011\u0001\u0000\u0000\u0000^_\u0005\f\u0000\u0000_`\u0005\t"+
+		"\u0000\u0000`a\u0003\u000e\u0007\u0000ab\u0005\n\u0000\u0000be\u0001\u0000"+
+		"\u0000\u0000ce\u0005\f\u0000\u0000d^\u0001\u0000\u0000\u0000dc\u0001\u0000"+
+		"\u0000\u0000e\u0013\u0001\u0000\u0000\u0000\n\u0016\u0018\u001c\'8AFM"+
+		"\\d";
 	public static final ATN _ATN =
 		new ATNDeserializer().deserialize(_serializedATN.toCharArray());
 	static {
@@ -15,6 +15,18 @@ public interface LogicMiniVisitor<T> extends ParseTreeVisitor<T> {
 	 * @return the visitor result
 	 */
 	T visitProgram(LogicMiniParser.ProgramContext ctx);
+	/**
+	 * Visit a parse tree produced by {@link LogicMiniParser#directive}.
+	 * @param ctx the parse tree
+	 * @return the visitor result
+	 */
+	T visitDirective(LogicMiniParser.DirectiveContext ctx);
+	/**
+	 * Visit a parse tree produced by {@link LogicMiniParser#indicator}.
+	 * @param ctx the parse tree
+	 * @return the visitor result
+	 */
+	T visitIndicator(LogicMiniParser.IndicatorContext ctx);
 	/**
 	 * Visit a parse tree produced by the {@code FactRule}
 	 * labeled alternative in {@link LogicMiniParser#clause}.
@@ -35,6 +47,18 @@ public interface LogicMiniVisitor<T> extends ParseTreeVisitor<T> {
 	 * @return the visitor result
 	 */
 	T visitQuery(LogicMiniParser.QueryContext ctx);
+	/**
+	 * Visit a parse tree produced by {@link LogicMiniParser#body}.
+	 * @param ctx the parse tree
+	 * @return the visitor result
+	 */
+	T visitBody(LogicMiniParser.BodyContext ctx);
+	/**
+	 * Visit a parse tree produced by {@link LogicMiniParser#if_then}.
+	 * @param ctx the parse tree
+	 * @return the visitor result
+	 */
+	T visitIf_then(LogicMiniParser.If_thenContext ctx);
 	/**
 	 * Visit a parse tree produced by {@link LogicMiniParser#term_list}.
 	 * @param ctx the parse tree
@@ -62,6 +86,20 @@ public interface LogicMiniVisitor<T> extends ParseTreeVisitor<T> {
 	 * @return the visitor result
 	 */
 	T visitVariableTerm(LogicMiniParser.VariableTermContext ctx);
+	/**
+	 * Visit a parse tree produced by the {@code CutTerm}
+	 * labeled alternative in {@link LogicMiniParser#term}.
+	 * @param ctx the parse tree
+	 * @return the visitor result
+	 */
+	T visitCutTerm(LogicMiniParser.CutTermContext ctx);
+	/**
+	 * Visit a parse tree produced by the {@code ParenTerm}
+	 * labeled alternative in {@link LogicMiniParser#term}.
+	 * @param ctx the parse tree
+	 * @return the visitor result
+	 */
+	T visitParenTerm(LogicMiniParser.ParenTermContext ctx);
 	/**
 	 * Visit a parse tree produced by {@link LogicMiniParser#structure}.
 	 * @param ctx the parse tree
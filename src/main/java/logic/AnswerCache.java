@@ -0,0 +1,217 @@
+package logic;
+
+import ast.Atom;
+import ast.Structure;
+import ast.Term;
+import ast.Variable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the solutions of queries across REPL runs, so a repeated query against an
+ * unchanged knowledge base skips parsing, compiling and executing the knowledge base.
+ * <p>
+ * Queries are keyed by their normalized form (see {@link #normalize}): {@code parent(X, leia)}
+ * and {@code parent(Who, leia)} are variants of each other and share one entry.
+ * <ul>
+ *   <li>Entries hold the complete, materialized list of solutions. A run the user stopped
+ *       early is never cached, since its list would be incomplete.</li>
+ *   <li>Solutions are stored by variable position, not by name: an entry records which answer
+ *       slot holds the n-th variable of the query (see {@link #variables}), so a variant asked
+ *       later prints the same values under its own variable names.</li>
+ *   <li>Memory is bounded by an entry count and a total weight (characters of keys plus words
+ *       of answers). When either is exceeded, the least recently used entries are evicted.</li>
+ *   <li>Every lookup names the version of the knowledge base it runs against (see
+ *       {@code LinkedProgram.version}). When the version changes, every entry is dropped,
+ *       since its solutions may no longer hold.</li>
+ * </ul>
+ */
+public class AnswerCache {
+
+    /** Default bounds: entries, and total weight of keys and solutions. */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_MAX_WEIGHT = 1L << 20;
+
+    /**
+     * The solutions of a query.
+     * @param slots For the n-th variable of the query (in the order of {@link #variables}), the
+     *              index of its value in each answer, or -1 if the answers do not hold it.
+     * @param width The number of values at the start of each answer, hidden ones included.
+     * @param answers The answers, each encoded as by the machine's {@code encode}.
+     * @param askedAfterLast Whether the run asked for another solution after the last answer,
+     *                       and then printed "false." because there was none. A replay asks
+     *                       the same question, so it prints exactly what the run printed.
+     */
+    public record Entry(int[] slots, int width, List<long[]> answers, boolean askedAfterLast) {
+
+        /**
+         * Names the answer slots after the variables of a query: the slot of the n-th variable
+         * gets the n-th name, every other slot a hidden name (starting with '$').
+         * @param names The variables of a variant of the cached query, as returned by {@link #variables}.
+         */
+        public List<String> names(List<String> names) {
+            String[] bySlot = new String[width];
+            for (int i = 0; i < width; i++) {
+                bySlot[i] = "$" + i;
+            }
+            for (int n = 0; n < slots.length; n++) {
+                if (slots[n] >= 0) bySlot[slots[n]] = names.get(n);
+            }
+            return Arrays.asList(bySlot);
+        }
+
+        private long weight() {
+            long w = 0;
+            for (long[] answer : answers) {
+                w += answer.length;
+            }
+            return w;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxWeight;
+
+    /** Access-ordered, so the first entry is always the least recently used one. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight = 0;
+
+    /** The knowledge base version the entries were computed under. */
+    private long version = -1;
+
+    /** Statistics, for sizing the cache. */
+    public long hits = 0;
+    public long misses = 0;
+    public long evictions = 0;
+
+    public AnswerCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    public AnswerCache(int maxEntries, long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Looks up the solutions of a query.
+     * @param version The version of the knowledge base the query runs against.
+     * @param key The normalized query.
+     * @return The cached solutions (possibly none: the query failed), or null on a miss.
+     */
+    public Entry get(long version, String key) {
+        invalidate(version);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /** Stores the complete list of solutions of a query, computed under a knowledge base version. */
+    public void put(long version, String key, Entry solutions) {
+        invalidate(version);
+        Entry entry = new Entry(solutions.slots().clone(), solutions.width(), List.copyOf(solutions.answers()),
+                solutions.askedAfterLast());
+        Entry old = entries.put(key, entry);
+        if (old != null) weight -= weightOf(key, old);
+        weight += weightOf(key, entry);
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            Map.Entry<String, Entry> e = eldest.next();
+            weight -= weightOf(e.getKey(), e.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /** Drops every entry. */
+    public void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /** Drops every entry if the knowledge base is no longer the one they were computed under. */
+    private void invalidate(long version) {
+        if (version != this.version) {
+            clear();
+            this.version = version;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long weight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        long lookups = hits + misses;
+        return String.format("%d entries, weight %d | %d hits, %d misses (%.1f%% hit rate) | %d evicted",
+                entries.size(), weight, hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions);
+    }
+
+    private static long weightOf(String key, Entry entry) {
+        return key.length() + entry.weight();
+    }
+
+    // --- NORMALIZATION ---
+
+    /**
+     * Renders query goals with their variables renamed in order of first appearance
+     * (_0, _1, ...). Two queries get the same string exactly when they are variants.
+     * Variable names in the grammar start with an uppercase letter, so _n cannot clash with them.
+     */
+    public static String normalize(List<Term> goals) {
+        StringBuilder sb = new StringBuilder();
+        Map<String, Integer> variables = new HashMap<>();
+        for (int i = 0; i < goals.size(); i++) {
+            if (i > 0) sb.append(", ");
+            normalize(goals.get(i), variables, sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The names of the variables of query goals in order of first appearance: the n-th name
+     * is the one {@link #normalize} renders as _n.
+     */
+    public static List<String> variables(List<Term> goals) {
+        Map<String, Integer> variables = new LinkedHashMap<>();
+        StringBuilder ignored = new StringBuilder();
+        for (Term goal : goals) {
+            normalize(goal, variables, ignored);
+        }
+        return new ArrayList<>(variables.keySet());
+    }
+
+    private static void normalize(Term t, Map<String, Integer> variables, StringBuilder sb) {
+        if (t instanceof Variable v) {
+            sb.append('_').append(variables.computeIfAbsent(v.getName(), k -> variables.size()));
+        } else if (t instanceof Structure s) {
+            sb.append(s.getFunctor());
+            if (s.getArgs().isEmpty()) return;
+            sb.append('(');
+            for (int i = 0; i < s.getArgs().size(); i++) {
+                if (i > 0) sb.append(", ");
+                normalize(s.getArgs().get(i), variables, sb);
+            }
+            sb.append(')');
+        } else if (t instanceof Atom a) {
+            sb.append(a.getName());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package optimizer;
 
+import ast.Atom;
 import ast.Clause;
 import ast.Program;
+import ast.Term;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -22,16 +24,22 @@ public class ClauseOptimizer {
 
         // Step 1: Group clauses by their unique signature (functor + arity).
         // This ensures we don't mix clauses for 'parent/2' with 'cat/1'.
-        Map<String, List<Clause>> groupedBySignature = originalClauses.stream()
-                .collect(Collectors.groupingBy(c ->
-                        c.getHead().getFunctor() + "/" + c.getHead().getArity()
-                ));
+        // The interned functor id identifies the signature without building a string per clause.
+        Map<Integer, List<Clause>> groupedBySignature = originalClauses.stream()
+                .collect(Collectors.groupingBy(c -> c.getHead().getFunctorId()));
 
         List<Clause> optimizedClauses = new ArrayList<>();
 
         // Step 2: For each group, sort the clauses so facts come first.
         for (List<Clause> group : groupedBySignature.values()) {
 
+            // A cut commits to the clauses before it, so moving facts ahead of a rule with a
+            // cut (e.g. max/3) would change the answers. Leave such predicates alone.
+            if (group.stream().anyMatch(c -> c.getBody().stream().anyMatch(ClauseOptimizer::isCut))) {
+                optimizedClauses.addAll(group);
+                continue;
+            }
+
             // This sort is "stable," meaning if two elements are equal
             // (e.g., both are facts), their original relative order is preserved.
             group.sort((c1, c2) -> {
@@ -52,6 +60,12 @@ public class ClauseOptimizer {
         }
 
         // Step 4: Create a new Program object with the optimized clause list.
-        return new Program(optimizedClauses, originalProgram.getQuery());
+        return new Program(optimizedClauses, originalProgram.getQuery(), originalProgram.getTabled(),
+                originalProgram.getFacts());
+    }
+
+    /** True if a body goal is a cut. Cuts inside if-then-else or once/1 are local and do not count. */
+    private static boolean isCut(Term goal) {
+        return goal instanceof Atom atom && atom.getName().equals("!");
     }
-}
\ No newline at end of file
+}
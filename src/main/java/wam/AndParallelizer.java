@@ -0,0 +1,181 @@
+package wam;
+
+import ast.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the goals of clause bodies that can run at the same time (independent AND-parallelism)
+ * and moves each such conjunction into an auxiliary predicate that the compiler gives a
+ * PAR_CALL entry.
+ * <pre>
+ *   report(X) :- stats(X, S), audit(X, A), print(S, A).
+ *
+ * becomes
+ *
+ *   report(X) :- '$and_report_1'(X, S, A), print(S, A).
+ *   '$and_report_1'(X, S, A) :- stats(X, S), audit(X, A).       (the conjunction)
+ *   '$andgoal_report_1_0'(X, S) :- stats(X, S).                 (its goals, one by one)
+ *   '$andgoal_report_1_1'(X, A) :- audit(X, A).
+ * </pre>
+ * Two goals are independent if running one cannot bind a variable the other one sees. The
+ * compile-time check groups consecutive goals that share no variable except ones that already
+ * occur earlier in the clause (X above), since a variable that first occurs in one of them is
+ * bound by one goal and read by the other. Whether the shared variables are really ground, and
+ * whether the caller passed in two terms with a variable in common, is only known at runtime, so
+ * PAR_CALL checks it and runs the conjunction's clause sequentially if the goals are dependent.
+ * <p>
+ * Each goal runs to exhaustion before the conjunction returns its first answer, so a goal with
+ * infinitely many solutions that sequential execution would have stopped early (by a cut or a
+ * failure further on) never returns. That is why the transformation is optional (see
+ * {@link Compiler#andParallel}). Cuts end a conjunction: goals on either side of one are never
+ * grouped.
+ */
+class AndParallelizer {
+
+    /** Conjunctions whose goals use more variables than this stay sequential: PAR_GOAL masks are ints. */
+    static final int MAX_VARIABLES = 31;
+
+    /**
+     * A parallel conjunction.
+     * @param clause The clause running its goals one after another.
+     * @param goals One clause per goal, whose head holds the goal's variables that occur elsewhere.
+     * @param registers For each goal, bit i-1 is set if argument i of the conjunction is one of them.
+     */
+    record Conjunction(Clause clause, List<Clause> goals, int[] registers) {
+    }
+
+    private final SymbolTable symbols = SymbolTable.GLOBAL;
+
+    /** The conjunctions found by the last {@link #expand}. */
+    private final List<Conjunction> conjunctions = new ArrayList<>();
+
+    private int counter = 0;
+
+    /** Returns the program with every parallel conjunction replaced by a call of its predicate. */
+    Program expand(Program program) {
+        conjunctions.clear();
+        List<Clause> clauses = new ArrayList<>();
+        for (Clause c : program.getClauses()) {
+            clauses.add(c.isFact() ? c : new Clause(c.getHead(), expandBody(c)));
+        }
+        return new Program(clauses, program.getQuery(), program.getTabled(), program.getFacts());
+    }
+
+    /** The conjunctions found by the last {@link #expand}. */
+    List<Conjunction> conjunctions() {
+        return conjunctions;
+    }
+
+    private List<Term> expandBody(Clause c) {
+        List<Term> body = c.getBody();
+        List<Term> out = new ArrayList<>();
+        // Variables that occur before the current goal: the head's and the earlier goals'.
+        Set<String> earlier = variablesOf(c.getHead(), new LinkedHashSet<>());
+        int i = 0;
+        while (i < body.size()) {
+            // Extend the run from goal i while each new goal is independent of the run so far.
+            int end = i + 1;
+            if (!isCut(body.get(i))) {
+                while (end < body.size() && !isCut(body.get(end)) && independent(body.subList(i, end), body.get(end), earlier)) {
+                    end++;
+                }
+            }
+            List<Term> run = body.subList(i, end);
+            Structure call = run.size() > 1 ? conjunction(c, i, end) : null;
+            if (call != null) {
+                out.add(call);
+            } else {
+                out.addAll(run);
+            }
+            for (Term goal : run) {
+                variablesOf(goal, earlier);
+            }
+            i = end;
+        }
+        return out;
+    }
+
+    /** True if 'goal' shares no variable with the goals of 'run', other than ones in 'earlier'. */
+    private static boolean independent(List<Term> run, Term goal, Set<String> earlier) {
+        Set<String> mine = variablesOf(goal, new HashSet<>());
+        for (Term other : run) {
+            for (String name : variablesOf(other, new HashSet<>())) {
+                if (mine.contains(name) && !earlier.contains(name)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the predicate of the conjunction body[from..to) and returns the goal calling it,
+     * or null if its goals use too many variables.
+     */
+    private Structure conjunction(Clause c, int from, int to) {
+        List<Term> body = c.getBody();
+        List<Term> goals = body.subList(from, to);
+
+        // Each goal passes on the variables that occur anywhere else in the clause.
+        List<Set<String>> shared = new ArrayList<>();
+        Set<String> arguments = new LinkedHashSet<>();
+        for (int j = from; j < to; j++) {
+            Set<String> outside = variablesOf(c.getHead(), new HashSet<>());
+            for (int k = 0; k < body.size(); k++) {
+                if (k != j) variablesOf(body.get(k), outside);
+            }
+            Set<String> passed = variablesOf(body.get(j), new LinkedHashSet<>());
+            passed.retainAll(outside);
+            shared.add(passed);
+            arguments.addAll(passed);
+        }
+        if (arguments.size() > MAX_VARIABLES) return null;
+
+        String name = "$and_" + c.getHead().getFunctor() + "_" + (++counter);
+        Structure head = head(name, arguments);
+        List<String> order = new ArrayList<>(arguments);
+        List<Clause> goalClauses = new ArrayList<>();
+        int[] registers = new int[goals.size()];
+        for (int j = 0; j < goals.size(); j++) {
+            // The goal's head lists its variables in the order of the registers they come from.
+            Set<String> passed = new LinkedHashSet<>();
+            for (int i = 0; i < order.size(); i++) {
+                if (shared.get(j).contains(order.get(i))) {
+                    registers[j] |= 1 << i;
+                    passed.add(order.get(i));
+                }
+            }
+            String goalName = "$andgoal_" + c.getHead().getFunctor() + "_" + counter + "_" + j;
+            goalClauses.add(new Clause(head(goalName, passed), List.of(goals.get(j))));
+        }
+        conjunctions.add(new Conjunction(new Clause(head, new ArrayList<>(goals)), goalClauses, registers));
+        return head;
+    }
+
+    private Structure head(String name, Set<String> variables) {
+        List<Term> args = new ArrayList<>();
+        for (String variable : variables) {
+            args.add(new Variable(variable));
+        }
+        return new Structure(name, args, symbols.functor(name, args.size()));
+    }
+
+    private static boolean isCut(Term goal) {
+        return goal instanceof Atom atom && atom.getName().equals("!");
+    }
+
+    /** Adds the names of the variables in a term to 'out'. */
+    private static Set<String> variablesOf(Term t, Set<String> out) {
+        if (t instanceof Variable v) {
+            out.add(v.getName());
+        } else if (t instanceof Structure s) {
+            for (Term arg : s.getArgs()) {
+                variablesOf(arg, out);
+            }
+        }
+        return out;
+    }
+}
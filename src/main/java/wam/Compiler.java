@@ -14,19 +14,66 @@ public class Compiler {
     /** A map from a label string (e.g., "parent/2") to its address (index) in the code list. */
     private final Map<String, Integer> labels = new HashMap<>();
 
+    /** Clause metadata for the predicates that get a JIT_SWITCH (demand-driven indexing). */
+    private final List<PredicateInfo> predicates = new ArrayList<>();
+
+    /** Predicates stored as fact tables instead of code (see FACT_LOOKUP). */
+    private final List<FactStore> factTables = new ArrayList<>();
+
+    /** Predicates with fewer clauses than this are scanned linearly; indexing them is not worth it. */
+    public static final int JIT_MIN_CLAUSES = 8;
+
+    /** Predicates of at least this many ground facts (and nothing else) become fact tables. */
+    public static final int FACT_TABLE_MIN_CLAUSES = 8;
+
+    /**
+     * Sort the rows of fact tables by their atoms. Lookups on the first argument then need no
+     * postings list, but answers come in sorted order instead of program order.
+     */
+    public boolean sortFacts = false;
+
+    /**
+     * Run independent goals of rule bodies at the same time (see {@link AndParallelizer}). Each
+     * such goal is run to exhaustion before the conjunction returns, so this is only safe for
+     * programs whose goals have finitely many solutions.
+     */
+    public boolean andParallel = false;
+
+    /** Predicates served from memory-mapped files (see {@link #useSegment}). Kept across compilations. */
+    private final List<FactSegment> segments = new ArrayList<>();
+
 
     // --- The Internal State during Compilation ---
 
     /**
      * The compiler's "scratchpad" for the current clause.
-     * Maps a variable name like "X" to the register number it has been assigned.
+     * Maps a variable name like "X" to its operand: an X register for a temporary variable, or
+     * a Y slot of the environment for a permanent one (see {@link Instruction#y}).
      * This is crucial for generating correct get_value/put_value instructions.
      */
     private final Map<String, Integer> variableMap = new HashMap<>();
 
-    /** Tracks the next available register for a new variable within a clause. */
+    /** The last chunk (see {@link #startClause}) each variable of the current clause occurs in. */
+    private final Map<String, Integer> lastChunk = new HashMap<>();
+
+    /** The variables of the current clause that have already been compiled once. */
+    private final Set<String> seenVariables = new HashSet<>();
+
+    /** The variables that occur only once in the current clause. They need no register at all. */
+    private final Set<String> singletons = new HashSet<>();
+
+    /** The hidden permanent variable holding a clause's cut barrier. User variables cannot start with '$'. */
+    private static final String CUT_BARRIER = "$cut";
+
+    /** The variables of the last query compiled, by Y slot (see {@link CompilerResult#variables}). */
+    private final List<String> queryVariables = new ArrayList<>();
+
+    /** Tracks the next available X register for a new temporary variable within a clause. */
     private int regCounter = 0;
 
+    /** The bulk-loaded tables compiled as they are, by their clause view (see {@link #addFactTables}). */
+    private final Map<List<Clause>, FactTable> loadedTables = new IdentityHashMap<>();
+
 
     /**
      * The main entry point for the compiler.
@@ -37,23 +84,91 @@ public class Compiler {
         // Reset state for a fresh compilation.
         code.clear();
         labels.clear();
+        predicates.clear();
+        factTables.clear();
+        loadedTables.clear();
+        queryVariables.clear();
+
+        // Step 0: Turn if-then-else, disjunction and once/1 into auxiliary predicates.
+        program = new ControlExpander().expand(program);
+
+        // Step 0b: Move independent goals of rule bodies into parallel conjunctions.
+        AndParallelizer parallelizer = new AndParallelizer();
+        if (andParallel) program = parallelizer.expand(program);
 
         // Step 1: Compile the query. This becomes the entry point of our WAM program.
         if (program.getQuery() != null && !program.getQuery().isEmpty()) {
-            compileQuery(program.getQuery());
+            emitQuery(program.getQuery());
             // We need a way to stop the machine after the query is done.
             // We will add a HALT opcode for this.
         }
 
         // Step 2: Group all clauses by their predicate signature (e.g., "parent/2").
-        Map<String, List<Clause>> groupedClauses = groupClauses(program.getClauses());
+        // The clauses of a tabled predicate are grouped under a hidden name instead.
+        Map<String, List<Clause>> groupedClauses = groupClauses(hideTabledClauses(program.getClauses(), program.getTabled()));
+        addFactTables(groupedClauses, program.getFacts(), program.getTabled());
+
+        // Step 2b: Predicates stored in segments have no clauses; their code is one lookup.
+        for (FactSegment segment : segments) {
+            int functorId = segment.functorId;
+            if (program.getTabled().contains(functorId)) functorId = tabledClausesFunctor(functorId);
+            String signature = SymbolTable.GLOBAL.signature(functorId);
+            if (groupedClauses.containsKey(signature)) {
+                throw new IllegalArgumentException(SymbolTable.GLOBAL.signature(segment.functorId)
+                        + " is stored in " + segment.path + " and cannot also have clauses");
+            }
+            labels.put(signature, code.size());
+            emitFactLookup(segment);
+        }
 
         // Step 3: Compile each group of clauses into a single predicate procedure.
         for (Map.Entry<String, List<Clause>> entry : groupedClauses.entrySet()) {
             compilePredicate(entry.getKey(), entry.getValue());
         }
 
-        return new CompilerResult(code, labels);
+        // Step 4: A tabled predicate's own label leads to its answer table.
+        for (int functorId : program.getTabled()) {
+            compileTableEntry(functorId);
+        }
+
+        // Step 5: Parallel conjunctions, with their goals' drivers.
+        for (AndParallelizer.Conjunction conjunction : parallelizer.conjunctions()) {
+            compileConjunction(conjunction);
+        }
+
+        loadedTables.clear();
+        return new CompilerResult(code, labels, predicates, factTables, new ArrayList<>(queryVariables));
+    }
+
+    /**
+     * Serves a predicate from a fact segment in every program compiled from now on. The
+     * program must not have clauses of its own for that predicate.
+     */
+    public void useSegment(FactSegment segment) {
+        segments.add(segment);
+    }
+
+    /**
+     * Compiles a query on its own, to be linked against an already compiled program with
+     * {@link Linker#linkQuery}. The program is not needed: calls are resolved by label when
+     * linking. Auxiliary predicates for control constructs in the query are compiled with it.
+     * @param goals The goals of the query.
+     * @return The query's code, starting with its entry point.
+     */
+    public CompilerResult compileQuery(List<Term> goals) {
+        code.clear();
+        labels.clear();
+        predicates.clear();
+        factTables.clear();
+        queryVariables.clear();
+
+        Program expanded = new ControlExpander().expand(new Program(new ArrayList<>(), goals));
+        emitQuery(expanded.getQuery());
+        for (Map.Entry<String, List<Clause>> entry : groupClauses(expanded.getClauses()).entrySet()) {
+            compilePredicate(entry.getKey(), entry.getValue());
+        }
+        return new CompilerResult(new ArrayList<>(code), new HashMap<>(labels), new ArrayList<>(predicates),
+                new ArrayList<>(factTables), new ArrayList<>(queryVariables));
     }
 
     /** Helper method to add an instruction to our code list. */
@@ -65,55 +180,318 @@ public class Compiler {
      * Groups a flat list of clauses into a map where keys are predicate signatures
      * (e.g., "parent/2") and values are the lists of clauses for that predicate.
      * Using LinkedHashMap preserves the original order of predicates.
+     * Clauses are grouped by functor id, so no signature strings are built per clause.
      */
     private Map<String, List<Clause>> groupClauses(List<Clause> clauses) {
-        Map<String, List<Clause>> map = new LinkedHashMap<>();
+        Map<Integer, List<Clause>> byId = new LinkedHashMap<>();
         for (Clause c : clauses) {
-            String key = c.getHead().getFunctor() + "/" + c.getHead().getArity();
-            map.computeIfAbsent(key, k -> new ArrayList<>()).add(c);
+            byId.computeIfAbsent(c.getHead().getFunctorId(), k -> new ArrayList<>()).add(c);
+        }
+        Map<String, List<Clause>> map = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<Clause>> entry : byId.entrySet()) {
+            map.put(SymbolTable.GLOBAL.signature(entry.getKey()), entry.getValue());
         }
         return map;
     }
+
+    /**
+     * Adds bulk-loaded facts to the clause groups. A predicate that only has loaded facts is
+     * compiled straight from its table, whose clauses are created one at a time as the compiler
+     * reads them. Loaded facts of a predicate that also has clauses in the source follow them.
+     */
+    private void addFactTables(Map<String, List<Clause>> groups, Map<Integer, FactTable> facts, Set<Integer> tabled) {
+        for (FactTable table : facts.values()) {
+            if (table.size() == 0) continue;
+            int functorId = table.getFunctorId();
+            if (tabled.contains(functorId)) functorId = tabledClausesFunctor(functorId);
+            String signature = SymbolTable.GLOBAL.signature(functorId);
+
+            List<Clause> clauses = table.asClauses();
+            if (functorId != table.getFunctorId()) {
+                List<Clause> renamed = new ArrayList<>();
+                for (Clause c : clauses) {
+                    renamed.add(new Clause(new Structure(SymbolTable.GLOBAL.name(functorId), c.getHead().getArgs(), functorId), c.getBody()));
+                }
+                clauses = renamed;
+            }
+
+            List<Clause> group = groups.get(signature);
+            if (group == null) {
+                groups.put(signature, clauses);
+                if (functorId == table.getFunctorId()) loadedTables.put(clauses, table);
+            } else {
+                List<Clause> merged = new ArrayList<>(group);
+                merged.addAll(clauses);
+                groups.put(signature, merged);
+            }
+        }
+    }
+
+    // --- TABLING ---
+
+    /** The functor under which the clauses of a tabled predicate are compiled. */
+    private static int tabledClausesFunctor(int functorId) {
+        SymbolTable symbols = SymbolTable.GLOBAL;
+        return symbols.functor("$tabled_" + symbols.name(functorId), symbols.arity(functorId));
+    }
+
+    /** Renames the heads of the tabled predicates' clauses. Calls in bodies keep going through the table. */
+    private static List<Clause> hideTabledClauses(List<Clause> clauses, Set<Integer> tabled) {
+        if (tabled.isEmpty()) return clauses;
+        List<Clause> result = new ArrayList<>();
+        for (Clause c : clauses) {
+            Structure head = c.getHead();
+            if (tabled.contains(head.getFunctorId())) {
+                int hidden = tabledClausesFunctor(head.getFunctorId());
+                head = new Structure(SymbolTable.GLOBAL.name(hidden), head.getArgs(), hidden);
+            }
+            result.add(new Clause(head, c.getBody()));
+        }
+        return result;
+    }
+
+    /**
+     * Compiles the entry of a tabled predicate p/n:
+     * <pre>
+     *   p/n:        table_call p/n, p/n_table
+     *   p/n_table:  allocate n
+     *               get_variable Y0, A1 ... get_variable Yn-1, An
+     *               call $tabled_p/n, n
+     *               new_answer n
+     * </pre>
+     * TABLE_CALL returns answers from the subgoal's table. Only to fill a new table does the
+     * machine run the driver at p/n_table, which calls the real clauses and records every
+     * solution; see {@link TableSpace}.
+     */
+    private void compileTableEntry(int functorId) {
+        String signature = SymbolTable.GLOBAL.signature(functorId);
+        int arity = SymbolTable.GLOBAL.arity(functorId);
+        String driver = signature + "_table";
+
+        labels.put(signature, code.size());
+        emit(Instruction.TableCall(functorId, arity, driver));
+        emitDriver(driver, tabledClausesFunctor(functorId), arity);
+    }
+
+    /** Emits code that calls a predicate on A1..An and records each solution with NEW_ANSWER. */
+    private void emitDriver(String label, int functorId, int arity) {
+        labels.put(label, code.size());
+        emit(Instruction.Allocate(arity));
+        for (int i = 0; i < arity; i++) {
+            emit(Instruction.GetVariable(Instruction.y(i), i + 1));
+        }
+        emit(Instruction.Call(functorId, arity));
+        emit(Instruction.NewAnswer(arity));
+    }
+
+    // --- AND-PARALLELISM ---
+
+    /**
+     * Compiles a parallel conjunction found by {@link AndParallelizer}:
+     * <pre>
+     *   $and_report_1/3:     par_call  3, 2
+     *                        par_goal  11, $and_report_1/3_g0     (X, S: A1 and A2)
+     *                        par_goal  101, $and_report_1/3_g1    (X, A: A1 and A3)
+     *                        ...the clause, running the goals one after another...
+     *   $and_report_1/3_g0:  allocate 2
+     *                        get_variable Y0, A1 ... get_variable Y1, A2
+     *                        call $andgoal_report_1_0/2, 2
+     *                        new_answer 2
+     *   $and_report_1/3_g1:  ...
+     * </pre>
+     * PAR_CALL checks at runtime that the goals are independent. If they are, it runs each
+     * goal's driver on a machine of its own and returns the cross product of their answers;
+     * otherwise execution falls through into the sequential clause.
+     */
+    private void compileConjunction(AndParallelizer.Conjunction conjunction) {
+        Structure head = conjunction.clause().getHead();
+        String signature = SymbolTable.GLOBAL.signature(head.getFunctorId());
+        List<Clause> goals = conjunction.goals();
+
+        labels.put(signature, code.size());
+        emit(Instruction.ParCall(head.getArity(), goals.size()));
+        for (int j = 0; j < goals.size(); j++) {
+            emit(Instruction.ParGoal(conjunction.registers()[j], signature + "_g" + j));
+        }
+        compileClause(conjunction.clause());
+
+        for (int j = 0; j < goals.size(); j++) {
+            Structure goal = goals.get(j).getHead();
+            emitDriver(signature + "_g" + j, goal.getFunctorId(), goal.getArity());
+            compilePredicate(SymbolTable.GLOBAL.signature(goal.getFunctorId()), List.of(goals.get(j)));
+        }
+    }
+
     /**
      * Compiles the main query of the program.
      * This generates the initial sequence of instructions that the WAM will execute.
      * @param goals The list of terms in the query (e.g., [grandparent(john, A)]).
      */
-    private void compileQuery(List<Term> goals) {
-        // A query is like the 'main' function. We reset the variable-to-register map.
+    private void emitQuery(List<Term> goals) {
+        // A query is like the 'main' function: a rule body without a head. Every query
+        // variable is permanent, so its binding is still in the environment when we halt.
+        int envSize = startClause(chunksOf(null, goals, true), true);
+
+        emit(Instruction.Allocate(envSize));
+        emitGetLevel();
+        // Record which slot holds which variable, for reading answers.
+        String[] bySlot = new String[envSize];
+        variableMap.forEach((name, operand) -> bySlot[operand - Instruction.Y_BASE] = name);
+        queryVariables.addAll(Arrays.asList(bySlot));
+        compileBody(goals, envSize, true, true);
+
+        // Halt after the query is done.
+        emit(Instruction.Halt());
+    }
+
+    // --- VARIABLE CLASSIFICATION ---
+
+    /**
+     * Prepares the variable map for a clause or query and returns its environment size.
+     * <p>
+     * A variable is <i>temporary</i> if all its occurrences are in one chunk (the head counts as
+     * part of the first body goal): no call happens between its first and last use, so it can
+     * live in an X register. Every other variable is <i>permanent</i> and gets a Y slot in the
+     * environment, because calls clobber the X registers.
+     * <p>
+     * Y slots are numbered so that variables used until later goals get lower numbers. After the
+     * call of goal i only the variables used in a later goal are still needed, and they occupy
+     * exactly the first {@link #liveAfter} slots, so each CALL can tell the machine how much of
+     * the environment to keep (environment trimming).
+     *
+     * @param chunks The terms of each chunk: chunk 0 holds the head and the first goal.
+     * @param allPermanent True for the query, whose variables must survive until it is done.
+     * @return The number of permanent variables.
+     */
+    private int startClause(List<List<Term>> chunks, boolean allPermanent) {
         variableMap.clear();
-        regCounter = 1; // WAM registers A1, A2, ... start from 1.
+        seenVariables.clear();
+        singletons.clear();
+        lastChunk.clear();
 
-        // For now, we'll assume a simple query with one goal.
-        // A full implementation would loop through all goals.
-        Term goal = goals.get(0);
+        Map<String, Integer> firstChunk = new LinkedHashMap<>();
+        Map<String, Integer> occurrences = new HashMap<>();
+        int maxArity = 0;
+        for (int c = 0; c < chunks.size(); c++) {
+            for (Term t : chunks.get(c)) {
+                maxArity = Math.max(maxArity, goalArgs(t).size());
+                for (String name : variablesOf(t, new ArrayList<>())) {
+                    firstChunk.putIfAbsent(name, c);
+                    lastChunk.put(name, allPermanent ? Integer.MAX_VALUE : c);
+                    occurrences.merge(name, 1, Integer::sum);
+                }
+            }
+        }
+        if (!allPermanent) {
+            // Query variables are reported as answers, so only clauses drop their singletons.
+            occurrences.forEach((name, count) -> {
+                if (count == 1) singletons.add(name);
+            });
+        }
 
-        if (goal instanceof Structure) {
-            Structure s = (Structure) goal;
+        List<String> permanent = new ArrayList<>();
+        for (String name : firstChunk.keySet()) {
+            if (allPermanent || lastChunk.get(name) > firstChunk.get(name)) {
+                permanent.add(name);
+            }
+        }
+        // Longest-lived first, so trimming only ever cuts slots off the end.
+        permanent.sort((a, b) -> Integer.compare(lastChunk.get(b), lastChunk.get(a)));
+        for (int i = 0; i < permanent.size(); i++) {
+            variableMap.put(permanent.get(i), Instruction.y(i));
+        }
+
+        // Temporaries go above every argument register used in the clause, so putting the
+        // arguments of a goal never overwrites a variable that a later argument still reads.
+        regCounter = maxArity + 1;
+        return permanent.size();
+    }
 
-            // --- Step 1: Put arguments into registers ---
-            // For a goal like p(t1, t2, ..., tn), we must place t1 into A1, t2 into A2, etc.
-            for (int i = 0; i < s.getArity(); i++) {
-                Term arg = s.getArgs().get(i);
-                int reg = i + 1; // A1, A2, ...
+    /** The number of permanent variables still needed after the call in chunk c. */
+    private int liveAfter(int c) {
+        int live = 0;
+        for (Map.Entry<String, Integer> entry : variableMap.entrySet()) {
+            if (entry.getValue() >= Instruction.Y_BASE && lastChunk.get(entry.getKey()) > c) live++;
+        }
+        return live;
+    }
 
-                // Delegate the complex work of compiling a single term to a helper.
-                // The 'true' flag indicates we are in "PUT mode" (building a term).
-                compileTerm(arg, reg, true);
+    /**
+     * Splits a clause into chunks: each chunk ends with a call, and the head belongs to the
+     * first one. Cuts are not calls, so they stay inside a chunk.
+     * <p>
+     * A cut after the first call cannot use B0, which the calls in between have overwritten,
+     * so the clause saves B0 in a hidden permanent variable at entry and cuts back to it.
+     * The query always uses one, since it is not entered through a call.
+     */
+    private List<List<Term>> chunksOf(Structure head, List<Term> body, boolean isQuery) {
+        List<List<Term>> chunks = new ArrayList<>();
+        List<Term> current = new ArrayList<>();
+        if (head != null) current.add(head);
+        boolean needsBarrier = false;
+        for (Term goal : body) {
+            if (isCut(goal)) {
+                if (isQuery || !chunks.isEmpty()) {
+                    if (!isQuery) current.add(new Variable(CUT_BARRIER));
+                    needsBarrier = true;
+                }
+                continue;
             }
+            current.add(goal);
+            chunks.add(current);
+            current = new ArrayList<>();
+        }
+        if (!current.isEmpty() || chunks.isEmpty()) chunks.add(current);
+        // The barrier is live from clause entry. In the query every variable lives to the end,
+        // so it is added last and its slot comes after the user's variables.
+        if (needsBarrier) chunks.get(isQuery ? chunks.size() - 1 : 0).add(new Variable(CUT_BARRIER));
+        return chunks;
+    }
 
-            // --- Step 2: Call the predicate ---
-            // After setting up the arguments in the registers, call the corresponding procedure.
-            String predicateLabel = s.getFunctor() + "/" + s.getArity();
-            emit(Instruction.Call(predicateLabel));
+    /** Saves B0 in the cut barrier variable, if the clause has one. */
+    private void emitGetLevel() {
+        Integer barrier = variableMap.get(CUT_BARRIER);
+        if (barrier != null) {
+            seenVariables.add(CUT_BARRIER);
+            emit(Instruction.GetLevel(barrier));
+        }
+    }
 
-            // --- Step 3: Halt after the query is done ---
-            emit(Instruction.Halt());
+    private static boolean isCut(Term goal) {
+        return goal instanceof Atom atom && atom.getName().equals("!");
+    }
 
-        } else {
-            // Handle simple atom queries like `?- p.` if necessary.
-            // For this project, we can assume queries are always structures.
+    /** Appends the names of the variables in a term to 'out', in order of appearance. */
+    private static List<String> variablesOf(Term t, List<String> out) {
+        if (t instanceof Variable v) {
+            out.add(v.getName());
+        } else if (t instanceof Structure s) {
+            for (Term arg : s.getArgs()) {
+                variablesOf(arg, out);
+            }
+        }
+        return out;
+    }
+
+    /** The X register for a new temporary variable. */
+    private int nextTemporary() {
+        if (regCounter >= Instruction.Y_BASE) {
+            throw new IllegalStateException("Clause needs more than " + (Instruction.Y_BASE - 1) + " registers");
         }
+        return regCounter++;
+    }
+
+    /** The predicate a body goal calls. A bare atom goal such as {@code halt} calls halt/0. */
+    private static int goalFunctorId(Term goal) {
+        if (goal instanceof Variable v) {
+            throw new IllegalStateException("Cannot call a variable as a goal: " + v.getName());
+        }
+        // An atom is a functor of arity 0, so its id doubles as the predicate id.
+        return goal instanceof Structure s ? s.getFunctorId() : ((Atom) goal).getId();
+    }
+
+    private static List<Term> goalArgs(Term goal) {
+        return goal instanceof Structure s ? s.getArgs() : List.of();
     }
 
     /**
@@ -128,38 +506,123 @@ public class Compiler {
         if (t instanceof Atom atom) {
             // Case 1: Term is a constant atom like 'john'.
             Opcode op = isPutMode ? Opcode.PUT_CONSTANT : Opcode.GET_CONSTANT;
-            emit(new Instruction(op, reg, atom.getName(), null));
+            emit(new Instruction(op, reg, atom.getName(), atom.getId(), null));
 
         } else if (t instanceof Variable variable) {
             // Case 2: Term is a variable like 'X'. This is the most complex case.
             String varName = variable.getName();
+            if (!isPutMode && singletons.contains(varName)) {
+                // A head argument nobody else looks at matches anything: no instruction needed.
+                return;
+            }
 
-            if (variableMap.containsKey(varName)) {
+            if (!seenVariables.add(varName)) {
                 // --- Subcase 2a: This variable has been seen before. ---
                 // We need to reference its existing location.
-                int sourceReg = variableMap.get(varName);
-                Opcode op = isPutMode ? Opcode.PUT_VALUE : Opcode.GET_VALUE;
-                // We use the 'name' field in the instruction to show the source register, for clarity.
-                emit(new Instruction(op, reg, "A" + sourceReg, null));
+                int operand = variableMap.get(varName);
+                // A variable kept in its argument register is already where the goal wants it.
+                if (isPutMode && operand == reg) return;
+                // The 'name' field in the instruction shows the source operand, for clarity.
+                emit(isPutMode ? Instruction.PutValue(operand, reg) : Instruction.GetValue(operand, reg));
             } else {
                 // --- Subcase 2b: This is the first time we see this variable. ---
-                // We need to create it and record its location.
-                variableMap.put(varName, reg); // Record that 'X' now lives in register 'reg'.
-                Opcode op = isPutMode ? Opcode.PUT_VARIABLE : Opcode.GET_VARIABLE;
-                emit(new Instruction(op, reg, varName, null));
+                // Permanent variables already have a Y slot; temporaries get the next X register.
+                int operand = variableMap.computeIfAbsent(varName, k -> nextTemporary());
+                // A head variable kept in its argument register is already stored.
+                if (!isPutMode && operand == reg) return;
+                emit(isPutMode ? Instruction.PutVariable(operand, reg) : Instruction.GetVariable(operand, reg));
             }
 
         } else if (t instanceof Structure structure) {
-            // Case 3: Term is a structure like 'p(Y)'.
-            // This is a simplified compilation. A full WAM would handle nested
-            // structures using the S register and a unify_* instruction sequence.
-            String functor = structure.getFunctor() + "/" + structure.getArity();
-            Opcode op = isPutMode ? Opcode.PUT_STRUCTURE : Opcode.GET_STRUCTURE;
-            emit(new Instruction(op, reg, functor, null));
+            // Case 3: Term is a structure like 'f(X, g(Y))'. Its arguments follow as a sequence
+            // of unify_* instructions, which match them in a head and build them in a body.
+            if (isPutMode) {
+                compilePutStructure(structure, reg);
+            } else {
+                compileGetStructure(structure, reg);
+            }
+        }
+    }
+
+    /**
+     * Matches a structure in a clause head. Nested structures are matched after their parent:
+     * the parent stores the nested argument in a temporary register with unify_variable, and a
+     * get_structure on that register follows.
+     * <pre>
+     *   p(f(X, g(a)), X)   =>   get_structure  f/2, A1
+     *                           unify_variable X3          (X)
+     *                           unify_variable X4          (g(a), matched below)
+     *                           get_structure  g/1, X4
+     *                           unify_constant a
+     *                           get_value      X3, A2
+     * </pre>
+     * If the argument is an unbound variable at runtime, the same instructions build the
+     * structure instead (write mode).
+     */
+    private void compileGetStructure(Structure s, int reg) {
+        emit(Instruction.GetStructure(s.getFunctorId(), reg));
+        int[] nestedRegs = new int[s.getArity()];
+        compileUnifyArguments(s.getArgs(), nestedRegs, false);
+        for (int k = 0; k < s.getArity(); k++) {
+            if (s.getArgs().get(k) instanceof Structure nested) {
+                compileGetStructure(nested, nestedRegs[k]);
+            }
+        }
+    }
 
-            // For this project, we assume a full compiler would then emit a series of
-            // unify_* instructions for the arguments. We will handle this more
-            // explicitly and simply in the compileClause step.
+    /**
+     * Builds a structure in a query or clause body. Nested structures are built first, into
+     * temporary registers, so the parent's argument cells can simply refer to them.
+     */
+    private void compilePutStructure(Structure s, int reg) {
+        int[] nestedRegs = new int[s.getArity()];
+        for (int k = 0; k < s.getArity(); k++) {
+            if (s.getArgs().get(k) instanceof Structure nested) {
+                nestedRegs[k] = nextTemporary();
+                compilePutStructure(nested, nestedRegs[k]);
+            }
+        }
+        emit(Instruction.PutStructure(s.getFunctorId(), reg));
+        compileUnifyArguments(s.getArgs(), nestedRegs, true);
+    }
+
+    /**
+     * Emits one unify_* instruction per structure argument. Runs of singleton variables
+     * collapse into a single unify_void.
+     * @param nestedRegs The registers of nested structures: filled in here for a head (the
+     *                   nested structure is matched later), already built for a body.
+     */
+    private void compileUnifyArguments(List<Term> args, int[] nestedRegs, boolean isPutMode) {
+        int voids = 0;
+        for (int k = 0; k < args.size(); k++) {
+            Term arg = args.get(k);
+            if (arg instanceof Variable v && singletons.contains(v.getName())) {
+                voids++;
+                continue;
+            }
+            if (voids > 0) {
+                emit(Instruction.UnifyVoid(voids));
+                voids = 0;
+            }
+
+            if (arg instanceof Atom atom) {
+                emit(Instruction.UnifyConstant(atom.getId()));
+            } else if (arg instanceof Variable variable) {
+                String varName = variable.getName();
+                if (seenVariables.add(varName)) {
+                    emit(Instruction.UnifyVariable(variableMap.computeIfAbsent(varName, n -> nextTemporary())));
+                } else {
+                    emit(Instruction.UnifyValue(variableMap.get(varName)));
+                }
+            } else if (isPutMode) {
+                emit(Instruction.UnifyValue(nestedRegs[k]));
+            } else {
+                nestedRegs[k] = nextTemporary();
+                emit(Instruction.UnifyVariable(nestedRegs[k]));
+            }
+        }
+        if (voids > 0) {
+            emit(Instruction.UnifyVoid(voids));
         }
     }
 
@@ -167,6 +630,21 @@ public class Compiler {
      * Compiles a group of clauses that belong to the same predicate.
      * This method is responsible for generating the "choice" or "indexing"
      * instructions (try/retry/trust) that link the clauses together.
+     * <p>
+     * When the first argument of some clauses is a constant or a structure, the predicate also
+     * gets a first-argument index:
+     * <pre>
+     *   p/2:          switch_on_term   p/2_con, p/2_str
+     *                 try_me_else      p/2_clause1      (A1 unbound: try every clause)
+     *   p/2_c0:         ...clause 0...
+     *   p/2_clause1:  retry_me_else    p/2_clause2
+     *   p/2_c1:         ...clause 1...
+     *                 ...
+     *   p/2_con:      switch_on_constant {luke: p/2_c0, leia: p/2_blk0}, else: ...
+     *   p/2_blk0:     try p/2_c1 / retry ... / trust ...   (bucket with several clauses)
+     * </pre>
+     * A call whose first argument is bound jumps straight to the clauses that can match it,
+     * and when only one clause can match, it runs that clause without creating a choice point.
      *
      * @param predicateSignature The signature of the predicate, e.g., "parent/2".
      * @param clauses            The list of clauses for this predicate.
@@ -176,13 +654,30 @@ public class Compiler {
         // The address of the first instruction for this predicate is the current size of the code list.
         labels.put(predicateSignature, code.size());
 
-        if (clauses.size() == 1) {
+        if (isFactTable(clauses)) {
+            // --- Case 0: Only ground facts. Store them as data and look them up. ---
+            compileFactTable(clauses);
+
+        } else if (clauses.size() == 1) {
             // --- Case 1: Only one clause for this predicate ---
             // No choice points are needed. Just compile the clause directly.
             compileClause(clauses.get(0));
 
         } else {
             // --- Case 2: Multiple clauses, requiring backtracking logic ---
+            int arity = clauses.get(0).getHead().getArity();
+            if (isWorthJitIndexing(clauses)) {
+                // Let the VM watch which arguments are bound at call time and build indexes on demand.
+                emit(Instruction.JitSwitch(clauses.get(0).getHead().getFunctorId(), arity));
+                predicates.add(describePredicate(predicateSignature, clauses));
+            }
+
+            boolean indexed = isWorthIndexing(clauses);
+            if (indexed) {
+                // Dispatch on the type of A1. If it is unbound, fall through into the full chain below.
+                emit(Instruction.SwitchOnTerm(1, predicateSignature + "_con", predicateSignature + "_str"));
+            }
+
             for (int i = 0; i < clauses.size(); i++) {
                 Clause clause = clauses.get(i);
                 // Generate a unique label for the *next* clause.
@@ -192,7 +687,8 @@ public class Compiler {
                 if (i == 0) {
                     // First clause: `try_me_else`. This creates the choice point.
                     // It says "Try me; if I fail, jump to `nextClauseLabel`".
-                    emit(new Instruction(Opcode.TRY_ME_ELSE, 0, null, nextClauseLabel));
+                    // The register operand tells the VM how many argument registers to save.
+                    emit(new Instruction(Opcode.TRY_ME_ELSE, arity, null, nextClauseLabel));
                 } else if (i < clauses.size() - 1) {
                     // Intermediate clauses: `retry_me_else`. This updates the choice point.
                     // It says "Backtrack here, try me; if I fail, jump to `nextClauseLabel`".
@@ -205,6 +701,8 @@ public class Compiler {
                 }
 
                 // --- Step 3: Compile the clause itself ---
+                // The clause body gets its own label so index buckets can jump straight into it.
+                labels.put(clauseLabel(predicateSignature, i), code.size());
                 compileClause(clause);
 
                 // --- Step 4: Set the label for the next choice ---
@@ -214,84 +712,324 @@ public class Compiler {
                     labels.put(nextClauseLabel, code.size());
                 }
             }
+
+            if (indexed) {
+                compileFirstArgumentIndex(predicateSignature, clauses, arity);
+            }
+        }
+    }
+
+    /** Large predicates made only of facts whose arguments are all atoms are stored as data. */
+    private boolean isFactTable(List<Clause> clauses) {
+        if (clauses.size() < FACT_TABLE_MIN_CLAUSES || clauses.get(0).getHead().getArity() == 0) return false;
+        if (loadedTables.containsKey(clauses)) return true; // Bulk-loaded facts are always atomic
+        for (Clause c : clauses) {
+            if (!c.isFact()) return false;
+            for (Term arg : c.getHead().getArgs()) {
+                if (!(arg instanceof Atom)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compiles a predicate of ground facts into a {@link FactColumns} table and one instruction:
+     * <pre>
+     *   edge/2:  fact_lookup edge/2
+     * </pre>
+     * FACT_LOOKUP finds the rows that match the bound arguments, unifies the first with the
+     * argument registers and leaves a choice point for the rest, which FACT_RETRY returns one by one.
+     */
+    private void compileFactTable(List<Clause> clauses) {
+        Structure first = clauses.get(0).getHead();
+        int functorId = first.getFunctorId();
+        int arity = first.getArity();
+
+        FactTable loaded = loadedTables.get(clauses);
+        FactColumns table;
+        if (loaded != null) {
+            // Straight from the loader's rows, without creating a clause per fact.
+            table = new FactColumns(functorId, arity, loaded.size(), loaded::get, sortFacts);
+        } else {
+            table = new FactColumns(functorId, arity, clauses.size(),
+                    (row, k) -> ((Atom) clauses.get(row).getHead().getArgs().get(k)).getId(), sortFacts);
+        }
+        emitFactLookup(table);
+    }
+
+    private void emitFactLookup(FactStore table) {
+        factTables.add(table);
+        emit(Instruction.FactLookup(table.functorId, table.arity));
+    }
+
+    /** An index only pays off if at least one clause has a non-variable first argument. */
+    private boolean isWorthIndexing(List<Clause> clauses) {
+        if (clauses.get(0).getHead().getArity() == 0) return false;
+        for (Clause c : clauses) {
+            if (!(c.getHead().getArgs().get(0) instanceof Variable)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Demand-driven indexing helps large predicates called with a bound argument other than
+     * the first (the first is covered by the static index).
+     */
+    private boolean isWorthJitIndexing(List<Clause> clauses) {
+        if (clauses.size() < JIT_MIN_CLAUSES) return false;
+        for (Clause c : clauses) {
+            List<Term> args = c.getHead().getArgs();
+            for (int k = 1; k < args.size(); k++) {
+                if (!(args.get(k) instanceof Variable)) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Records the clause labels and the key of every head argument of a predicate. */
+    private PredicateInfo describePredicate(String predicateSignature, List<Clause> clauses) {
+        Structure first = clauses.get(0).getHead();
+        int arity = first.getArity();
+        String[] clauseLabels = new String[clauses.size()];
+        int[] keys = new int[clauses.size() * arity];
+        for (int i = 0; i < clauses.size(); i++) {
+            clauseLabels[i] = clauseLabel(predicateSignature, i);
+            List<Term> args = clauses.get(i).getHead().getArgs();
+            for (int k = 0; k < arity; k++) {
+                Term arg = args.get(k);
+                if (arg instanceof Atom atom) {
+                    keys[i * arity + k] = atom.getId();
+                } else if (arg instanceof Structure structure) {
+                    keys[i * arity + k] = structure.getFunctorId();
+                } else {
+                    keys[i * arity + k] = PredicateInfo.VAR;
+                }
+            }
+        }
+        return new PredicateInfo(first.getFunctorId(), arity, clauseLabels, null, keys);
+    }
+
+    private static String clauseLabel(String predicateSignature, int i) {
+        return predicateSignature + "_c" + i;
+    }
+
+    /**
+     * Emits the switch_on_constant and switch_on_structure tables of a predicate, plus a
+     * try/retry/trust block for every bucket that holds more than one clause.
+     * Clauses whose first argument is a variable match every key, so they are merged (in
+     * program order) into every bucket and also form the default for keys not in the table.
+     */
+    private void compileFirstArgumentIndex(String predicateSignature, List<Clause> clauses, int arity) {
+        List<Integer> varClauses = new ArrayList<>();
+        Map<Integer, List<Integer>> constantBuckets = new LinkedHashMap<>();
+        Map<Integer, List<Integer>> structureBuckets = new LinkedHashMap<>();
+
+        for (int i = 0; i < clauses.size(); i++) {
+            Term first = clauses.get(i).getHead().getArgs().get(0);
+            if (first instanceof Atom atom) {
+                constantBuckets.computeIfAbsent(atom.getId(), k -> new ArrayList<>()).add(i);
+            } else if (first instanceof Structure structure) {
+                structureBuckets.computeIfAbsent(structure.getFunctorId(), k -> new ArrayList<>()).add(i);
+            } else {
+                varClauses.add(i);
+            }
+        }
+
+        // The chain used for keys that no clause mentions explicitly.
+        String defaultChain = compileChain(predicateSignature, varClauses, arity);
+
+        compileSwitch(predicateSignature + "_con", Opcode.SWITCH_ON_CONSTANT, constantBuckets,
+                varClauses, defaultChain, predicateSignature, arity);
+        compileSwitch(predicateSignature + "_str", Opcode.SWITCH_ON_STRUCTURE, structureBuckets,
+                varClauses, defaultChain, predicateSignature, arity);
+    }
+
+    private void compileSwitch(String switchLabel, Opcode op, Map<Integer, List<Integer>> buckets,
+                               List<Integer> varClauses, String defaultChain,
+                               String predicateSignature, int arity) {
+        if (buckets.isEmpty()) {
+            // No clause has this kind of first argument: only the variable clauses can match.
+            // A null default means none can, and the VM simply fails.
+            if (defaultChain != null) labels.put(switchLabel, labels.get(defaultChain));
+            return;
+        }
+
+        // Emit the bucket chains first, then the switch itself.
+        Map<Integer, String> table = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<Integer>> bucket : buckets.entrySet()) {
+            List<Integer> members = mergeInOrder(bucket.getValue(), varClauses);
+            table.put(bucket.getKey(), compileChain(predicateSignature, members, arity));
+        }
+
+        labels.put(switchLabel, code.size());
+        if (op == Opcode.SWITCH_ON_CONSTANT) {
+            emit(Instruction.SwitchOnConstant(1, table, defaultChain));
+        } else {
+            emit(Instruction.SwitchOnStructure(1, table, defaultChain));
+        }
+    }
+
+    /**
+     * Returns a label that runs the given clauses in order: the clause itself if there is only
+     * one (no choice point needed), a new try/retry/trust block if there are several, or null
+     * if there are none.
+     */
+    private String compileChain(String predicateSignature, List<Integer> members, int arity) {
+        if (members.isEmpty()) return null;
+        if (members.size() == 1) return clauseLabel(predicateSignature, members.get(0));
+
+        String blockLabel = predicateSignature + "_blk" + code.size();
+        labels.put(blockLabel, code.size());
+        for (int j = 0; j < members.size(); j++) {
+            String target = clauseLabel(predicateSignature, members.get(j));
+            if (j == 0) {
+                emit(Instruction.Try(target, arity));
+            } else if (j < members.size() - 1) {
+                emit(Instruction.Retry(target));
+            } else {
+                emit(Instruction.Trust(target));
+            }
+        }
+        return blockLabel;
+    }
+
+    /** Merges two ascending lists of clause indices into one ascending list. */
+    private static List<Integer> mergeInOrder(List<Integer> a, List<Integer> b) {
+        if (b.isEmpty()) return a;
+        List<Integer> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0, j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (j == b.size() || (i < a.size() && a.get(i) < b.get(j))) {
+                merged.add(a.get(i++));
+            } else {
+                merged.add(b.get(j++));
+            }
         }
+        return merged;
     }
 
     /**
      * Compiles a single clause, which consists of a head and an optional body.
      * This involves generating 'get' instructions for the head and 'put'/'call'
      * instructions for the body goals.
+     * <pre>
+     *   grandparent(X, Z) :- parent(X, Y), parent(Y, Z).
+     *
+     *   allocate      2              Y0 = Z, Y1 = Y
+     *   get_variable  Y0, A2         X is temporary and stays in A1 (see below)
+     *   put_variable  Y1, A2
+     *   call          parent/2, 2    both Y slots are still needed afterwards
+     *   put_value     Y1, A1
+     *   put_value     Y0, A2
+     *   deallocate
+     *   execute       parent/2
+     * </pre>
+     * A chain rule, which makes at most one call and has no permanent variables, needs no
+     * environment: its call is the tail call, so the continuation is the caller's. A head
+     * variable that the call passes on in the same argument position also stays in its
+     * argument register, so neither get_variable nor put_value is needed for it.
+     * <pre>
+     *   ancestor(X, Y) :- parent(X, Y).      =>   execute  parent/2
+     * </pre>
      *
      * @param c The Clause AST node to compile.
      */
     private void compileClause(Clause c) {
-        variableMap.clear();
-        regCounter = 1;
-
         Structure head = c.getHead();
         List<Term> body = c.getBody();
 
-        // --- Step 1: Manage the Stack Frame ---
-        if (!body.isEmpty()) {
-            emit(Instruction.Allocate());
-
-            // *** THE FIX: SAVE ARGUMENTS TO SAFE REGISTERS ***
-            // Rules overwrite A1, A2... when calling sub-goals.
-            // We must copy incoming arguments (A1..An) to safe registers (R10..Rn)
-            // so they survive the body calls.
-            int safeRegStart = 10;
-            for (int i = 0; i < head.getArity(); i++) {
-                Term arg = head.getArgs().get(i);
-                int incomingReg = i + 1; // A1, A2...
-                int safeReg = safeRegStart + i; // R10, R11...
-
-                if (arg instanceof Variable) {
-                    String name = ((Variable) arg).getName();
-                    if (!variableMap.containsKey(name)) {
-                        // Map the variable 'X' to Safe Register 10
-                        variableMap.put(name, safeReg);
-
-                        // Emit instruction: Copy A1 -> R10
-                        // We use PutValue for register-to-register copy.
-                        emit(Instruction.PutValue(incomingReg, safeReg));
-                    }
-                }
-            }
+        // --- Step 1: Classify the variables ---
+        int envSize = startClause(chunksOf(head, body, false), false);
+        keepArgumentsInPlace(head, body);
+
+        // --- Step 2: Manage the Stack Frame ---
+        // Only rules need an environment: it holds the continuation and the permanent variables.
+        boolean chainRule = envSize == 0 && body.stream().filter(goal -> !isCut(goal)).count() <= 1;
+        if (!body.isEmpty() && !chainRule) {
+            emit(Instruction.Allocate(envSize));
+            emitGetLevel();
         }
 
-        // --- Step 2: Compile the Head ---
-        // For Rules: Since we manually handled variables above, this loop primarily
-        // handles Constants and Unification checks in the head.
+        // --- Step 3: Compile the Head ---
+        // Each argument Ai is matched against the head: constants are checked, a variable's
+        // first occurrence stores Ai, and a repeated variable unifies with Ai (so p(X, X) works).
         for (int i = 0; i < head.getArity(); i++) {
-            Term arg = head.getArgs().get(i);
-            int reg = i + 1;
-
-            // If it's a variable, we already handled it in "The Fix" block above.
-            // We only need to compile if it's a Constant (to generate GET_CONSTANT).
-            if (!(arg instanceof Variable)) {
-                compileTerm(arg, reg, false);
-            }
+            compileTerm(head.getArgs().get(i), i + 1, false);
         }
 
-        // --- Step 3: Compile the Body ---
+        // --- Step 4: Compile the Body ---
         if (body.isEmpty()) {
             emit(Instruction.Proceed());
         } else {
-            for (int i = 0; i < body.size(); i++) {
-                Term goal = body.get(i);
-                if (goal instanceof Structure s) {
-                    // 3a: Put goal arguments
-                    for (int j = 0; j < s.getArity(); j++) {
-                        Term arg = s.getArgs().get(j);
-                        int reg = j + 1;
-                        compileTerm(arg, reg, true);
-                    }
-                    // 3b: Call
-                    String predicateLabel = s.getFunctor() + "/" + s.getArity();
-                    emit(Instruction.Call(predicateLabel));
+            compileBody(body, envSize, false, !chainRule);
+        }
+    }
+
+    /**
+     * Puts each temporary head variable in its argument register Ai if the first goal of the
+     * body passes it on as its i-th argument too. Ai then holds it from the head to the call,
+     * since putting the goal's other arguments only writes their own registers.
+     * <p>
+     * Only a variable whose first occurrence is head argument i itself qualifies: an earlier
+     * occurrence would have been stored elsewhere before Ai is looked at.
+     */
+    private void keepArgumentsInPlace(Structure head, List<Term> body) {
+        Term first = body.stream().filter(goal -> !isCut(goal)).findFirst().orElse(null);
+        if (first == null) return;
+        List<Term> args = goalArgs(first);
+        Set<String> earlier = new HashSet<>();
+        for (int i = 0; i < head.getArity(); i++) {
+            Term arg = head.getArgs().get(i);
+            if (arg instanceof Variable v && !earlier.contains(v.getName()) && !variableMap.containsKey(v.getName())
+                    && i < args.size() && args.get(i) instanceof Variable w && w.getName().equals(v.getName())) {
+                variableMap.put(v.getName(), i + 1);
+            }
+            earlier.addAll(variablesOf(arg, new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Compiles the goals of a rule body or query.
+     * @param envSize The environment size; the query keeps all of it until it halts.
+     * @param hasEnvironment False for a chain rule, which has no environment to deallocate.
+     */
+    private void compileBody(List<Term> body, int envSize, boolean isQuery, boolean hasEnvironment) {
+        int chunk = 0;
+        for (int i = 0; i < body.size(); i++) {
+            Term goal = body.get(i);
+            boolean last = i == body.size() - 1 && !isQuery;
+
+            if (isCut(goal)) {
+                // Before any call B0 is still the caller's B (neck cut); after one, use the saved level.
+                if (chunk == 0 && !isQuery) {
+                    emit(Instruction.NeckCut());
+                } else {
+                    emit(Instruction.Cut(variableMap.get(CUT_BARRIER)));
+                }
+                if (last) {
+                    if (hasEnvironment) emit(Instruction.Deallocate());
+                    emit(Instruction.Proceed());
                 }
+                continue;
+            }
+
+            // 4a: Put goal arguments
+            List<Term> args = goalArgs(goal);
+            for (int j = 0; j < args.size(); j++) {
+                compileTerm(args.get(j), j + 1, true);
+            }
+
+            // 4b: Call. The last goal is a tail call (last-call optimization): its
+            // arguments are already in registers, so the frame can be dropped first and
+            // the callee returns straight to our caller. Recursion in the last goal then
+            // runs in constant stack space.
+            if (last) {
+                if (hasEnvironment) emit(Instruction.Deallocate());
+                emit(Instruction.Execute(goalFunctorId(goal)));
+            } else {
+                emit(Instruction.Call(goalFunctorId(goal), isQuery ? envSize : liveAfter(chunk)));
+                chunk++;
             }
-            emit(Instruction.Deallocate());
         }
     }
-}
\ No newline at end of file
+}
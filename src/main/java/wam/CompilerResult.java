@@ -7,5 +7,19 @@ import java.util.Map;
  * A simple data carrier to hold the results of a compilation.
  * @param code The generated list of WAM instructions.
  * @param labels A map from string labels (e.g., "parent/2") to their integer address in the code list.
+ * @param predicates Clause metadata of the predicates that can be indexed at runtime (see JIT_SWITCH).
+ * @param factTables The predicates stored as fact tables (see FACT_LOOKUP).
+ * @param variables The query's variables by environment slot: Y i holds variables().get(i).
+ *                  Hidden variables (such as the cut barrier) start with '$'. Empty without a query.
  */
-public record CompilerResult(List<Instruction> code, Map<String, Integer> labels) {}
\ No newline at end of file
+public record CompilerResult(List<Instruction> code, Map<String, Integer> labels, List<PredicateInfo> predicates,
+                             List<FactStore> factTables, List<String> variables) {
+
+    public CompilerResult(List<Instruction> code, Map<String, Integer> labels) {
+        this(code, labels, List.of());
+    }
+
+    public CompilerResult(List<Instruction> code, Map<String, Integer> labels, List<PredicateInfo> predicates) {
+        this(code, labels, predicates, List.of(), List.of());
+    }
+}
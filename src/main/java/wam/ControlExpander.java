@@ -0,0 +1,131 @@
+package wam;
+
+import ast.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites the control constructs in clause bodies into calls of auxiliary predicates, so the
+ * compiler only ever sees plain goals and cuts.
+ * <pre>
+ *   p(X) :- a(X), ( b(X) -> c ; d(X) ), e.
+ *
+ * becomes
+ *
+ *   p(X) :- a(X), '$ite_p_1'(X), e.
+ *   '$ite_p_1'(X) :- b(X), !, c.
+ *   '$ite_p_1'(X) :- d(X).
+ * </pre>
+ * <ul>
+ *   <li>{@code (C -> T ; E)}: the first clause runs C, cuts away the else branch, then runs T.</li>
+ *   <li>{@code (C -> T)}: the same without the second clause, so it fails if C fails.</li>
+ *   <li>{@code (A ; B)}: one clause per branch.</li>
+ *   <li>{@code once(G)}: one clause that runs G and then cuts away G's remaining solutions.</li>
+ * </ul>
+ * The auxiliary predicate takes every variable of the construct as an argument, so bindings
+ * flow in and out exactly as if the construct were written inline.
+ * <p>
+ * A cut inside T, E or a branch of a disjunction is local to the auxiliary predicate. In ISO
+ * Prolog it would also cut the enclosing clause; bodies that rely on that must be restructured.
+ * Auxiliary names start with '$', which the grammar does not allow in atoms, so they can never
+ * clash with user predicates.
+ */
+class ControlExpander {
+
+    private final SymbolTable symbols = SymbolTable.GLOBAL;
+
+    private final int conjunction = symbols.functor(",", 2);
+    private final int disjunction = symbols.functor(";", 2);
+    private final int ifThen = symbols.functor("->", 2);
+    private final int once = symbols.functor("once", 1);
+
+    /** The auxiliary clauses created so far. */
+    private final List<Clause> auxiliary = new ArrayList<>();
+
+    private int counter = 0;
+
+    /** Returns an equivalent program whose bodies contain only plain goals and cuts. */
+    Program expand(Program program) {
+        auxiliary.clear();
+        List<Clause> clauses = new ArrayList<>();
+        for (Clause c : program.getClauses()) {
+            clauses.add(new Clause(c.getHead(), expandBody(c.getBody(), c.getHead().getFunctor())));
+        }
+        List<Term> query = program.getQuery() == null ? null : expandBody(program.getQuery(), "$query");
+        clauses.addAll(auxiliary);
+        return new Program(clauses, query, program.getTabled(), program.getFacts());
+    }
+
+    private List<Term> expandBody(List<Term> goals, String owner) {
+        List<Term> out = new ArrayList<>();
+        for (Term goal : goals) {
+            expandGoal(goal, owner, out);
+        }
+        return out;
+    }
+
+    private void expandGoal(Term goal, String owner, List<Term> out) {
+        if (!(goal instanceof Structure s)) {
+            out.add(goal);
+            return;
+        }
+        int id = s.getFunctorId();
+        if (id == conjunction) {
+            // A parenthesised conjunction is just more goals.
+            expandGoal(s.getArgs().get(0), owner, out);
+            expandGoal(s.getArgs().get(1), owner, out);
+        } else if (id == disjunction) {
+            Term left = s.getArgs().get(0);
+            Term right = s.getArgs().get(1);
+            if (left instanceof Structure l && l.getFunctorId() == ifThen) {
+                out.add(auxiliary("ite", owner, s,
+                        List.of(committed(l.getArgs().get(0), l.getArgs().get(1)), List.of(right))));
+            } else {
+                out.add(auxiliary("or", owner, s, List.of(List.of(left), List.of(right))));
+            }
+        } else if (id == ifThen) {
+            out.add(auxiliary("ite", owner, s, List.of(committed(s.getArgs().get(0), s.getArgs().get(1)))));
+        } else if (id == once) {
+            out.add(auxiliary("once", owner, s, List.of(committed(s.getArgs().get(0), null))));
+        } else {
+            out.add(goal);
+        }
+    }
+
+    /** The goals "Condition, !, Then" (Then may be null). */
+    private List<Term> committed(Term condition, Term then) {
+        List<Term> goals = new ArrayList<>();
+        goals.add(condition);
+        goals.add(new Atom("!", symbols.atom("!")));
+        if (then != null) goals.add(then);
+        return goals;
+    }
+
+    /**
+     * Creates an auxiliary predicate with one clause per branch and returns the goal that
+     * calls it. Branches may contain further constructs; they are expanded the same way.
+     */
+    private Structure auxiliary(String kind, String owner, Structure construct, List<List<Term>> branches) {
+        List<Term> args = new ArrayList<>(variablesOf(construct, new LinkedHashMap<>()).values());
+        String name = "$" + kind + "_" + owner + "_" + (++counter);
+        Structure head = new Structure(name, args, symbols.functor(name, args.size()));
+        for (List<Term> branch : branches) {
+            auxiliary.add(new Clause(head, expandBody(branch, owner)));
+        }
+        return head;
+    }
+
+    private static Map<String, Variable> variablesOf(Term t, Map<String, Variable> out) {
+        if (t instanceof Variable v) {
+            out.putIfAbsent(v.getName(), v);
+        } else if (t instanceof Structure s) {
+            for (Term arg : s.getArgs()) {
+                variablesOf(arg, out);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,231 @@
+package wam;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A predicate made only of ground facts with atomic arguments, stored column by column on the
+ * Java heap instead of as code. One FACT_LOOKUP instruction answers every call of it.
+ * <p>
+ * Compiled as clauses, every fact would cost a choice point instruction, a GET_CONSTANT per
+ * argument and a PROCEED, and each call would try the facts one at a time. Here:
+ * <ul>
+ *   <li>Each column is <i>dictionary encoded</i>: the distinct atom ids of the column, sorted,
+ *       form its dictionary, and each row stores the position of its atom in the dictionary
+ *       (its <i>code</i>). Codes are stored in a byte, a char or an int per row, whichever is
+ *       the smallest that holds the dictionary's size, so a column of a few thousand distinct
+ *       atoms costs two bytes per fact.</li>
+ *   <li>An atom that is not in a column's dictionary cannot match any row, so a call with such
+ *       an argument fails after one binary search.</li>
+ *   <li>The rows matching a bound argument are found through a <i>postings list</i> of that
+ *       column: the row numbers of each code, in row order. It is built the first time the
+ *       column is bound in a call, and shared by every machine running the program.</li>
+ *   <li>If the table is <i>sorted</i>, its rows are ordered by their atom ids, first column
+ *       first, and the rows matching a bound first argument form one range found by binary
+ *       search, with no postings list. Sorting changes the order of the answers, so it is
+ *       optional (see {@link Compiler#sortFacts}).</li>
+ * </ul>
+ */
+public final class FactColumns extends FactStore {
+
+    /** The rows of each code of a column, in row order: rows[offsets[c]] .. rows[offsets[c + 1] - 1]. */
+    private static final class Postings {
+        final int[] offsets;
+        final int[] rows;
+
+        Postings(int[] offsets, int[] rows) {
+            this.offsets = offsets;
+            this.rows = rows;
+        }
+    }
+
+    /** One dictionary-encoded column. Exactly one of the code arrays is non-null. */
+    private static final class Column {
+        final int[] dictionary;
+        final byte[] bytes;
+        final char[] chars;
+        final int[] ints;
+
+        Column(int[] dictionary, int[] codes) {
+            this.dictionary = dictionary;
+            if (dictionary.length <= 1 << 8) {
+                bytes = new byte[codes.length];
+                for (int r = 0; r < codes.length; r++) bytes[r] = (byte) codes[r];
+                chars = null;
+                ints = null;
+            } else if (dictionary.length <= 1 << 16) {
+                chars = new char[codes.length];
+                for (int r = 0; r < codes.length; r++) chars[r] = (char) codes[r];
+                bytes = null;
+                ints = null;
+            } else {
+                ints = codes;
+                bytes = null;
+                chars = null;
+            }
+        }
+
+        int code(int row) {
+            if (bytes != null) return bytes[row] & 0xFF;
+            if (chars != null) return chars[row];
+            return ints[row];
+        }
+    }
+
+    private final Column[] columns;
+
+    /** Built on demand. A racing reader sees null or a complete list (final fields). */
+    private final Postings[] postings;
+
+    /**
+     * Builds a table.
+     * @param symbol The atom id of argument 'column' of fact 'row', applied as (row, column).
+     * @param sort True to order the rows by their atom ids.
+     */
+    public FactColumns(int functorId, int arity, int rows, IntBinaryOperator symbol, boolean sort) {
+        super(functorId, arity, rows, sort);
+
+        int[][] dictionaries = new int[arity][];
+        int[][] codes = new int[arity][];
+        for (int k = 0; k < arity; k++) {
+            int[] ids = new int[rows];
+            for (int r = 0; r < rows; r++) {
+                ids[r] = symbol.applyAsInt(r, k);
+            }
+            int[] dictionary = distinct(ids);
+            for (int r = 0; r < rows; r++) {
+                ids[r] = Arrays.binarySearch(dictionary, ids[r]);
+            }
+            dictionaries[k] = dictionary;
+            codes[k] = ids;
+        }
+
+        if (sort) {
+            // Codes follow the order of atom ids, so a stable sort by each column's codes, last
+            // column first, orders the rows by (first column, second column, ...). Codes are
+            // small and dense, so each pass is a counting sort.
+            int[] order = new int[rows];
+            for (int r = 0; r < rows; r++) order[r] = r;
+            for (int k = arity - 1; k >= 0; k--) {
+                order = countingSort(order, codes[k], dictionaries[k].length);
+            }
+            for (int k = 0; k < arity; k++) {
+                int[] permuted = new int[rows];
+                for (int r = 0; r < rows; r++) permuted[r] = codes[k][order[r]];
+                codes[k] = permuted;
+            }
+        }
+
+        this.columns = new Column[arity];
+        for (int k = 0; k < arity; k++) {
+            columns[k] = new Column(dictionaries[k], codes[k]);
+        }
+        this.postings = new Postings[arity];
+    }
+
+    /** Restores a table from its encoded form (see {@link KbImage}). */
+    FactColumns(int functorId, int rows, boolean sorted, int[][] dictionaries, int[][] codes) {
+        super(functorId, dictionaries.length, rows, sorted);
+        this.columns = new Column[arity];
+        for (int k = 0; k < arity; k++) {
+            columns[k] = new Column(dictionaries[k], codes[k]);
+        }
+        this.postings = new Postings[arity];
+    }
+
+    // --- ACCESS ---
+
+    @Override
+    public int symbol(int row, int column) {
+        Column c = columns[column];
+        return c.dictionary[c.code(row)];
+    }
+
+    @Override
+    int code(int column, int symbol) {
+        int code = Arrays.binarySearch(columns[column].dictionary, symbol);
+        return code < 0 ? -1 : code;
+    }
+
+    int[] dictionary(int column) {
+        return columns[column].dictionary;
+    }
+
+    int[] codes(int column) {
+        int[] codes = new int[rows];
+        for (int r = 0; r < rows; r++) codes[r] = columns[column].code(r);
+        return codes;
+    }
+
+    @Override
+    int probe(int column, int code, int[] range) {
+        if (sorted && column == 0) {
+            range[0] = lowerBound(code);
+            range[1] = lowerBound(code + 1);
+            return -1;
+        }
+        Postings list = postings(column);
+        range[0] = list.offsets[code];
+        range[1] = list.offsets[code + 1];
+        return column;
+    }
+
+    @Override
+    int row(int source, int i) {
+        return source < 0 ? i : postings[source].rows[i];
+    }
+
+    /** The first row of a sorted table whose first column has a code of at least 'code'. */
+    private int lowerBound(int code) {
+        Column c = columns[0];
+        int lo = 0, hi = rows;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (c.code(mid) < code) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private Postings postings(int column) {
+        Postings list = postings[column];
+        return list != null ? list : buildPostings(column);
+    }
+
+    private synchronized Postings buildPostings(int column) {
+        if (postings[column] != null) return postings[column];
+        Column c = columns[column];
+        int[] offsets = new int[c.dictionary.length + 1];
+        for (int r = 0; r < rows; r++) offsets[c.code(r) + 1]++;
+        for (int i = 0; i < c.dictionary.length; i++) offsets[i + 1] += offsets[i];
+        int[] fill = Arrays.copyOf(offsets, c.dictionary.length);
+        int[] list = new int[rows];
+        for (int r = 0; r < rows; r++) list[fill[c.code(r)]++] = r;
+        Postings built = new Postings(offsets, list);
+        postings[column] = built;
+        return built;
+    }
+
+    // --- HELPERS ---
+
+    /** The distinct values of an array, ascending. */
+    private static int[] distinct(int[] values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[n++] = sorted[i];
+        }
+        return Arrays.copyOf(sorted, n);
+    }
+
+    /** Stably reorders 'order' by key[order[i]], where keys lie in 0..range-1. */
+    static int[] countingSort(int[] order, int[] key, int range) {
+        int[] start = new int[range + 1];
+        for (int r : order) start[key[r] + 1]++;
+        for (int i = 0; i < range; i++) start[i + 1] += start[i];
+        int[] result = new int[order.length];
+        for (int r : order) result[start[key[r]]++] = r;
+        return result;
+    }
+}
@@ -0,0 +1,339 @@
+package wam;
+
+import ast.FactTable;
+import ast.SymbolTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A fact table that lives in a memory-mapped file instead of on the Java heap.
+ * <p>
+ * A segment is written once from loaded facts (see {@link #write}) and never changes. Opening it
+ * maps its columns and indexes; the operating system pages them in as lookups touch them and
+ * can drop them again under memory pressure. Only the dictionaries (one entry per distinct atom
+ * of a column) are read onto the heap, so fact bases far larger than the heap can be queried, and
+ * a FACT_LOOKUP copies only the atoms of the rows it returns into the argument registers.
+ * <p>
+ * Layout (little-endian, regions aligned to 8 bytes):
+ * <pre>
+ *   header     magic "WAMS", format version, arity, rows, sorted, predicate name
+ *   directory  per column: dictionary size, code width (1, 2 or 4 bytes), and the file
+ *              positions of its dictionary, codes, postings offsets and postings rows
+ *   dictionary per column: the names of its atoms in code order (length, UTF-8 bytes)
+ *   codes      per column: the code of every row, 'width' bytes each
+ *   postings   per column: the rows of each code, as in {@link FactColumns}; omitted for the
+ *              first column of a sorted segment, whose rows are found by binary search
+ * </pre>
+ * Atoms are stored by name, so a segment does not depend on the symbol ids of the process that
+ * wrote it. Codes follow the order of the atom names, so a sorted segment is sorted by name.
+ * <p>
+ * A mapped region is addressed by an int, so a segment holds at most {@link #MAX_ROWS} rows,
+ * and the names of each column's dictionary take at most {@link #MAX_REGION} bytes.
+ * <p>
+ * Opening a segment interns every atom of its dictionaries in the {@link SymbolTable}, which is
+ * on the heap. So the rows are bounded by disk and page cache, but the distinct atoms are still
+ * bounded by {@code -Xmx}: a column of 100M distinct node ids needs heap for 100M symbols.
+ */
+public final class FactSegment extends FactStore {
+
+    private static final int MAGIC = 0x534D4157; // "WAMS" read little-endian
+    private static final int FORMAT_VERSION = 1;
+
+    /** The largest region, in bytes, that still fits in a ByteBuffer once rounded up to 8 bytes. */
+    public static final int MAX_REGION = Integer.MAX_VALUE - 7;
+
+    /** The largest number of rows whose postings still fit in one mapped region. */
+    public static final int MAX_ROWS = MAX_REGION / 4;
+
+    /** The file the segment was opened from. */
+    public final Path path;
+
+    // Per column, on the heap: the atom id of each code, and the reverse mapping for lookups.
+    private final int[][] dictionary;
+    private final int[][] sortedSymbols;  // the atom ids of the dictionary, ascending
+    private final int[][] sortedCodes;    // the code of sortedSymbols[k][i]
+
+    // Per column, mapped.
+    private final int[] width;
+    private final ByteBuffer[] codes;
+    private final IntBuffer[] offsets;    // null for the first column of a sorted segment
+    private final IntBuffer[] postings;
+
+    private FactSegment(Path path, int functorId, int arity, int rows, boolean sorted) {
+        super(functorId, arity, rows, sorted);
+        this.path = path;
+        this.dictionary = new int[arity][];
+        this.sortedSymbols = new int[arity][];
+        this.sortedCodes = new int[arity][];
+        this.width = new int[arity];
+        this.codes = new ByteBuffer[arity];
+        this.offsets = new IntBuffer[arity];
+        this.postings = new IntBuffer[arity];
+    }
+
+    // --- ACCESS ---
+
+    @Override
+    public int symbol(int row, int column) {
+        return dictionary[column][codeAt(column, row)];
+    }
+
+    private int codeAt(int column, int row) {
+        ByteBuffer c = codes[column];
+        switch (width[column]) {
+            case 1: return c.get(row) & 0xFF;
+            case 2: return c.getChar(row << 1);
+            default: return c.getInt(row << 2);
+        }
+    }
+
+    @Override
+    int code(int column, int symbol) {
+        int i = Arrays.binarySearch(sortedSymbols[column], symbol);
+        return i < 0 ? -1 : sortedCodes[column][i];
+    }
+
+    @Override
+    int probe(int column, int code, int[] range) {
+        if (offsets[column] == null) {
+            range[0] = lowerBound(code);
+            range[1] = lowerBound(code + 1);
+            return -1;
+        }
+        range[0] = offsets[column].get(code);
+        range[1] = offsets[column].get(code + 1);
+        return column;
+    }
+
+    @Override
+    int row(int source, int i) {
+        return source < 0 ? i : postings[source].get(i);
+    }
+
+    /** The first row of a sorted segment whose first column has a code of at least 'code'. */
+    private int lowerBound(int code) {
+        int lo = 0, hi = rows;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (codeAt(0, mid) < code) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // --- OPENING ---
+
+    /** Maps a segment file and interns the atoms of its dictionaries. */
+    public static FactSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Mappings stay valid after the channel is closed.
+            ByteBuffer header = map(channel, 0, Math.min(channel.size(), 1 << 16));
+            if (header.remaining() < 24 || header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a fact segment");
+            }
+            if (header.getInt() != FORMAT_VERSION) {
+                throw new IOException(file + " was written by an incompatible version; rebuild it");
+            }
+            int arity = header.getInt();
+            int rows = header.getInt();
+            boolean sorted = header.getInt() != 0;
+            String name = readString(header);
+            align(header);
+
+            SymbolTable symbols = SymbolTable.GLOBAL;
+            FactSegment segment = new FactSegment(file, symbols.functor(name, arity), arity, rows, sorted);
+            for (int k = 0; k < arity; k++) {
+                int size = header.getInt();
+                segment.width[k] = header.getInt();
+                long dictionaryAt = header.getLong();
+                long codesAt = header.getLong();
+                long offsetsAt = header.getLong();
+                long postingsAt = header.getLong();
+
+                // The dictionary is the only part read onto the heap.
+                ByteBuffer names = map(channel, dictionaryAt, codesAt - dictionaryAt);
+                int[] ids = new int[size];
+                for (int c = 0; c < size; c++) {
+                    ids[c] = symbols.atom(readString(names));
+                }
+                segment.dictionary[k] = ids;
+                Integer[] order = new Integer[size];
+                for (int c = 0; c < size; c++) order[c] = c;
+                Arrays.sort(order, Comparator.comparingInt(c -> ids[c]));
+                segment.sortedSymbols[k] = new int[size];
+                segment.sortedCodes[k] = new int[size];
+                for (int i = 0; i < size; i++) {
+                    segment.sortedSymbols[k][i] = ids[order[i]];
+                    segment.sortedCodes[k][i] = order[i];
+                }
+
+                segment.codes[k] = map(channel, codesAt, (long) rows * segment.width[k]);
+                if (offsetsAt >= 0) {
+                    segment.offsets[k] = map(channel, offsetsAt, (size + 1) * 4L).asIntBuffer();
+                    segment.postings[k] = map(channel, postingsAt, rows * 4L).asIntBuffer();
+                }
+            }
+            return segment;
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // --- WRITING ---
+
+    /**
+     * Writes the facts of a table as a segment.
+     * @param sort True to order the rows by their atoms' names, first column first. Lookups on
+     *             the first argument then need no postings, but answers come in that order.
+     */
+    public static void write(FactTable table, boolean sort, Path file) throws IOException {
+        int arity = table.getArity();
+        int rows = table.size();
+        if (rows > MAX_ROWS) {
+            throw new IllegalArgumentException("A segment holds at most " + MAX_ROWS + " rows; "
+                    + SymbolTable.GLOBAL.signature(table.getFunctorId()) + " has " + rows);
+        }
+
+        // Dictionary encode each column, with codes in the order of the atom names.
+        SymbolTable symbols = SymbolTable.GLOBAL;
+        int[][] dictionaries = new int[arity][];
+        int[][] codes = new int[arity][rows];
+        int[] codeOf = new int[symbols.size()];
+        for (int k = 0; k < arity; k++) {
+            Arrays.fill(codeOf, -1);
+            List<Integer> atoms = new ArrayList<>();
+            for (int r = 0; r < rows; r++) {
+                int id = table.get(r, k);
+                if (codeOf[id] < 0) {
+                    codeOf[id] = 0;
+                    atoms.add(id);
+                }
+            }
+            atoms.sort(Comparator.comparing(symbols::name));
+            dictionaries[k] = new int[atoms.size()];
+            for (int c = 0; c < atoms.size(); c++) {
+                dictionaries[k][c] = atoms.get(c);
+                codeOf[atoms.get(c)] = c;
+            }
+            for (int r = 0; r < rows; r++) {
+                codes[k][r] = codeOf[table.get(r, k)];
+            }
+        }
+
+        if (sort) {
+            int[] order = new int[rows];
+            for (int r = 0; r < rows; r++) order[r] = r;
+            for (int k = arity - 1; k >= 0; k--) {
+                order = FactColumns.countingSort(order, codes[k], dictionaries[k].length);
+            }
+            for (int k = 0; k < arity; k++) {
+                int[] permuted = new int[rows];
+                for (int r = 0; r < rows; r++) permuted[r] = codes[k][order[r]];
+                codes[k] = permuted;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] name = symbols.name(table.getFunctorId()).getBytes(StandardCharsets.UTF_8);
+            ByteBuffer header = buffer(24L + name.length + 8 + arity * 40L);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(arity).putInt(rows).putInt(sort ? 1 : 0);
+            header.putInt(name.length).put(name);
+            align(header);
+            long position = header.capacity();
+
+            // The regions follow the header; the directory is filled in as they are written.
+            for (int k = 0; k < arity; k++) {
+                int size = dictionaries[k].length;
+                int width = size <= 1 << 8 ? 1 : size <= 1 << 16 ? 2 : 4;
+                header.putInt(size).putInt(width);
+
+                header.putLong(position);
+                long namesLength = 0;
+                byte[][] names = new byte[size][];
+                for (int c = 0; c < size; c++) {
+                    names[c] = symbols.name(dictionaries[k][c]).getBytes(StandardCharsets.UTF_8);
+                    namesLength += 4 + names[c].length;
+                }
+                if (namesLength > MAX_REGION) {
+                    throw new IllegalArgumentException("The atoms of column " + (k + 1) + " of "
+                            + symbols.signature(table.getFunctorId()) + " take " + namesLength
+                            + " bytes; a segment holds at most " + MAX_REGION + " per column");
+                }
+                ByteBuffer region = buffer(namesLength);
+                for (byte[] n : names) region.putInt(n.length).put(n);
+                position = writeRegion(channel, region, position);
+
+                header.putLong(position);
+                region = buffer((long) rows * width);
+                for (int r = 0; r < rows; r++) {
+                    int code = codes[k][r];
+                    if (width == 1) region.put((byte) code);
+                    else if (width == 2) region.putChar((char) code);
+                    else region.putInt(code);
+                }
+                position = writeRegion(channel, region, position);
+
+                if (sort && k == 0) {
+                    header.putLong(-1).putLong(-1);
+                    continue;
+                }
+                // Postings: a counting sort of the row numbers by code, as in FactColumns.
+                int[] start = new int[size + 1];
+                for (int r = 0; r < rows; r++) start[codes[k][r] + 1]++;
+                for (int c = 0; c < size; c++) start[c + 1] += start[c];
+                header.putLong(position);
+                region = buffer((size + 1) * 4L);
+                for (int offset : start) region.putInt(offset);
+                position = writeRegion(channel, region, position);
+
+                header.putLong(position);
+                int[] list = new int[rows];
+                for (int r = 0; r < rows; r++) list[start[codes[k][r]]++] = r;
+                region = buffer(rows * 4L);
+                for (int row : list) region.putInt(row);
+                position = writeRegion(channel, region, position);
+            }
+            header.flip();
+            channel.write(header, 0);
+        }
+    }
+
+    private static long writeRegion(FileChannel channel, ByteBuffer region, long position) throws IOException {
+        region.flip();
+        while (region.hasRemaining()) {
+            position += channel.write(region, position);
+        }
+        return (position + 7) & ~7L;
+    }
+
+    // --- HELPERS ---
+
+    /** A buffer for a region of at most {@link #MAX_REGION} bytes, rounded up to a multiple of 8. */
+    private static ByteBuffer buffer(long size) {
+        return ByteBuffer.allocate((int) ((size + 7) & ~7L)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void align(ByteBuffer buffer) {
+        buffer.position((buffer.position() + 7) & ~7);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] utf8 = new byte[in.getInt()];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
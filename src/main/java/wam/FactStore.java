@@ -0,0 +1,50 @@
+package wam;
+
+/**
+ * The storage of a predicate made only of ground facts with atomic arguments, answered by the
+ * FACT_LOOKUP instruction instead of clause code.
+ * <p>
+ * Rows are numbered 0..rows-1 and every argument of a row is an atom. Each column is dictionary
+ * encoded: a row stores a small <i>code</i> per argument, and the column's dictionary maps codes
+ * to atom ids. An atom missing from the dictionary cannot match any row.
+ * <p>
+ * The rows matching a bound argument are described by a <i>source</i> and a range [lo, hi):
+ * source -1 means the row numbers lo..hi-1 themselves (all rows, or a range of a table sorted on
+ * its first column), source k means entries lo..hi-1 of column k's postings list (the row
+ * numbers of each code, in row order).
+ * <p>
+ * Two implementations exist: {@link FactColumns} on the Java heap, and {@link FactSegment} in a
+ * memory-mapped file.
+ */
+public abstract class FactStore {
+
+    public final int functorId;
+    public final int arity;
+    public final int rows;
+
+    /** True if the rows are ordered by their first column (then the second, ...). */
+    public final boolean sorted;
+
+    protected FactStore(int functorId, int arity, int rows, boolean sorted) {
+        this.functorId = functorId;
+        this.arity = arity;
+        this.rows = rows;
+        this.sorted = sorted;
+    }
+
+    /** The atom id of argument 'column' (0-based) of row 'row'. */
+    public abstract int symbol(int row, int column);
+
+    /** The code of an atom in a column, or -1 if no row has it there. */
+    abstract int code(int column, int symbol);
+
+    /**
+     * Finds the rows whose argument 'column' has the given code.
+     * @param range Receives the range: range[0] = lo, range[1] = hi.
+     * @return The source of the range.
+     */
+    abstract int probe(int column, int code, int[] range);
+
+    /** The row at position i of a source. */
+    abstract int row(int source, int i);
+}
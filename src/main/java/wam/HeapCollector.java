@@ -0,0 +1,228 @@
+package wam;
+
+import ast.SymbolTable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static wam.WamWord.*;
+
+/**
+ * A sliding mark-compact garbage collector for the WAM heap.
+ * <p>
+ * Without a collector, heap space is only reclaimed when backtracking resets H, so a long
+ * deterministic computation is bounded by the total amount of heap it ever allocated rather
+ * than by the amount of data it still uses. This collector runs in three phases:
+ * <ol>
+ *   <li><b>Mark:</b> starting from the roots (argument registers, permanent variables in every
+ *       reachable environment, the saved arguments of every choice point, and every trailed
+ *       address), mark each heap cell that can still be reached.</li>
+ *   <li><b>Forward:</b> compute each live cell's new address: the number of live cells below it.</li>
+ *   <li><b>Update and slide:</b> rewrite every pointer (in live cells and roots), then slide the
+ *       live cells down to close the gaps.</li>
+ * </ol>
+ * Sliding keeps live cells in their original order. That matters for the WAM: the heap segment
+ * created after a choice point stays above that choice point's saved H, so backtracking can
+ * still discard it simply by resetting H. The saved H of every choice point is therefore
+ * translated to "the number of live cells below the old H".
+ * <p>
+ * The collector must only run at a point where no term is half-built and every live value is
+ * reachable from the roots above; the machine calls it on procedure entry.
+ */
+class HeapCollector {
+
+    private final WamMachine vm;
+    private final SymbolTable symbols = SymbolTable.GLOBAL;
+
+    // --- Per-collection scratch state ---
+
+    /** One bit per heap cell below H: set if the cell is live. */
+    private long[] marks;
+
+    /** Stack slots (environment variables and choice point arguments) that hold term words. */
+    private int[] stackRoots;
+    private int stackRootCount;
+
+    /** Explicit work list for marking, so deep terms cannot overflow the Java stack. */
+    private int[] work = new int[256];
+    private int workTop;
+
+    /** For every address a below H: the number of live cells below a, i.e. a's new address. */
+    private int[] forward;
+
+    HeapCollector(WamMachine vm) {
+        this.vm = vm;
+    }
+
+    /**
+     * Runs a full collection.
+     * @return The number of heap words reclaimed.
+     */
+    int collect() {
+        int oldH = vm.H;
+
+        marks = new long[(oldH >> 6) + 1];
+        stackRoots = new int[64];
+        stackRootCount = 0;
+        findStackRoots();
+
+        // --- Phase 1: Mark ---
+        for (int r = 1; r < vm.regs.length; r++) {
+            markWord(vm.regs[r]);
+        }
+        for (int i = 0; i < stackRootCount; i++) {
+            markWord(vm.stack[stackRoots[i]]);
+        }
+        for (int t = 0; t < vm.TR; t++) {
+            push(vm.trail[t]);
+        }
+        drain();
+
+        // --- Phase 2: Forwarding addresses ---
+        forward = new int[oldH + 1];
+        int live = 0;
+        for (int a = 0; a < oldH; a++) {
+            forward[a] = live;
+            if (isMarked(a)) live++;
+        }
+        forward[oldH] = live;
+
+        // --- Phase 3: Update pointers, then slide ---
+        for (int a = 0; a < oldH; a++) {
+            if (isMarked(a)) vm.heap[a] = relocate(vm.heap[a], oldH);
+        }
+        for (int r = 1; r < vm.regs.length; r++) {
+            vm.regs[r] = relocate(vm.regs[r], oldH);
+        }
+        for (int i = 0; i < stackRootCount; i++) {
+            vm.stack[stackRoots[i]] = relocate(vm.stack[stackRoots[i]], oldH);
+        }
+        for (int t = 0; t < vm.TR; t++) {
+            vm.trail[t] = forward[vm.trail[t]];
+        }
+        for (int b = vm.B; b >= 0; b = (int) vm.stack[b + WamMachine.CP_PREV_B]) {
+            vm.stack[b + WamMachine.CP_H] = forward[(int) vm.stack[b + WamMachine.CP_H]];
+        }
+
+        for (int a = 0; a < oldH; a++) {
+            if (isMarked(a)) vm.heap[forward[a]] = vm.heap[a];
+        }
+        vm.H = live;
+        vm.HB = vm.B < 0 ? 0 : (int) vm.stack[vm.B + WamMachine.CP_H];
+
+        // Drop the scratch arrays; they are sized by the heap and would otherwise stay alive.
+        marks = null;
+        forward = null;
+        stackRoots = null;
+        return oldH - live;
+    }
+
+    // --- ROOTS ---
+
+    /**
+     * Collects the stack slots holding term words: the live permanent variables of every
+     * environment reachable from E or from a choice point, and the saved argument registers
+     * of every choice point.
+     * <p>
+     * How many slots of an environment are live depends on the continuation it is seen
+     * through: a choice point created during an earlier call of the same body still needs
+     * slots that have been trimmed since. Each environment is therefore visited with the
+     * largest size any path gives it. The part of the chain above an environment is the same
+     * on every path, so a second visit only adds the missing slots and stops.
+     */
+    private void findStackRoots() {
+        Map<Integer, Integer> seenEnvs = new HashMap<>();
+        addEnvChain(vm.E, vm.CP, seenEnvs);
+        for (int b = vm.B; b >= 0; b = (int) vm.stack[b + WamMachine.CP_PREV_B]) {
+            int n = (int) vm.stack[b + WamMachine.CP_N];
+            for (int i = 0; i < n; i++) {
+                addStackRoot(b + WamMachine.CP_ARGS + i);
+            }
+            addEnvChain((int) vm.stack[b + WamMachine.CP_E], (int) vm.stack[b + WamMachine.CP_CP], seenEnvs);
+        }
+    }
+
+    private void addEnvChain(int e, int continuation, Map<Integer, Integer> seenEnvs) {
+        while (e >= 0) {
+            int n = vm.envSize(continuation);
+            Integer seen = seenEnvs.get(e);
+            for (int i = seen == null ? 0 : seen; i < n; i++) {
+                addStackRoot(e + WamMachine.ENV_VARS + i);
+            }
+            if (seen != null) {
+                if (n > seen) seenEnvs.put(e, n);
+                return;
+            }
+            seenEnvs.put(e, n);
+            continuation = (int) vm.stack[e + WamMachine.ENV_CP];
+            e = (int) vm.stack[e + WamMachine.ENV_CE];
+        }
+    }
+
+    private void addStackRoot(int slot) {
+        if (stackRootCount == stackRoots.length) {
+            stackRoots = Arrays.copyOf(stackRoots, stackRootCount * 2);
+        }
+        stackRoots[stackRootCount++] = slot;
+    }
+
+    // --- MARKING ---
+
+    /** Queues the heap cell a root word points to, if it points into the heap at all. */
+    private void markWord(long word) {
+        int tag = tag(word);
+        if (tag == REF || tag == STR) {
+            push(value(word));
+        }
+    }
+
+    private void push(int address) {
+        // Slots that are not yet initialised may hold stale addresses above H; they are not roots.
+        if (address >= vm.H) return;
+        if (workTop == work.length) {
+            work = Arrays.copyOf(work, workTop * 2);
+        }
+        work[workTop++] = address;
+    }
+
+    private void drain() {
+        while (workTop > 0) {
+            int a = work[--workTop];
+            if (isMarked(a)) continue;
+            marks[a >> 6] |= 1L << a;
+
+            long word = vm.heap[a];
+            switch (tag(word)) {
+                case REF:
+                case STR:
+                    push(value(word));
+                    break;
+                case FUN:
+                    // A structure is only useful whole: keep all of its argument cells.
+                    int arity = symbols.arity(value(word));
+                    for (int i = 1; i <= arity; i++) {
+                        push(a + i);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private boolean isMarked(int a) {
+        return (marks[a >> 6] & (1L << a)) != 0;
+    }
+
+    // --- RELOCATION ---
+
+    /** Rewrites a REF or STR word to the new address of its target. Other words are unchanged. */
+    private long relocate(long word, int oldH) {
+        int tag = tag(word);
+        if (tag != REF && tag != STR) return word;
+        int target = value(word);
+        if (target >= oldH) return word; // Stale slot, never read before being overwritten.
+        return tag == REF ? ref(forward[target]) : str(forward[target]);
+    }
+}
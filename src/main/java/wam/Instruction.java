@@ -1,5 +1,9 @@
 package wam;
 
+import ast.SymbolTable;
+
+import java.util.Map;
+
 /**
  * Represents a single WAM instruction, including its opcode and arguments.
  */
@@ -14,9 +18,27 @@ public class Instruction {
     /** Argument 2: A name, typically a functor "f/n" or a constant "c". */
     public String name;
 
+    /**
+     * The SymbolTable id of 'name' when it is an atom or functor, or of the called predicate.
+     * PAR_CALL keeps its number of goals here, PAR_GOAL its mask of argument registers. -1 otherwise.
+     */
+    public int symbol = -1;
+
     /** Argument 3: A code label for jumps (e.g., the address of a procedure). */
     public String label;
 
+    /**
+     * For variable moves (PUT_VARIABLE, PUT_VALUE, GET_VARIABLE, GET_VALUE): the variable's
+     * operand, an X register or a Y slot (see {@link #y}). -1 otherwise.
+     */
+    public int source = -1;
+
+    /** Argument 4: A second code label. SWITCH_ON_TERM uses 'label' for constants and this for structures. */
+    public String label2;
+
+    /** For SWITCH_ON_CONSTANT / SWITCH_ON_STRUCTURE: symbol id to clause label. 'label' is the default. */
+    public Map<Integer, String> table;
+
     public Instruction(Opcode op, int reg, String name, String label) {
         this.op = op;
         this.reg = reg;
@@ -24,44 +46,119 @@ public class Instruction {
         this.label = label;
     }
 
+    public Instruction(Opcode op, int reg, String name, int symbol, String label) {
+        this(op, reg, name, label);
+        this.symbol = symbol;
+    }
+
+    // --- Variable Operands ---
+    // A temporary variable lives in an X register (1..255), a permanent one in a slot of the
+    // current environment. Both share one operand field: Y slot n is encoded as Y_BASE + n.
+
+    /** The first operand value that denotes a Y slot rather than an X register. */
+    public static final int Y_BASE = 256;
+
+    /** The operand of permanent variable slot n. */
+    public static int y(int n) {
+        return Y_BASE + n;
+    }
+
+    /** Renders an operand as "X12" or "Y0". */
+    public static String operandName(int operand) {
+        return operand >= Y_BASE ? "Y" + (operand - Y_BASE) : "X" + operand;
+    }
+
     // --- Static Factory Methods for Convenience ---
     // These make the compiler's job in Phase 4 much cleaner.
 
-    public static Instruction PutStructure(String name, int reg) {
-        return new Instruction(Opcode.PUT_STRUCTURE, reg, name, null);
+    public static Instruction PutStructure(int functorId, int reg) {
+        return new Instruction(Opcode.PUT_STRUCTURE, reg, SymbolTable.GLOBAL.signature(functorId), functorId, null);
     }
 
     public static Instruction PutVariable(int reg) {
         return new Instruction(Opcode.PUT_VARIABLE, reg, null, null);
     }
 
-    public static Instruction PutConstant(String name, int reg) {
-        return new Instruction(Opcode.PUT_CONSTANT, reg, name, null);
+    /** Creates a fresh variable on the heap and stores it in both the variable and register Ai. */
+    public static Instruction PutVariable(int operand, int reg) {
+        Instruction instr = new Instruction(Opcode.PUT_VARIABLE, reg, operandName(operand), null);
+        instr.source = operand;
+        return instr;
+    }
+
+    public static Instruction PutConstant(int atomId, int reg) {
+        return new Instruction(Opcode.PUT_CONSTANT, reg, SymbolTable.GLOBAL.name(atomId), atomId, null);
     }
 
-    public static Instruction PutValue(int sourceReg, int destReg) {
-        // We can reuse the 'name' field to store the source register as a string for printing.
-        return new Instruction(Opcode.PUT_VALUE, destReg, "A"+sourceReg, null);
+    public static Instruction PutValue(int operand, int destReg) {
+        // We can reuse the 'name' field to store the source operand as a string for printing.
+        Instruction instr = new Instruction(Opcode.PUT_VALUE, destReg, operandName(operand), null);
+        instr.source = operand;
+        return instr;
     }
 
-    public static Instruction GetConstant(String name, int reg) {
-        return new Instruction(Opcode.GET_CONSTANT, reg, name, null);
+    public static Instruction GetConstant(int atomId, int reg) {
+        return new Instruction(Opcode.GET_CONSTANT, reg, SymbolTable.GLOBAL.name(atomId), atomId, null);
     }
 
-    public static Instruction GetValue(int sourceReg, int destReg) {
-        return new Instruction(Opcode.GET_VALUE, destReg, "A"+sourceReg, null);
+    /** Stores the incoming argument Ai in a variable seen for the first time. */
+    public static Instruction GetVariable(int operand, int reg) {
+        Instruction instr = new Instruction(Opcode.GET_VARIABLE, reg, operandName(operand), null);
+        instr.source = operand;
+        return instr;
     }
 
-    public static Instruction UnifyVariable(int reg) {
-        return new Instruction(Opcode.UNIFY_VARIABLE, reg, null, null);
+    public static Instruction GetValue(int operand, int destReg) {
+        Instruction instr = new Instruction(Opcode.GET_VALUE, destReg, operandName(operand), null);
+        instr.source = operand;
+        return instr;
+    }
+
+    public static Instruction GetStructure(int functorId, int reg) {
+        return new Instruction(Opcode.GET_STRUCTURE, reg, SymbolTable.GLOBAL.signature(functorId), functorId, null);
+    }
+
+    public static Instruction UnifyVariable(int operand) {
+        Instruction instr = new Instruction(Opcode.UNIFY_VARIABLE, 0, operandName(operand), null);
+        instr.source = operand;
+        return instr;
+    }
+
+    public static Instruction UnifyValue(int operand) {
+        Instruction instr = new Instruction(Opcode.UNIFY_VALUE, 0, operandName(operand), null);
+        instr.source = operand;
+        return instr;
+    }
+
+    public static Instruction UnifyConstant(int atomId) {
+        return new Instruction(Opcode.UNIFY_CONSTANT, 0, SymbolTable.GLOBAL.name(atomId), atomId, null);
+    }
+
+    /** Skips (read mode) or creates (write mode) n anonymous argument cells. */
+    public static Instruction UnifyVoid(int n) {
+        return new Instruction(Opcode.UNIFY_VOID, 0, String.valueOf(n), n, null);
     }
 
     public static Instruction GetValue(int reg) {
         return new Instruction(Opcode.GET_VALUE, reg, null, null);
     }
 
-    public static Instruction Call(String label) {
-        return new Instruction(Opcode.CALL, 0, null, label);
+    public static Instruction Call(int predicateId) {
+        return Call(predicateId, 0);
+    }
+
+    /**
+     * A call from a rule body.
+     * @param envSize The number of permanent variables still needed after the call returns.
+     *                The machine trims the caller's environment to this size.
+     */
+    public static Instruction Call(int predicateId, int envSize) {
+        return new Instruction(Opcode.CALL, envSize, null, predicateId, SymbolTable.GLOBAL.signature(predicateId));
+    }
+
+    /** A tail call: jumps to the predicate without setting a new continuation. */
+    public static Instruction Execute(int predicateId) {
+        return new Instruction(Opcode.EXECUTE, 0, null, predicateId, SymbolTable.GLOBAL.signature(predicateId));
     }
 
     public static Instruction Proceed() {
@@ -69,25 +166,138 @@ public class Instruction {
     }
 
     public static Instruction Allocate() {
-        return new Instruction(Opcode.ALLOCATE, 0, null, null);
+        return Allocate(0);
+    }
+
+    /** Creates an environment with room for n permanent variables. */
+    public static Instruction Allocate(int n) {
+        return new Instruction(Opcode.ALLOCATE, n, null, null);
     }
 
     public static Instruction Deallocate() {
         return new Instruction(Opcode.DEALLOCATE, 0, null, null);
     }
 
+    /** A cut before the clause's first call: discards the choice points newer than B0. */
+    public static Instruction NeckCut() {
+        return new Instruction(Opcode.NECK_CUT, 0, null, null);
+    }
+
+    /** Saves B0 in a permanent variable, for a cut that follows a call. */
+    public static Instruction GetLevel(int operand) {
+        Instruction instr = new Instruction(Opcode.GET_LEVEL, 0, operandName(operand), null);
+        instr.source = operand;
+        return instr;
+    }
+
+    /** Discards the choice points newer than the level saved by GET_LEVEL. */
+    public static Instruction Cut(int operand) {
+        Instruction instr = new Instruction(Opcode.CUT, 0, operandName(operand), null);
+        instr.source = operand;
+        return instr;
+    }
+
     public static Instruction Halt() {
         return new Instruction(Opcode.HALT, 0, null, null);
     }
 
+    public static Instruction Try(String label, int arity) {
+        // Like TRY_ME_ELSE, the register operand holds the number of argument registers to save.
+        return new Instruction(Opcode.TRY, arity, null, label);
+    }
+
+    public static Instruction Retry(String label) {
+        return new Instruction(Opcode.RETRY, 0, null, label);
+    }
+
+    public static Instruction Trust(String label) {
+        return new Instruction(Opcode.TRUST, 0, null, label);
+    }
+
+    /** The register operand is the arity; the symbol is the predicate whose call patterns are watched. */
+    public static Instruction JitSwitch(int predicateId, int arity) {
+        return new Instruction(Opcode.JIT_SWITCH, arity, SymbolTable.GLOBAL.signature(predicateId), predicateId, null);
+    }
+
+    /**
+     * The entry of a tabled predicate.
+     * @param driverLabel The code that evaluates a new subgoal and records its answers.
+     */
+    public static Instruction TableCall(int predicateId, int arity, String driverLabel) {
+        return new Instruction(Opcode.TABLE_CALL, arity, SymbolTable.GLOBAL.signature(predicateId), predicateId, driverLabel);
+    }
+
+    /** Records the n permanent variables Y0..Yn-1 as an answer of the subgoal being evaluated. */
+    public static Instruction NewAnswer(int n) {
+        return new Instruction(Opcode.NEW_ANSWER, n, null, null);
+    }
+
+    /** The whole code of a predicate stored as a {@link FactStore} table. The register operand is the arity. */
+    public static Instruction FactLookup(int predicateId, int arity) {
+        return new Instruction(Opcode.FACT_LOOKUP, arity, SymbolTable.GLOBAL.signature(predicateId), predicateId, null);
+    }
+
+    /**
+     * The entry of a parallel conjunction: the n arguments A1..An hold the variables of its
+     * k goals, which are described by the k PAR_GOAL instructions that follow.
+     */
+    public static Instruction ParCall(int arity, int goals) {
+        return new Instruction(Opcode.PAR_CALL, arity, null, goals, null);
+    }
+
+    /**
+     * One goal of a parallel conjunction.
+     * @param registers Bit i-1 is set if the goal uses argument Ai.
+     * @param driverLabel The code that runs the goal on its arguments and records its answers.
+     */
+    public static Instruction ParGoal(int registers, String driverLabel) {
+        return new Instruction(Opcode.PAR_GOAL, 0, null, registers, driverLabel);
+    }
+
+    /** A null label means "no clause can match": the VM fails. */
+    public static Instruction SwitchOnTerm(int reg, String constantLabel, String structureLabel) {
+        Instruction instr = new Instruction(Opcode.SWITCH_ON_TERM, reg, null, constantLabel);
+        instr.label2 = structureLabel;
+        return instr;
+    }
+
+    public static Instruction SwitchOnConstant(int reg, Map<Integer, String> table, String defaultLabel) {
+        Instruction instr = new Instruction(Opcode.SWITCH_ON_CONSTANT, reg, null, defaultLabel);
+        instr.table = table;
+        return instr;
+    }
+
+    public static Instruction SwitchOnStructure(int reg, Map<Integer, String> table, String defaultLabel) {
+        Instruction instr = new Instruction(Opcode.SWITCH_ON_STRUCTURE, reg, null, defaultLabel);
+        instr.table = table;
+        return instr;
+    }
+
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        sb.append(String.format("%-16s", op)); // Left-align opcode in 16 chars
+        sb.append(String.format("%-20s", op)); // Left-align opcode in 20 chars
 
-        if (op == Opcode.CALL || op == Opcode.TRY_ME_ELSE || op == Opcode.RETRY_ME_ELSE || op == Opcode.TRUST_ME) {
+        if (op == Opcode.CALL) {
+            sb.append(String.format("%s, %d", label, reg)); // Callee, then the trimmed environment size
+        } else if (op == Opcode.EXECUTE || op == Opcode.TRY_ME_ELSE || op == Opcode.RETRY_ME_ELSE || op == Opcode.TRUST_ME
+                || op == Opcode.TRY || op == Opcode.RETRY || op == Opcode.TRUST) {
             sb.append(label);
+        } else if (op == Opcode.ALLOCATE || op == Opcode.NEW_ANSWER) {
+            sb.append(reg); // Number of permanent variable slots
+        } else if (op == Opcode.FACT_LOOKUP) {
+            sb.append(name); // The predicate whose table to search
+        } else if (op == Opcode.PAR_CALL) {
+            sb.append(String.format("%d, %d goals", reg, symbol)); // Arguments, then goals
+        } else if (op == Opcode.PAR_GOAL) {
+            sb.append(String.format("%s, %s", Integer.toBinaryString(symbol), label)); // Argument mask, then driver
+        } else if (op == Opcode.TABLE_CALL) {
+            sb.append(String.format("%s, %s", name, label)); // Predicate, then its driver
+        } else if (op == Opcode.SWITCH_ON_TERM) {
+            sb.append(String.format("A%d, con: %s, str: %s", reg, label, label2));
+        } else if (op == Opcode.SWITCH_ON_CONSTANT || op == Opcode.SWITCH_ON_STRUCTURE) {
+            sb.append(String.format("A%d, %d cases, else: %s", reg, table.size(), label));
         } else {
             if (reg > 0) {
                 sb.append(String.format("A%-2d", reg)); // Argument register
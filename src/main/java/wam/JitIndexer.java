@@ -0,0 +1,261 @@
+package wam;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static wam.WamWord.*;
+
+/**
+ * Demand-driven ("just-in-time") multi-argument indexing.
+ * <p>
+ * The static first-argument index (SWITCH_ON_TERM) cannot help a call such as
+ * {@code parent(X, leia)}, where only the second argument is bound. Instead of indexing every
+ * argument of every predicate up front, the machine reports each call of a large predicate to
+ * this class through the JIT_SWITCH instruction:
+ * <ul>
+ *   <li>For every argument position it counts how often the argument is bound at call time.</li>
+ *   <li>Once a position has been bound {@link #BUILD_THRESHOLD} times, an index for it is built
+ *       on a background thread from the clause keys recorded by the compiler. Calls keep using
+ *       the normal clause chain until the index is published.</li>
+ *   <li>Later calls with that argument bound jump straight to the clauses that can match it.
+ *       If several indexes apply, the one with the fewest candidate clauses wins.</li>
+ *   <li>Every {@link #SWEEP_INTERVAL} calls, indexes that have not been used for
+ *       {@link #IDLE_LIMIT} calls are dropped to bound memory; they are rebuilt if the call
+ *       pattern comes back.</li>
+ * </ul>
+ * One indexer belongs to one machine: call counting is single-threaded, and the only state
+ * shared with the builder thread is the per-position index slot and "building" flag.
+ */
+public class JitIndexer {
+
+    /** Bound calls on an argument position before an index is built for it. */
+    public static final int BUILD_THRESHOLD = 8;
+
+    /** Calls of a predicate between two sweeps for unused indexes. */
+    public static final int SWEEP_INTERVAL = 1 << 12;
+
+    /** Calls of a predicate an index may go unused before it is dropped. */
+    public static final int IDLE_LIMIT = 1 << 16;
+
+    /** Builds indexes off the execution thread. Daemon threads, so they never keep the JVM alive. */
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "jit-index-builder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** An index on one argument position of one predicate. Immutable once published. */
+    static final class ArgIndex {
+        final SwitchTable table;  // key -> position in 'buckets'
+        final int[][] buckets;    // clause entries that can match each key, in program order
+        final int[] unkeyed;      // clause entries that match any key (variable argument)
+        long lastUsed;            // predicate call count at the last lookup (machine thread only)
+
+        ArgIndex(SwitchTable table, int[][] buckets, int[] unkeyed, long lastUsed) {
+            this.table = table;
+            this.buckets = buckets;
+            this.unkeyed = unkeyed;
+            this.lastUsed = lastUsed;
+        }
+
+        int[] lookup(int key) {
+            int bucket = table.get(key, -1);
+            return bucket < 0 ? unkeyed : buckets[bucket];
+        }
+    }
+
+    /** Call statistics and indexes of one predicate. */
+    private static final class PredicateState {
+        final PredicateInfo info;
+        final AtomicReferenceArray<ArgIndex> indexes;
+        final AtomicIntegerArray building; // 1 while a build for that position is queued or running
+        final int[] boundCalls;
+        final int firstPosition;           // 1 if the static index already covers argument 0
+        long calls = 0;
+        long nextSweep = SWEEP_INTERVAL;
+
+        PredicateState(PredicateInfo info) {
+            this.info = info;
+            this.indexes = new AtomicReferenceArray<>(info.arity);
+            this.building = new AtomicIntegerArray(info.arity);
+            this.boundCalls = new int[info.arity];
+            this.firstPosition = hasKeyedClause(info, 0) ? 1 : 0;
+        }
+    }
+
+    private final WamMachine vm;
+    private final PredicateState[] states;
+
+    /** The argument position and key behind the list returned by the last successful select(). */
+    int selectedArg;
+    int selectedKey;
+
+    /** Statistics: indexes built and dropped so far. */
+    public volatile int built = 0;
+    public volatile int dropped = 0;
+
+    JitIndexer(WamMachine vm, LinkedProgram program) {
+        this.vm = vm;
+        this.states = new PredicateState[program.predicates.length];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new PredicateState(program.predicates[i]);
+        }
+    }
+
+    /**
+     * Observes a call and picks the clauses to try.
+     * @param pred The predicate's index in {@link LinkedProgram#predicates}.
+     * @return The entries of the clauses that can match, in program order, or null if no
+     *         index applies and the predicate's normal clause chain should run.
+     */
+    int[] select(int pred) {
+        PredicateState st = states[pred];
+        long now = ++st.calls;
+        if (now >= st.nextSweep) sweep(st, now);
+
+        // A bound first argument is handled by the static switch that follows JIT_SWITCH.
+        if (st.firstPosition == 1 && tag(vm.deref(vm.regs[1])) != REF) return null;
+
+        int[] best = null;
+        for (int k = st.firstPosition; k < st.info.arity; k++) {
+            int key = keyOf(vm.deref(vm.regs[k + 1]));
+            if (key == PredicateInfo.VAR) continue;
+
+            ArgIndex index = st.indexes.get(k);
+            if (index == null) {
+                if (++st.boundCalls[k] >= BUILD_THRESHOLD && st.building.compareAndSet(k, 0, 1)) {
+                    scheduleBuild(st, k, now);
+                }
+                continue;
+            }
+            index.lastUsed = now;
+            int[] candidates = index.lookup(key);
+            if (best == null || candidates.length < best.length) {
+                best = candidates;
+                selectedArg = k;
+                selectedKey = key;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the candidate list chosen by an earlier select(), for backtracking into it.
+     * If the index has been dropped in the meantime the list is recomputed; it is a pure
+     * function of the clause keys, so the result is the same.
+     */
+    int[] lookup(int pred, int arg, int key) {
+        PredicateState st = states[pred];
+        ArgIndex index = st.indexes.get(arg);
+        if (index != null) return index.lookup(key);
+        return candidatesFor(st.info, arg, key);
+    }
+
+    // --- BUILDING AND DROPPING ---
+
+    private void scheduleBuild(PredicateState st, int arg, long now) {
+        BUILDER.execute(() -> {
+            try {
+                st.indexes.set(arg, build(st.info, arg, now));
+                built++;
+            } finally {
+                st.building.set(arg, 0);
+            }
+        });
+    }
+
+    /** Builds the index of one argument position from the clause keys. */
+    static ArgIndex build(PredicateInfo info, int arg, long now) {
+        List<Integer> unkeyed = new ArrayList<>();
+        Map<Integer, List<Integer>> keyed = new LinkedHashMap<>();
+        for (int c = 0; c < info.clauseCount(); c++) {
+            int key = info.key(c, arg);
+            if (key == PredicateInfo.VAR) {
+                unkeyed.add(c);
+            } else {
+                keyed.computeIfAbsent(key, k -> new ArrayList<>()).add(c);
+            }
+        }
+
+        int[] unkeyedEntries = entries(info, unkeyed);
+        int[][] buckets = new int[keyed.size()][];
+        Map<Integer, Integer> slots = new HashMap<>();
+        int b = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : keyed.entrySet()) {
+            buckets[b] = mergeEntries(info, entry.getValue(), unkeyed);
+            slots.put(entry.getKey(), b);
+            b++;
+        }
+        return new ArgIndex(new SwitchTable(slots), buckets, unkeyedEntries, now);
+    }
+
+    private void sweep(PredicateState st, long now) {
+        st.nextSweep = now + SWEEP_INTERVAL;
+        for (int k = 0; k < st.info.arity; k++) {
+            ArgIndex index = st.indexes.get(k);
+            if (index != null && now - index.lastUsed > IDLE_LIMIT) {
+                st.indexes.set(k, null);
+                st.boundCalls[k] = 0;
+                dropped++;
+            }
+        }
+    }
+
+    // --- HELPERS ---
+
+    /** The index key of a dereferenced argument: its atom or functor id, or VAR if unbound. */
+    private int keyOf(long word) {
+        switch (tag(word)) {
+            case CON: return value(word);
+            case STR: return value(vm.heap[value(word)]);
+            default: return PredicateInfo.VAR;
+        }
+    }
+
+    /** Scans the clause keys for the candidates of one key, without an index. */
+    private static int[] candidatesFor(PredicateInfo info, int arg, int key) {
+        List<Integer> matches = new ArrayList<>();
+        for (int c = 0; c < info.clauseCount(); c++) {
+            int k = info.key(c, arg);
+            if (k == key || k == PredicateInfo.VAR) matches.add(c);
+        }
+        return entries(info, matches);
+    }
+
+    private static boolean hasKeyedClause(PredicateInfo info, int arg) {
+        if (info.arity <= arg) return false;
+        for (int c = 0; c < info.clauseCount(); c++) {
+            if (info.key(c, arg) != PredicateInfo.VAR) return true;
+        }
+        return false;
+    }
+
+    private static int[] entries(PredicateInfo info, List<Integer> clauses) {
+        int[] result = new int[clauses.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = info.clauseEntries[clauses.get(i)];
+        }
+        return result;
+    }
+
+    /** Merges two ascending clause lists and returns their entries, in program order. */
+    private static int[] mergeEntries(PredicateInfo info, List<Integer> a, List<Integer> b) {
+        int[] result = new int[a.size() + b.size()];
+        int i = 0, j = 0, n = 0;
+        while (i < a.size() || j < b.size()) {
+            if (j == b.size() || (i < a.size() && a.get(i) < b.get(j))) {
+                result[n++] = info.clauseEntries[a.get(i++)];
+            } else {
+                result[n++] = info.clauseEntries[b.get(j++)];
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,383 @@
+package wam;
+
+import ast.SymbolTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * A precompiled knowledge base on disk: a {@link LinkedProgram} written once, then opened by
+ * any number of later processes without parsing or compiling the source again.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *   header   magic "WAMI", format version, instruction set fingerprint,
+ *            source length and CRC-32C, payload length and CRC-32C
+ *   payload  sources   count, then (path, length, CRC-32C) per fact file loaded with the source
+ *            symbols   count, then (arity, name) per symbol id
+ *            code      length, then the linked int[] code area
+ *            stubs     JIT_RETRY, TABLE_RETRY, FACT_RETRY, STOLEN_RETRY and PAR_RETRY addresses
+ *            labels    count, then (label, address) per predicate entry
+ *            switches  count, then (size, key/target pairs) per SwitchTable
+ *            indexes   count, then (functor, arity, clauses, entries, keys) per PredicateInfo
+ *            facts     count, then per FactStore either 0 and (functor, arity, rows, sorted,
+ *                      then per column the dictionary size, dictionary and codes) for
+ *                      FactColumns, or 1 and the path of a FactSegment, which stays in its file
+ * </pre>
+ * The file is opened with {@link FileChannel#map}, so the operating system pages it in on
+ * demand and processes loading the same image share its pages in the page cache. The code is
+ * then copied into an int[] with one bulk read, because the execution loop indexes a plain array.
+ * <p>
+ * Symbol ids depend on the order in which symbols were interned, so the image stores the names
+ * of all symbols and, on loading, maps each old id to this process's id for the same symbol.
+ * Only the operands that hold symbol ids are rewritten, and only if some id actually differs.
+ * <p>
+ * Fact files bulk-loaded into the image are recorded with their length and checksum, like the
+ * source, so that the image is reported as stale when one of them changes.
+ * <p>
+ * Only the labels of predicate entries are kept: a query can only call predicates, and every
+ * other label is already resolved in the code. For the same reason the clause labels of
+ * {@link PredicateInfo} are not stored.
+ */
+public final class KbImage {
+
+    private static final int MAGIC = 0x57414D49; // "WAMI"
+
+    /** Bumped whenever the layout above changes. */
+    private static final int FORMAT_VERSION = 6;
+
+    /** Size of the header, in bytes. */
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 4 + 8 + 4;
+
+    /** The instructions whose ARG operand is a symbol id (constant, functor or called predicate). */
+    private static final Set<Opcode> SYMBOL_OPERANDS = EnumSet.of(
+            Opcode.PUT_CONSTANT, Opcode.GET_CONSTANT, Opcode.UNIFY_CONSTANT,
+            Opcode.PUT_STRUCTURE, Opcode.GET_STRUCTURE,
+            Opcode.CALL, Opcode.EXECUTE, Opcode.TABLE_CALL);
+
+    private KbImage() {
+    }
+
+    /**
+     * Writes a linked program to an image file.
+     * @param program A program without a query (see {@link Linker#link}).
+     * @param source The knowledge base source it was compiled from, to detect a stale image later.
+     * @param factFiles The fact files whose facts the program holds in its fact tables.
+     */
+    public static void write(LinkedProgram program, byte[] source, List<Path> factFiles, Path image) throws IOException {
+        program = program.withoutQuery();
+        SymbolTable symbols = SymbolTable.GLOBAL;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(factFiles.size());
+        for (Path file : factFiles) {
+            long[] checksum = checksum(file);
+            writeString(out, file.toAbsolutePath().toString());
+            out.writeLong(checksum[0]);
+            out.writeInt((int) checksum[1]);
+        }
+
+        int symbolCount = symbols.size();
+        out.writeInt(symbolCount);
+        for (int id = 0; id < symbolCount; id++) {
+            out.writeInt(symbols.arity(id));
+            writeString(out, symbols.name(id));
+        }
+
+        out.writeInt(program.code.length);
+        for (int word : program.code) {
+            out.writeInt(word);
+        }
+        out.writeInt(program.jitRetry);
+        out.writeInt(program.tableRetry);
+        out.writeInt(program.factRetry);
+        out.writeInt(program.stolenRetry);
+        out.writeInt(program.parallelRetry);
+
+        // The entry label of a predicate is its signature; everything else is internal.
+        Map<String, Integer> entries = new HashMap<>();
+        for (int id = 0; id < symbolCount; id++) {
+            Integer address = program.labels.get(symbols.signature(id));
+            if (address != null) entries.put(symbols.signature(id), address);
+        }
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Integer> entry : entries.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+
+        out.writeInt(program.switchTables.length);
+        for (SwitchTable table : program.switchTables) {
+            Map<Integer, Integer> map = table.entries();
+            out.writeInt(map.size());
+            for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+
+        out.writeInt(program.predicates.length);
+        for (PredicateInfo info : program.predicates) {
+            out.writeInt(info.functorId);
+            out.writeInt(info.arity);
+            out.writeInt(info.clauseCount());
+            for (int entry : info.clauseEntries) {
+                out.writeInt(entry);
+            }
+            for (int key : info.keys) {
+                out.writeInt(key);
+            }
+        }
+
+        out.writeInt(program.factTables.length);
+        for (FactStore store : program.factTables) {
+            if (store instanceof FactSegment segment) {
+                out.writeByte(1);
+                writeString(out, segment.path.toAbsolutePath().toString());
+                continue;
+            }
+            FactColumns table = (FactColumns) store;
+            out.writeByte(0);
+            out.writeInt(table.functorId);
+            out.writeInt(table.arity);
+            out.writeInt(table.rows);
+            out.writeBoolean(table.sorted);
+            for (int k = 0; k < table.arity; k++) {
+                int[] dictionary = table.dictionary(k);
+                out.writeInt(dictionary.length);
+                for (int id : dictionary) {
+                    out.writeInt(id);
+                }
+                for (int code : table.codes(k)) {
+                    out.writeInt(code);
+                }
+            }
+        }
+        out.flush();
+
+        byte[] payload = bytes.toByteArray();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(FORMAT_VERSION);
+        header.putInt(instructionSet());
+        header.putLong(source.length);
+        header.putInt(crc(ByteBuffer.wrap(source)));
+        header.putLong(payload.length);
+        header.putInt(crc(ByteBuffer.wrap(payload)));
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(image, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header);
+            ByteBuffer body = ByteBuffer.wrap(payload);
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+        }
+    }
+
+    /**
+     * Opens an image and checks it against the source and fact files it should have been built from.
+     * @param source The current knowledge base source, or null to skip the staleness checks.
+     * @throws KbImageException If the image is damaged, was written by an incompatible version,
+     *                          or is stale relative to the source.
+     */
+    public static LinkedProgram load(Path image, byte[] source) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(image, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new KbImageException(image + " is not a knowledge base image");
+        }
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION || buffer.getInt() != instructionSet()) {
+            throw new KbImageException(image + " was written by an incompatible version of the compiler; rebuild it");
+        }
+        long sourceLength = buffer.getLong();
+        int sourceCrc = buffer.getInt();
+        if (source != null && (sourceLength != source.length || sourceCrc != crc(ByteBuffer.wrap(source)))) {
+            throw new KbImageException(image + " is stale: the knowledge base source has changed since it was built; rebuild it");
+        }
+        long payloadLength = buffer.getLong();
+        int payloadCrc = buffer.getInt();
+        if (payloadLength != buffer.capacity() - HEADER_SIZE || payloadCrc != crc(buffer.slice())) {
+            throw new KbImageException(image + " is damaged (checksum mismatch); rebuild it");
+        }
+        int factFiles = buffer.getInt();
+        for (int i = 0; i < factFiles; i++) {
+            Path file = Path.of(readString(buffer));
+            long length = buffer.getLong();
+            int crc = buffer.getInt();
+            if (source == null) continue;
+            if (!Files.isRegularFile(file)) {
+                throw new KbImageException(image + " is stale: its fact file " + file + " no longer exists; rebuild it");
+            }
+            long[] checksum = checksum(file);
+            if (checksum[0] != length || (int) checksum[1] != crc) {
+                throw new KbImageException(image + " is stale: the fact file " + file + " has changed since it was built; rebuild it");
+            }
+        }
+        return read(buffer);
+    }
+
+    /** Reads the payload, remapping symbol ids to this process's symbol table. */
+    private static LinkedProgram read(ByteBuffer in) throws IOException {
+        SymbolTable symbols = SymbolTable.GLOBAL;
+        int symbolCount = in.getInt();
+        int[] remap = new int[symbolCount];
+        boolean identity = true;
+        for (int id = 0; id < symbolCount; id++) {
+            int arity = in.getInt();
+            remap[id] = symbols.functor(readString(in), arity);
+            identity &= remap[id] == id;
+        }
+
+        int[] code = new int[in.getInt()];
+        IntBuffer words = in.asIntBuffer();
+        words.get(code);
+        in.position(in.position() + code.length * 4);
+        int jitRetry = in.getInt();
+        int tableRetry = in.getInt();
+        int factRetry = in.getInt();
+        int stolenRetry = in.getInt();
+        int parallelRetry = in.getInt();
+
+        Map<String, Integer> labels = new HashMap<>();
+        int labelCount = in.getInt();
+        for (int i = 0; i < labelCount; i++) {
+            String label = readString(in);
+            labels.put(label, in.getInt());
+        }
+
+        SwitchTable[] switchTables = new SwitchTable[in.getInt()];
+        for (int t = 0; t < switchTables.length; t++) {
+            Map<Integer, Integer> entries = new HashMap<>();
+            int size = in.getInt();
+            for (int i = 0; i < size; i++) {
+                int key = in.getInt();
+                entries.put(identity ? key : remap[key], in.getInt());
+            }
+            switchTables[t] = new SwitchTable(entries);
+        }
+
+        PredicateInfo[] predicates = new PredicateInfo[in.getInt()];
+        for (int i = 0; i < predicates.length; i++) {
+            int functorId = in.getInt();
+            int arity = in.getInt();
+            int clauses = in.getInt();
+            int[] entries = new int[clauses];
+            for (int c = 0; c < clauses; c++) {
+                entries[c] = in.getInt();
+            }
+            int[] keys = new int[clauses * arity];
+            for (int k = 0; k < keys.length; k++) {
+                int key = in.getInt();
+                keys[k] = identity || key == PredicateInfo.VAR ? key : remap[key];
+            }
+            predicates[i] = new PredicateInfo(identity ? functorId : remap[functorId], arity,
+                    new String[clauses], entries, keys);
+        }
+
+        FactStore[] factTables = new FactStore[in.getInt()];
+        for (int i = 0; i < factTables.length; i++) {
+            if (in.get() == 1) {
+                // Segments name their atoms, so they need no remapping.
+                factTables[i] = FactSegment.open(Path.of(readString(in)));
+                continue;
+            }
+            int functorId = in.getInt();
+            int arity = in.getInt();
+            int rows = in.getInt();
+            boolean sorted = in.get() != 0;
+            int[][] dictionaries = new int[arity][];
+            int[][] codes = new int[arity][rows];
+            for (int k = 0; k < arity; k++) {
+                dictionaries[k] = new int[in.getInt()];
+                in.asIntBuffer().get(dictionaries[k]);
+                in.position(in.position() + dictionaries[k].length * 4);
+                in.asIntBuffer().get(codes[k]);
+                in.position(in.position() + rows * 4);
+            }
+            FactColumns table = new FactColumns(functorId, rows, sorted, dictionaries, codes);
+            if (!identity) {
+                // Dictionaries and sorted rows follow the order of symbol ids, which has changed.
+                FactColumns old = table;
+                table = new FactColumns(remap[functorId], arity, rows, (r, k) -> remap[old.symbol(r, k)], sorted);
+            }
+            factTables[i] = table;
+        }
+
+        if (!identity) remapCode(code, remap);
+        return new LinkedProgram(code, labels, switchTables, predicates, factTables, jitRetry, tableRetry, factRetry,
+                stolenRetry, parallelRetry);
+    }
+
+    private static void remapCode(int[] code, int[] remap) {
+        for (int p = 0; p < code.length; p += LinkedProgram.WIDTH) {
+            int arg = code[p + LinkedProgram.ARG];
+            if (arg >= 0 && SYMBOL_OPERANDS.contains(Opcode.VALUES[code[p + LinkedProgram.OP]])) {
+                code[p + LinkedProgram.ARG] = remap[arg];
+            }
+        }
+    }
+
+    // --- HELPERS ---
+
+    /** A fingerprint of the opcode numbering. Code from a build with other opcodes cannot run. */
+    private static int instructionSet() {
+        return EnumSet.allOf(Opcode.class).toString().hashCode();
+    }
+
+    private static int crc(ByteBuffer data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+
+    /** The length and CRC-32C of a file, read through a fixed buffer. */
+    private static long[] checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        long length = 0;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                length += buffer.remaining();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return new long[]{length, crc.getValue()};
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] utf8 = new byte[in.getInt()];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
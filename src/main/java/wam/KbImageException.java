@@ -0,0 +1,16 @@
+package wam;
+
+import java.io.IOException;
+
+/**
+ * Raised when a {@link KbImage} cannot be used: it is not an image, it was written by an
+ * incompatible compiler, its contents are damaged, or it is stale because the knowledge base
+ * source has changed since it was built. The message says which, and that the image must be rebuilt.
+ */
+public class KbImageException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public KbImageException(String message) {
+        super(message);
+    }
+}
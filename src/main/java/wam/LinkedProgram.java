@@ -0,0 +1,126 @@
+package wam;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A program that has been through the {@link Linker} and is ready to run.
+ * <p>
+ * The code area is a flat {@code int[]}: every instruction occupies {@link #WIDTH} consecutive
+ * ints, and every jump target is already resolved to an index into this array.
+ * <pre>
+ *   code[p + OP]     the opcode (its ordinal in {@link Opcode})
+ *   code[p + REG]    the register operand (A1, A2, ...)
+ *   code[p + ARG]    the symbol id (constants, functors, called predicate) or the source register
+ *   code[p + LABEL]  the resolved jump target, or -1 for an undefined procedure
+ * </pre>
+ * The indexing instructions reuse these slots: SWITCH_ON_TERM keeps its constant target in ARG
+ * and its structure target in LABEL; SWITCH_ON_CONSTANT and SWITCH_ON_STRUCTURE keep the index
+ * of their {@link SwitchTable} in ARG and the default target in LABEL. A target of -1 in an
+ * indexing instruction means that no clause can match. JIT_SWITCH keeps the arity in REG and the
+ * index of its {@link PredicateInfo} in ARG. TABLE_CALL keeps the arity in REG, the predicate in ARG
+ * and the address of its driver in LABEL. FACT_LOOKUP keeps the arity in REG and the index of its
+ * {@link FactStore} in ARG. PAR_CALL keeps its number of arguments in REG and of goals in ARG;
+ * each PAR_GOAL after it keeps the mask of its argument registers in ARG and its driver in LABEL.
+ * <p>
+ * Nothing changes a linked program: the machine only reads its code, and queries are linked
+ * into a copy or into a region no other machine uses. So one program can be run by machines on
+ * several threads at once (see {@link MachinePool}).
+ */
+public class LinkedProgram {
+
+    /** The source of {@link #version} numbers. */
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    /** Number of ints occupied by each instruction. */
+    public static final int WIDTH = 4;
+
+    // Operand offsets inside an instruction.
+    public static final int OP = 0;
+    public static final int REG = 1;
+    public static final int ARG = 2;
+    public static final int LABEL = 3;
+
+    /** The encoded instructions. */
+    public final int[] code;
+
+    /** The label table, now holding code-array indices. Only used for lookups from outside the VM. */
+    public final Map<String, Integer> labels;
+
+    /** The hash tables of the SWITCH_ON_CONSTANT / SWITCH_ON_STRUCTURE instructions. */
+    public final SwitchTable[] switchTables;
+
+    /** Clause metadata of the predicates with a JIT_SWITCH, indexed by that instruction's ARG. */
+    public final PredicateInfo[] predicates;
+
+    /** The tables of the FACT_LOOKUP instructions, indexed by their ARG. */
+    public final FactStore[] factTables;
+
+    /** Address of the JIT_RETRY stub that choice points created by JIT_SWITCH resume at. */
+    public final int jitRetry;
+
+    /** Address of the TABLE_RETRY stub that choice points created by TABLE_CALL resume at. */
+    public final int tableRetry;
+
+    /** Address of the FACT_RETRY stub that choice points created by FACT_LOOKUP resume at. */
+    public final int factRetry;
+
+    /** Address of the STOLEN_RETRY stub that choice points given to another worker resume at (see {@link OrParallel}). */
+    public final int stolenRetry;
+
+    /** Address of the PAR_RETRY stub that choice points created by PAR_CALL resume at. */
+    public final int parallelRetry;
+
+    /** Start of the query region: the first code index after the program (see {@link Linker#linkQuery}). */
+    public final int queryBase;
+
+    /** Where execution starts: the query. */
+    public final int entry;
+
+    /** For a program extended with a query: the program without it. Null otherwise. */
+    public final LinkedProgram base;
+
+    /**
+     * Identifies the knowledge base: unique to each linked program, and shared by the programs
+     * that only add a query to it. Answers computed under one version are stale under any other.
+     */
+    public final long version;
+
+    /** A complete program; its query, if any, comes first. */
+    public LinkedProgram(int[] code, Map<String, Integer> labels, SwitchTable[] switchTables,
+                         PredicateInfo[] predicates, FactStore[] factTables,
+                         int jitRetry, int tableRetry, int factRetry, int stolenRetry, int parallelRetry) {
+        this(code, labels, switchTables, predicates, factTables, jitRetry, tableRetry, factRetry, stolenRetry,
+                parallelRetry, code.length, 0, null);
+    }
+
+    public LinkedProgram(int[] code, Map<String, Integer> labels, SwitchTable[] switchTables,
+                         PredicateInfo[] predicates, FactStore[] factTables,
+                         int jitRetry, int tableRetry, int factRetry, int stolenRetry, int parallelRetry,
+                         int queryBase, int entry, LinkedProgram base) {
+        this.code = code;
+        this.labels = labels;
+        this.switchTables = switchTables;
+        this.predicates = predicates;
+        this.factTables = factTables;
+        this.jitRetry = jitRetry;
+        this.tableRetry = tableRetry;
+        this.factRetry = factRetry;
+        this.stolenRetry = stolenRetry;
+        this.parallelRetry = parallelRetry;
+        this.queryBase = queryBase;
+        this.entry = entry;
+        this.base = base;
+        this.version = base == null ? VERSIONS.incrementAndGet() : base.version;
+    }
+
+    /** The program without any query linked against it. */
+    public LinkedProgram withoutQuery() {
+        return base == null ? this : base;
+    }
+
+    /** The number of instructions in the code area. */
+    public int size() {
+        return code.length / WIDTH;
+    }
+}
@@ -0,0 +1,198 @@
+package wam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static wam.LinkedProgram.*;
+
+/**
+ * The linker turns the compiler's symbolic output into executable code.
+ * <p>
+ * {@link Compiler} produces a list of {@link Instruction} objects whose jump targets are string
+ * labels (e.g., "parent/2" or "parent/2_clause1"). Resolving those labels through a HashMap on
+ * every CALL is too slow, so this stage resolves every label, register and symbol operand
+ * once, up front, and packs the result into a flat int[] code area.
+ */
+public class Linker {
+
+    /**
+     * Links a compiled program.
+     * @param result The output of {@link Compiler#compile}.
+     * @return The linked program, ready to be loaded into a {@link WamMachine}.
+     */
+    public LinkedProgram link(CompilerResult result) {
+        List<Instruction> instructions = result.code();
+
+        // Step 1: Translate label targets from instruction indices to code-array indices.
+        Map<String, Integer> resolved = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : result.labels().entrySet()) {
+            resolved.put(entry.getKey(), entry.getValue() * WIDTH);
+        }
+
+        // Step 2: Resolve the clause entries of the predicates indexed at runtime.
+        Map<Integer, Integer> predicateIndex = new HashMap<>();
+        PredicateInfo[] predicates = new PredicateInfo[result.predicates().size()];
+        for (int i = 0; i < predicates.length; i++) {
+            PredicateInfo info = result.predicates().get(i);
+            int[] entries = new int[info.clauseCount()];
+            for (int c = 0; c < entries.length; c++) {
+                entries[c] = resolve(info.clauseLabels[c], resolved::get);
+            }
+            predicates[i] = new PredicateInfo(info.functorId, info.arity, info.clauseLabels, entries, info.keys);
+            predicateIndex.put(info.functorId, i);
+        }
+
+        // Fact tables need no linking; FACT_LOOKUP only needs their position.
+        Map<Integer, Integer> factIndex = new HashMap<>();
+        FactStore[] factTables = result.factTables().toArray(new FactStore[0]);
+        for (int i = 0; i < factTables.length; i++) {
+            factIndex.put(factTables[i].functorId, i);
+        }
+
+        // Step 3: Encode every instruction, plus the shared JIT_RETRY, TABLE_RETRY, FACT_RETRY,
+        // STOLEN_RETRY and PAR_RETRY stubs at the end.
+        int[] code = new int[(instructions.size() + 5) * WIDTH];
+        List<SwitchTable> switchTables = new ArrayList<>();
+        encode(instructions, 0, code, resolved::get, switchTables, predicateIndex, factIndex);
+
+        // Choice points created by JIT_SWITCH resume here; the stub finds the next clause itself.
+        int jitRetry = instructions.size() * WIDTH;
+        code[jitRetry + OP] = Opcode.JIT_RETRY.ordinal();
+        code[jitRetry + LABEL] = -1;
+
+        // Choice points created by TABLE_CALL resume here to return the table's next answer.
+        int tableRetry = jitRetry + WIDTH;
+        code[tableRetry + OP] = Opcode.TABLE_RETRY.ordinal();
+        code[tableRetry + LABEL] = -1;
+
+        // Choice points created by FACT_LOOKUP resume here to return the next matching row.
+        int factRetry = tableRetry + WIDTH;
+        code[factRetry + OP] = Opcode.FACT_RETRY.ordinal();
+        code[factRetry + LABEL] = -1;
+
+        // Choice points given away to another OR-parallel worker resume here, only to be skipped.
+        int stolenRetry = factRetry + WIDTH;
+        code[stolenRetry + OP] = Opcode.STOLEN_RETRY.ordinal();
+        code[stolenRetry + LABEL] = -1;
+
+        // Choice points created by PAR_CALL resume here to return the next combination of answers.
+        int parallelRetry = stolenRetry + WIDTH;
+        code[parallelRetry + OP] = Opcode.PAR_RETRY.ordinal();
+        code[parallelRetry + LABEL] = -1;
+
+        return new LinkedProgram(code, resolved, switchTables.toArray(new SwitchTable[0]), predicates,
+                factTables, jitRetry, tableRetry, factRetry, stolenRetry, parallelRetry);
+    }
+
+    /**
+     * Links a compiled query (see {@link Compiler#compileQuery}) against an already linked
+     * program. The query is placed in the query region after the program's code, and its calls
+     * are resolved against the program's labels, so the program itself is never relinked.
+     *
+     * @param program The linked knowledge base. If it already has a query, that one is replaced.
+     * @param query The compiled query, including any auxiliary predicates it needs.
+     * @param area A code array to reuse, holding a copy of the program's code, or null. It is
+     *             only written to if it is not the program's own array and is large enough.
+     * @return The program extended with the query, whose entry point is the query.
+     */
+    public LinkedProgram linkQuery(LinkedProgram program, CompilerResult query, int[] area) {
+        LinkedProgram kb = program.withoutQuery();
+        // The program's own array may be shared with other machines, so it is never written to.
+        int limit = area == null || area == kb.code ? 0 : area.length;
+        return linkQuery(program, query, area, kb.queryBase, limit);
+    }
+
+    /**
+     * Links a compiled query into a given part of a code array, such as the query region a
+     * {@link MachinePool} reserves for one of its machines in the code array they share.
+     * @param area A code array holding the program's code below its query base.
+     * @param base Where the query goes; at or above the program's query base.
+     * @param limit The end of the part of 'area' the query may use. A query that does not fit
+     *              is linked into a new copy of the program instead.
+     */
+    public LinkedProgram linkQuery(LinkedProgram program, CompilerResult query, int[] area, int base, int limit) {
+        LinkedProgram kb = program.withoutQuery();
+        if (!query.predicates().isEmpty() || !query.factTables().isEmpty()) {
+            // The JIT indexer of a machine is sized for the program's predicates only.
+            throw new IllegalStateException("A query cannot define runtime-indexed predicates or fact tables");
+        }
+
+        // Use the given part of the array if the query fits; otherwise copy the program with
+        // headroom, so later queries of similar size fit without another copy.
+        int size = query.code().size() * WIDTH;
+        int[] code = area;
+        if (code == null || base < kb.queryBase || base + size > limit) {
+            base = kb.queryBase;
+            code = Arrays.copyOf(kb.code, base + Math.max(size, QUERY_REGION) * 2);
+        }
+        Map<String, Integer> resolved = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : query.labels().entrySet()) {
+            resolved.put(entry.getKey(), base + entry.getValue() * WIDTH);
+        }
+        int queryBase = base;
+
+        List<SwitchTable> switchTables = new ArrayList<>(Arrays.asList(kb.switchTables));
+        // Labels of the query's own auxiliary predicates shadow the program's.
+        encode(query.code(), queryBase, code, label -> resolved.getOrDefault(label, kb.labels.get(label)),
+                switchTables, Map.of(), Map.of());
+        // Most queries add no switch tables; keep sharing the program's array then.
+        SwitchTable[] tables = switchTables.size() == kb.switchTables.length
+                ? kb.switchTables : switchTables.toArray(new SwitchTable[0]);
+
+        return new LinkedProgram(code, kb.labels, tables, kb.predicates, kb.factTables,
+                kb.jitRetry, kb.tableRetry, kb.factRetry, kb.stolenRetry, kb.parallelRetry, queryBase, queryBase, kb);
+    }
+
+    /** Initial size of a query region, in ints. */
+    static final int QUERY_REGION = 256 * WIDTH;
+
+    /**
+     * Encodes instructions into the code array, starting at code index 'offset'.
+     * @param labels Resolves a label to its code-array index, or null if it is undefined.
+     */
+    private static void encode(List<Instruction> instructions, int offset, int[] code, Function<String, Integer> labels,
+                               List<SwitchTable> switchTables, Map<Integer, Integer> predicateIndex,
+                               Map<Integer, Integer> factIndex) {
+        for (int i = 0; i < instructions.size(); i++) {
+            Instruction instr = instructions.get(i);
+            int p = offset + i * WIDTH;
+
+            code[p + OP] = instr.op.ordinal();
+            code[p + REG] = instr.reg;
+            code[p + ARG] = instr.source >= 0 ? instr.source : instr.symbol;
+            // Unknown labels (calls to undefined predicates) become -1; the VM reports them when reached.
+            code[p + LABEL] = resolve(instr.label, labels);
+
+            if (instr.op == Opcode.SWITCH_ON_TERM) {
+                // Two targets: constants in ARG, structures in LABEL. Unbound falls through.
+                code[p + ARG] = resolve(instr.label, labels);
+                code[p + LABEL] = resolve(instr.label2, labels);
+            } else if (instr.table != null) {
+                // Hash switches: ARG selects the table, LABEL is the default target.
+                Map<Integer, Integer> entries = new HashMap<>();
+                for (Map.Entry<Integer, String> entry : instr.table.entrySet()) {
+                    entries.put(entry.getKey(), resolve(entry.getValue(), labels));
+                }
+                code[p + ARG] = switchTables.size();
+                switchTables.add(new SwitchTable(entries));
+            } else if (instr.op == Opcode.JIT_SWITCH) {
+                // ARG selects the predicate's clause metadata.
+                code[p + ARG] = predicateIndex.get(instr.symbol);
+            } else if (instr.op == Opcode.FACT_LOOKUP) {
+                // ARG selects the predicate's fact table.
+                code[p + ARG] = factIndex.get(instr.symbol);
+            }
+        }
+    }
+
+    /** Resolves a label to a code-array index, or -1 if it is null or undefined. */
+    private static int resolve(String label, Function<String, Integer> labels) {
+        if (label == null) return -1;
+        Integer target = labels.apply(label);
+        return target == null ? -1 : target;
+    }
+}
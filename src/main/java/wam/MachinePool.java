@@ -0,0 +1,135 @@
+package wam;
+
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A pool of machines that run queries against one program from several threads at once.
+ * <p>
+ * A {@link LinkedProgram} never changes once it is linked, so all machines can run the same
+ * one. What each machine needs on its own is small: its heap, stack and trail, its registers
+ * and its JIT indexes. The pool therefore holds
+ * <ul>
+ *   <li>one copy of the program's code, followed by one query region per machine: a machine
+ *       links its queries into its own region (see {@link Linker#linkQuery(LinkedProgram,
+ *       CompilerResult, int[], int, int)}), so no machine ever sees code written by another;</li>
+ *   <li>one {@link TableSpace}, whose answer tables every machine fills and reuses;</li>
+ *   <li>up to {@code size} machines, created on first use.</li>
+ * </ul>
+ * The code therefore takes the same memory whatever the number of threads, and a query costs
+ * no copy of it. A thread leases a machine with {@link #acquire}, loads and runs its queries on
+ * it, and gives it back with {@link #release}:
+ * <pre>
+ *   WamMachine vm = pool.acquire();
+ *   try {
+ *       vm.loadQuery(query);
+ *       for (vm.run(); !vm.fail; vm.run()) { ...; vm.fail = true; vm.backtrack(); }
+ *   } finally {
+ *       pool.release(vm);
+ *   }
+ * </pre>
+ * A machine keeps its memory areas and JIT indexes between leases; {@link WamMachine#reset}
+ * only clears its registers, so the next query starts at once. A query too large for its
+ * region is linked into a private copy of the program instead, like a query of a machine
+ * outside the pool.
+ */
+public final class MachinePool {
+
+    /** Size of each machine's query region, in ints. */
+    static final int REGION_SIZE = 1 << 12;
+
+    private final LinkedProgram program;
+    private final TableSpace tables = new TableSpace();
+    private final int size;
+    private final int heapLimit, stackLimit, trailLimit;
+
+    /** Machines not leased right now. */
+    private final LinkedBlockingQueue<WamMachine> idle = new LinkedBlockingQueue<>();
+
+    /** Number of machines created so far; machine i owns query region i. */
+    private int created = 0;
+
+    /** Creates a pool of up to 'size' machines with the default memory limits. */
+    public MachinePool(LinkedProgram program, int size) {
+        this(program, size, WamMachine.DEFAULT_LIMIT, WamMachine.DEFAULT_LIMIT, WamMachine.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Creates a pool of up to 'size' machines, whose memory areas may grow up to the given
+     * sizes (see {@link WamMachine#WamMachine(int, int, int)}).
+     * @param program The program to run. If it has a query linked against it, that one is dropped.
+     */
+    public MachinePool(LinkedProgram program, int size, int heapLimit, int stackLimit, int trailLimit) {
+        if (size < 1) throw new IllegalArgumentException("A pool needs at least one machine");
+        LinkedProgram kb = program.withoutQuery();
+        // The same program, with room for the query regions after its code.
+        this.program = new LinkedProgram(Arrays.copyOf(kb.code, kb.queryBase + size * REGION_SIZE), kb.labels,
+                kb.switchTables, kb.predicates, kb.factTables, kb.jitRetry, kb.tableRetry, kb.factRetry,
+                kb.stolenRetry, kb.parallelRetry, kb.queryBase, kb.entry, null);
+        this.size = size;
+        this.heapLimit = heapLimit;
+        this.stackLimit = stackLimit;
+        this.trailLimit = trailLimit;
+    }
+
+    /** The program every machine of the pool runs. */
+    public LinkedProgram program() {
+        return program;
+    }
+
+    /** The maximum number of machines. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Leases a machine, waiting until one is free if all of them are leased. The machine is
+     * reset; it still holds the query of its last lease, if any.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public WamMachine acquire() throws InterruptedException {
+        WamMachine vm = idle.poll();
+        if (vm == null) vm = create();
+        if (vm == null) vm = idle.take();
+        vm.reset();
+        return vm;
+    }
+
+    /**
+     * Leases a machine and returns the answers of a query on it (see {@link WamMachine#solve}).
+     * The machine goes back to the pool when the solutions are closed, which happens by itself
+     * once the last answer or the last one allowed by {@link Solutions#limit} has been taken.
+     * @throws InterruptedException If the thread is interrupted while waiting for a machine.
+     */
+    public Solutions solve(CompilerResult query) throws InterruptedException {
+        WamMachine vm = acquire();
+        try {
+            vm.loadQuery(query);
+        } catch (RuntimeException e) {
+            release(vm);
+            throw e;
+        }
+        return new Solutions(vm, query.variables(), this);
+    }
+
+    /** Gives back a machine leased from this pool. It must not be used until it is leased again. */
+    public void release(WamMachine vm) {
+        if (vm.queryEnd <= vm.queryStart || vm.program.withoutQuery() != program) {
+            throw new IllegalArgumentException("The machine does not belong to this pool");
+        }
+        idle.add(vm);
+    }
+
+    /** Creates the next machine, or returns null if the pool already has 'size' of them. */
+    private synchronized WamMachine create() {
+        if (created == size) return null;
+        int region = program.queryBase + created++ * REGION_SIZE;
+        WamMachine vm = new WamMachine(heapLimit, stackLimit, trailLimit);
+        vm.program = program;
+        vm.jit = new JitIndexer(vm, program);
+        vm.tables = tables;
+        vm.queryStart = region;
+        vm.queryEnd = region + REGION_SIZE;
+        return vm;
+    }
+}
@@ -25,18 +25,62 @@ public enum Opcode {
 
     // 'Unify' instructions are for arguments inside structures.
     // They operate in either "read mode" (matching) or "write mode" (building).
-    UNIFY_VARIABLE, // unify_variable Yn
-    UNIFY_VALUE,    // unify_value Yn
+    UNIFY_VARIABLE, // unify_variable Vn (first occurrence of a variable)
+    UNIFY_VALUE,    // unify_value Vn    (later occurrence of a variable)
+    UNIFY_CONSTANT, // unify_constant c
+    UNIFY_VOID,     // unify_void n      (n arguments whose variables occur nowhere else)
 
     // --- Control Flow Instructions ---
     CALL,           // call p/n
+    EXECUTE,        // execute p/n (jump to the last goal of a body, keeping the caller's CP)
     PROCEED,        // proceed (return from a successful query)
     ALLOCATE,       // allocate (create a new stack frame for a rule)
-    DEALLOCATE,     // deallocate (destroy the stack frame and return)
+    DEALLOCATE,     // deallocate (destroy the stack frame and restore CP)
     HALT,           // Stop the machine execution
 
+    // --- Cut Instructions ---
+    // B0 holds the choice point that was newest when the current predicate was called.
+    NECK_CUT,       // neck_cut     (Cut before the first call of a body: B = B0)
+    GET_LEVEL,      // get_level Yn (Save B0 for a cut that comes after a call)
+    CUT,            // cut Yn       (Discard every choice point newer than the saved level)
+
     // --- Indexing and Backtracking Instructions ---
     TRY_ME_ELSE,    // try_me_else L  (Create a choice point, try current clause)
     RETRY_ME_ELSE,  // retry_me_else L (Backtrack to choice point, try next clause)
-    TRUST_ME        // trust_me (Commit to the last clause, remove choice point)
+    TRUST_ME,       // trust_me (Commit to the last clause, remove choice point)
+
+    // 'Try' instructions chain together the clauses of one index bucket. Unlike the '_me_else'
+    // forms they jump to the clause and leave the *next* instruction as the alternative.
+    TRY,            // try L    (Create a choice point, jump to clause L)
+    RETRY,          // retry L  (Update the choice point, jump to clause L)
+    TRUST,          // trust L  (Remove the choice point, jump to clause L)
+
+    // --- First-Argument Indexing Instructions ---
+    SWITCH_ON_TERM,      // switch_on_term Lc, Ls (Dispatch on the type of A1; fall through if it is unbound)
+    SWITCH_ON_CONSTANT,  // switch_on_constant T  (Jump via a hash table of A1's atom)
+    SWITCH_ON_STRUCTURE, // switch_on_structure T (Jump via a hash table of A1's functor)
+
+    // --- Demand-Driven (JIT) Indexing Instructions ---
+    JIT_SWITCH,     // jit_switch p/n (Use or build an index on whichever arguments are bound)
+    JIT_RETRY,      // jit_retry     (Backtrack into the next clause of a JIT index bucket)
+
+    // --- Tabling Instructions ---
+    TABLE_CALL,     // table_call p/n, L (Look up, or evaluate with driver L, the answer table of the call)
+    NEW_ANSWER,     // new_answer n      (Record Y0..Yn-1 as an answer of the table being evaluated, then fail)
+    TABLE_RETRY,    // table_retry       (Backtrack into the next answer of a table)
+
+    // --- Fact Table Instructions ---
+    FACT_LOOKUP,    // fact_lookup p/n (Return the rows of a FactStore table that match A1..An)
+    FACT_RETRY,     // fact_retry      (Backtrack into the next matching row)
+
+    // --- OR-Parallel Instructions ---
+    STOLEN_RETRY,   // stolen_retry (Skip a choice point whose alternatives another worker has taken)
+
+    // --- AND-Parallel Instructions ---
+    PAR_CALL,       // par_call n, k (Run the k goals described next on separate machines if they are independent)
+    PAR_GOAL,       // par_goal M, L (One of those goals: its arguments are the A registers in mask M, its driver is L)
+    PAR_RETRY;      // par_retry     (Backtrack into the next combination of the goals' answers)
+
+    /** All opcodes indexed by ordinal, used to decode the linked int[] code. Never modified. */
+    static final Opcode[] VALUES = values();
 }
\ No newline at end of file
@@ -0,0 +1,164 @@
+package wam;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * OR-parallel execution: several workers, each with a machine of its own, explore different
+ * alternatives of one query's search tree at the same time.
+ * <p>
+ * The search is divided by <i>work sharing through copying</i>, on a fork-join pool:
+ * <ul>
+ *   <li>The first worker runs the query from the start. Every {@link #SHARE_INTERVAL}
+ *       procedure calls, a busy worker checks whether the pool has run out of queued work.
+ *       If so, it gives away its oldest choice point: it copies the heap, stack and trail
+ *       below that choice point and forks them as a new {@link Branch}.</li>
+ *   <li>An idle worker steals the branch from the pool, loads the copy into its own machine
+ *       and backtracks into the choice point, so it runs exactly the alternatives the giver
+ *       would have run next. The giver marks the frame so that it skips those alternatives.</li>
+ *   <li>A choice point that a pending cut could remove is never given away (see
+ *       {@link WamMachine#shareChoicePoint}), so cuts keep their sequential meaning.</li>
+ *   <li>Every worker passes its answers to one consumer, one answer at a time.</li>
+ * </ul>
+ * The workers share the program's code, fact tables and answer tables (see {@link TableSpace});
+ * each has its own JIT indexes. Answers arrive in no particular order, so the mode suits
+ * queries whose solutions are all wanted, such as searches that must be exhaustive.
+ */
+public final class OrParallel {
+
+    /** Procedure calls a worker makes between two checks for idle workers. */
+    static final int SHARE_INTERVAL = 1 << 8;
+
+    private final ForkJoinPool pool;
+
+    /** Creates a pool of workers. Its threads are daemon threads and stay until the JVM exits. */
+    public OrParallel(int workers) {
+        this.pool = new ForkJoinPool(workers);
+    }
+
+    /** The number of workers. */
+    public int workers() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Runs the query loaded in a machine to exhaustion on every worker and passes each answer
+     * to 'answers'. The calls never overlap, but they come from the worker threads. The machine
+     * itself does not run: its program, answer tables and settings are shared with the workers.
+     * @param answers Receives each answer: the query's variables encoded as by
+     *                {@link WamMachine#encode}, in the order of {@link CompilerResult#variables}.
+     * @return The number of answers.
+     * @throws WamResourceError If some branch ran out of memory. The answers of every other
+     *                          branch have been passed on by then.
+     */
+    public long solve(WamMachine query, Consumer<long[]> answers) {
+        Search search = new Search(query, answers);
+        pool.invoke(new Branch(search, null, null));
+        if (search.error != null) throw search.error;
+        return search.count;
+    }
+
+    /** The state of one call of {@link #solve}, shared by its branches. */
+    private static final class Search {
+        final WamMachine query;
+        final Consumer<long[]> answers;
+
+        /** Machines not running a branch right now. At most one per worker is ever created. */
+        final Queue<WamMachine> machines = new ConcurrentLinkedQueue<>();
+
+        long count = 0;
+        WamResourceError error = null;
+
+        Search(WamMachine query, Consumer<long[]> answers) {
+            this.query = query;
+            this.answers = answers;
+        }
+
+        WamMachine machine() {
+            WamMachine vm = machines.poll();
+            if (vm == null) {
+                vm = new WamMachine(query.heapLimit, query.stackLimit, query.trailLimit);
+                vm.program = query.program;
+                vm.jit = new JitIndexer(vm, query.program);
+                vm.tables = query.tables;
+                vm.occursCheck = query.occursCheck;
+                vm.gcEnabled = query.gcEnabled;
+            }
+            return vm;
+        }
+
+        synchronized void answer(long[] answer) {
+            answers.accept(answer);
+            count++;
+        }
+
+        synchronized void failed(WamResourceError e) {
+            if (error == null) error = e;
+        }
+    }
+
+    /**
+     * A share of the search: the whole query, or the remaining alternatives of a choice point
+     * given away by another branch. A branch completes once it and every branch forked from it
+     * have run out of alternatives.
+     */
+    static final class Branch extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are Serializable, but a branch only ever lives in the pool that runs it.
+        private final transient Search search;
+        private final transient WamMachine.SharedChoice start;
+        private transient WamMachine vm;
+
+        private Branch(Search search, Branch parent, WamMachine.SharedChoice start) {
+            super(parent);
+            this.search = search;
+            this.start = start;
+        }
+
+        @Override
+        public void compute() {
+            vm = search.machine();
+            vm.workFor(this);
+            try {
+                if (start == null) {
+                    vm.reset();
+                } else {
+                    vm.resumeShared(start);
+                }
+                for (vm.run(); !vm.fail; vm.run()) {
+                    try {
+                        search.answer(vm.queryAnswer());
+                    } catch (WamResourceError e) {
+                        // A cyclic or oversized answer: reported like a branch out of memory.
+                        search.failed(e);
+                    }
+                    vm.fail = true;
+                    vm.backtrack();
+                }
+                if (vm.resourceError != null) search.failed(vm.resourceError);
+            } finally {
+                vm.workFor(null);
+                search.machines.add(vm);
+                vm = null;
+            }
+            tryComplete();
+        }
+
+        /**
+         * Called by the machine at a procedure call. If the pool has no queued work left for
+         * idle workers, forks the machine's oldest choice point as a new branch.
+         */
+        void offerWork() {
+            if (getPool().getParallelism() == 1 || getSurplusQueuedTaskCount() > 0) return;
+            WamMachine.SharedChoice choice = vm.shareChoicePoint();
+            if (choice != null) {
+                addToPendingCount(1);
+                new Branch(search, this, choice).fork();
+            }
+        }
+    }
+}
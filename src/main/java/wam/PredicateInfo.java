@@ -0,0 +1,49 @@
+package wam;
+
+/**
+ * Describes the clauses of one multi-clause predicate, for indexing at runtime.
+ * <p>
+ * For every clause it records where the clause body starts and, for every argument position,
+ * the "key" of the head argument: the atom id of a constant, the functor id of a structure, or
+ * {@link #VAR} for a variable. Atom and functor ids come from the same symbol table and an atom
+ * is a functor of arity 0, so a key never needs to say which of the two it is.
+ * <p>
+ * The compiler fills in {@link #clauseLabels}; the linker creates a copy with the resolved
+ * {@link #clauseEntries}.
+ */
+public class PredicateInfo {
+
+    /** The key of a head argument that is a variable (it matches anything). */
+    public static final int VAR = -1;
+
+    /** The predicate's functor id, e.g. the id of parent/2. */
+    public final int functorId;
+
+    public final int arity;
+
+    /** The label of each clause body, in program order. */
+    public final String[] clauseLabels;
+
+    /** The code address of each clause body. Null until linked. */
+    public final int[] clauseEntries;
+
+    /** The key of argument k (0-based) of clause c is at keys[c * arity + k]. */
+    public final int[] keys;
+
+    public PredicateInfo(int functorId, int arity, String[] clauseLabels, int[] clauseEntries, int[] keys) {
+        this.functorId = functorId;
+        this.arity = arity;
+        this.clauseLabels = clauseLabels;
+        this.clauseEntries = clauseEntries;
+        this.keys = keys;
+    }
+
+    public int clauseCount() {
+        return clauseLabels.length;
+    }
+
+    /** The key of the head argument at position 'arg' (0-based) of clause 'clause'. */
+    public int key(int clause, int arg) {
+        return keys[clause * arity + arg];
+    }
+}
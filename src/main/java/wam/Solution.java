@@ -0,0 +1,169 @@
+package wam;
+
+import ast.Atom;
+import ast.Structure;
+import ast.SymbolTable;
+import ast.Term;
+import ast.Variable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static wam.WamWord.*;
+
+/**
+ * One answer of a query: the values of all of its variables. It is a copy, so it stays valid
+ * after the machine has moved on to the next answer.
+ * <p>
+ * Values are returned as {@link ast} terms. A variable the answer leaves unbound is a
+ * {@link Variable} named after the first query variable it is bound to, or {@code _G} followed
+ * by a number if it only occurs inside other values, so {@code X = f(Y)} with Y unbound gives
+ * {@code X -> f(Y)} and {@code Y -> Y}.
+ *
+ * @param variables The query's variables (see {@link CompilerResult#variables}).
+ * @param answer Their values, encoded as by {@link WamMachine#encode}.
+ */
+public record Solution(List<String> variables, long[] answer) {
+
+    /** The value of a query variable, or null if the query has no variable of that name. */
+    public Term get(String name) {
+        int i = variables.indexOf(name);
+        return i < 0 ? null : term(answer[i]);
+    }
+
+    /** The values of the query's variables in the order they first occur; hidden ones are left out. */
+    public Map<String, Term> bindings() {
+        Map<String, Term> bindings = new LinkedHashMap<>();
+        for (int i = 0; i < variables.size(); i++) {
+            if (!variables.get(i).startsWith("$")) bindings.put(variables.get(i), term(answer[i]));
+        }
+        return bindings;
+    }
+
+    /** The answer as Prolog prints it, e.g. {@code X = a, Y = f(b)}, or {@code true}. */
+    @Override
+    public String toString() {
+        return format(answer, variables);
+    }
+
+    /** A structure whose arguments are still being converted. */
+    private record Open(int at, int functor, List<Term> args) {
+    }
+
+    /**
+     * Converts the term held by an answer word. Walks the term iteratively, keeping the
+     * structures whose arguments are still being converted on an explicit stack, so a deeply
+     * nested answer cannot overflow the Java stack.
+     */
+    private Term term(long word) {
+        SymbolTable symbols = SymbolTable.GLOBAL;
+        ArrayDeque<Open> open = new ArrayDeque<>();
+        while (true) {
+            Term done;
+            switch (tag(word)) {
+                case REF: {
+                    int first = value(word);
+                    done = new Variable(first < variables.size() ? variables.get(first) : "_G" + first);
+                    break;
+                }
+                case STR: {
+                    int at = value(word);
+                    int functor = value(answer[at]);
+                    open.push(new Open(at, functor, new ArrayList<>(symbols.arity(functor))));
+                    word = answer[at + 1];
+                    continue;
+                }
+                default:
+                    done = new Atom(symbols.name(value(word)), value(word));
+                    break;
+            }
+            // A term is complete: add it to the innermost open structure, and complete every
+            // structure whose last argument it was.
+            while (true) {
+                Open parent = open.peek();
+                if (parent == null) return done;
+                parent.args().add(done);
+                int arity = symbols.arity(parent.functor());
+                if (parent.args().size() < arity) {
+                    word = answer[parent.at() + parent.args().size() + 1];
+                    break;
+                }
+                open.pop();
+                done = new Structure(symbols.name(parent.functor()), parent.args(), parent.functor());
+            }
+        }
+    }
+
+    // --- FORMATTING ---
+
+    /**
+     * Formats an answer as Prolog prints it, e.g. {@code X = a, Y = f(b)}, or {@code true} if
+     * it binds no variable. Unbound variables are named after the query variable they are
+     * bound to, or _G followed by a number.
+     * @param variables The query's variables (see {@link CompilerResult#variables}).
+     */
+    public static String format(long[] answer, List<String> variables) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < variables.size(); i++) {
+            String name = variables.get(i);
+            long word = answer[i];
+            if (name.startsWith("$") || word == ref(i)) continue; // Hidden, or still unbound
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(name).append(" = ");
+            write(answer, word, variables, sb);
+        }
+        return sb.length() == 0 ? "true" : sb.toString();
+    }
+
+    /**
+     * Writes the term held by an answer word. Walks the term iteratively, keeping the
+     * structures still being written on an explicit stack, so a deeply nested answer cannot
+     * overflow the Java stack (the same reason {@link WamMachine#unify} uses a PDL).
+     */
+    private static void write(long[] answer, long word, List<String> variables, StringBuilder sb) {
+        SymbolTable symbols = SymbolTable.GLOBAL;
+        // For each open structure: its offset in the answer, and the argument being written.
+        int[] open = new int[32];
+        int top = 0;
+        while (true) {
+            switch (tag(word)) {
+                case REF: {
+                    int first = value(word);
+                    sb.append(first < variables.size() ? variables.get(first) : "_G" + first);
+                    break;
+                }
+                case STR: {
+                    int at = value(word);
+                    sb.append(symbols.name(value(answer[at]))).append('(');
+                    if (top == open.length) open = Arrays.copyOf(open, top * 2);
+                    open[top++] = at;
+                    open[top++] = 1;
+                    word = answer[at + 1];
+                    continue;
+                }
+                default:
+                    sb.append(symbols.name(value(word)));
+                    break;
+            }
+            // A term is complete: move on to the next argument of the innermost open
+            // structure, closing every structure whose last argument this was.
+            while (true) {
+                if (top == 0) return;
+                int at = open[top - 2];
+                int k = open[top - 1];
+                if (k < symbols.arity(value(answer[at]))) {
+                    open[top - 1] = k + 1;
+                    sb.append(", ");
+                    word = answer[at + k + 1];
+                    break;
+                }
+                sb.append(')');
+                top -= 2;
+            }
+        }
+    }
+}
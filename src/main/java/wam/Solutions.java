@@ -0,0 +1,139 @@
+package wam;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The answers of a query, computed lazily: the machine runs to the next answer only when it is
+ * asked for one, and backtracks into the query's choice points only for the answer after that.
+ * <pre>
+ *   try (Solutions solutions = vm.solve(query).limit(10)) {
+ *       for (Solution s : solutions) { ... s.get("X") ... }
+ *   }
+ * </pre>
+ * Closing the solutions, or taking the last one allowed by {@link #limit}, discards the query's
+ * remaining choice points, so no more of its search tree is explored. The machine may then run
+ * another query. Until then it belongs to the solutions and must not be used otherwise.
+ * <p>
+ * If the machine runs out of memory and no alternative is left to recover with, the call that
+ * was looking for the next answer throws the {@link WamResourceError}.
+ * <p>
+ * An answer is copied out of the machine, and must fit in its heap limit. Without the occurs
+ * check, unification can bind a variable to a term containing it, as {@code p(A, f(A))} does
+ * against {@code p(X, X)}. Such an answer has no finite form, so asking for it throws a
+ * {@link WamResourceError} and closes the solutions.
+ */
+public final class Solutions implements Iterator<Solution>, Iterable<Solution>, AutoCloseable {
+
+    private final WamMachine vm;
+    private final List<String> variables;
+
+    /** For solutions of a {@link MachinePool}: the pool the machine goes back to when they are closed. */
+    private final MachinePool pool;
+
+    /** The next answer, found by {@link #hasNext} but not yet returned. */
+    private Solution next;
+
+    /** Whether the machine has run at all, and whether the solutions are closed. */
+    private boolean started = false, closed = false;
+
+    /** Answers still to be returned before the solutions close themselves. */
+    private long remaining = Long.MAX_VALUE;
+
+    /**
+     * The solutions of the query just loaded into a machine (see {@link WamMachine#solve}).
+     * @param variables The query's variables (see {@link CompilerResult#variables}).
+     */
+    Solutions(WamMachine vm, List<String> variables, MachinePool pool) {
+        this.vm = vm;
+        this.variables = variables;
+        this.pool = pool;
+    }
+
+    /** Stops after at most 'n' more answers; returns these solutions. */
+    public Solutions limit(long n) {
+        if (n < 0) throw new IllegalArgumentException("Negative limit: " + n);
+        remaining = Math.min(remaining, n);
+        if (remaining == 0) {
+            next = null;
+            close();
+        }
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) return true;
+        if (closed) return false;
+        if (!started) {
+            started = true;
+        } else {
+            // Retry the newest choice point, as if the last answer had been rejected.
+            vm.fail = true;
+            vm.backtrack();
+        }
+        vm.run();
+        if (vm.fail) {
+            WamResourceError error = vm.resourceError;
+            close();
+            if (error != null) throw error;
+            return false;
+        }
+        try {
+            next = new Solution(variables, vm.queryAnswer());
+        } catch (WamResourceError e) {
+            // The answer cannot be copied out of the machine (see the class comment).
+            close();
+            throw e;
+        }
+        return true;
+    }
+
+    @Override
+    public Solution next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Solution solution = next;
+        next = null;
+        if (--remaining == 0 || !vm.hasChoices()) close();
+        return solution;
+    }
+
+    /**
+     * False if no answer can follow the ones found so far, so {@link #hasNext} is certain to
+     * be false. Unlike hasNext, this never runs the machine, so a caller can learn that the
+     * last answer was the last one without exploring the rest of the search tree.
+     */
+    public boolean mayHaveMore() {
+        return next != null || !closed;
+    }
+
+    /**
+     * The solutions as a sequential stream. Closing the stream closes the solutions. Prefer
+     * {@link #limit} to {@link Stream#limit}, which stops pulling answers but keeps the choice
+     * points until the stream is closed.
+     */
+    public Stream<Solution> stream() {
+        Spliterator<Solution> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    @Override
+    public Iterator<Solution> iterator() {
+        return this;
+    }
+
+    /** Discards the query's remaining choice points. An answer already found by hasNext is still returned. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        vm.reset();
+        if (pool != null) pool.release(vm);
+    }
+}
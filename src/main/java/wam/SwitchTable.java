@@ -0,0 +1,77 @@
+package wam;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A hash table from symbol ids to code addresses, used by SWITCH_ON_CONSTANT and
+ * SWITCH_ON_STRUCTURE to jump straight to the clauses that can match the first argument.
+ * <p>
+ * It uses open addressing over two primitive arrays, so a lookup is a few array reads and
+ * never boxes an Integer. Tables are built once by the {@link Linker} and never modified.
+ */
+public final class SwitchTable {
+
+    private static final int EMPTY_KEY = -1; // Symbol ids are never negative.
+
+    private final int[] keys;
+    private final int[] targets;
+    private final int mask;
+
+    /**
+     * Builds a table from resolved entries.
+     * @param entries Symbol id to code address.
+     */
+    public SwitchTable(Map<Integer, Integer> entries) {
+        // Keep the load factor at or below 1/2 so probe sequences stay short.
+        int capacity = Integer.highestOneBit(Math.max(4, entries.size() * 2) - 1) << 1;
+        keys = new int[capacity];
+        targets = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY_KEY);
+
+        for (Map.Entry<Integer, Integer> entry : entries.entrySet()) {
+            int slot = slot(entry.getKey());
+            while (keys[slot] != EMPTY_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = entry.getKey();
+            targets[slot] = entry.getValue();
+        }
+    }
+
+    /**
+     * Looks up the code address for a symbol.
+     * @param key The symbol id of the constant or functor.
+     * @param otherwise The address to return when the symbol is not in the table.
+     */
+    public int get(int key, int otherwise) {
+        int slot = slot(key);
+        while (true) {
+            int k = keys[slot];
+            if (k == key) return targets[slot];
+            if (k == EMPTY_KEY) return otherwise;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** The entries of the table, symbol id to code address. Used to save it in a {@link KbImage}. */
+    Map<Integer, Integer> entries() {
+        Map<Integer, Integer> entries = new HashMap<>();
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY_KEY) entries.put(keys[slot], targets[slot]);
+        }
+        return entries;
+    }
+
+    /** The number of slots, for tests and statistics. */
+    public int capacity() {
+        return keys.length;
+    }
+
+    private int slot(int key) {
+        // Symbol ids are dense, so spread them a little before masking.
+        return (key * 0x9E3779B9 >>> 16 ^ key) & mask;
+    }
+}
@@ -0,0 +1,214 @@
+package wam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The answer tables of tabled predicates (declared with {@code :- table p/n.}).
+ * <p>
+ * A call of a tabled predicate is a <i>subgoal</i>. Subgoals are identified up to variable
+ * renaming: {@code path(a, X)} and {@code path(a, Y)} are <i>variants</i> and share one table,
+ * while {@code path(a, b)} gets its own. Each table collects the distinct answers of its subgoal.
+ * <ul>
+ *   <li>The first call of a subgoal evaluates it: a child machine runs the predicate's clauses
+ *       to exhaustion and records every answer (the <i>producer</i>).</li>
+ *   <li>A variant call made while the subgoal is still being evaluated, as in the left-recursive
+ *       {@code path(X, Y) :- path(X, Z), edge(Z, Y)}, does not evaluate it again: it is a
+ *       <i>consumer</i> of the answers found so far. This is what makes left recursion terminate.</li>
+ *   <li>Because a consumer only sees the answers found so far, the oldest subgoal of a group of
+ *       mutually dependent subgoals (the <i>leader</i>) re-runs its evaluation until a pass adds
+ *       no new answer anywhere. Each pass resumes the consumers with the answers found by the
+ *       previous one. At that fixpoint the whole group is <i>complete</i>.</li>
+ *   <li>Calls of a complete subgoal simply return its answers, without running any clause.</li>
+ * </ul>
+ * This is linear tabling: consumers are resumed by re-running their producer rather than by
+ * suspending and restoring their stack segments as SLG-WAM does, which keeps the machine's
+ * frames untouched. Each pass costs one evaluation of the group, and there are at most as many
+ * passes as answers, so a Datalog program such as reachability over a cyclic graph runs in
+ * polynomial time where plain resolution loops forever.
+ * <p>
+ * Terms are stored in the encoded form of {@link WamMachine#encode}, which is identical for
+ * variants, so both the subgoal and the answer tables are plain hash lookups.
+ * <p>
+ * The workers of an {@link OrParallel} search share one table space. {@link #call} and
+ * {@link #table} are synchronized, so one worker at a time evaluates subgoals (an evaluation
+ * runs entirely inside its call); a complete table never changes again and is read without a lock.
+ * Because the evaluating thread holds the lock for the whole evaluation, it runs the parallel
+ * conjunctions of the evaluated clauses sequentially instead of waiting for other threads.
+ */
+public class TableSpace {
+
+    /** An encoded term tuple, usable as a hash key. */
+    static final class Variant {
+        final int pred;
+        final long[] words;
+        private final int hash;
+
+        Variant(int pred, long[] words) {
+            this.pred = pred;
+            this.words = words;
+            this.hash = 31 * pred + Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Variant v && v.pred == pred && Arrays.equals(v.words, words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** The table of one subgoal. */
+    static final class Table {
+        final int id;                  // Index in 'byId', saved in the choice points of consumers
+        final Variant call;            // The subgoal's predicate and encoded arguments
+        final List<long[]> answers = new ArrayList<>();
+        Set<Variant> answerSet = new HashSet<>(); // For duplicate checks; dropped on completion
+        boolean complete = false;
+        boolean running = false;       // A pass of its evaluation is on the Java stack right now
+        int position = -1;             // Index on the completion stack while incomplete
+        int leader;                    // Lowest completion stack position this subgoal depends on
+        long pass = -1;                // The pass in which it was last evaluated
+
+        Table(int id, Variant call) {
+            this.id = id;
+            this.call = call;
+        }
+    }
+
+    private final Map<Variant, Table> tables = new HashMap<>();
+    private final List<Table> byId = new ArrayList<>();
+
+    /** Incomplete subgoals, oldest first. A leader completes everything from its position up. */
+    private final List<Table> completion = new ArrayList<>();
+
+    /** Subgoals whose evaluation is running, innermost last. */
+    private final List<Table> running = new ArrayList<>();
+
+    /** Incremented whenever a leader starts another pass. */
+    private long pass = 0;
+
+    /** Answers added to any table so far. A pass that does not change it reached the fixpoint. */
+    private long answerCount = 0;
+
+    /** Statistics: the number of subgoals tabled so far. */
+    public int subgoals() {
+        return byId.size();
+    }
+
+    /** Statistics: the number of answers stored so far. */
+    public long answers() {
+        return answerCount;
+    }
+
+    synchronized Table table(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Handles a call of a tabled predicate and returns the table whose answers it should use.
+     * @param vm The calling machine; its registers A1..An hold the arguments.
+     * @param driver The address of the predicate's answer-collecting driver code.
+     */
+    synchronized Table call(WamMachine vm, int pred, int arity, int driver) {
+        Variant key = new Variant(pred, vm.encode(vm.regs, 1, arity));
+        Table t = tables.get(key);
+        if (t == null) {
+            t = new Table(byId.size(), key);
+            tables.put(key, t);
+            byId.add(t);
+        }
+        if (t.complete) return t;
+
+        if (t.running) {
+            // A variant of a subgoal being evaluated further out: consume what it has so far.
+            dependOn(t.position);
+        } else if (t.pass == pass) {
+            // Already evaluated in this pass of its leader: its answers are as current as they get.
+            dependOn(t.leader);
+        } else {
+            evaluate(vm, t, arity, driver);
+        }
+        return t;
+    }
+
+    /** Records an answer of a table. Duplicates (variants of a known answer) are ignored. */
+    void addAnswer(Table t, long[] answer) {
+        if (t.answerSet.add(new Variant(-1, answer))) {
+            t.answers.add(answer);
+            answerCount++;
+        }
+    }
+
+    /** Notes that the innermost running evaluation consumed a subgoal of an older group. */
+    private void dependOn(int position) {
+        if (running.isEmpty()) return;
+        Table current = running.get(running.size() - 1);
+        current.leader = Math.min(current.leader, position);
+    }
+
+    /**
+     * Evaluates a subgoal in a child machine. A leader repeats the pass until no new answers
+     * appear, then completes its whole group; any other subgoal runs one pass and leaves the
+     * iteration to its leader.
+     */
+    private void evaluate(WamMachine vm, Table t, int arity, int driver) {
+        if (t.position < 0) {
+            t.position = completion.size();
+            completion.add(t);
+        }
+        t.leader = t.position;
+        running.add(t);
+        WamMachine child = vm.tableChild();
+        try {
+            while (true) {
+                long before = answerCount;
+                t.running = true;
+                child.solveTabled(t, arity, driver);
+                t.running = false;
+                t.pass = pass;
+
+                if (child.resourceError != null) {
+                    // The answers are incomplete; forget the group so a later call starts afresh.
+                    abandon(t.position);
+                    throw child.resourceError;
+                }
+                if (t.leader < t.position) break;
+                if (answerCount == before) {
+                    complete(t.position);
+                    break;
+                }
+                pass++;
+            }
+        } finally {
+            t.running = false;
+            running.remove(running.size() - 1);
+        }
+        dependOn(t.leader);
+    }
+
+    private void complete(int from) {
+        for (int i = from; i < completion.size(); i++) {
+            Table t = completion.get(i);
+            t.complete = true;
+            t.position = -1;
+            t.answerSet = null;
+        }
+        completion.subList(from, completion.size()).clear();
+    }
+
+    private void abandon(int from) {
+        for (int i = from; i < completion.size(); i++) {
+            tables.remove(completion.get(i).call);
+        }
+        completion.subList(from, completion.size()).clear();
+    }
+}
@@ -1,56 +1,151 @@
 package wam;
 
+import ast.SymbolTable;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack; // Added explicit import
+import java.util.concurrent.ForkJoinTask;
+
+import static wam.WamWord.*;
 
 /**
  * Represents the entire state of the Warren Abstract Machine.
  * This includes all memory areas, registers, and state flags.
+ * <p>
+ * All memory areas are arrays of packed {@code long} words (see {@link WamWord}), so the
+ * execution loop can build, bind and compare terms without allocating any objects.
  */
 public class WamMachine {
 
     // --- MEMORY AREAS ---
-    public static final int MEM_SIZE = 10000;
+    // The heap, stack and trail start small and grow one segment at a time when they fill up,
+    // up to the limits given to the constructor. They stay flat arrays so that every access in
+    // the execution loop is still a single array index.
+
+    /** Growth granularity of the heap, stack and trail, in words. */
+    public static final int SEGMENT_SIZE = 1 << 16;
+
+    /** Initial size of the memory areas of a child machine that evaluates tabled subgoals. */
+    static final int CHILD_INITIAL_SIZE = 1 << 10;
+
+    /** Default limit for each memory area, in words (16M words = 128 MB for the heap). */
+    public static final int DEFAULT_LIMIT = 1 << 24;
+
+    /** Maximum sizes of the memory areas, in words. */
+    public final int heapLimit;
+    public final int stackLimit;
+    public final int trailLimit;
+
+    // --- GARBAGE COLLECTION ---
+
+    /** Default heap usage (in words) that triggers the first garbage collection. */
+    public static final int DEFAULT_GC_THRESHOLD = 1 << 20;
+
+    /** Set to false to disable heap garbage collection. */
+    public boolean gcEnabled = true;
+
+    /** The collector runs on the next procedure call once H exceeds this many words. */
+    public int gcThreshold;
+
+    /** The threshold used when little data survives a collection. */
+    private final int gcBaseThreshold;
+
+    /** Statistics: number of collections run and words reclaimed so far. */
+    public int gcCount = 0;
+    public long gcReclaimed = 0;
+
+    private final HeapCollector collector = new HeapCollector(this);
+
+    /** CODE: The linked program. Its int[] code area is what the execution loop runs. */
+    public LinkedProgram program = new LinkedProgram(new int[0], new HashMap<>(), new SwitchTable[0], new PredicateInfo[0],
+            new FactStore[0], 0, 0, 0, 0, 0);
 
-    /** CODE: The list of instructions (the program). */
-    public List<Instruction> code = new ArrayList<>();
+    /** Demand-driven argument indexes of the loaded program's large predicates. */
+    public JitIndexer jit = new JitIndexer(this, program);
 
-    /** HEAP: Stores compound terms (structures). Grows upwards. */
-    public WamCell[] heap = new WamCell[MEM_SIZE];
+    /** The answer tables of the loaded program's tabled predicates. Shared with child machines. */
+    public TableSpace tables = new TableSpace();
+
+    /**
+     * In a machine of a {@link MachinePool}: the region of the pool's shared code array that
+     * this machine's queries are linked into, [queryStart, queryEnd). Empty otherwise.
+     */
+    int queryStart, queryEnd;
+
+    /** The machine that evaluates the subgoals this one calls; created on first use. */
+    private WamMachine tableChild;
+
+    /** In a child machine: the table that NEW_ANSWER adds to. */
+    private TableSpace.Table answerTable;
+
+    /** Scratch range for {@link FactStore#probe}. */
+    private final int[] factRange = new int[2];
+
+    /** In an OR-parallel worker: the share of the search it is running. Null otherwise. */
+    private OrParallel.Branch orBranch;
+
+    /** Procedure calls left before a worker next offers work to idle workers (see {@link #offerWork}). */
+    private int shareCountdown = Integer.MAX_VALUE;
+
+    /** The machines that run the goals of a parallel conjunction for this one; created on first use. */
+    private WamMachine[] goalChildren = new WamMachine[0];
+
+    /** In a machine running one goal of a parallel conjunction: the list NEW_ANSWER adds to. */
+    private List<long[]> goalAnswers;
+
+    /** The answers of the parallel conjunctions that may still have a choice point, oldest first. */
+    private final List<ParallelAnswers> parallelAnswers = new ArrayList<>();
+
+    /** HEAP: Stores compound terms (structures) and variables as packed words. Grows upwards. */
+    public long[] heap;
 
     /** STACK: Stores control information (environments and choice points). */
-    public WamCell[] stack = new WamCell[MEM_SIZE];
+    public long[] stack;
 
-    /** REGISTERS: Argument registers (A1, A2, ...) for passing parameters. */
-    public WamCell[] regs = new WamCell[256]; // Let's support up to 255 registers.
+    /** REGISTERS: Argument registers (A1, A2, ...) for passing parameters, as packed words. */
+    public long[] regs = new long[256]; // Let's support up to 255 registers.
 
     /** TRAIL: An "undo" list. Stores addresses of variables that need to be unbound on backtracking. */
-    public int[] trail = new int[MEM_SIZE];
+    public int[] trail;
 
 
     // --- CPU REGISTERS (POINTERS and FLAGS) ---
 
-    /** P: Program Counter. Index of the next instruction in 'code'. */
+    /** P: Program Counter. Index of the next instruction in the linked code array. */
     public int P = 0;
 
     /** CP: Continuation Pointer. Return address for the current goal. */
     public int CP = 0;
 
-    /** E: Environment Pointer. Points to the last environment on the stack. */
+    /** E: Environment Pointer. Points to the current environment frame on the stack (-1 if none). */
     public int E = -1;
 
-    /** B: Backtrack Pointer. Points to the last choice point on the stack. */
+    /** B: Backtrack Pointer. Points to the last choice point frame on the stack (-1 if none). */
     public int B = -1;
 
+    /**
+     * B0: Cut Pointer. The B at the time the current predicate was called, i.e. the newest
+     * choice point that a cut in its clauses must keep. Restored from the choice point on
+     * backtracking into another clause.
+     */
+    public int B0 = -1;
+
     /** TR: Trail Pointer. Top of the trail stack. */
     public int TR = 0;
 
     /** H: Heap Pointer. Top of the heap. */
     public int H = 0;
 
+    /**
+     * HB: Heap Backtrack boundary. The H saved by the newest choice point (0 if there is none).
+     * Variables at or above HB were created after that choice point and disappear when it is
+     * resumed, so binding them never needs to be trailed.
+     */
+    public int HB = 0;
+
     /** S: Structure Pointer. Used for unifying structure arguments. */
     public int S = 0;
 
@@ -60,135 +155,310 @@ public class WamMachine {
     /** fail: Flag indicating that the current unification has failed, triggering backtracking. */
     public boolean fail = false;
 
+    /** occursCheck: If true, unification refuses to bind a variable to a term containing it (X = f(X) fails). */
+    public boolean occursCheck = false;
+
+    /** PDL: The push-down list of heap address pairs still to be unified. Reused by every unification. */
+    private int[] pdl = new int[256];
+    private int pdlTop = 0;
+
+    /** The last memory overflow seen during this query, or null. Overflows backtrack like failures. */
+    public WamResourceError resourceError = null;
+
 
     // --- PROGRAM METADATA ---
 
-    /** Label Map: Resolves string labels (e.g., "parent/2") to integer indices in 'code'. */
-    public Map<String, Integer> labels = new HashMap<>();
-
-// --- CHOICE POINT MANAGEMENT ---
-
-    /**
-     * An inner class to represent a choice point saved on the choice stack.
-     * It's a snapshot of the machine's registers at the moment of a choice.
-     */
-    private static class ChoicePoint {
-        // Registers to restore on backtrack
-        final int savedP;   // Program Counter (points to the next alternative clause)
-        final int savedCP;  // Continuation Pointer
-        final int savedE;   // Environment Pointer
-        final int savedB;   // Previous Choice Point Pointer (forms a linked list)
-        final int savedTR;  // Trail Pointer
-        final int savedH;   // Heap Pointer
-        final WamCell[] savedRegs; // A deep copy of the argument registers
-
-        public ChoicePoint(int p, int cp, int e, int b, int tr, int h, WamCell[] regs) {
-            this.savedP = p;
-            this.savedCP = cp;
-            this.savedE = e;
-            this.savedB = b;
-            this.savedTR = tr;
-            this.savedH = h;
-
-            // CRITICAL: We need a deep copy of the registers. A shallow copy (this.savedRegs = regs)
-            // would mean that changes to the machine's registers would also change our saved copy.
-            this.savedRegs = new WamCell[regs.length];
-            for (int i = 0; i < regs.length; i++) {
-                if (regs[i] != null) {
-                    this.savedRegs[i] = new WamCell(regs[i].tag, regs[i].value, regs[i].pointer);
-                }
-            }
+    /** Symbol Table: The global table that gives meaning to the ids stored in CON and FUN words. */
+    public final SymbolTable symbols = SymbolTable.GLOBAL;
+
+    // --- STACK FRAME LAYOUT ---
+    // Environments and choice points are both laid out as primitive frames inside 'stack'.
+    // Control words (addresses, counters) are stored as plain ints; argument slots hold words.
+    // A new frame always goes above both the current environment and the current choice point.
+
+    // Environment frame at E:
+    static final int ENV_CE = 0;        // The caller's environment (previous E)
+    static final int ENV_CP = 1;        // The continuation to return to
+    static final int ENV_VARS = 2;      // Permanent variables Y0..Yn-1 follow
+    // The frame does not store n. While the clause body is in a call, CP points just past that
+    // CALL, whose operand is the number of slots still in use (environment trimming).
+
+    // Choice point frame at B:
+    static final int CP_N = 0;          // Number of saved argument registers
+    static final int CP_PREV_B = 1;     // Previous choice point (forms a linked list)
+    static final int CP_E = 2;          // Environment pointer
+    static final int CP_CP = 3;         // Continuation pointer
+    static final int CP_ALT = 4;        // Next alternative clause (updated in place by RETRY_ME_ELSE)
+    static final int CP_TR = 5;         // Trail pointer
+    static final int CP_H = 6;          // Heap pointer
+    static final int CP_EXTRA = 7;      // Number of instruction-specific words after the arguments
+    static final int CP_ARGS = 8;       // Saved A1..An follow, then the extra words
+
+    // Extra words of a choice point pushed by JIT_SWITCH, relative to the end of its arguments:
+    static final int JIT_PRED = 0;      // Index of the predicate in program.predicates
+    static final int JIT_ARG = 1;       // Indexed argument position
+    static final int JIT_KEY = 2;       // Key of the call's argument at that position
+    static final int JIT_NEXT = 3;      // Position of the next candidate clause to try
+    static final int JIT_WORDS = 4;
+
+    // Extra words of a choice point pushed by TABLE_CALL:
+    static final int TABLE_ID = 0;      // The table's id in the TableSpace
+    static final int TABLE_NEXT = 1;    // Position of the next answer to return
+    static final int TABLE_WORDS = 2;
+
+    // Extra words of a choice point pushed by FACT_LOOKUP (see FactStore for sources and ranges):
+    static final int FACT_TABLE = 0;    // Index of the table in program.factTables
+    static final int FACT_SOURCE = 1;   // Where the candidate rows come from
+    static final int FACT_NEXT = 2;     // Position of the next matching candidate
+    static final int FACT_END = 3;      // End of the candidate range
+    static final int FACT_WORDS = 4;
+
+    // Extra words of a choice point pushed by PAR_CALL:
+    static final int PAR_CODE = 0;      // Address of the PAR_CALL instruction
+    static final int PAR_ENTRY = 1;     // Index of the goals' answers in parallelAnswers
+    static final int PAR_NEXT = 2;      // The next combination of answers to return
+    static final int PAR_WORDS = 3;
+
+    /**
+     * Returns the first free stack slot: the end of whichever frame is higher,
+     * the current environment or the current choice point.
+     */
+    private int stackTop() {
+        int envTop = E < 0 ? 0 : E + ENV_VARS + envSize(CP);
+        int cpTop = B < 0 ? 0 : B + CP_ARGS + (int) stack[B + CP_N] + (int) stack[B + CP_EXTRA];
+        return Math.max(envTop, cpTop);
+    }
+
+    /**
+     * The number of live permanent variables of an environment, given the continuation into
+     * its clause body (the CP register for E, or the CP saved by the frame above it).
+     */
+    int envSize(int continuation) {
+        return program.code[continuation - LinkedProgram.WIDTH + LinkedProgram.REG];
+    }
+
+    /** Reads a variable operand: an X register, or a Y slot of the current environment. */
+    private long getVariable(int operand) {
+        return operand < Instruction.Y_BASE ? regs[operand] : stack[E + ENV_VARS + operand - Instruction.Y_BASE];
+    }
+
+    private void setVariable(int operand, long word) {
+        if (operand < Instruction.Y_BASE) {
+            regs[operand] = word;
+        } else {
+            stack[E + ENV_VARS + operand - Instruction.Y_BASE] = word;
         }
     }
 
-    /** The stack of choice points. This drives the backtracking mechanism. */
-    private final Stack<ChoicePoint> choiceStack = new Stack<>();
+    // --- MEMORY GROWTH ---
+    // The ensure* checks are cheap and inlined into the hot path; the grow* methods are the cold
+    // path that allocates a bigger array or raises a WamResourceError.
+
+    /** Makes sure the heap can hold 'cells' more words above H. */
+    private void ensureHeap(int cells) {
+        if (H + cells > heap.length) growHeap(H + cells);
+    }
+
+    /** Makes sure the stack can hold a frame ending at 'end'. */
+    private void ensureStack(int end) {
+        if (end > stack.length) growStack(end);
+    }
+
+    private void growHeap(int needed) {
+        heap = Arrays.copyOf(heap, grownSize(heap.length, needed, heapLimit, "heap"));
+    }
+
+    private void growStack(int needed) {
+        stack = Arrays.copyOf(stack, grownSize(stack.length, needed, stackLimit, "stack"));
+    }
+
+    private void growTrail() {
+        trail = Arrays.copyOf(trail, grownSize(trail.length, TR + 1, trailLimit, "trail"));
+    }
+
+    /**
+     * Computes the new size of a memory area: at least doubled (so growth stays amortised O(1)),
+     * rounded up to whole segments, and never beyond the limit.
+     */
+    private static int grownSize(int current, int needed, int limit, String area) {
+        if (needed > limit) {
+            throw new WamResourceError(area, limit);
+        }
+        long target = Math.max((long) current * 2, needed);
+        target = (target + SEGMENT_SIZE - 1) / SEGMENT_SIZE * SEGMENT_SIZE;
+        return (int) Math.min(target, limit);
+    }
+
+    /**
+     * Runs the heap garbage collector now and sets the next trigger threshold.
+     * Must only be called between instructions at a procedure call, when every live term
+     * is reachable from the registers, environments, choice points or trail.
+     */
+    public void collectGarbage() {
+        gcReclaimed += collector.collect();
+        gcCount++;
+
+        // Let the heap grow by at least the live size before collecting again (so the cost of a
+        // collection is amortised over as much allocation), but always collect before the
+        // remaining space to the limit is half used.
+        int next = H + Math.max(gcBaseThreshold, H);
+        gcThreshold = Math.min(next, H + (heapLimit - H) / 2);
+    }
+
     // --- MACHINE CONTROL ---
 
     public WamMachine() {
-        // The constructor is simple; the fields are initialized with default values.
+        this(DEFAULT_LIMIT, DEFAULT_LIMIT, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Creates a machine whose memory areas may grow up to the given sizes.
+     * Each area starts with one segment (or the limit, if that is smaller).
+     * @param heapLimit Maximum heap size, in words.
+     * @param stackLimit Maximum stack size (environments and choice points), in words.
+     * @param trailLimit Maximum number of trail entries.
+     */
+    public WamMachine(int heapLimit, int stackLimit, int trailLimit) {
+        this(heapLimit, stackLimit, trailLimit, SEGMENT_SIZE);
+    }
+
+    /** Creates a machine whose memory areas start with 'initialSize' words. */
+    private WamMachine(int heapLimit, int stackLimit, int trailLimit, int initialSize) {
+        this.heapLimit = heapLimit;
+        this.stackLimit = stackLimit;
+        this.trailLimit = trailLimit;
+        this.heap = new long[Math.min(initialSize, heapLimit)];
+        this.stack = new long[Math.min(initialSize, stackLimit)];
+        this.trail = new int[Math.min(initialSize, trailLimit)];
+        this.gcBaseThreshold = Math.min(DEFAULT_GC_THRESHOLD, heapLimit / 2);
+        this.gcThreshold = gcBaseThreshold;
     }
 
     /**
-     * Loads a compiled program into the machine's code area and resets the state.
+     * Loads a linked program into the machine's code area and resets the state.
+     * @param linked The output of the {@link Linker}.
+     */
+    public void load(LinkedProgram linked) {
+        this.program = linked;
+        this.jit = new JitIndexer(this, linked);
+        this.tables = new TableSpace();
+        this.queryStart = this.queryEnd = 0;
+        reset();
+    }
+
+    /**
+     * Links a compiled query against the loaded program and prepares to run it.
+     * The program's code, JIT indexes and answer tables stay as they are, so each query costs
+     * only the compilation and linking of its own goals.
+     * @param query The output of {@link Compiler#compileQuery}.
+     */
+    public void loadQuery(CompilerResult query) {
+        if (queryEnd > queryStart) {
+            // A pooled machine writes into its own region of the code array it shares.
+            this.program = new Linker().linkQuery(program, query, program.withoutQuery().code, queryStart, queryEnd);
+        } else {
+            // The previous query's code array already holds a copy of the program; reuse it.
+            this.program = new Linker().linkQuery(program, query, program.base == null ? null : program.code);
+        }
+        reset();
+    }
+
+    /**
+     * Loads a query and returns its answers, which the machine computes one at a time as they
+     * are asked for. The machine belongs to the solutions until they are closed.
+     * @param query The output of {@link Compiler#compileQuery}.
+     */
+    public Solutions solve(CompilerResult query) {
+        loadQuery(query);
+        return new Solutions(this, query.variables(), null);
+    }
+
+    /**
+     * Links a compiled program and loads it into the machine's code area.
      * @param newCode The list of instructions to load.
      * @param labelMap The map of labels to code addresses.
      */
     public void loadCode(List<Instruction> newCode, Map<String, Integer> labelMap) {
-        this.code = newCode;
-        this.labels = labelMap;
-        reset();
+        load(new Linker().link(new CompilerResult(newCode, labelMap)));
     }
 
     /**
      * Resets all CPU registers and flags to their initial state before a run.
      */
     public void reset() {
-        P = 0;
+        P = program.entry;
         CP = 0;
         E = -1;
         B = -1;
+        B0 = -1;
         TR = 0;
         H = 0;
+        HB = 0;
         S = 0;
         fail = false;
         modeRead = false;
+        resourceError = null;
+        parallelAnswers.clear();
     }
 
     // --- RUNTIME HELPER METHODS ---
 
     /**
-     * Retrieves a memory cell from the heap by its address.
-     * In a full WAM, this would also check the stack.
-     * @param address The integer index into the heap array.
-     * @return The WamCell at that address.
+     * Returns the printable name of the symbol held by a CON or FUN word.
+     * For a STR word, the functor of the referenced structure is returned.
+     * @param word A dereferenced word.
+     * @return The name, or null if the word does not carry a symbol.
      */
-    private WamCell getHeapCell(int address) {
-        if (address >= H || address < 0) {
-            System.err.println("Error: Attempted to access invalid heap address " + address);
-            fail = true;
-            return null;
+    public String symbolName(long word) {
+        switch (tag(word)) {
+            case CON:
+                return symbols.name(value(word));
+            case FUN:
+                return symbols.signature(value(word));
+            case STR:
+                return symbols.signature(value(heap[value(word)]));
+            default:
+                return null;
         }
-        return heap[address];
     }
 
     /**
      * DEREFERENCE: Follows a chain of REF pointers to find the ultimate value.
-     * @param address The starting memory address (usually from a register or another cell).
-     * @return The address of the final, dereferenced cell.
+     * @param word The starting word (usually from a register or another cell).
+     * @return The final, dereferenced word: a value (CON/STR) or an unbound REF pointing to itself.
      */
-    public int deref(int address) {
-        WamCell cell = getHeapCell(address);
-        if (cell == null) return address; // Return original address on error
-
+    public long deref(long word) {
         // A REF cell pointing to itself is an unbound variable.
         // A REF cell pointing elsewhere is part of a reference chain.
-        if (cell.tag == WamTag.REF && cell.pointer != address) {
-            return deref(cell.pointer); // Recursively follow the chain.
+        while (tag(word) == REF) {
+            long next = heap[value(word)];
+            if (next == word) {
+                break; // Unbound: the end of the chain.
+            }
+            word = next;
         }
-
-        // The cell is either a value (CON/STR) or an unbound variable.
-        // In either case, we have found the end of the chain.
-        return address;
+        return word;
     }
 
     /**
-     * BIND: Binds a variable (a REF cell) to another value.
+     * BIND: Binds a variable (an unbound heap cell) to another value.
      * This is a side-effecting operation that modifies the heap.
-     * It also records the binding on the trail for potential backtracking.
-     * @param refAddr The address of the REF cell to bind.
-     * @param valAddr The address of the value cell it should point to.
+     * It also records the binding on the trail for potential backtracking, but only if the
+     * variable is older than the newest choice point (conditional trailing): a younger variable
+     * is discarded along with the rest of the heap above HB when that choice point is resumed.
+     * @param refAddr The heap address of the unbound variable.
+     * @param value The word the variable should hold from now on.
      */
-    public void bind(int refAddr, int valAddr) {
-        WamCell refCell = getHeapCell(refAddr);
-        if (refCell == null) return;
-
+    public void bind(int refAddr, long value) {
         // Record the address of the variable we are about to modify.
-        trail[TR] = refAddr;
-        TR++; // Increment the trail pointer.
+        if (refAddr < HB) {
+            if (TR == trail.length) growTrail();
+            trail[TR] = refAddr;
+            TR++; // Increment the trail pointer.
+        }
 
-        // Perform the binding by updating the pointer.
-        refCell.pointer = valAddr;
+        // Perform the binding by overwriting the cell.
+        heap[refAddr] = value;
     }
 
     /**
@@ -201,158 +471,327 @@ public class WamMachine {
         while (TR > savedTR) {
             TR--; // Decrement pointer first
             int addrToUnbind = trail[TR];
-            WamCell variableCell = getHeapCell(addrToUnbind);
 
             // An unbound variable in WAM is a REF cell that points to itself.
-            if (variableCell != null) {
-                variableCell.pointer = addrToUnbind;
-            }
+            heap[addrToUnbind] = ref(addrToUnbind);
         }
     }
 
     /**
      * UNIFY: The core unification algorithm of the WAM.
+     * <p>
+     * The algorithm is iterative: instead of recursing into structure arguments, it pushes the
+     * heap addresses of argument pairs onto the push-down list {@link #pdl} and processes them
+     * in a loop. Deeply nested terms therefore unify in constant Java stack space, and since the
+     * list is reused across calls, unification never allocates.
+     * <p>
+     * On a mismatch the {@link #fail} flag is set and the remaining pairs are discarded; the
+     * bindings already made are undone by backtracking, as usual.
      */
-    public void unify(int addr1, int addr2) {
-        int d_addr1 = deref(addr1);
-        int d_addr2 = deref(addr2);
-
-        if (fail) return;
-
-        WamCell c1 = getHeapCell(d_addr1);
-        WamCell c2 = getHeapCell(d_addr2);
+    public void unify(long word1, long word2) {
+        pdlTop = 0;
+        long d1 = deref(word1);
+        long d2 = deref(word2);
 
-        if (d_addr1 == d_addr2) {
-            return;
+        while (true) {
+            if (d1 != d2 && !unifyStep(d1, d2)) {
+                fail = true;
+                pdlTop = 0;
+                return;
+            }
+            if (pdlTop == 0) {
+                return;
+            }
+            // Pop the next pair of argument cells.
+            int addr2 = pdl[--pdlTop];
+            int addr1 = pdl[--pdlTop];
+            d1 = deref(heap[addr1]);
+            d2 = deref(heap[addr2]);
         }
+    }
 
-        if (c1.tag == WamTag.REF) {
-            bind(d_addr1, d_addr2);
-            return;
+    /**
+     * Unifies two distinct dereferenced words one level deep. Variables are bound directly;
+     * for two structures with the same functor, the argument pairs are pushed onto the PDL.
+     * @return false if the words cannot unify.
+     */
+    private boolean unifyStep(long d1, long d2) {
+        int t1 = tag(d1);
+        int t2 = tag(d2);
+
+        if (t1 == REF && t2 == REF) {
+            // Bind the younger variable to the older one so no pointer ever runs "up" the heap.
+            if (value(d1) < value(d2)) {
+                bind(value(d2), d1);
+            } else {
+                bind(value(d1), d2);
+            }
+            return true;
         }
-        if (c2.tag == WamTag.REF) {
-            bind(d_addr2, d_addr1);
-            return;
+        if (t1 == REF) {
+            return bindChecked(value(d1), d2);
+        }
+        if (t2 == REF) {
+            return bindChecked(value(d2), d1);
         }
 
-        if (c1.tag == WamTag.CON && c2.tag == WamTag.CON) {
-            if (c1.value.equals(c2.value)) {
-                return;
-            } else {
-                fail = true;
-                return;
+        // Two different CON words carry different atom ids, so the d1 == d2 check in the caller
+        // already accepted every matching pair of constants.
+        if (t1 == STR && t2 == STR) {
+            int s1 = value(d1);
+            int s2 = value(d2);
+            long functor = heap[s1];
+            if (functor != heap[s2]) {
+                return false;
+            }
+            // Push the argument pairs in reverse so they are unified left to right.
+            int arity = symbols.arity(value(functor));
+            ensurePdl(2 * arity);
+            for (int i = arity; i >= 1; i--) {
+                pdl[pdlTop++] = s1 + i;
+                pdl[pdlTop++] = s2 + i;
             }
+            return true;
         }
 
-        if (c1.tag == WamTag.STR && c2.tag == WamTag.STR) {
-            if (c1.value.equals(c2.value)) {
-                return;
-            } else {
-                fail = true;
-                return;
+        return false;
+    }
+
+    /**
+     * Binds an unbound variable to a non-variable term, first running the occurs check when
+     * {@link #occursCheck} is enabled.
+     * @return false if the occurs check rejects the binding.
+     */
+    private boolean bindChecked(int varAddr, long term) {
+        if (occursCheck && tag(term) == STR && occursIn(varAddr, term)) {
+            return false;
+        }
+        bind(varAddr, term);
+        return true;
+    }
+
+    /**
+     * OCCURS CHECK: Tests whether the unbound variable at 'varAddr' occurs inside 'term'.
+     * Walks the term iteratively, using the top part of the PDL as its own work list so that the
+     * pending unification pairs below it are left untouched.
+     */
+    private boolean occursIn(int varAddr, long term) {
+        int base = pdlTop;
+        ensurePdl(1);
+        pdl[pdlTop++] = value(term);
+        boolean found = false;
+
+        while (pdlTop > base && !found) {
+            int s = pdl[--pdlTop];
+            int arity = symbols.arity(value(heap[s]));
+            ensurePdl(arity);
+            for (int i = 1; i <= arity; i++) {
+                long arg = deref(heap[s + i]);
+                if (tag(arg) == REF) {
+                    if (value(arg) == varAddr) {
+                        found = true;
+                        break;
+                    }
+                } else if (tag(arg) == STR) {
+                    pdl[pdlTop++] = value(arg);
+                }
             }
         }
 
-        fail = true;
+        pdlTop = base;
+        return found;
+    }
+
+    /** Makes sure 'slots' more entries fit on the PDL. It grows rarely and is never shrunk. */
+    private void ensurePdl(int slots) {
+        if (pdlTop + slots > pdl.length) {
+            pdl = Arrays.copyOf(pdl, Math.max(pdl.length * 2, pdlTop + slots));
+        }
     }
 
     /**
      * BACKTRACK: The core backtracking mechanism.
+     * Restores the machine state saved in the newest choice point and resumes at its next
+     * alternative. The frame itself stays in place until RETRY_ME_ELSE or TRUST_ME moves past it.
      */
     public void backtrack() {
-        if (choiceStack.isEmpty()) {
+        if (B < 0) {
             this.fail = true;
             return;
         }
 
-        ChoicePoint cp = choiceStack.peek();
-
-        this.P = cp.savedP;
-        this.CP = cp.savedCP;
-        this.E = cp.savedE;
-        this.B = cp.savedB;
-        this.H = cp.savedH;
+        this.P = (int) stack[B + CP_ALT];
+        this.CP = (int) stack[B + CP_CP];
+        this.E = (int) stack[B + CP_E];
+        this.H = (int) stack[B + CP_H];
+        this.HB = H;
+        // The alternative is another clause of the same call, so its cut goes back to the same place.
+        this.B0 = (int) stack[B + CP_PREV_B];
 
-        System.arraycopy(cp.savedRegs, 0, this.regs, 0, cp.savedRegs.length);
+        int n = (int) stack[B + CP_N];
+        System.arraycopy(stack, B + CP_ARGS, regs, 1, n);
 
-        unwindTrail(cp.savedTR);
+        unwindTrail((int) stack[B + CP_TR]);
         this.fail = false;
     }
 
     /**
      * THE EXECUTION LOOP.
+     * Memory overflows surface as {@link WamResourceError}s, which are caught here and turned into
+     * backtracking; if no choice point is left, the query fails with {@link #resourceError} set.
+     * <p>
+     * The inner loop decodes the linked int[] code directly. All operands were resolved by the {@link Linker},
+     * so the loop never hashes a label or parses a register name. Rare error paths live in
+     * separate methods to keep this method small enough for the JIT to optimise well.
      */
     public void run() {
         boolean running = true;
+        while (running) {
+            try {
+                execute();
+                running = false;
+            } catch (WamResourceError e) {
+                // Out of memory on this branch: remember why, then backtrack like any failure.
+                // Restoring the newest choice point releases everything the branch allocated.
+                resourceError = e;
+                fail = true;
+                backtrack();
+                running = !fail;
+            }
+        }
+    }
+
+    /** The dispatch loop proper. Runs until HALT, final PROCEED or failure with no choice points left. */
+    private void execute() {
+        final int[] code = program.code;
+        boolean running = true;
 
         while (running && !fail) {
-            if (P >= code.size()) break;
+            if (P >= code.length) break;
 
-            Instruction instr = code.get(P);
-            P++;
+            final int p = P;
+            P += LinkedProgram.WIDTH;
 
             // Debug print:
-            // System.out.println("Executing " + (P-1) + ": " + instr + " | CP=" + CP);
+            // System.out.println("Executing " + p + ": " + Opcode.VALUES[code[p]] + " | CP=" + CP);
 
-            switch (instr.op) {
+            switch (Opcode.VALUES[code[p + LinkedProgram.OP]]) {
                 // --- CONTROL FLOW ---
                 case HALT:
                     running = false;
                     break;
 
-                case CALL:
+                case CALL: {
+                    int target = code[p + LinkedProgram.LABEL];
+                    if (target < 0) {
+                        unknownProcedure(code[p + LinkedProgram.ARG]);
+                        break;
+                    }
                     CP = P;
-                    if (labels.containsKey(instr.label)) {
-                        P = labels.get(instr.label);
-                    } else {
-                        System.err.println("Error: Unknown label " + instr.label);
-                        fail = true;
+                    P = target;
+                    B0 = B;
+                    // Procedure entry is a safe point: only the registers and frames are live.
+                    if (H > gcThreshold && gcEnabled) collectGarbage();
+                    if (--shareCountdown < 0) offerWork();
+                    break;
+                }
+
+                case EXECUTE: {
+                    // Last call: the environment is already gone and CP still holds the
+                    // caller's continuation, so the callee returns straight to it.
+                    int target = code[p + LinkedProgram.LABEL];
+                    if (target < 0) {
+                        unknownProcedure(code[p + LinkedProgram.ARG]);
+                        break;
                     }
+                    P = target;
+                    B0 = B;
+                    if (H > gcThreshold && gcEnabled) collectGarbage();
+                    if (--shareCountdown < 0) offerWork();
                     break;
+                }
 
                 case PROCEED:
                     if (CP == 0) running = false;
                     else P = CP;
                     break;
 
-                case ALLOCATE:
-                    // Create a new stack frame (environment).
-                    E++;
+                case ALLOCATE: {
+                    // Create a new stack frame (environment) above any frame still in use.
+                    int n = code[p + LinkedProgram.REG];
+                    int newE = stackTop();
+                    ensureStack(newE + ENV_VARS + n);
+                    stack[newE + ENV_CE] = E;
+                    // Slots are read by the collector before their variable is first stored.
+                    Arrays.fill(stack, newE + ENV_VARS, newE + ENV_VARS + n, EMPTY);
                     // FIX: Save the current Continuation Pointer (CP) into the stack frame.
-                    // We store it in a WamCell, using the pointer field to hold the integer CP.
-                    stack[E] = new WamCell(WamTag.CON, "ENV_RET_ADDR", CP);
+                    // Control words on the stack are stored as raw integers, not tagged terms.
+                    stack[newE + ENV_CP] = CP;
+                    E = newE;
                     break;
+                }
 
                 case DEALLOCATE:
                     // FIX: Restore the CP from the stack frame before destroying it.
-                    if (E >= 0 && stack[E] != null) {
-                        CP = stack[E].pointer;
+                    if (E >= 0) {
+                        CP = (int) stack[E + ENV_CP];
+                        // Destroy the stack frame. Its slots are reused unless a choice point protects them.
+                        E = (int) stack[E + ENV_CE];
                     } else {
                         // Should not happen in valid code
                         fail = true;
                     }
-                    // Destroy the stack frame.
-                    E--;
-                    // Return to the caller (using the restored CP).
-                    P = CP;
+                    // Execution continues with the EXECUTE (or PROCEED) that follows.
+                    break;
+
+                // --- CUT ---
+                case NECK_CUT:
+                    // A cut before the first call: B0 still holds the caller's B.
+                    cutTo(B0);
+                    break;
+
+                case GET_LEVEL:
+                    // Saves B0 for a cut after a call. Stored as B0 + 1 in a tag-0 word, which
+                    // is not a pointer, so the collector leaves it alone.
+                    setVariable(code[p + LinkedProgram.ARG], ((long) (B0 + 1)) << TAG_BITS);
+                    break;
+
+                case CUT:
+                    cutTo((int) (getVariable(code[p + LinkedProgram.ARG]) >>> TAG_BITS) - 1);
                     break;
 
 
                 // --- DATA MOVEMENT (PUT) ---
 
                 case PUT_CONSTANT:
-                    regs[instr.reg] = WamCell.Cons(instr.name);
+                    regs[code[p + LinkedProgram.REG]] = con(code[p + LinkedProgram.ARG]);
                     break;
 
-                case PUT_VARIABLE:
-                    heap[H] = WamCell.Ref(H);
-                    regs[instr.reg] = WamCell.Ref(H);
+                case PUT_VARIABLE: {
+                    // A fresh unbound variable is a REF cell pointing to itself.
+                    ensureHeap(1);
+                    // It always lives on the heap, even for a Y variable, so trimming or
+                    // deallocating an environment never leaves a dangling reference.
+                    long var = ref(H);
+                    heap[H] = var;
+                    regs[code[p + LinkedProgram.REG]] = var;
+                    setVariable(code[p + LinkedProgram.ARG], var);
                     H++;
                     break;
+                }
 
                 case PUT_VALUE:
-                    int sourceReg = Integer.parseInt(instr.name.substring(1));
-                    regs[instr.reg] = regs[sourceReg];
+                    regs[code[p + LinkedProgram.REG]] = getVariable(code[p + LinkedProgram.ARG]);
+                    break;
+
+                case PUT_STRUCTURE:
+                    // Start a new structure on the heap; the unify_* instructions that follow
+                    // write its arguments.
+                    ensureHeap(1);
+                    heap[H] = fun(code[p + LinkedProgram.ARG]);
+                    regs[code[p + LinkedProgram.REG]] = str(H);
+                    H++;
+                    modeRead = false;
                     break;
 
 
@@ -360,38 +799,352 @@ public class WamMachine {
 
                 case GET_CONSTANT:
                     // Fixed: Use safe unification helper
-                    unifyRegisterWithConstant(instr.reg, instr.name);
+                    unifyRegisterWithConstant(code[p + LinkedProgram.REG], code[p + LinkedProgram.ARG]);
                     break;
 
                 case GET_VARIABLE:
-                    if (regs[instr.reg] == null) {
+                    setVariable(code[p + LinkedProgram.ARG], regs[code[p + LinkedProgram.REG]]);
+                    break;
+
+                case GET_VALUE:
+                    unify(getVariable(code[p + LinkedProgram.ARG]), regs[code[p + LinkedProgram.REG]]);
+                    break;
+
+                case GET_STRUCTURE: {
+                    long word = deref(regs[code[p + LinkedProgram.REG]]);
+                    int functor = code[p + LinkedProgram.ARG];
+                    if (tag(word) == STR) {
+                        // Read mode: match the existing structure argument by argument.
+                        int addr = value(word);
+                        if (heap[addr] == fun(functor)) {
+                            S = addr + 1;
+                            modeRead = true;
+                        } else {
+                            fail = true;
+                        }
+                    } else if (tag(word) == REF) {
+                        // Write mode: build the structure and bind the variable to it.
+                        ensureHeap(1);
+                        heap[H] = fun(functor);
+                        bind(value(word), str(H));
+                        H++;
+                        modeRead = false;
+                    } else {
                         fail = true;
                     }
                     break;
+                }
 
-                case GET_VALUE:
-                    int srcReg = Integer.parseInt(instr.name.substring(1));
-                    unify(regs[instr.reg].pointer, regs[srcReg].pointer);
+
+                // --- STRUCTURE ARGUMENTS (UNIFY) ---
+                // In read mode S walks the arguments of an existing structure; in write mode
+                // each instruction appends one argument cell at H.
+
+                case UNIFY_VARIABLE:
+                    if (modeRead) {
+                        setVariable(code[p + LinkedProgram.ARG], heap[S]);
+                        S++;
+                    } else {
+                        ensureHeap(1);
+                        long var = ref(H);
+                        heap[H] = var;
+                        setVariable(code[p + LinkedProgram.ARG], var);
+                        H++;
+                    }
                     break;
 
+                case UNIFY_VALUE:
+                    if (modeRead) {
+                        unify(getVariable(code[p + LinkedProgram.ARG]), heap[S]);
+                        S++;
+                    } else {
+                        ensureHeap(1);
+                        heap[H] = getVariable(code[p + LinkedProgram.ARG]);
+                        H++;
+                    }
+                    break;
+
+                case UNIFY_CONSTANT:
+                    if (modeRead) {
+                        unifyWithConstant(heap[S], code[p + LinkedProgram.ARG]);
+                        S++;
+                    } else {
+                        ensureHeap(1);
+                        heap[H] = con(code[p + LinkedProgram.ARG]);
+                        H++;
+                    }
+                    break;
+
+                case UNIFY_VOID: {
+                    int n = code[p + LinkedProgram.ARG];
+                    if (modeRead) {
+                        S += n;
+                    } else {
+                        ensureHeap(n);
+                        for (int i = 0; i < n; i++) {
+                            heap[H] = ref(H);
+                            H++;
+                        }
+                    }
+                    break;
+                }
+
 
                 // --- BACKTRACKING ---
 
                 case TRY_ME_ELSE:
-                    int elseLabel = labels.get(instr.label);
-                    choiceStack.push(new ChoicePoint(elseLabel, CP, E, B, TR, H, regs));
+                    // Push a choice point frame saving only the predicate's n argument registers.
+                    pushChoicePoint(code[p + LinkedProgram.REG], code[p + LinkedProgram.LABEL]);
                     break;
 
                 case RETRY_ME_ELSE:
-                    int nextLabel = labels.get(instr.label);
-                    ChoicePoint currentCP = choiceStack.pop();
-                    choiceStack.push(new ChoicePoint(nextLabel, currentCP.savedCP, currentCP.savedE, currentCP.savedB, currentCP.savedTR, currentCP.savedH, currentCP.savedRegs));
+                    // The choice point stays where it is; only its next alternative changes.
+                    stack[B + CP_ALT] = code[p + LinkedProgram.LABEL];
                     break;
 
                 case TRUST_ME:
-                    if (!choiceStack.isEmpty()) {
-                        choiceStack.pop();
+                    // Last alternative: discard the choice point.
+                    if (B >= 0) {
+                        popChoicePoint();
+                    }
+                    break;
+
+                case TRY:
+                    // Same frame as TRY_ME_ELSE, but the alternative is the next instruction
+                    // (the RETRY/TRUST that follows) and we jump to the clause itself.
+                    pushChoicePoint(code[p + LinkedProgram.REG], P);
+                    P = code[p + LinkedProgram.LABEL];
+                    break;
+
+                case RETRY:
+                    stack[B + CP_ALT] = P;
+                    P = code[p + LinkedProgram.LABEL];
+                    break;
+
+                case TRUST:
+                    popChoicePoint();
+                    P = code[p + LinkedProgram.LABEL];
+                    break;
+
+
+                // --- FIRST-ARGUMENT INDEXING ---
+                // JIT_SWITCH comes first in large predicates, so both kinds of index live here.
+
+                case JIT_SWITCH: {
+                    int pred = code[p + LinkedProgram.ARG];
+                    int[] candidates = jit.select(pred);
+                    // No usable index yet: fall through to the static index or the clause chain.
+                    if (candidates != null) {
+                        tryCandidates(pred, code[p + LinkedProgram.REG], candidates);
+                    }
+                    break;
+                }
+
+                case JIT_RETRY: {
+                    // Reached through backtrack(), which has already restored the arguments.
+                    int extra = B + CP_ARGS + (int) stack[B + CP_N];
+                    int next = (int) stack[extra + JIT_NEXT];
+                    int[] candidates = jit.lookup((int) stack[extra + JIT_PRED],
+                            (int) stack[extra + JIT_ARG], (int) stack[extra + JIT_KEY]);
+                    if (next == candidates.length - 1) {
+                        popChoicePoint(); // Last candidate: like TRUST.
+                    } else {
+                        stack[extra + JIT_NEXT] = next + 1;
+                    }
+                    P = candidates[next];
+                    break;
+                }
+
+
+                case SWITCH_ON_TERM: {
+                    long word = deref(regs[code[p + LinkedProgram.REG]]);
+                    int tag = tag(word);
+                    // Unbound: fall through into the try_me_else chain of every clause.
+                    if (tag == CON) {
+                        jumpOrFail(code[p + LinkedProgram.ARG]);
+                    } else if (tag == STR) {
+                        jumpOrFail(code[p + LinkedProgram.LABEL]);
+                    }
+                    break;
+                }
+
+                case SWITCH_ON_CONSTANT: {
+                    long word = deref(regs[code[p + LinkedProgram.REG]]);
+                    SwitchTable table = program.switchTables[code[p + LinkedProgram.ARG]];
+                    jumpOrFail(table.get(value(word), code[p + LinkedProgram.LABEL]));
+                    break;
+                }
+
+                case SWITCH_ON_STRUCTURE: {
+                    long word = deref(regs[code[p + LinkedProgram.REG]]);
+                    SwitchTable table = program.switchTables[code[p + LinkedProgram.ARG]];
+                    jumpOrFail(table.get(value(heap[value(word)]), code[p + LinkedProgram.LABEL]));
+                    break;
+                }
+
+                // --- TABLING ---
+                case TABLE_CALL: {
+                    int arity = code[p + LinkedProgram.REG];
+                    TableSpace.Table t = tables.call(this, code[p + LinkedProgram.ARG], arity, code[p + LinkedProgram.LABEL]);
+                    if (t.answers.isEmpty()) {
+                        fail = true;
+                        break;
+                    }
+                    if (t.answers.size() > 1) {
+                        pushChoicePoint(arity, program.tableRetry, TABLE_WORDS);
+                        stack[B + CP_ARGS + arity + TABLE_ID] = t.id;
+                        stack[B + CP_ARGS + arity + TABLE_NEXT] = 1;
+                    }
+                    returnAnswer(t.answers.get(0), arity);
+                    break;
+                }
+
+                case TABLE_RETRY: {
+                    // Reached through backtrack(), which has already restored the arguments.
+                    int arity = (int) stack[B + CP_N];
+                    int extra = B + CP_ARGS + arity;
+                    TableSpace.Table t = tables.table((int) stack[extra + TABLE_ID]);
+                    int next = (int) stack[extra + TABLE_NEXT];
+                    if (next == t.answers.size() - 1) {
+                        popChoicePoint(); // Last answer: like TRUST.
+                    } else {
+                        stack[extra + TABLE_NEXT] = next + 1;
+                    }
+                    returnAnswer(t.answers.get(next), arity);
+                    break;
+                }
+
+                // --- FACT TABLES ---
+                case FACT_LOOKUP: {
+                    int table = code[p + LinkedProgram.ARG];
+                    FactStore t = program.factTables[table];
+                    // Narrow the candidates to the rows of the most selective bound argument.
+                    int source = -1, lo = 0, hi = t.rows;
+                    for (int k = 0; k < t.arity && !fail; k++) {
+                        long word = deref(regs[k + 1]);
+                        if (tag(word) == STR) {
+                            fail = true; // The table holds atoms only
+                        } else if (tag(word) == CON) {
+                            int key = t.code(k, value(word));
+                            if (key < 0) {
+                                fail = true; // No row has this atom here
+                            } else {
+                                int s = t.probe(k, key, factRange);
+                                if (factRange[1] - factRange[0] < hi - lo) {
+                                    source = s;
+                                    lo = factRange[0];
+                                    hi = factRange[1];
+                                }
+                            }
+                        }
+                    }
+                    if (fail) break;
+
+                    int first = nextFactRow(t, source, lo, hi);
+                    if (first == hi) {
+                        fail = true;
+                        break;
+                    }
+                    // Only leave a choice point if another row matches, so the last answer is deterministic.
+                    int next = nextFactRow(t, source, first + 1, hi);
+                    if (next < hi) {
+                        pushChoicePoint(t.arity, program.factRetry, FACT_WORDS);
+                        int extra = B + CP_ARGS + t.arity;
+                        stack[extra + FACT_TABLE] = table;
+                        stack[extra + FACT_SOURCE] = source;
+                        stack[extra + FACT_NEXT] = next;
+                        stack[extra + FACT_END] = hi;
+                    }
+                    returnRow(t, t.row(source, first));
+                    break;
+                }
+
+                case FACT_RETRY: {
+                    // Reached through backtrack(), which has already restored the arguments.
+                    int extra = B + CP_ARGS + (int) stack[B + CP_N];
+                    FactStore t = program.factTables[(int) stack[extra + FACT_TABLE]];
+                    int source = (int) stack[extra + FACT_SOURCE];
+                    int current = (int) stack[extra + FACT_NEXT];
+                    int end = (int) stack[extra + FACT_END];
+                    int next = nextFactRow(t, source, current + 1, end);
+                    if (next == end) {
+                        popChoicePoint(); // Last matching row: like TRUST.
+                    } else {
+                        stack[extra + FACT_NEXT] = next;
                     }
+                    returnRow(t, t.row(source, current));
+                    break;
+                }
+
+                // --- OR-PARALLELISM ---
+                case STOLEN_RETRY:
+                    // Another worker took this choice point's alternatives: drop it and keep backtracking.
+                    popChoicePoint();
+                    fail = true;
+                    break;
+
+                // --- AND-PARALLELISM ---
+                case PAR_CALL: {
+                    int arity = code[p + LinkedProgram.REG];
+                    int goals = code[p + LinkedProgram.ARG];
+                    if (Thread.holdsLock(tables) || !independentGoals(p, goals)) {
+                        // The goals share an unbound variable after all, or this thread is evaluating a tabled
+                        // subgoal and holds the table space, which the goals' own tabled calls would wait for:
+                        // run the sequential clause after the PAR_GOALs.
+                        P = p + (goals + 1) * LinkedProgram.WIDTH;
+                        break;
+                    }
+                    long[][][] answers = solveGoals(p, goals);
+                    long combinations = combinations(answers);
+                    if (combinations == 0) {
+                        fail = true;
+                        break;
+                    }
+                    if (combinations > 1) {
+                        pushChoicePoint(arity, program.parallelRetry, PAR_WORDS);
+                        // Entries at or above the new frame belonged to choice points that are gone.
+                        while (!parallelAnswers.isEmpty() && parallelAnswers.get(parallelAnswers.size() - 1).choicePoint() >= B) {
+                            parallelAnswers.remove(parallelAnswers.size() - 1);
+                        }
+                        int extra = B + CP_ARGS + arity;
+                        stack[extra + PAR_CODE] = p;
+                        stack[extra + PAR_ENTRY] = parallelAnswers.size();
+                        stack[extra + PAR_NEXT] = 1;
+                        parallelAnswers.add(new ParallelAnswers(B, answers));
+                    }
+                    returnCombination(p, answers, 0);
+                    break;
+                }
+
+                case PAR_RETRY: {
+                    // Reached through backtrack(), which has already restored the arguments.
+                    int extra = B + CP_ARGS + (int) stack[B + CP_N];
+                    int call = (int) stack[extra + PAR_CODE];
+                    long[][][] answers = parallelAnswers.get((int) stack[extra + PAR_ENTRY]).answers();
+                    long next = stack[extra + PAR_NEXT];
+                    if (next == combinations(answers) - 1) {
+                        popChoicePoint(); // Last combination: like TRUST.
+                    } else {
+                        stack[extra + PAR_NEXT] = next + 1;
+                    }
+                    returnCombination(call, answers, next);
+                    break;
+                }
+
+                case NEW_ANSWER: {
+                    long[] answer = encode(stack, E + ENV_VARS, code[p + LinkedProgram.REG]);
+                    if (goalAnswers != null) {
+                        goalAnswers.add(answer); // A goal of a parallel conjunction keeps every answer
+                    } else {
+                        tables.addAnswer(answerTable, answer);
+                    }
+                    // Fail into the next solution; the evaluation ends when none is left.
+                    fail = true;
+                    break;
+                }
+
+                default:
+                    unsupportedInstruction(p);
                     break;
             }
 
@@ -401,33 +1154,564 @@ public class WamMachine {
         }
     }
 
-    private void unifyRegisterWithConstant(int regIndex, String constName) {
-        WamCell cell = regs[regIndex];
+    /**
+     * Pushes a choice point frame that saves the first n argument registers.
+     * @param n The arity of the predicate.
+     * @param alternative The code address to resume at on backtracking.
+     */
+    private void pushChoicePoint(int n, int alternative) {
+        pushChoicePoint(n, alternative, 0);
+    }
 
-        // Follow the reference chain
-        while (cell.tag == WamTag.REF && cell.pointer != -1) {
-            if (cell.pointer >= 0 && cell.pointer < H) {
-                WamCell target = heap[cell.pointer];
-                if (target == cell) break; // It points to itself (unbound)
-                cell = target;
-            } else {
-                break;
+    /**
+     * Pushes a choice point frame with room for 'extra' instruction-specific words after the
+     * saved arguments. The caller fills them in.
+     */
+    private void pushChoicePoint(int n, int alternative, int extra) {
+        int newB = stackTop();
+        ensureStack(newB + CP_ARGS + n + extra);
+        stack[newB + CP_N] = n;
+        stack[newB + CP_EXTRA] = extra;
+        stack[newB + CP_PREV_B] = B;
+        stack[newB + CP_E] = E;
+        stack[newB + CP_CP] = CP;
+        stack[newB + CP_ALT] = alternative;
+        stack[newB + CP_TR] = TR;
+        stack[newB + CP_H] = H;
+        System.arraycopy(regs, 1, stack, newB + CP_ARGS, n);
+        B = newB;
+        HB = H;
+    }
+
+    /** Discards the newest choice point; the boundary moves back to the previous one's H. */
+    private void popChoicePoint() {
+        B = (int) stack[B + CP_PREV_B];
+        HB = B < 0 ? 0 : (int) stack[B + CP_H];
+    }
+
+    /**
+     * Discards every choice point newer than b. Their frames become free stack space,
+     * except where the current environment still lies above them.
+     */
+    private void cutTo(int b) {
+        if (b < B) {
+            B = b;
+            HB = B < 0 ? 0 : (int) stack[B + CP_H];
+        }
+    }
+
+    /**
+     * Runs the clauses a JIT index selected for the current call. Several candidates get a
+     * choice point that resumes at the shared JIT_RETRY stub; that stub finds the next
+     * candidate from the predicate, argument position and key saved in the frame.
+     */
+    private void tryCandidates(int pred, int arity, int[] candidates) {
+        if (candidates.length == 0) {
+            fail = true;
+            return;
+        }
+        if (candidates.length > 1) {
+            pushChoicePoint(arity, program.jitRetry, JIT_WORDS);
+            int extra = B + CP_ARGS + arity;
+            stack[extra + JIT_PRED] = pred;
+            stack[extra + JIT_ARG] = jit.selectedArg;
+            stack[extra + JIT_KEY] = jit.selectedKey;
+            stack[extra + JIT_NEXT] = 1;
+        }
+        P = candidates[0];
+    }
+
+    // --- FACT TABLES ---
+
+    /**
+     * The position of the first candidate in [i, end) whose row matches the bound arguments,
+     * or 'end'. Rows are checked against A1..An without binding anything.
+     */
+    private int nextFactRow(FactStore t, int source, int i, int end) {
+        for (; i < end; i++) {
+            int row = t.row(source, i);
+            boolean matches = true;
+            for (int k = 0; k < t.arity && matches; k++) {
+                long word = deref(regs[k + 1]);
+                matches = tag(word) != CON || value(word) == t.symbol(row, k);
+            }
+            if (matches) return i;
+        }
+        return end;
+    }
+
+    /** Unifies the arguments A1..An with a row and returns to the caller. */
+    private void returnRow(FactStore t, int row) {
+        for (int k = 0; k < t.arity && !fail; k++) {
+            unifyWithConstant(regs[k + 1], t.symbol(row, k));
+        }
+        P = CP;
+    }
+
+    // --- OR-PARALLELISM ---
+
+    /**
+     * The part of a machine's state below a choice point: everything another worker needs to
+     * resume that choice point's alternatives in its own machine.
+     * @param heap The heap up to the choice point's H, with later bindings of older cells undone.
+     * @param stack The stack up to the end of the choice point's frame.
+     * @param trail The trail up to the choice point's TR.
+     * @param b The address of the choice point.
+     * @param parallelAnswers The answers that the PAR_RETRY choice points below it return.
+     */
+    record SharedChoice(long[] heap, long[] stack, int[] trail, int b, List<ParallelAnswers> parallelAnswers) {
+    }
+
+    /** Makes this machine run a share of an OR-parallel search, or (with null) run on its own again. */
+    void workFor(OrParallel.Branch branch) {
+        orBranch = branch;
+        shareCountdown = branch == null ? Integer.MAX_VALUE : OrParallel.SHARE_INTERVAL;
+    }
+
+    /** Called every {@link OrParallel#SHARE_INTERVAL} procedure calls of a worker; never otherwise. */
+    private void offerWork() {
+        if (orBranch == null) {
+            shareCountdown = Integer.MAX_VALUE;
+            return;
+        }
+        shareCountdown = OrParallel.SHARE_INTERVAL;
+        orBranch.offerWork();
+    }
+
+    /**
+     * Gives the oldest choice point that still has alternatives to another worker. Its frame
+     * stays where it is, since cut barriers may point at it, but it now resumes at the
+     * STOLEN_RETRY stub, which skips it.
+     * <p>
+     * A choice point that a cut still to run could remove is never given away: in sequential
+     * order that cut would discard its alternatives, so no worker may run them. Older choice
+     * points are the least likely to be cut and usually have the most work left below them.
+     * Must be called at a procedure call, like the garbage collector.
+     * @return A copy of the state below the choice point, or null if none can be given away.
+     */
+    SharedChoice shareChoicePoint() {
+        int b = -1;
+        for (int c = B; c >= 0 && stack[c + CP_ALT] != program.stolenRetry; c = (int) stack[c + CP_PREV_B]) {
+            b = c;
+        }
+        if (b < 0 || cutPending(b)) return null;
+
+        int h = (int) stack[b + CP_H];
+        int tr = (int) stack[b + CP_TR];
+        int end = b + CP_ARGS + (int) stack[b + CP_N] + (int) stack[b + CP_EXTRA];
+
+        // Cells above the saved H are discarded on backtracking, and older cells bound since are
+        // reset by the trail; the copy gets both done already.
+        long[] heapCopy = Arrays.copyOf(heap, h);
+        for (int t = tr; t < TR; t++) {
+            if (trail[t] < h) heapCopy[trail[t]] = ref(trail[t]);
+        }
+        long[] stackCopy = Arrays.copyOf(stack, end);
+        // Everything older has already been given away, so the other worker stops at this one.
+        stackCopy[b + CP_PREV_B] = -1;
+
+        stack[b + CP_ALT] = program.stolenRetry;
+        return new SharedChoice(heapCopy, stackCopy, Arrays.copyOf(trail, tr), b, List.copyOf(parallelAnswers));
+    }
+
+    /**
+     * True if a CUT still to run in the current continuation would remove choice point b.
+     * Each clause body the machine will return to is scanned from its continuation to its end;
+     * a cut there discards every choice point newer than the level saved in its environment.
+     */
+    private boolean cutPending(int b) {
+        final int[] code = program.code;
+        int e = E;
+        int continuation = CP;
+        while (continuation > 0 && e >= 0) {
+            for (int p = continuation; ; p += LinkedProgram.WIDTH) {
+                Opcode op = Opcode.VALUES[code[p + LinkedProgram.OP]];
+                if (op == Opcode.CUT) {
+                    long level = stack[e + ENV_VARS + code[p + LinkedProgram.ARG] - Instruction.Y_BASE];
+                    if ((int) (level >>> TAG_BITS) - 1 < b) return true;
+                } else if (op == Opcode.DEALLOCATE || op == Opcode.EXECUTE || op == Opcode.PROCEED
+                        || op == Opcode.HALT) {
+                    break;
+                }
             }
+            continuation = (int) stack[e + ENV_CP];
+            e = (int) stack[e + ENV_CE];
         }
+        return false;
+    }
+
+    /** Takes over a choice point given away by another worker and backtracks into it. */
+    void resumeShared(SharedChoice shared) {
+        reset();
+        if (shared.heap().length > heap.length) growHeap(shared.heap().length);
+        if (shared.stack().length > stack.length) growStack(shared.stack().length);
+        if (shared.trail().length > trail.length) {
+            trail = Arrays.copyOf(trail, grownSize(trail.length, shared.trail().length, trailLimit, "trail"));
+        }
+        System.arraycopy(shared.heap(), 0, heap, 0, shared.heap().length);
+        System.arraycopy(shared.stack(), 0, stack, 0, shared.stack().length);
+        System.arraycopy(shared.trail(), 0, trail, 0, shared.trail().length);
+        H = shared.heap().length;
+        TR = shared.trail().length;
+        B = shared.b();
+        // The answer arrays are never modified, so both workers can read them.
+        parallelAnswers.addAll(shared.parallelAnswers());
+        backtrack();
+    }
+
+    /**
+     * The query's variables once it has halted, encoded (see {@link #encode}) in the order of
+     * their environment slots (see {@link CompilerResult#variables}).
+     */
+    long[] queryAnswer() {
+        // The query allocates its environment first and never deallocates it.
+        return encode(stack, E + ENV_VARS, program.code[program.entry + LinkedProgram.REG]);
+    }
+
+    // --- AND-PARALLELISM ---
+    // A parallel conjunction (see AndParallelizer) is entered through PAR_CALL, followed by one
+    // PAR_GOAL per goal. If the goals turn out to be independent, each goal runs to exhaustion on
+    // a child machine of its own, all at once on the fork-join pool, and the conjunction returns
+    // the cross product of their answers: every answer of the last goal for each answer of the one
+    // before it, and so on, which is the order sequential execution would produce them in.
+
+    /**
+     * The answers of each goal of a parallel conjunction, kept while its choice point may exist.
+     * @param choicePoint The address of the choice point that returns them.
+     * @param answers For each goal, its answers encoded as by {@link #encode}.
+     */
+    record ParallelAnswers(int choicePoint, long[][][] answers) {
+    }
+
+    /**
+     * The runtime independence check of PAR_CALL: true if no unbound variable can be reached from
+     * the arguments of two different goals, so no goal can bind a variable another one sees.
+     * A variable that several goals share in the source passes only if it is ground by now.
+     * Costs one walk over the arguments, which is why the compiler only shares variables that
+     * are bound before the conjunction.
+     */
+    private boolean independentGoals(int p, int goals) {
+        final int[] code = program.code;
+        Map<Integer, Integer> owners = new HashMap<>();
+        for (int j = 0; j < goals; j++) {
+            int registers = code[p + (j + 1) * LinkedProgram.WIDTH + LinkedProgram.ARG];
+            for (int i = 1; registers != 0; i++, registers >>>= 1) {
+                if ((registers & 1) != 0 && !claimVariables(regs[i], j, owners)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records goal j as the owner of every unbound variable in a term. Walks the term with the
+     * top part of the PDL as its work list, like {@link #occursIn}.
+     * @return false if another goal already owns one of them.
+     */
+    private boolean claimVariables(long term, int j, Map<Integer, Integer> owners) {
+        int base = pdlTop;
+        long word = deref(term);
+        while (true) {
+            if (tag(word) == REF) {
+                Integer owner = owners.putIfAbsent(value(word), j);
+                if (owner != null && owner != j) {
+                    pdlTop = base;
+                    return false;
+                }
+            } else if (tag(word) == STR) {
+                int s = value(word);
+                int arity = symbols.arity(value(heap[s]));
+                ensurePdl(arity);
+                for (int k = 1; k <= arity; k++) {
+                    pdl[pdlTop++] = s + k;
+                }
+            }
+            if (pdlTop == base) return true;
+            word = deref(heap[pdl[--pdlTop]]);
+        }
+    }
+
+    /**
+     * Runs every goal of a parallel conjunction to exhaustion on its own child machine and
+     * returns their answers. The goals run at once on the fork-join pool this thread belongs to,
+     * or the common pool; this thread runs one of them itself.
+     * @throws WamResourceError If some goal ran out of memory.
+     */
+    private long[][][] solveGoals(int p, int goals) {
+        final int[] code = program.code;
+        if (goalChildren.length < goals) {
+            goalChildren = Arrays.copyOf(goalChildren, goals);
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(goals);
+        for (int j = 0; j < goals; j++) {
+            int goal = p + (j + 1) * LinkedProgram.WIDTH;
+            int registers = code[goal + LinkedProgram.ARG];
+            long[] arguments = new long[Integer.bitCount(registers)];
+            for (int i = 1, n = 0; registers != 0; i++, registers >>>= 1) {
+                if ((registers & 1) != 0) arguments[n++] = regs[i];
+            }
+            WamMachine child = goalChild(j);
+            long[] call = encode(arguments, 0, arguments.length);
+            int driver = code[goal + LinkedProgram.LABEL];
+            tasks.add(ForkJoinTask.adapt(() -> child.solveGoal(call, arguments.length, driver)));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        long[][][] answers = new long[goals][][];
+        for (int j = 0; j < goals; j++) {
+            WamMachine child = goalChildren[j];
+            if (child.resourceError != null) throw child.resourceError;
+            answers[j] = child.goalAnswers.toArray(new long[0][]);
+            child.goalAnswers = null;
+        }
+        return answers;
+    }
+
+    /** The child machine that runs goal j of this machine's parallel conjunctions. */
+    private WamMachine goalChild(int j) {
+        WamMachine child = goalChildren[j];
+        if (child == null || child.program.predicates != program.predicates) {
+            child = new WamMachine(heapLimit, stackLimit, trailLimit, CHILD_INITIAL_SIZE);
+            child.jit = new JitIndexer(child, program);
+            goalChildren[j] = child;
+        }
+        child.program = program;
+        child.tables = tables;
+        child.occursCheck = occursCheck;
+        child.gcEnabled = gcEnabled;
+        return child;
+    }
+
+    /**
+     * Runs a goal's driver on its encoded arguments until it has no more solutions. The driver
+     * records each solution with NEW_ANSWER; {@link #resourceError} is set if it ran out of memory.
+     */
+    private void solveGoal(long[] call, int arity, int driver) {
+        reset();
+        goalAnswers = new ArrayList<>();
+        int base = decode(call);
+        for (int i = 0; i < arity; i++) {
+            regs[i + 1] = heap[base + i];
+        }
+        P = driver;
+        run();
+    }
+
+    private static long combinations(long[][][] answers) {
+        long combinations = 1;
+        for (long[][] goal : answers) {
+            combinations *= goal.length;
+        }
+        return combinations;
+    }
+
+    /**
+     * Unifies the arguments of a parallel conjunction with one combination of its goals'
+     * answers and returns to the caller. The last goal's answer changes fastest.
+     */
+    private void returnCombination(int p, long[][][] answers, long combination) {
+        final int[] code = program.code;
+        for (int j = answers.length - 1; j >= 0 && !fail; j--) {
+            long[][] goal = answers[j];
+            int base = decode(goal[(int) (combination % goal.length)]);
+            combination /= goal.length;
+            int registers = code[p + (j + 1) * LinkedProgram.WIDTH + LinkedProgram.ARG];
+            for (int i = 1, n = 0; registers != 0 && !fail; i++, registers >>>= 1) {
+                if ((registers & 1) != 0) unify(regs[i], heap[base + n++]);
+            }
+        }
+        P = CP;
+    }
+
+    // --- TABLING ---
+
+    /**
+     * Encodes n words (terms) into a self-contained block: the n words come first, followed by
+     * the cells of every structure they contain, laid out breadth-first. STR words hold offsets
+     * within the block, and each unbound variable becomes a self-reference at its first occurrence.
+     * Two tuples that are variants of each other encode to identical blocks.
+     * <p>
+     * Shared subterms are copied once per occurrence, so a block may be larger than the heap
+     * cells it comes from, but never larger than the heap limit, since it could not be decoded.
+     * A cyclic term, which unification can build without the occurs check, would encode to an
+     * infinite block. A block only outgrows the heap in use if its terms share subterms or are
+     * cyclic, so at that point they are checked for cycles.
+     * @throws WamResourceError If the block would exceed the heap limit, or the terms are cyclic.
+     */
+    long[] encode(long[] source, int from, int n) {
+        long[] block = new long[Math.max(n, 8)];
+        for (int i = 0; i < n; i++) {
+            block[i] = source[from + i];
+        }
+        Map<Integer, Integer> variables = new HashMap<>();
+        int size = n;
+        boolean acyclic = false;
+        // Cells below 'size' not yet visited still hold heap words to encode.
+        for (int i = 0; i < size; i++) {
+            long word = deref(block[i]);
+            switch (tag(word)) {
+                case REF: {
+                    Integer first = variables.putIfAbsent(value(word), i);
+                    block[i] = ref(first == null ? i : first);
+                    break;
+                }
+                case STR: {
+                    int addr = value(word);
+                    int arity = symbols.arity(value(heap[addr]));
+                    if (size + 1 + arity > H && !acyclic) {
+                        if (cyclic(source, from, n)) throw new WamResourceError("heap", heapLimit);
+                        acyclic = true;
+                    }
+                    if (size + 1 + arity > heapLimit) throw new WamResourceError("heap", heapLimit);
+                    if (size + 1 + arity > block.length) {
+                        block = Arrays.copyOf(block, Math.max(block.length * 2, size + 1 + arity));
+                    }
+                    System.arraycopy(heap, addr, block, size, 1 + arity);
+                    block[i] = str(size);
+                    size += 1 + arity;
+                    break;
+                }
+                default:
+                    block[i] = word;
+                    break;
+            }
+        }
+        return Arrays.copyOf(block, size);
+    }
+
+    /** Whether any of n words reaches a structure that contains itself. */
+    private boolean cyclic(long[] source, int from, int n) {
+        byte[] state = new byte[H]; // Per structure: 0 = not seen, 1 = on the current path, 2 = done
+        int[] path = new int[16];   // The structures on the current path, outermost first,
+        int[] next = new int[16];   // and the argument of each to look at next
+        for (int i = 0; i < n; i++) {
+            long root = deref(source[from + i]);
+            if (tag(root) != STR || state[value(root)] != 0) continue;
+            path[0] = value(root);
+            next[0] = 1;
+            state[path[0]] = 1;
+            int depth = 1;
+            while (depth > 0) {
+                int addr = path[depth - 1];
+                int arg = next[depth - 1]++;
+                if (arg > symbols.arity(value(heap[addr]))) {
+                    state[addr] = 2;
+                    depth--;
+                    continue;
+                }
+                long word = deref(heap[addr + arg]);
+                if (tag(word) != STR || state[value(word)] == 2) continue;
+                if (state[value(word)] == 1) return true;
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, depth * 2);
+                    next = Arrays.copyOf(next, depth * 2);
+                }
+                path[depth] = value(word);
+                next[depth] = 1;
+                state[path[depth]] = 1;
+                depth++;
+            }
+        }
+        return false;
+    }
+
+    /** Copies an encoded block onto the heap, relocating its offsets, and returns its address. */
+    private int decode(long[] block) {
+        ensureHeap(block.length);
+        int base = H;
+        for (int i = 0; i < block.length; i++) {
+            long word = block[i];
+            switch (tag(word)) {
+                case REF: heap[base + i] = ref(base + value(word)); break;
+                case STR: heap[base + i] = str(base + value(word)); break;
+                default: heap[base + i] = word; break;
+            }
+        }
+        H += block.length;
+        return base;
+    }
+
+    /** Unifies the arguments A1..An with an answer and returns to the caller. */
+    private void returnAnswer(long[] answer, int arity) {
+        int base = decode(answer);
+        for (int i = 0; i < arity && !fail; i++) {
+            unify(regs[i + 1], heap[base + i]);
+        }
+        P = CP;
+    }
+
+    /** The child machine that evaluates tabled subgoals for this one. */
+    WamMachine tableChild() {
+        if (tableChild == null || tableChild.program.predicates != program.predicates) {
+            // Children start small: nested evaluations are usually short.
+            tableChild = new WamMachine(heapLimit, stackLimit, trailLimit, CHILD_INITIAL_SIZE);
+            tableChild.jit = new JitIndexer(tableChild, program);
+        }
+        // A child only runs program code, which is the same in every query's code array.
+        tableChild.program = program;
+        tableChild.tables = tables;
+        tableChild.occursCheck = occursCheck;
+        tableChild.gcEnabled = gcEnabled;
+        return tableChild;
+    }
+
+    /**
+     * Runs a tabled predicate's driver for a subgoal until it has no more solutions. The driver
+     * records each solution with NEW_ANSWER; {@link #resourceError} is set if it ran out of memory.
+     */
+    void solveTabled(TableSpace.Table t, int arity, int driver) {
+        reset();
+        resourceError = null;
+        answerTable = t;
+        int base = decode(t.call.words);
+        for (int i = 0; i < arity; i++) {
+            regs[i + 1] = heap[base + i];
+        }
+        P = driver;
+        run();
+    }
+
+    /** Jumps to an index target, or fails if the index says no clause can match (-1). */
+    private void jumpOrFail(int target) {
+        if (target < 0) {
+            fail = true;
+        } else {
+            P = target;
+        }
+    }
+
+    // --- COLD PATHS ---
+    // Error reporting is kept out of run() so the hot loop stays compact.
+
+    private void unknownProcedure(int predicateId) {
+        System.err.println("Error: Unknown procedure " + symbols.signature(predicateId));
+        fail = true;
+    }
+
+    private void unsupportedInstruction(int p) {
+        System.err.println("Error: Unsupported instruction " + Opcode.VALUES[program.code[p + LinkedProgram.OP]] + " at " + p);
+        fail = true;
+    }
+
+    private void unifyRegisterWithConstant(int regIndex, int constId) {
+        unifyWithConstant(regs[regIndex], constId);
+    }
+
+    /** Unifies a word with a constant: binds it if it is an unbound variable, else compares. */
+    private void unifyWithConstant(long w, int constId) {
+        // Follow the reference chain
+        long word = deref(w);
 
-        if (cell.tag == WamTag.REF) {
-            // Bind unbound variable
-            heap[H] = WamCell.Cons(constName);
-            bind(cell.pointer, H);
-            H++;
-        } else if (cell.tag == WamTag.CON) {
-            if (!cell.value.equals(constName)) fail = true;
+        if (tag(word) == REF) {
+            // Bind unbound variable: the constant is written straight into the variable's cell.
+            bind(value(word), con(constId));
+        } else if (tag(word) == CON) {
+            if (value(word) != constId) fail = true;
         } else {
             fail = true;
         }
     }
 
     public boolean hasChoices() {
-        return !choiceStack.isEmpty();
+        return B >= 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package wam;
+
+/**
+ * Raised when a memory area of the {@link WamMachine} would have to grow beyond its configured limit.
+ * <p>
+ * The machine catches this internally and treats it like a failed unification: execution
+ * backtracks to the newest choice point, which releases the heap, stack and trail used by the
+ * abandoned branch. The error is kept in {@link WamMachine#resourceError} so callers can tell
+ * "no more answers" apart from "ran out of memory".
+ */
+public class WamResourceError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /** The area that overflowed: "heap", "stack" or "trail". */
+    public final String area;
+
+    /** The configured limit of that area, in words. */
+    public final int limit;
+
+    public WamResourceError(String area, int limit) {
+        super("resource error: " + area + " limit of " + limit + " words exceeded");
+        this.area = area;
+        this.limit = limit;
+    }
+}
@@ -1,19 +1,23 @@
 package wam;
 
 /**
- * Defines the type of data stored in a WamCell.
+ * Defines the type of data stored in a memory word.
  * This is the core of the WAM's tagged architecture.
+ * The packed encoding of each tag lives in {@link WamWord}.
  */
 public enum WamTag {
     /** A reference (pointer) to another cell. Represents a WAM variable. */
     REF,
 
-    /** A structure marker. The cell's value is the functor/arity, and its pointer points to the first argument on the heap. */
+    /** A structure marker. Its pointer points to the FUN cell of the structure on the heap. */
     STR,
 
-    /** A constant value (an atom). The cell's value holds the atom's name. */
-    CON
+    /** A constant value (an atom). The word's payload holds the atom's id. */
+    CON,
+
+    /** A functor cell (f/n). It heads a structure on the heap and is followed by its n arguments. */
+    FUN
 
     // In a more complete WAM, you might add:
     // LIS for lists, INT for integers, etc.
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package wam;
+
+/**
+ * Encodes and decodes the packed "words" that make up the WAM's memory.
+ * <p>
+ * Every cell of the heap, the stack and the register file is a single primitive {@code long}.
+ * The low {@link #TAG_BITS} bits hold the tag (REF, STR, CON, FUN) and the remaining high bits
+ * hold the payload: a heap address for REF and STR, or a symbol id for CON and FUN.
+ * <pre>
+ *   63                                        3 2   0
+ *  +-------------------------------------------+-----+
+ *  |            address / symbol id            | tag |
+ *  +-------------------------------------------+-----+
+ * </pre>
+ * Using raw longs instead of cell objects means that building and binding terms never
+ * allocates, and consecutive heap cells sit next to each other in memory.
+ */
+public final class WamWord {
+
+    /** Number of low bits reserved for the tag. */
+    public static final int TAG_BITS = 3;
+
+    /** Mask selecting the tag bits of a word. */
+    public static final long TAG_MASK = (1L << TAG_BITS) - 1;
+
+    // --- TAG VALUES ---
+    // Tag 0 is deliberately unused so that a zeroed cell (EMPTY) is never mistaken for a term.
+
+    /** A reference (variable). The payload is the heap address it points to. */
+    public static final int REF = 1;
+
+    /** A structure. The payload is the heap address of its FUN cell. */
+    public static final int STR = 2;
+
+    /** A constant (atom). The payload is the atom's symbol id. */
+    public static final int CON = 3;
+
+    /** A functor cell (f/n) heading a structure on the heap. The payload is the functor's symbol id. */
+    public static final int FUN = 4;
+
+    /** The value of a register or cell that has never been written. */
+    public static final long EMPTY = 0L;
+
+    private WamWord() {
+        // Static helpers only.
+    }
+
+    // --- CONSTRUCTION ---
+
+    /** Builds a REF word pointing to the given heap address. */
+    public static long ref(int address) {
+        return ((long) address << TAG_BITS) | REF;
+    }
+
+    /** Builds a STR word pointing to the FUN cell at the given heap address. */
+    public static long str(int address) {
+        return ((long) address << TAG_BITS) | STR;
+    }
+
+    /** Builds a CON word for the given atom id. */
+    public static long con(int atomId) {
+        return ((long) atomId << TAG_BITS) | CON;
+    }
+
+    /** Builds a FUN word for the given functor id. */
+    public static long fun(int functorId) {
+        return ((long) functorId << TAG_BITS) | FUN;
+    }
+
+    // --- DECODING ---
+
+    /** Extracts the tag of a word. */
+    public static int tag(long word) {
+        return (int) (word & TAG_MASK);
+    }
+
+    /** Extracts the payload of a word: an address for REF/STR, a symbol id for CON/FUN. */
+    public static int value(long word) {
+        return (int) (word >>> TAG_BITS);
+    }
+
+    /** Maps a word's tag back to the {@link WamTag} enum, for debugging and display. */
+    public static WamTag tagOf(long word) {
+        switch (tag(word)) {
+            case REF: return WamTag.REF;
+            case STR: return WamTag.STR;
+            case CON: return WamTag.CON;
+            case FUN: return WamTag.FUN;
+            default: return null;
+        }
+    }
+
+    /** Renders a word for debugging, e.g. "REF(-> 12)" or "CON(#3)". */
+    public static String toString(long word) {
+        switch (tag(word)) {
+            case REF: return "REF(-> " + value(word) + ")";
+            case STR: return "STR(-> " + value(word) + ")";
+            case CON: return "CON(#" + value(word) + ")";
+            case FUN: return "FUN(#" + value(word) + ")";
+            default: return "EMPTY";
+        }
+    }
+}
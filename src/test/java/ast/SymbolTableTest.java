@@ -0,0 +1,90 @@
+package ast;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolTableTest {
+
+    @Test
+    void symbolsGetDenseIdsOnFirstSighting() {
+        SymbolTable symbols = new SymbolTable();
+        int tom = symbols.atom("tom");
+        int parent = symbols.functor("parent", 2);
+        assertEquals(0, tom);
+        assertEquals(1, parent);
+        assertEquals(tom, symbols.atom("tom"));
+        assertEquals(tom, symbols.functor("tom", 0));
+        assertEquals(2, symbols.size());
+
+        assertEquals("parent", symbols.name(parent));
+        assertEquals(2, symbols.arity(parent));
+        assertEquals("parent/2", symbols.signature(parent));
+        assertEquals("tom", symbols.signature(tom));
+    }
+
+    @Test
+    void lookupDoesNotAssign() {
+        SymbolTable symbols = new SymbolTable();
+        assertEquals(-1, symbols.lookup("tom", 0));
+        assertEquals(0, symbols.size());
+        int id = symbols.atom("tom");
+        assertEquals(id, symbols.lookup("tom", 0));
+        assertEquals(-1, symbols.lookup("tom", 1));
+    }
+
+    @Test
+    void atomsWithSlashesAreNotFunctors() {
+        SymbolTable symbols = new SymbolTable();
+        int functor = symbols.functor("p", 1);
+        int atom = symbols.atom("p/1");
+        assertNotEquals(functor, atom);
+        assertEquals("p/1", symbols.name(atom));
+        assertEquals(0, symbols.arity(atom));
+    }
+
+    @Test
+    void tableGrowsPastItsInitialCapacity() {
+        SymbolTable symbols = new SymbolTable();
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, symbols.atom("a" + i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("a" + i, symbols.name(i));
+        }
+    }
+
+    @Test
+    void concurrentInterningAgreesOnIds() throws Exception {
+        SymbolTable symbols = new SymbolTable();
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(threads.submit(() -> {
+                    int[] ids = new int[2000];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = symbols.atom("s" + i);
+                    }
+                    return ids;
+                }));
+            }
+            int[] first = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertArrayEquals(first, result.get());
+            }
+            assertEquals(2000, symbols.size());
+            for (int i = 0; i < first.length; i++) {
+                assertEquals("s" + i, symbols.name(first[i]));
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+}
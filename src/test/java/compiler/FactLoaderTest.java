@@ -0,0 +1,96 @@
+package compiler;
+
+import ast.FactTable;
+import ast.SymbolTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FactLoaderTest {
+
+    private static final SymbolTable SYMBOLS = SymbolTable.GLOBAL;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void prologFactsAreAppendedToTheirPredicate() throws IOException {
+        FactLoader loader = new FactLoader();
+        Path file = write("kb.pl", """
+                % family
+                parent(anakin, luke). parent(anakin,leia).
+                parent( leia , ben ).
+                jedi(luke).
+                ready.
+                """);
+        assertEquals(5, loader.load(file));
+
+        FactTable parent = loader.getTables().get(SYMBOLS.functor("parent", 2));
+        assertEquals(3, parent.size());
+        assertEquals("leia", SYMBOLS.name(parent.get(1, 1)));
+        assertEquals("ben", SYMBOLS.name(parent.get(2, 1)));
+        assertEquals(1, loader.getTables().get(SYMBOLS.functor("jedi", 1)).size());
+        assertEquals(1, loader.getTables().get(SYMBOLS.functor("ready", 0)).size());
+    }
+
+    @Test
+    void tsvLinesAreFactsOfThePredicateNamedAfterTheFile() throws IOException {
+        FactLoader loader = new FactLoader();
+        assertEquals(3, loader.load(write("edge.tsv", "a\tb\r\nb\tc\n\nc\tHan Solo\n")));
+
+        FactTable edge = loader.getTables().get(SYMBOLS.functor("edge", 2));
+        assertEquals(3, edge.size());
+        assertEquals("Han Solo", SYMBOLS.name(edge.get(2, 1)));
+        // A field is an atom even when it looks like a functor.
+        loader.load(write("name.tsv", "edge/2\n"));
+        int atom = loader.getTables().get(SYMBOLS.functor("name", 1)).get(0, 0);
+        assertEquals(0, SYMBOLS.arity(atom));
+        assertNotEquals(SYMBOLS.functor("edge", 2), atom);
+    }
+
+    @Test
+    void filesLargerThanTheBufferAreStreamed() throws IOException {
+        StringBuilder facts = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            facts.append("node(n").append(i).append(", long_atom_name_").append(i % 97).append(").\n");
+        }
+        FactLoader loader = new FactLoader();
+        assertEquals(20000, loader.load(write("nodes.pl", facts.toString())));
+        FactTable node = loader.getTables().get(SYMBOLS.functor("node", 2));
+        assertEquals("n19999", SYMBOLS.name(node.get(19999, 0)));
+        assertEquals("long_atom_name_" + 19999 % 97, SYMBOLS.name(node.get(19999, 1)));
+    }
+
+    @Test
+    void factsWithoutArgumentsAreCounted() throws IOException {
+        FactLoader loader = new FactLoader();
+        assertEquals(40000, loader.load(write("tick.pl", "tick.\n".repeat(40000))));
+        assertEquals(40000, loader.getTables().get(SYMBOLS.functor("tick", 0)).size());
+    }
+
+    @Test
+    void errorsNameTheFileAndLine() throws IOException {
+        FactLoader loader = new FactLoader();
+        Path rule = write("rule.pl", "p(a).\np(X).\n");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> loader.load(rule));
+        assertTrue(e.getMessage().startsWith(rule + ":2:"), e.getMessage());
+        assertTrue(e.getMessage().contains("variables"), e.getMessage());
+
+        Path nested = write("nested.pl", "p(f(a)).\n");
+        e = assertThrows(IllegalArgumentException.class, () -> loader.load(nested));
+        assertTrue(e.getMessage().contains("nested terms"), e.getMessage());
+
+        Path ragged = write("ragged.tsv", "a\tb\nc\n");
+        e = assertThrows(IllegalArgumentException.class, () -> loader.load(ragged));
+        assertTrue(e.getMessage().startsWith(ragged + ":2: expected 2 fields but found 1"), e.getMessage());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content);
+    }
+}
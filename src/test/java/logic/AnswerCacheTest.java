@@ -0,0 +1,82 @@
+package logic;
+
+import ast.Term;
+import compiler.ASTGenerator;
+import ast.Program;
+import generated.LogicMiniLexer;
+import generated.LogicMiniParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerCacheTest {
+
+    private static List<Term> goals(String query) {
+        LogicMiniParser parser = new LogicMiniParser(new CommonTokenStream(new LogicMiniLexer(CharStreams.fromString(query))));
+        return ((Program) new ASTGenerator().visit(parser.program())).getQuery();
+    }
+
+    private static AnswerCache.Entry entry(int answers) {
+        return new AnswerCache.Entry(new int[]{0}, 1, java.util.Collections.nCopies(answers, new long[]{0}), false);
+    }
+
+    @Test
+    void variantsShareAnEntryUnderTheirOwnNames() {
+        List<Term> asked = goals("?- parent(X, leia), parent(X, Y).");
+        List<Term> variant = goals("?- parent(Who, leia), parent(Who, Child).");
+        assertEquals(AnswerCache.normalize(asked), AnswerCache.normalize(variant));
+        assertNotEquals(AnswerCache.normalize(asked), AnswerCache.normalize(goals("?- parent(X, leia), parent(Y, X).")));
+
+        AnswerCache cache = new AnswerCache();
+        // The second variable's value is in slot 0, the first's in slot 1.
+        cache.put(1, AnswerCache.normalize(asked), new AnswerCache.Entry(new int[]{1, 0}, 2, List.of(), false));
+        AnswerCache.Entry hit = cache.get(1, AnswerCache.normalize(variant));
+        assertNotNull(hit);
+        assertEquals(List.of("Child", "Who"), hit.names(AnswerCache.variables(variant)));
+    }
+
+    @Test
+    void entriesRememberHowTheRunEnded() {
+        AnswerCache cache = new AnswerCache();
+        cache.put(1, "p(_0)", new AnswerCache.Entry(new int[]{0}, 1, List.of(new long[]{0}), true));
+        cache.put(1, "q(_0)", entry(1));
+        assertTrue(cache.get(1, "p(_0)").askedAfterLast());
+        assertFalse(cache.get(1, "q(_0)").askedAfterLast());
+    }
+
+    @Test
+    void newKnowledgeBaseVersionDropsEveryEntry() {
+        AnswerCache cache = new AnswerCache();
+        cache.put(1, "p(_0)", entry(2));
+        assertNotNull(cache.get(1, "p(_0)"));
+
+        assertNull(cache.get(2, "p(_0)"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+        cache.put(2, "p(_0)", entry(1));
+        assertEquals(1, cache.get(2, "p(_0)").answers().size());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() {
+        AnswerCache cache = new AnswerCache(2, Long.MAX_VALUE);
+        cache.put(1, "a", entry(1));
+        cache.put(1, "b", entry(1));
+        cache.get(1, "a");
+        cache.put(1, "c", entry(1));
+        assertNull(cache.get(1, "b"));
+        assertNotNull(cache.get(1, "a"));
+        assertNotNull(cache.get(1, "c"));
+        assertEquals(1, cache.evictions);
+
+        AnswerCache small = new AnswerCache(10, 10);
+        small.put(1, "a", entry(5));
+        small.put(1, "b", entry(5));
+        assertNull(small.get(1, "a"));
+        assertTrue(small.weight() <= 10);
+    }
+}
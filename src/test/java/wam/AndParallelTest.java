@@ -0,0 +1,56 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** AND-parallel execution must find the same answers, in the same order, as sequential execution. */
+class AndParallelTest {
+
+    private static final String SOURCE = """
+            p(a). p(b). p(c).
+            q(x). q(y).
+            e(a, b). e(b, c). e(c, d). e(a, c). e(b, d).
+            pair(X, Y) :- p(X), q(Y).
+            hop(X, Z) :- e(X, Y), e(Y, Z).
+            triple(X, Y, Z) :- p(X), q(Y), e(X, Z).
+            path(X, Y) :- e(X, Y).
+            path(X, Y) :- e(X, Z), path(Z, Y).
+            """;
+
+    private static final List<String> QUERIES = List.of(
+            "?- pair(X, Y).", "?- hop(X, Z).", "?- triple(X, Y, Z).", "?- triple(a, Y, Z).", "?- path(a, Y).",
+            "?- pair(X, Y), hop(X, Z).");
+
+    @Test
+    void andParallelAnswersMatchSequentialOnes() {
+        LinkedProgram sequential = Programs.link(SOURCE);
+        LinkedProgram parallel = Programs.link(SOURCE, Map.of(), List.of(), true);
+        for (String query : QUERIES) {
+            // The cross product of the goals' answers comes in the sequential order.
+            assertEquals(Programs.answers(sequential, query), Programs.answers(parallel, query), query);
+        }
+    }
+
+    @Test
+    void parallelConjunctionInsideATabledPredicateAnswers() {
+        StringBuilder source = new StringBuilder(":- table v/1.\n:- table t/2.\n");
+        for (int i = 0; i < 20000; i++) {
+            source.append("e(n").append(i).append(", n").append(i + 1).append(").\n");
+        }
+        // w(n0) walks the whole chain, so a worker takes v(Y) before this thread gets to it.
+        source.append("w(n20000).\nw(X) :- e(X, Z), w(Z).\nv(n1).\nv(n2).\nt(X, Y) :- w(X), v(Y).\n");
+        List<String> expected = Programs.answers(Programs.link(source.toString()), "?- t(n0, Y).");
+        assertEquals(List.of("Y = n1", "Y = n2"), expected);
+
+        // The evaluation of t/2 holds the table space while its body calls the tabled v/1.
+        LinkedProgram parallel = Programs.link(source.toString(), Map.of(), List.of(), true);
+        List<String> actual = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> Programs.answers(parallel, "?- t(n0, Y)."));
+        assertEquals(expected, actual);
+    }
+}
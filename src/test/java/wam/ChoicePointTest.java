@@ -0,0 +1,49 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChoicePointTest {
+
+    private static final String SOURCE = """
+            color(red).
+            color(green).
+            color(blue).
+            edge(X, a, Z) :- color(X), color(Z).
+            edge(X, b, Z) :- color(Z), color(X).
+            """;
+
+    @Test
+    void choicePointSavesOnlyThePredicatesArguments() {
+        WamMachine vm = Programs.machine(Programs.link(SOURCE));
+        try (Solutions solutions = vm.solve(Programs.query("?- color(X)."))) {
+            assertEquals("X = red", solutions.next().toString());
+            assertTrue(vm.B >= 0);
+            assertEquals(1, vm.stack[vm.B + WamMachine.CP_N]);
+            assertEquals(0, vm.stack[vm.B + WamMachine.CP_EXTRA]);
+        }
+        try (Solutions solutions = vm.solve(Programs.query("?- edge(X, M, Z)."))) {
+            solutions.next();
+            // Two choice points of color/1 on top of the one of edge/3, newest first.
+            List<Long> saved = new ArrayList<>();
+            for (int b = vm.B; b >= 0; b = (int) vm.stack[b + WamMachine.CP_PREV_B]) {
+                saved.add(vm.stack[b + WamMachine.CP_N]);
+            }
+            assertEquals(List.of(1L, 1L, 3L), saved);
+        }
+    }
+
+    @Test
+    void backtrackingRestoresTheSavedArguments() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of("X = red", "X = green", "X = blue"), Programs.answers(program, "?- color(X)."));
+        List<String> answers = Programs.answers(program, "?- edge(red, M, Z).");
+        assertEquals(6, answers.size());
+        assertEquals("M = a, Z = red", answers.get(0));
+        assertEquals("M = b, Z = blue", answers.get(5));
+    }
+}
@@ -0,0 +1,60 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CutTest {
+
+    private static final String SOURCE = """
+            item(a).
+            item(b).
+            item(c).
+            big(b).
+            big(c).
+            max(X, Y, X) :- bigger(X, Y), !.
+            max(X, Y, Y).
+            bigger(b, a).
+            bigger(c, a).
+            bigger(c, b).
+            first_big(X) :- item(X), big(X), !.
+            kind(X, K) :- ( big(X) -> large(K) ; small(K) ).
+            large(large).
+            small(small).
+            some_item(X) :- once(item(X)).
+            """;
+
+    @Test
+    void cutCommitsToTheFirstSolution() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of("X = b"), Programs.answers(program, "?- first_big(X)."));
+        assertEquals(List.of("M = c"), Programs.answers(program, "?- max(c, a, M)."));
+        assertEquals(List.of("M = c"), Programs.answers(program, "?- max(a, c, M)."));
+        assertEquals(List.of("X = a"), Programs.answers(program, "?- item(X), !."));
+    }
+
+    @Test
+    void ifThenElseTakesOneBranch() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of("K = large"), Programs.answers(program, "?- kind(b, K)."));
+        assertEquals(List.of("K = small"), Programs.answers(program, "?- kind(a, K)."));
+        assertEquals(List.of("X = a, K = small", "X = b, K = large", "X = c, K = large"),
+                Programs.answers(program, "?- item(X), kind(X, K)."));
+    }
+
+    @Test
+    void onceLeavesNoChoicePoint() {
+        WamMachine vm = Programs.machine(Programs.link(SOURCE));
+        try (Solutions solutions = vm.solve(Programs.query("?- some_item(X)."))) {
+            assertEquals("X = a", solutions.next().toString());
+            assertFalse(vm.hasChoices());
+            assertFalse(solutions.mayHaveMore());
+        }
+        try (Solutions solutions = vm.solve(Programs.query("?- first_big(X)."))) {
+            assertEquals("X = b", solutions.next().toString());
+            assertFalse(vm.hasChoices());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnvironmentTest {
+
+    private static final String SOURCE = """
+            s(a, b).
+            s(b, c).
+            s(c, d).
+            t(d, done).
+            hop(X, Z) :- s(X, Y), s(Y, Z).
+            trip(A, R) :- hop(A, B), s(B, C), t(C, D), found(A, D, R).
+            found(A, D, r(A, D)).
+            """;
+
+    @Test
+    void framesShrinkAsPermanentVariablesDie() {
+        LinkedProgram program = Programs.link(SOURCE);
+        int p = program.labels.get("trip/2");
+        assertEquals(Opcode.ALLOCATE, Opcode.VALUES[program.code[p + LinkedProgram.OP]]);
+        int allocated = program.code[p + LinkedProgram.REG];
+
+        List<Integer> sizes = new ArrayList<>();
+        for (; Opcode.VALUES[program.code[p + LinkedProgram.OP]] != Opcode.EXECUTE; p += LinkedProgram.WIDTH) {
+            if (Opcode.VALUES[program.code[p + LinkedProgram.OP]] == Opcode.CALL) {
+                sizes.add(program.code[p + LinkedProgram.REG]);
+            }
+        }
+        assertEquals(3, sizes.size());
+        assertEquals(allocated, sizes.get(0));
+        for (int i = 1; i < sizes.size(); i++) {
+            assertTrue(sizes.get(i) <= sizes.get(i - 1), "environment grew: " + sizes);
+        }
+        assertTrue(sizes.get(2) < allocated, "environment was never trimmed: " + sizes);
+    }
+
+    @Test
+    void nestedRulesKeepTheirOwnVariables() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of("Z = c"), Programs.answers(program, "?- hop(a, Z)."));
+        assertEquals(List.of("R = r(a, done)"), Programs.answers(program, "?- trip(a, R)."));
+        assertEquals(List.of("A = a, R = r(a, done)"), Programs.answers(program, "?- trip(A, R)."));
+    }
+}
@@ -0,0 +1,83 @@
+package wam;
+
+import ast.SymbolTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FactColumnsTest {
+
+    private static final String SOURCE = """
+            flight(oslo, rome, sas).
+            flight(rome, oslo, ita).
+            flight(paris, rome, air).
+            flight(oslo, paris, sas).
+            flight(rome, paris, ita).
+            flight(lima, oslo, klm).
+            flight(paris, lima, air).
+            flight(oslo, lima, klm).
+            """;
+
+    @Test
+    void groundFactsAreStoredAsOneTable() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(1, program.factTables.length);
+        FactStore table = program.factTables[0];
+        assertEquals(8, table.rows);
+        assertEquals("paris", SymbolTable.GLOBAL.name(table.symbol(2, 0)));
+        assertEquals("klm", SymbolTable.GLOBAL.name(table.symbol(7, 2)));
+    }
+
+    @Test
+    void lookupsProbeEveryColumn() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of("To = rome, By = sas", "To = paris, By = sas", "To = lima, By = klm"),
+                Programs.answers(program, "?- flight(oslo, To, By)."));
+        assertEquals(List.of("From = oslo, By = sas", "From = paris, By = air"),
+                Programs.answers(program, "?- flight(From, rome, By)."));
+        assertEquals(List.of("From = lima, To = oslo", "From = oslo, To = lima"),
+                Programs.answers(program, "?- flight(From, To, klm)."));
+        assertEquals(List.of("true"), Programs.answers(program, "?- flight(rome, paris, ita)."));
+        assertEquals(List.of(), Programs.answers(program, "?- flight(rome, paris, sas)."));
+        assertEquals(List.of(), Programs.answers(program, "?- flight(tokyo, To, By)."));
+        assertEquals(8, Programs.answers(program, "?- flight(From, To, By).").size());
+    }
+
+    @Test
+    void sortedTableFindsTheSameAnswers() {
+        Compiler compiler = new Compiler();
+        compiler.sortFacts = true;
+        LinkedProgram program = new Linker().link(Programs.compile(compiler, SOURCE, Map.of()));
+        assertTrue(program.factTables[0].sorted);
+        List<String> fromOslo = Programs.answers(program, "?- flight(oslo, To, By).");
+        assertEquals(3, fromOslo.size());
+        assertTrue(fromOslo.containsAll(List.of("To = rome, By = sas", "To = paris, By = sas", "To = lima, By = klm")));
+        assertEquals(List.of("From = paris"), Programs.answers(program, "?- flight(From, rome, air)."));
+    }
+
+    @Test
+    void columnsAreDictionaryEncoded() {
+        SymbolTable symbols = SymbolTable.GLOBAL;
+        int[][] rows = {
+                {symbols.atom("x"), symbols.atom("one")},
+                {symbols.atom("y"), symbols.atom("one")},
+                {symbols.atom("x"), symbols.atom("two")},
+        };
+        FactColumns table = new FactColumns(symbols.functor("pair", 2), 2, rows.length, (r, k) -> rows[r][k], false);
+        assertEquals(2, table.dictionary(1).length);
+        assertEquals(-1, table.code(0, symbols.atom("z")));
+
+        int[] range = new int[2];
+        int source = table.probe(0, table.code(0, symbols.atom("x")), range);
+        assertEquals(2, range[1] - range[0]);
+        assertEquals(0, table.row(source, range[0]));
+        assertEquals(2, table.row(source, range[0] + 1));
+        for (int r = 0; r < rows.length; r++) {
+            assertEquals(rows[r][0], table.symbol(r, 0));
+            assertEquals(rows[r][1], table.symbol(r, 1));
+        }
+    }
+}
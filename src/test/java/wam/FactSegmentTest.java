@@ -0,0 +1,87 @@
+package wam;
+
+import ast.FactTable;
+import ast.SymbolTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FactSegmentTest {
+
+    private final SymbolTable symbols = SymbolTable.GLOBAL;
+
+    @TempDir
+    Path dir;
+
+    /** knows/2 over 20 people: person i knows person i+1 and person i+3. */
+    private FactTable knows() {
+        FactTable table = new FactTable(symbols.functor("knows", 2));
+        for (int i = 19; i >= 0; i--) {
+            table.add(new int[]{symbols.atom("p" + i), symbols.atom("p" + (i + 1))});
+            table.add(new int[]{symbols.atom("p" + i), symbols.atom("p" + (i + 3))});
+        }
+        return table;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void openedSegmentHoldsTheWrittenRows(boolean sort) throws IOException {
+        FactTable table = knows();
+        Path file = dir.resolve("knows.seg");
+        FactSegment.write(table, sort, file);
+        FactSegment segment = FactSegment.open(file);
+
+        assertEquals(table.getFunctorId(), segment.functorId);
+        assertEquals(table.size(), segment.rows);
+        List<String> written = new ArrayList<>(), read = new ArrayList<>();
+        for (int r = 0; r < table.size(); r++) {
+            written.add(symbols.name(table.get(r, 0)) + " " + symbols.name(table.get(r, 1)));
+            read.add(symbols.name(segment.symbol(r, 0)) + " " + symbols.name(segment.symbol(r, 1)));
+        }
+        if (sort) written.sort(null);
+        assertEquals(written, read);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void lookupsAnswerLikeAFactTable(boolean sort) throws IOException {
+        Path file = dir.resolve("knows.seg");
+        FactSegment.write(knows(), sort, file);
+        String source = "friend(X, Y) :- knows(X, Y).\n";
+        LinkedProgram inMemory = Programs.link(source, Map.of(symbols.functor("knows", 2), knows()), List.of(), false);
+        LinkedProgram mapped = Programs.link(source, Map.of(), List.of(FactSegment.open(file)), false);
+
+        for (String query : List.of("?- friend(p4, Y).", "?- friend(X, p7).", "?- friend(p2, p5).", "?- friend(p5, p2).")) {
+            List<String> expected = Programs.answers(inMemory, query);
+            List<String> actual = Programs.answers(mapped, query);
+            if (sort) {
+                expected.sort(null);
+                actual.sort(null);
+            }
+            assertEquals(expected, actual, query);
+        }
+        assertEquals(List.of("Y = p5", "Y = p7"), sorted(Programs.answers(mapped, "?- friend(p4, Y).")));
+        assertTrue(Programs.answers(mapped, "?- friend(p5, p2).").isEmpty());
+    }
+
+    private static List<String> sorted(List<String> answers) {
+        answers.sort(null);
+        return answers;
+    }
+
+    @Test
+    void fileThatIsNotASegmentIsRejected() throws IOException {
+        Path file = Files.writeString(dir.resolve("bad.seg"), "not a segment, not at all");
+        assertThrows(IOException.class, () -> FactSegment.open(file));
+    }
+}
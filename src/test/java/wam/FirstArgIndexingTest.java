@@ -0,0 +1,45 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FirstArgIndexingTest {
+
+    private static final String SOURCE = """
+            capital(france, paris).
+            capital(spain, madrid).
+            capital(italy, rome).
+            capital(peru, lima).
+            shape(circle(R), round).
+            shape(square(S), angular).
+            shape(X, unknown).
+            """;
+
+    @Test
+    void boundFirstArgumentLeavesNoChoicePoint() {
+        WamMachine vm = Programs.machine(Programs.link(SOURCE));
+        try (Solutions solutions = vm.solve(Programs.query("?- capital(italy, C)."))) {
+            assertEquals("C = rome", solutions.next().toString());
+            assertFalse(vm.hasChoices());
+            assertFalse(solutions.mayHaveMore());
+        }
+    }
+
+    @Test
+    void unboundFirstArgumentTriesEveryClause() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of("X = france, C = paris", "X = spain, C = madrid", "X = italy, C = rome", "X = peru, C = lima"),
+                Programs.answers(program, "?- capital(X, C)."));
+        assertEquals(List.of(), Programs.answers(program, "?- capital(chile, C)."));
+    }
+
+    @Test
+    void structuresAreIndexedByFunctor() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of("K = round", "K = unknown"), Programs.answers(program, "?- shape(circle(r), K)."));
+        assertEquals(List.of("K = unknown"), Programs.answers(program, "?- shape(dot, K)."));
+    }
+}
@@ -0,0 +1,53 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeapCollectorTest {
+
+    /** A chain of 20000 steps; each step builds a list cell that is kept and a larger term that is not. */
+    private static LinkedProgram program() {
+        StringBuilder source = new StringBuilder("""
+                junk(Y, f(Y, Y, Y, Y, Y, Y, Y, Y, Y, Y, Y, Y)).
+                loop(n20000).
+                loop(X) :- e(X, Y), junk(Y, J), loop(Y).
+                list(n20000, nil).
+                list(X, c(X, T)) :- e(X, Y), junk(Y, J), list(Y, T).
+                check(n20000, nil).
+                check(X, c(X, T)) :- e(X, Y), check(Y, T).
+                """);
+        for (int i = 0; i < 20000; i++) {
+            source.append("e(n").append(i).append(", n").append(i + 1).append(").\n");
+        }
+        return Programs.link(source.toString());
+    }
+
+    private static WamMachine machine(LinkedProgram program) {
+        WamMachine vm = new WamMachine(2 * WamMachine.SEGMENT_SIZE, WamMachine.DEFAULT_LIMIT, WamMachine.DEFAULT_LIMIT);
+        vm.load(program);
+        return vm;
+    }
+
+    @Test
+    void collectorReclaimsGarbageOfADeterministicLoop() {
+        LinkedProgram program = program();
+        WamMachine vm = machine(program);
+        assertEquals(1, Programs.answers(vm, "?- loop(n0).").size());
+        assertTrue(vm.gcCount > 0);
+        assertTrue(vm.gcReclaimed > 0);
+
+        WamMachine without = machine(program);
+        without.gcEnabled = false;
+        assertThrows(WamResourceError.class, () -> Programs.answers(without, "?- loop(n0)."));
+    }
+
+    @Test
+    void collectorKeepsAndRelocatesLiveTerms() {
+        WamMachine vm = machine(program());
+        try (Solutions solutions = vm.solve(Programs.query("?- list(n0, L), check(n0, L)."))) {
+            assertTrue(solutions.hasNext());
+        }
+        assertTrue(vm.gcCount > 0);
+    }
+}
@@ -0,0 +1,51 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JitIndexerTest {
+
+    // The structure in the last clause keeps the predicate out of a fact table.
+    private static final String SOURCE = """
+            parent(anakin, luke).
+            parent(anakin, leia).
+            parent(padme, luke).
+            parent(padme, leia).
+            parent(leia, ben).
+            parent(han, ben).
+            parent(shmi, anakin).
+            parent(ruwee, padme).
+            parent(jobal, padme).
+            parent(maker(force), anakin).
+            """;
+
+    @Test
+    void indexIsBuiltForARepeatedlyBoundArgument() throws InterruptedException {
+        WamMachine vm = Programs.machine(Programs.link(SOURCE));
+        for (int i = 0; i < JitIndexer.BUILD_THRESHOLD; i++) {
+            assertEquals(List.of("X = anakin", "X = padme"), Programs.answers(vm, "?- parent(X, leia)."));
+        }
+        // Indexes are built in the background; wait until this one is published.
+        for (int i = 0; i < 500 && vm.jit.built == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, vm.jit.built);
+        assertEquals(List.of("X = anakin", "X = padme"), Programs.answers(vm, "?- parent(X, leia)."));
+        assertEquals(List.of("X = leia", "X = han"), Programs.answers(vm, "?- parent(X, ben)."));
+        assertEquals(List.of("X = ruwee", "X = jobal"), Programs.answers(vm, "?- parent(X, padme)."));
+        assertEquals(List.of("X = shmi", "X = maker(force)"), Programs.answers(vm, "?- parent(X, anakin)."));
+        assertEquals(List.of(), Programs.answers(vm, "?- parent(X, rey)."));
+    }
+
+    @Test
+    void unboundCallsStillSeeEveryClause() {
+        WamMachine vm = Programs.machine(Programs.link(SOURCE));
+        for (int i = 0; i < 2 * JitIndexer.BUILD_THRESHOLD; i++) {
+            assertEquals(10, Programs.answers(vm, "?- parent(X, Y).").size());
+        }
+        assertEquals(0, vm.jit.built);
+    }
+}
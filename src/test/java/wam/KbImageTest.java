@@ -0,0 +1,101 @@
+package wam;
+
+import compiler.FactLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KbImageTest {
+
+    private static final String SOURCE = """
+            parent(anakin, luke).
+            parent(anakin, leia).
+            parent(luke, ben).
+            ancestor(X, Y) :- parent(X, Y).
+            ancestor(X, Y) :- parent(X, Z), ancestor(Z, Y).
+            linked(X, Y) :- edge(X, Y).
+            """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadedImageAnswersLikeTheSource() throws IOException {
+        byte[] source = SOURCE.getBytes(StandardCharsets.UTF_8);
+        LinkedProgram program = Programs.link(SOURCE);
+        Path image = dir.resolve("kb.img");
+        KbImage.write(program, source, List.of(), image);
+
+        LinkedProgram loaded = KbImage.load(image, source);
+        assertEquals(Programs.answers(program, "?- ancestor(anakin, Y)."), Programs.answers(loaded, "?- ancestor(anakin, Y)."));
+        assertEquals(List.of("Y = luke", "Y = leia", "Y = ben"), Programs.answers(loaded, "?- ancestor(anakin, Y)."));
+    }
+
+    @Test
+    void imageHoldsItsBulkLoadedFacts() throws IOException {
+        Path edges = write("edge.tsv", "a\tb\nb\tc\n");
+        FactLoader facts = new FactLoader();
+        facts.load(edges);
+        byte[] source = SOURCE.getBytes(StandardCharsets.UTF_8);
+        Path image = dir.resolve("kb.img");
+        KbImage.write(Programs.link(SOURCE, facts.getTables(), List.of(), false), source, List.of(edges), image);
+
+        assertEquals(List.of("Y = b"), Programs.answers(KbImage.load(image, source), "?- linked(a, Y)."));
+    }
+
+    @Test
+    void changedSourceMakesTheImageStale() throws IOException {
+        Path image = dir.resolve("kb.img");
+        KbImage.write(Programs.link(SOURCE), SOURCE.getBytes(StandardCharsets.UTF_8), List.of(), image);
+
+        byte[] changed = (SOURCE + "parent(leia, ben).\n").getBytes(StandardCharsets.UTF_8);
+        KbImageException e = assertThrows(KbImageException.class, () -> KbImage.load(image, changed));
+        assertTrue(e.getMessage().contains("stale"), e.getMessage());
+        // Without a source to compare with, the image is used as it is.
+        assertNotNull(KbImage.load(image, null));
+    }
+
+    @Test
+    void changedFactFileMakesTheImageStale() throws IOException {
+        Path edges = write("edge.tsv", "a\tb\n");
+        FactLoader facts = new FactLoader();
+        facts.load(edges);
+        byte[] source = SOURCE.getBytes(StandardCharsets.UTF_8);
+        Path image = dir.resolve("kb.img");
+        KbImage.write(Programs.link(SOURCE, facts.getTables(), List.of(), false), source, List.of(edges), image);
+
+        write("edge.tsv", "a\tz\n");
+        KbImageException e = assertThrows(KbImageException.class, () -> KbImage.load(image, source));
+        assertTrue(e.getMessage().contains(edges.toString()), e.getMessage());
+
+        Files.delete(edges);
+        assertThrows(KbImageException.class, () -> KbImage.load(image, source));
+    }
+
+    @Test
+    void damagedImageIsRejected() throws IOException {
+        byte[] source = SOURCE.getBytes(StandardCharsets.UTF_8);
+        Path image = dir.resolve("kb.img");
+        KbImage.write(Programs.link(SOURCE), source, List.of(), image);
+
+        byte[] bytes = Files.readAllBytes(image);
+        bytes[bytes.length - 5] ^= 1;
+        Files.write(image, bytes);
+        KbImageException e = assertThrows(KbImageException.class, () -> KbImage.load(image, source));
+        assertTrue(e.getMessage().contains("damaged"), e.getMessage());
+
+        Files.write(image, "not an image".getBytes(StandardCharsets.UTF_8));
+        assertThrows(KbImageException.class, () -> KbImage.load(image, source));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content);
+    }
+}
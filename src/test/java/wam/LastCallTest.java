@@ -0,0 +1,55 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LastCallTest {
+
+    private static final int LENGTH = 20000;
+
+    private static String chain() {
+        StringBuilder source = new StringBuilder("walk(n" + LENGTH + ").\nwalk(X) :- e(X, Y), walk(Y).\n");
+        for (int i = 0; i < LENGTH; i++) {
+            source.append("e(n").append(i).append(", n").append(i + 1).append(").\n");
+        }
+        return source.toString();
+    }
+
+    @Test
+    void lastGoalReleasesTheEnvironmentBeforeItJumps() {
+        LinkedProgram program = Programs.link(chain());
+        int executes = 0;
+        for (int p = 0; p < program.queryBase; p += LinkedProgram.WIDTH) {
+            Opcode op = Opcode.VALUES[program.code[p + LinkedProgram.OP]];
+            if (op == Opcode.EXECUTE) {
+                assertEquals(Opcode.DEALLOCATE, Opcode.VALUES[program.code[p - LinkedProgram.WIDTH + LinkedProgram.OP]]);
+                executes++;
+            }
+        }
+        assertEquals(1, executes);
+    }
+
+    @Test
+    void chainRuleCompilesToASingleJump() {
+        LinkedProgram program = Programs.link("""
+                parent(anakin, luke).
+                parent(luke, ben).
+                ancestor(X, Y) :- parent(X, Y).
+                """);
+        int p = program.labels.get("ancestor/2");
+        assertEquals(Opcode.EXECUTE, Opcode.VALUES[program.code[p + LinkedProgram.OP]]);
+        assertEquals(program.labels.get("parent/2"), program.code[p + LinkedProgram.LABEL]);
+        assertEquals(List.of("X = anakin, Y = luke", "X = luke, Y = ben"), Programs.answers(program, "?- ancestor(X, Y)."));
+    }
+
+    @Test
+    void tailRecursionRunsInConstantStack() {
+        WamMachine vm = new WamMachine(1 << 22, 1 << 12, 1 << 22);
+        vm.load(Programs.link(chain()));
+        assertEquals(List.of("true"), Programs.answers(vm, "?- walk(n0)."));
+        assertEquals(List.of(), Programs.answers(vm, "?- walk(nowhere)."));
+    }
+}
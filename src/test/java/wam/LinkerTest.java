@@ -0,0 +1,54 @@
+package wam;
+
+import ast.SymbolTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkerTest {
+
+    private static final String SOURCE = """
+            parent(anakin, luke).
+            parent(luke, ben).
+            grandparent(X, Z) :- parent(X, Y), parent(Y, Z).
+            orphan(X) :- nobody(X).
+            """;
+
+    @Test
+    void callsJumpStraightToTheirPredicate() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(0, program.code.length % LinkedProgram.WIDTH);
+        int parent = program.labels.get("parent/2");
+        int calls = 0;
+        for (int p = 0; p < program.queryBase; p += LinkedProgram.WIDTH) {
+            Opcode op = Opcode.VALUES[program.code[p + LinkedProgram.OP]];
+            if ((op == Opcode.CALL || op == Opcode.EXECUTE)
+                    && program.code[p + LinkedProgram.ARG] == SymbolTable.GLOBAL.functor("parent", 2)) {
+                assertEquals(parent, program.code[p + LinkedProgram.LABEL]);
+                calls++;
+            }
+        }
+        assertEquals(2, calls);
+    }
+
+    @Test
+    void callOfAnUndefinedProcedureFails() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of(), Programs.answers(program, "?- orphan(X)."));
+        assertEquals(List.of("X = ben"), Programs.answers(program, "?- grandparent(anakin, X)."));
+    }
+
+    @Test
+    void queriesAreLinkedAfterTheProgram() {
+        LinkedProgram program = Programs.link(SOURCE);
+        LinkedProgram withQuery = new Linker().linkQuery(program, Programs.query("?- parent(X, Y)."), null);
+        assertSame(program, withQuery.withoutQuery());
+        assertEquals(program.queryBase, withQuery.entry);
+        assertArrayEquals(Arrays.copyOf(program.code, program.queryBase),
+                Arrays.copyOf(withQuery.code, program.queryBase));
+        assertNotSame(program.code, withQuery.code);
+    }
+}
@@ -0,0 +1,86 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MachinePoolTest {
+
+    private static final String SOURCE = """
+            :- table path/2.
+            edge(a, b).
+            edge(b, c).
+            edge(c, a).
+            edge(c, d).
+            path(X, Y) :- path(X, Z), edge(Z, Y).
+            path(X, Y) :- edge(X, Y).
+            hop(X, Z) :- edge(X, Y), edge(Y, Z).
+            """;
+
+    private static List<String> answers(MachinePool pool, String query) throws InterruptedException {
+        List<String> answers = new ArrayList<>();
+        for (Solution solution : pool.solve(Programs.query(query))) {
+            answers.add(solution.toString());
+        }
+        return answers;
+    }
+
+    @Test
+    void threadsShareThePoolsMachines() throws Exception {
+        LinkedProgram program = Programs.link(SOURCE);
+        List<String> hops = Programs.answers(program, "?- hop(X, Z).");
+        List<String> paths = Programs.answers(program, "?- path(a, Y).").stream().sorted().toList();
+
+        MachinePool pool = new MachinePool(program, 3);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                runs.add(threads.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        assertEquals(hops, answers(pool, "?- hop(X, Z)."));
+                        assertEquals(paths, answers(pool, "?- path(a, Y).").stream().sorted().toList());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void acquireWaitsForAReleasedMachine() throws Exception {
+        MachinePool pool = new MachinePool(Programs.link(SOURCE), 1);
+        WamMachine leased = pool.acquire();
+        leased.loadQuery(Programs.query("?- hop(a, Z)."));
+
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<String>> waiting = thread.submit(() -> answers(pool, "?- hop(b, Z)."));
+            assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+            pool.release(leased);
+            assertEquals(List.of("Z = a", "Z = d"), waiting.get(30, TimeUnit.SECONDS));
+        } finally {
+            thread.shutdownNow();
+        }
+    }
+
+    @Test
+    void foreignMachinesCannotBeReleased() {
+        LinkedProgram program = Programs.link(SOURCE);
+        MachinePool pool = new MachinePool(program, 2);
+        assertThrows(IllegalArgumentException.class, () -> pool.release(Programs.machine(program)));
+    }
+}
@@ -0,0 +1,48 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** OR-parallel execution must find the same answers as sequential execution. */
+class OrParallelTest {
+
+    private static final String SOURCE = """
+            p(a). p(b). p(c).
+            q(x). q(y).
+            e(a, b). e(b, c). e(c, d). e(a, c). e(b, d).
+            pair(X, Y) :- p(X), q(Y).
+            hop(X, Z) :- e(X, Y), e(Y, Z).
+            triple(X, Y, Z) :- p(X), q(Y), e(X, Z).
+            path(X, Y) :- e(X, Y).
+            path(X, Y) :- e(X, Z), path(Z, Y).
+            """;
+
+    private static final List<String> QUERIES = List.of(
+            "?- pair(X, Y).", "?- hop(X, Z).", "?- triple(X, Y, Z).", "?- triple(a, Y, Z).", "?- path(a, Y).",
+            "?- pair(X, Y), hop(X, Z).");
+
+    @Test
+    void orParallelAnswersMatchSequentialOnes() {
+        WamMachine vm = new WamMachine();
+        vm.load(Programs.link(SOURCE));
+        OrParallel workers = new OrParallel(4);
+        for (String query : QUERIES) {
+            List<String> expected = Programs.answers(vm, query);
+            CompilerResult compiled = Programs.query(query);
+            vm.loadQuery(compiled);
+            List<String> found = Collections.synchronizedList(new ArrayList<>());
+            long count = workers.solve(vm, answer -> found.add(Solution.format(answer, compiled.variables())));
+
+            assertEquals(expected.size(), count, query);
+            List<String> actual = new ArrayList<>(found);
+            expected.sort(null);
+            actual.sort(null);
+            assertEquals(expected, actual, query);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package wam;
+
+import ast.FactTable;
+import ast.Program;
+import ast.Term;
+import compiler.ASTGenerator;
+import generated.LogicMiniLexer;
+import generated.LogicMiniParser;
+import optimizer.ClauseOptimizer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** Runs the front end and back end over knowledge bases and queries given as strings, as Main does. */
+final class Programs {
+
+    private Programs() {
+    }
+
+    static LinkedProgram link(String source) {
+        return link(source, Map.of(), List.of(), false);
+    }
+
+    /**
+     * Parses, optimizes, compiles and links a knowledge base.
+     * @param facts Bulk-loaded facts, compiled along with the parsed clauses.
+     * @param segments Predicates served from fact segments.
+     * @param andParallel Whether to run independent goals of rule bodies at the same time.
+     */
+    static LinkedProgram link(String source, Map<Integer, FactTable> facts, List<FactSegment> segments,
+                              boolean andParallel) {
+        Compiler compiler = new Compiler();
+        compiler.andParallel = andParallel;
+        segments.forEach(compiler::useSegment);
+        return new Linker().link(compile(compiler, source, facts));
+    }
+
+    /** Parses, optimizes and compiles a knowledge base with the given compiler, without linking it. */
+    static CompilerResult compile(Compiler compiler, String source, Map<Integer, FactTable> facts) {
+        Program parsed = parse(source);
+        Program program = new Program(parsed.getClauses(), parsed.getQuery(), parsed.getTabled(), facts);
+        return compiler.compile(new ClauseOptimizer().optimize(program));
+    }
+
+    /** Compiles a query such as {@code "?- path(a, X)."}. */
+    static CompilerResult query(String query) {
+        return new Compiler().compileQuery(goals(query));
+    }
+
+    static List<Term> goals(String query) {
+        return parse(query).getQuery();
+    }
+
+    /** Every answer of a query, formatted as the REPL prints it, in the order they are found. */
+    static List<String> answers(WamMachine vm, String query) {
+        List<String> answers = new ArrayList<>();
+        try (Solutions solutions = vm.solve(query(query))) {
+            for (Solution solution : solutions) {
+                answers.add(solution.toString());
+            }
+        }
+        return answers;
+    }
+
+    /** Every answer of a query on a new machine with a program loaded. */
+    static List<String> answers(LinkedProgram program, String query) {
+        return answers(machine(program), query);
+    }
+
+    /** A machine with the default limits and a program loaded. */
+    static WamMachine machine(LinkedProgram program) {
+        WamMachine vm = new WamMachine();
+        vm.load(program);
+        return vm;
+    }
+
+    private static Program parse(String source) {
+        LogicMiniParser parser = new LogicMiniParser(new CommonTokenStream(new LogicMiniLexer(CharStreams.fromString(source))));
+        Program program = (Program) new ASTGenerator().visit(parser.program());
+        if (parser.getNumberOfSyntaxErrors() > 0) throw new IllegalArgumentException("Syntax error in: " + source);
+        return program;
+    }
+}
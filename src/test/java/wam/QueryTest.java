@@ -0,0 +1,44 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryTest {
+
+    private static final String SOURCE = """
+            parent(anakin, luke).
+            parent(anakin, leia).
+            parent(leia, ben).
+            grandparent(X, Z) :- parent(X, Y), parent(Y, Z).
+            """;
+
+    @Test
+    void queryIsCompiledWithoutTheKnowledgeBase() {
+        CompilerResult query = Programs.query("?- grandparent(anakin, Who).");
+        assertFalse(query.labels().containsKey("grandparent/2"));
+        assertFalse(query.labels().containsKey("parent/2"));
+        assertEquals(List.of("Who"), query.variables());
+    }
+
+    @Test
+    void loadedProgramIsKeptAcrossQueries() {
+        LinkedProgram program = Programs.link(SOURCE);
+        WamMachine vm = Programs.machine(program);
+
+        assertEquals(List.of("Who = ben"), Programs.answers(vm, "?- grandparent(anakin, Who)."));
+        assertSame(program, vm.program.withoutQuery());
+        assertEquals(program.version, vm.program.version);
+        assertTrue(vm.program.entry >= program.queryBase);
+        int[] code = vm.program.code;
+
+        // Later queries are linked into the same code array, after the same program.
+        assertEquals(List.of("X = luke", "X = leia"), Programs.answers(vm, "?- parent(anakin, X)."));
+        assertSame(program, vm.program.withoutQuery());
+        assertSame(code, vm.program.code);
+        assertEquals(List.of(), Programs.answers(vm, "?- parent(ben, X)."));
+        assertEquals(List.of("Who = ben"), Programs.answers(vm, "?- grandparent(anakin, Who)."));
+    }
+}
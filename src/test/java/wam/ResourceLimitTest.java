@@ -0,0 +1,58 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceLimitTest {
+
+    private static final String SOURCE = """
+            grow(X) :- grow(f(X)).
+            deep(X) :- deep(X), done(X).
+            done(x).
+            p(X) :- grow(X).
+            p(done).
+            """;
+
+    @Test
+    void areasGrowOnDemand() {
+        StringBuilder source = new StringBuilder("list(n20000, nil).\nlist(X, c(X, T)) :- e(X, Y), list(Y, T).\n");
+        for (int i = 0; i < 20000; i++) {
+            source.append("e(n").append(i).append(", n").append(i + 1).append(").\n");
+        }
+        WamMachine vm = new WamMachine(1 << 22, 1 << 22, 1 << 22);
+        vm.load(Programs.link(source.toString()));
+        assertEquals(WamMachine.SEGMENT_SIZE, vm.heap.length);
+        try (Solutions solutions = vm.solve(Programs.query("?- list(n0, L)."))) {
+            assertTrue(solutions.hasNext());
+        }
+        assertTrue(vm.heap.length > WamMachine.SEGMENT_SIZE);
+        assertTrue(vm.heap.length <= 1 << 22);
+    }
+
+    @Test
+    void exceedingALimitRaisesAResourceError() {
+        WamMachine vm = new WamMachine(WamMachine.SEGMENT_SIZE, WamMachine.SEGMENT_SIZE, WamMachine.SEGMENT_SIZE);
+        vm.load(Programs.link(SOURCE));
+        WamResourceError heap = assertThrows(WamResourceError.class, () -> Programs.answers(vm, "?- grow(a)."));
+        assertEquals("heap", heap.area);
+        assertEquals(WamMachine.SEGMENT_SIZE, heap.limit);
+
+        WamResourceError stack = assertThrows(WamResourceError.class, () -> Programs.answers(vm, "?- deep(x)."));
+        assertEquals("stack", stack.area);
+
+        // The machine is still usable afterwards.
+        assertEquals(List.of("X = x"), Programs.answers(vm, "?- done(X)."));
+    }
+
+    @Test
+    void resourceErrorBacktracksLikeAFailure() {
+        WamMachine vm = new WamMachine(WamMachine.SEGMENT_SIZE, WamMachine.SEGMENT_SIZE, WamMachine.SEGMENT_SIZE);
+        vm.load(Programs.link(SOURCE));
+        try (Solutions solutions = vm.solve(Programs.query("?- p(X)."))) {
+            assertEquals("X = done", solutions.next().toString());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolutionsTest {
+
+    private static final String SOURCE = """
+            n(a). n(b). n(c). n(d).
+            nat(z).
+            nat(s(X)) :- nat(X).
+            """;
+
+    @Test
+    void limitStopsAnInfiniteSearch() {
+        WamMachine vm = new WamMachine();
+        vm.load(Programs.link(SOURCE));
+        try (Solutions solutions = vm.solve(Programs.query("?- nat(X).")).limit(3)) {
+            List<String> answers = solutions.stream().map(Solution::toString).collect(Collectors.toList());
+            assertEquals(List.of("X = z", "X = s(z)", "X = s(s(z))"), answers);
+            assertFalse(solutions.hasNext());
+            assertFalse(solutions.mayHaveMore());
+        }
+        // The machine is free for the next query.
+        assertEquals(List.of("X = a", "X = b", "X = c", "X = d"), Programs.answers(vm, "?- n(X)."));
+    }
+
+    @Test
+    void closeDiscardsTheRemainingAnswers() {
+        WamMachine vm = new WamMachine();
+        vm.load(Programs.link(SOURCE));
+        Solutions solutions = vm.solve(Programs.query("?- n(X)."));
+        Solution first = solutions.next();
+        assertEquals("a", first.get("X").toString());
+        assertTrue(solutions.mayHaveMore());
+        solutions.close();
+
+        assertFalse(solutions.hasNext());
+        assertThrows(NoSuchElementException.class, solutions::next);
+        // The solution is a copy and outlives the machine's move to another query.
+        assertEquals(List.of("Y = d"), Programs.answers(vm, "?- n(d), n(Y).").subList(3, 4));
+        assertEquals("X = a", first.toString());
+    }
+
+    @Test
+    void lastAnswerIsKnownWithoutSearchingFurther() {
+        WamMachine vm = new WamMachine();
+        vm.load(Programs.link(SOURCE));
+        try (Solutions solutions = vm.solve(Programs.query("?- n(c)."))) {
+            assertEquals("true", solutions.next().toString());
+            assertFalse(solutions.mayHaveMore());
+        }
+        try (Solutions solutions = vm.solve(Programs.query("?- n(e)."))) {
+            assertFalse(solutions.hasNext());
+        }
+    }
+
+    @Test
+    void cyclicAnswerRaisesAResourceError() {
+        WamMachine vm = Programs.machine(Programs.link("p(X, X).\nq(a).\n"));
+        Solutions solutions = vm.solve(Programs.query("?- p(A, f(A))."));
+        WamResourceError e = assertThrows(WamResourceError.class, solutions::hasNext);
+        assertEquals("heap", e.area);
+        assertFalse(solutions.hasNext());
+        // The machine is free for the next query.
+        assertEquals(List.of("true"), Programs.answers(vm, "?- q(a)."));
+        vm.occursCheck = true;
+        assertEquals(List.of(), Programs.answers(vm, "?- p(A, f(A))."));
+    }
+
+    @Test
+    void sharedSubtermsAreNotMistakenForCycles() {
+        LinkedProgram program = Programs.link("dup(X, f(X, X)).\n");
+        List<String> answers = Programs.answers(program, "?- dup(a, A), dup(A, B), dup(B, C), dup(C, D).");
+        assertEquals(1, answers.size());
+        assertTrue(answers.get(0).endsWith("D = f(f(f(f(a, a), f(a, a)), f(f(a, a), f(a, a))), "
+                + "f(f(f(a, a), f(a, a)), f(f(a, a), f(a, a))))"), answers.get(0));
+    }
+}
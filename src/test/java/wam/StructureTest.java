@@ -0,0 +1,50 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StructureTest {
+
+    private static final String SOURCE = """
+            len(nil, zero).
+            len(cons(H, T), s(N)) :- len(T, N).
+            first(cons(X, Rest), X).
+            point(p(a, b, f(c))).
+            """;
+
+    @Test
+    void headStructuresCompileToUnifyInstructions() {
+        LinkedProgram program = Programs.link(SOURCE);
+        Set<Opcode> used = EnumSet.noneOf(Opcode.class);
+        for (int p = 0; p < program.queryBase; p += LinkedProgram.WIDTH) {
+            used.add(Opcode.VALUES[program.code[p + LinkedProgram.OP]]);
+        }
+        assertTrue(used.containsAll(List.of(Opcode.GET_STRUCTURE, Opcode.UNIFY_VARIABLE, Opcode.UNIFY_CONSTANT,
+                Opcode.UNIFY_VOID)), used.toString());
+    }
+
+    @Test
+    void readModeMatchesExistingStructures() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of("N = s(s(zero))"), Programs.answers(program, "?- len(cons(a, cons(b, nil)), N)."));
+        assertEquals(List.of("X = a"), Programs.answers(program, "?- first(cons(a, nil), X)."));
+        assertEquals(List.of("Y = b"), Programs.answers(program, "?- point(p(a, Y, f(c)))."));
+        assertEquals(List.of(), Programs.answers(program, "?- point(p(a, b, f(d)))."));
+    }
+
+    @Test
+    void writeModeBuildsNewStructures() {
+        LinkedProgram program = Programs.link(SOURCE);
+        // Fresh variables are named after their heap cells.
+        List<String> lists = Programs.answers(program, "?- len(L, s(s(zero))).");
+        assertEquals(1, lists.size());
+        assertTrue(lists.get(0).matches("L = cons\\(_G\\d+, cons\\(_G\\d+, nil\\)\\)"), lists.get(0));
+        assertEquals(List.of("P = p(a, b, f(c))"), Programs.answers(program, "?- point(P)."));
+        assertTrue(Programs.answers(program, "?- first(L, x).").get(0).matches("L = cons\\(x, _G\\d+\\)"));
+    }
+}
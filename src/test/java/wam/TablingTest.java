@@ -0,0 +1,53 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablingTest {
+
+    private static final String SOURCE = """
+            :- table path/2, even/1, odd/1.
+            path(X, Y) :- path(X, Z), edge(Z, Y).
+            path(X, Y) :- edge(X, Y).
+            edge(a, b).
+            edge(b, c).
+            edge(c, a).
+            edge(c, d).
+            even(zero).
+            even(s(N)) :- odd(N).
+            odd(s(N)) :- even(N).
+            """;
+
+    @Test
+    void leftRecursionOnACyclicGraphTerminates() {
+        WamMachine vm = Programs.machine(Programs.link(SOURCE));
+        List<String> answers = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> Programs.answers(vm, "?- path(a, Y)."));
+        assertEquals(List.of("Y = a", "Y = b", "Y = c", "Y = d"), answers.stream().sorted().toList());
+        assertEquals(1, vm.tables.subgoals());
+        assertEquals(4, vm.tables.answers());
+    }
+
+    @Test
+    void completedTablesAnswerRepeatedCalls() {
+        WamMachine vm = Programs.machine(Programs.link(SOURCE));
+        List<String> first = Programs.answers(vm, "?- path(b, Y).");
+        int subgoals = vm.tables.subgoals();
+        assertTrue(subgoals > 0);
+        assertEquals(first, Programs.answers(vm, "?- path(b, Y)."));
+        assertEquals(subgoals, vm.tables.subgoals());
+        assertEquals(List.of(), Programs.answers(vm, "?- path(d, Y)."));
+    }
+
+    @Test
+    void mutualRecursionIsTabledPerVariant() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of("true"), Programs.answers(program, "?- even(s(s(zero)))."));
+        assertEquals(List.of(), Programs.answers(program, "?- odd(s(s(zero)))."));
+        assertEquals(List.of("true"), Programs.answers(program, "?- odd(s(s(s(zero))))."));
+    }
+}
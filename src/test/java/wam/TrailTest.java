@@ -0,0 +1,48 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrailTest {
+
+    private static final String SOURCE = """
+            color(red).
+            color(green).
+            color(blue).
+            warm(red).
+            pair(X, Y) :- color(X), color(Y), warm(Y).
+            """;
+
+    @Test
+    void deterministicBindingsAreNotTrailed() {
+        StringBuilder source = new StringBuilder("list(n20000, nil).\nlist(X, c(X, T)) :- e(X, Y), list(Y, T).\n");
+        for (int i = 0; i < 20000; i++) {
+            source.append("e(n").append(i).append(", n").append(i + 1).append(").\n");
+        }
+        // Far fewer trail entries than bindings made by the query.
+        WamMachine vm = new WamMachine(1 << 22, 1 << 22, 1 << 10);
+        vm.load(Programs.link(source.toString()));
+        try (Solutions solutions = vm.solve(Programs.query("?- list(n0, L)."))) {
+            assertTrue(solutions.hasNext());
+            // Only the last call leaves a choice point (both clauses of list/2 match n20000),
+            // so of all the query's bindings just the one made after it is trailed.
+            assertEquals(1, vm.TR);
+        }
+    }
+
+    @Test
+    void bindingsOlderThanAChoicePointAreUndone() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of("X = red, Y = red", "X = green, Y = red", "X = blue, Y = red"),
+                Programs.answers(program, "?- pair(X, Y)."));
+        WamMachine vm = Programs.machine(program);
+        try (Solutions solutions = vm.solve(Programs.query("?- pair(X, Y)."))) {
+            solutions.next();
+            assertTrue(vm.hasChoices());
+            assertTrue(vm.TR > 0);
+        }
+    }
+}
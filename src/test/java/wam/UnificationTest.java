@@ -0,0 +1,51 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnificationTest {
+
+    private static final String SOURCE = """
+            same(X, X).
+            """;
+
+    @Test
+    void structuresUnifyArgumentByArgument() {
+        LinkedProgram program = Programs.link(SOURCE);
+        assertEquals(List.of("X = b, Y = a"), Programs.answers(program, "?- same(f(a, X, g(X)), f(Y, b, g(b)))."));
+        assertEquals(List.of(), Programs.answers(program, "?- same(f(a, b), f(a, c))."));
+        assertEquals(List.of(), Programs.answers(program, "?- same(f(a, b), f(a))."));
+        assertEquals(List.of(), Programs.answers(program, "?- same(f(a), g(a))."));
+        assertEquals(List.of(), Programs.answers(program, "?- same(f(X, X), f(a, b))."));
+        assertEquals(1, Programs.answers(program, "?- same(X, Y).").size());
+    }
+
+    @Test
+    void occursCheckRejectsCyclicBindings() {
+        WamMachine vm = Programs.machine(Programs.link(SOURCE));
+        vm.occursCheck = true;
+        assertEquals(List.of(), Programs.answers(vm, "?- same(A, f(A))."));
+        assertEquals(List.of(), Programs.answers(vm, "?- same(g(A, B), g(f(B), f(A)))."));
+        assertEquals(List.of("A = f(B)"), Programs.answers(vm, "?- same(A, f(B))."));
+    }
+
+    @Test
+    void deepStructuresUnifyWithoutRecursion() {
+        StringBuilder source = new StringBuilder(SOURCE);
+        source.append("list(n50000, nil).\nlist(X, c(X, T)) :- e(X, Y), list(Y, T).\n");
+        for (int i = 0; i < 50000; i++) {
+            source.append("e(n").append(i).append(", n").append(i + 1).append(").\n");
+        }
+        WamMachine vm = Programs.machine(Programs.link(source.toString()));
+        // Two separately built lists, 50000 cells deep: unifying them walks both completely.
+        try (Solutions solutions = vm.solve(Programs.query("?- list(n0, A), list(n0, B), same(A, B)."))) {
+            assertTrue(solutions.hasNext());
+        }
+        try (Solutions solutions = vm.solve(Programs.query("?- list(n0, A), list(n1, B), same(A, B)."))) {
+            assertFalse(solutions.hasNext());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package wam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static wam.WamWord.*;
+
+class WamWordTest {
+
+    @Test
+    void wordsKeepTheirTagAndPayload() {
+        int[] payloads = {0, 1, 12345, (1 << 28) - 1, Integer.MAX_VALUE};
+        for (int payload : payloads) {
+            assertEquals(REF, tag(ref(payload)));
+            assertEquals(STR, tag(str(payload)));
+            assertEquals(CON, tag(con(payload)));
+            assertEquals(FUN, tag(fun(payload)));
+            assertEquals(payload, value(ref(payload)));
+            assertEquals(payload, value(str(payload)));
+            assertEquals(payload, value(con(payload)));
+            assertEquals(payload, value(fun(payload)));
+        }
+    }
+
+    @Test
+    void emptyCellIsNoTerm() {
+        assertNull(tagOf(EMPTY));
+        assertEquals("EMPTY", WamWord.toString(EMPTY));
+        assertNotEquals(EMPTY, ref(0));
+        assertEquals(WamTag.REF, tagOf(ref(7)));
+        assertEquals("STR(-> 7)", WamWord.toString(str(7)));
+    }
+
+    @Test
+    void machineBuildsAndReadsPackedTerms() {
+        LinkedProgram program = Programs.link("""
+                pair(a, f(b, g(c))).
+                pair(d, f(e, h)).
+                same(X, X).
+                """);
+        assertEquals(List.of("X = a, Y = f(b, g(c))", "X = d, Y = f(e, h)"), Programs.answers(program, "?- pair(X, Y)."));
+        assertEquals(List.of("Z = g(c)"), Programs.answers(program, "?- pair(a, f(b, Z))."));
+        assertEquals(List.of("A = f(b, B)"), Programs.answers(program, "?- same(A, f(b, B))."));
+    }
+}